@@ -6,28 +6,39 @@
 
 plugins {
     id("buildlogic.java-application")
+    id("buildlogic.jmh")
+    id("buildlogic.load-test")
+    id("buildlogic.app-cds")
 }
 
 dependencies {
     implementation(platform(libs.jackson.bom))
     implementation(libs.jackson.databind)
+    implementation(libs.jackson.dataformat.cbor)
     implementation(libs.jackson.datatype.jdk8)
     implementation(libs.jackson.datatype.jsr310)
     implementation(libs.logbackClassic)
 
     implementation(libs.javalin.bundle)
+    implementation(libs.jetty.http2.server)
 
     testImplementation(libs.assertj.core)
     testImplementation(libs.mockito.core)
+    testImplementation(libs.awaitility)
 
+    testFunctionalImplementation(platform(libs.jackson.bom))
+    testFunctionalImplementation(libs.jackson.databind)
     testFunctionalImplementation(libs.assertj.core)
     testFunctionalImplementation(libs.assertj.json.unit)
     testFunctionalImplementation(libs.restAssured)
     testFunctionalImplementation(libs.awaitility)
 
+    jmhImplementation(libs.jmh.core)
+    jmhAnnotationProcessor(libs.jmh.generator.annprocess)
+
 }
 
 application {
     // Define the main class for the application.
-    mainClass = "com.neverless.app.App"
+    mainClass = "com.neverless.App"
 }
@@ -0,0 +1,68 @@
+package com.neverless.domain.impl;
+
+import com.neverless.domain.AccountId;
+import com.neverless.domain.impl.AccountImpl.WithdrawalStatus;
+import com.neverless.integration.WithdrawalService.WithdrawalId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Cost of single account mutations as run on a shard thread, no queues involved.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountBenchmark {
+    private static final int WITHDRAWALS_PER_ACCOUNT = 100;
+
+    private AccountImpl account;
+
+    @Setup
+    public void setUp() {
+        account = new AccountImpl(AccountId.random(), 0L);
+    }
+
+    @Benchmark
+    public void addToBalance() {
+        account.addToBalance(1L);
+    }
+
+    /*
+     * Withdrawals are never removed from an account, so every invocation starts from a fresh one to keep the map
+     * at a realistic size instead of growing it for the whole run.
+     */
+    @Benchmark
+    @OperationsPerInvocation(WITHDRAWALS_PER_ACCOUNT)
+    public void withdrawAndSettle(Blackhole blackhole) {
+        final var fresh = new AccountImpl(AccountId.random(), Long.MAX_VALUE / 2);
+        for (int i = 0; i < WITHDRAWALS_PER_ACCOUNT; i++) {
+            WithdrawalId withdrawalId = fresh.withdraw("address", 10L);
+            fresh.updateWithdrawalStatus(withdrawalId, (i & 1) == 0 ? WithdrawalStatus.SUCCESS : WithdrawalStatus.ERROR);
+        }
+        blackhole.consume(fresh);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(WITHDRAWALS_PER_ACCOUNT)
+    public void withdrawRejectedByBalanceCheck(Blackhole blackhole) {
+        final var empty = new AccountImpl(AccountId.random(), 0L);
+        for (int i = 0; i < WITHDRAWALS_PER_ACCOUNT; i++) {
+            blackhole.consume(empty.withdraw("address", 10L));
+        }
+    }
+}
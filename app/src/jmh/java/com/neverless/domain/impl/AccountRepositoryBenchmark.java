@@ -0,0 +1,65 @@
+package com.neverless.domain.impl;
+
+import com.neverless.domain.AccountId;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Lookups of random existing (and missing) accounts. Ids are picked from a pre-built array, so the cost of
+ * choosing one stays out of the measurement, while bigger sizes show the effect of cache misses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccountRepositoryBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    public int accounts;
+
+    private AccountRepositoryImpl repository;
+    private AccountId[] ids;
+    private AccountId missing;
+
+    @Setup
+    public void setUp() {
+        repository = new AccountRepositoryImpl();
+        ids = new AccountId[accounts];
+        for (int i = 0; i < accounts; i++) {
+            ids[i] = AccountId.random();
+            repository.save(new AccountImpl(ids[i]));
+        }
+        missing = AccountId.random();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public Optional<?> findExisting(Cursor cursor) {
+//        Stride is a prime, so consecutive lookups land far apart in the map
+        cursor.next = (cursor.next + 7919) % ids.length;
+        return repository.find(ids[cursor.next]);
+    }
+
+    @Benchmark
+    public Optional<?> findMissing() {
+        return repository.find(missing);
+    }
+}
@@ -0,0 +1,80 @@
+package com.neverless.processing;
+
+import com.neverless.domain.AccountEventListener;
+import com.neverless.domain.AccountId;
+import com.neverless.domain.impl.AccountImpl;
+import com.neverless.domain.impl.AccountRepositoryImpl;
+import com.neverless.metrics.MetricsRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Throughput of operations going through shard queues and executed by shard threads, end to end: every invocation
+ * enqueues a batch spread over many accounts and waits until all of them ran.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountOperationDispatchBenchmark {
+    private static final int BATCH = 1000;
+    private static final int ACCOUNTS = 10_000;
+
+    @Param({"1", "4", "8", "16"})
+    public int shards;
+
+    private InMemoryAccountOperationManager manager;
+    private AccountId[] ids;
+
+    @Setup
+    public void setUp() {
+        final var repository = new AccountRepositoryImpl();
+        ids = new AccountId[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            ids[i] = AccountId.random();
+            repository.save(new AccountImpl(ids[i]));
+        }
+        manager = new InMemoryAccountOperationManager(repository, shards, account -> {
+        }, AccountEventListener.NONE, new MetricsRegistry());
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager.shutdown();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void addFunds(Cursor cursor) throws InterruptedException {
+        final var done = new CountDownLatch(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            cursor.next = (cursor.next + 1) % ACCOUNTS;
+            manager.doAccountOperationAsync(ids[cursor.next], account -> {
+                account.addToBalance(1L);
+                done.countDown();
+            }, ex -> done.countDown());
+        }
+        done.await();
+    }
+}
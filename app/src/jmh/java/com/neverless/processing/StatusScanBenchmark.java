@@ -0,0 +1,80 @@
+package com.neverless.processing;
+
+import com.neverless.domain.AccountId;
+import com.neverless.integration.WithdrawalService;
+import com.neverless.integration.WithdrawalService.Address;
+import com.neverless.integration.WithdrawalService.WithdrawalId;
+import com.neverless.integration.WithdrawalService.WithdrawalState;
+import com.neverless.metrics.MetricsRegistry;
+import com.neverless.processing.ExternalWithdrawalManager.AccountWithdrawalRequest;
+import com.neverless.time.TimeSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Cost of one status scan over all pending withdrawals. External service answers PROCESSING for everything, so the
+ * number of pending withdrawals stays the same between scans. Background status thread is never started, scans are
+ * run by the benchmark thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatusScanBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int pending;
+
+    private ExternalWithdrawalManager manager;
+
+    @Setup
+    public void setUp() throws IOException {
+        final var metrics = new MetricsRegistry();
+        manager = new ExternalWithdrawalManager(new AlwaysProcessing(),
+                new PendingWithdrawalIndex(Files.createTempDirectory("status-scan-benchmark")), metrics,
+                new WithdrawalLifecycleTracker(Duration.ofMinutes(1), metrics, TimeSource.SYSTEM), TimeSource.SYSTEM);
+        final var address = Address.fromString("address");
+        for (int i = 0; i < pending; i++) {
+            manager.withdraw(new AccountWithdrawalRequest(AccountId.random(), WithdrawalId.random(), address, 10L), (request, status) -> {
+            });
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager.shutdown();
+    }
+
+    @Benchmark
+    public void scan() {
+        manager.statusTask().checkWithdrawalStatus();
+    }
+
+    private static class AlwaysProcessing implements WithdrawalService<Long> {
+        @Override
+        public void requestWithdrawal(WithdrawalId id, Address address, Long amount) {
+        }
+
+        @Override
+        public WithdrawalState getRequestState(WithdrawalId id) {
+            return WithdrawalState.PROCESSING;
+        }
+    }
+}
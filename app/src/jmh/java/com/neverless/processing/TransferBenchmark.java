@@ -0,0 +1,84 @@
+package com.neverless.processing;
+
+import com.neverless.domain.AccountEventListener;
+import com.neverless.domain.AccountId;
+import com.neverless.domain.impl.AccountImpl;
+import com.neverless.domain.impl.AccountRepositoryImpl;
+import com.neverless.metrics.MetricsRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Throughput of internal transfers between random accounts, end to end: all three steps (reserve, credit, settle) of
+ * every transfer in a batch have run when invocation returns. Accounts never run out of funds, so every transfer goes
+ * through all steps.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransferBenchmark {
+    private static final int BATCH = 1000;
+    private static final int ACCOUNTS = 10_000;
+
+    @Param({"1", "4", "8", "16"})
+    public int shards;
+
+    private InMemoryAccountOperationManager manager;
+    private TransferManager transferManager;
+    private AccountId[] ids;
+
+    //    Accounts keep every transfer they took part in, fresh ones per iteration keep memory (and GC) flat
+    @Setup(Level.Iteration)
+    public void setUp() {
+        final var repository = new AccountRepositoryImpl();
+        ids = new AccountId[ACCOUNTS];
+        for (int i = 0; i < ACCOUNTS; i++) {
+            ids[i] = AccountId.random();
+            repository.save(new AccountImpl(ids[i], Long.MAX_VALUE / 2));
+        }
+        manager = new InMemoryAccountOperationManager(repository, shards, account -> {
+        }, AccountEventListener.NONE, new MetricsRegistry());
+        transferManager = new TransferManager(manager, new MetricsRegistry());
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        manager.shutdown();
+    }
+
+    @State(Scope.Thread)
+    public static class Pairs {
+        final SplittableRandom random = new SplittableRandom(42);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH)
+    public void transfer(Pairs pairs) throws InterruptedException {
+        final var done = new CountDownLatch(BATCH);
+        for (int i = 0; i < BATCH; i++) {
+            final var from = pairs.random.nextInt(ACCOUNTS);
+            final var to = (from + 1 + pairs.random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+            transferManager.transfer(ids[from], ids[to], 1L, transfer -> done.countDown());
+        }
+        done.await();
+    }
+}
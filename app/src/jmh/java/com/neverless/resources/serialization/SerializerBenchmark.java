@@ -0,0 +1,87 @@
+package com.neverless.resources.serialization;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.neverless.domain.AccountId;
+import com.neverless.domain.impl.AccountImpl.WithdrawalStatus;
+import com.neverless.integration.WithdrawalService.WithdrawalId;
+import com.neverless.resources.Accounts.AccountResponse;
+import com.neverless.resources.dtos.WithdrawalResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/*
+ * Hot responses written by hand written serializers (json and cbor) against Jackson's generated bean serializers.
+ * Encoded size of both documents per format is listed in README, next to how to run benchmarks, SerializersTest
+ * checks it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark {
+    private static final int WITHDRAWALS = 50;
+
+    private ObjectWriter json;
+    private ObjectWriter cbor;
+    private ObjectWriter generated;
+    private AccountResponse account;
+    private List<WithdrawalResponse> withdrawals;
+
+    @Setup
+    public void setUp() {
+        json = Serializers.json().writer();
+        cbor = Serializers.cbor().writer();
+        generated = new ObjectMapper().registerModule(new Jdk8Module()).writer();
+        account = new AccountResponse(AccountId.random(), 1_000_000L, 2_500L);
+        withdrawals = IntStream.range(0, WITHDRAWALS)
+                .mapToObj(i -> new WithdrawalResponse(WithdrawalId.random(), WithdrawalStatus.values()[i % 4], 100L + i, ""))
+                .toList();
+    }
+
+    @Benchmark
+    public byte[] accountJson() throws JsonProcessingException {
+        return json.writeValueAsBytes(account);
+    }
+
+    @Benchmark
+    public byte[] accountCbor() throws JsonProcessingException {
+        return cbor.writeValueAsBytes(account);
+    }
+
+    @Benchmark
+    public byte[] accountGeneratedJson() throws JsonProcessingException {
+        return generated.writeValueAsBytes(account);
+    }
+
+    @Benchmark
+    public byte[] withdrawalsJson() throws JsonProcessingException {
+        return json.writeValueAsBytes(withdrawals);
+    }
+
+    @Benchmark
+    public byte[] withdrawalsCbor() throws JsonProcessingException {
+        return cbor.writeValueAsBytes(withdrawals);
+    }
+
+    @Benchmark
+    public byte[] withdrawalsGeneratedJson() throws JsonProcessingException {
+        return generated.writeValueAsBytes(withdrawals);
+    }
+}
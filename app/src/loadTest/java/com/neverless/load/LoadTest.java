@@ -0,0 +1,312 @@
+package com.neverless.load;
+
+import com.neverless.App;
+import com.neverless.AppConfig;
+import com.neverless.ServerProfile;
+import com.neverless.metrics.Histogram;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/*
+ * Open loop load generator: requests are started at a fixed arrival rate no matter how fast application answers, like
+ * independent clients would do, instead of a fixed number of clients each waiting for previous response.
+ *
+ * Latency is measured from when a request was due to be sent, not from when it actually was. If application (or this
+ * generator) stalls, requests which should have been sent during the stall are accounted with the time they waited,
+ * so percentiles are not hiding the stall (coordinated omission). Time from actual send is reported next to it as
+ * service time, big gap between the two means requests were queueing.
+ *
+ * Application is started in process, with stub withdrawal service and a temporary data directory.
+ *
+ * Startup is reported too: how long after JVM start the first request was answered and how long the first one took,
+ * and after how many seconds of warm up traffic p99 settled (within 2x of p99 measured afterwards). Comparing runs with
+ * startupWarmup=0 and with -Pcds shows what startup warm up and class data sharing are worth.
+ *
+ * With profiles=... the test runs once per server profile, each against a fresh application, and ends with a table of
+ * throughput and response time per profile. Client speaks HTTP/2 to profiles which support it. Profiles share the
+ * JVM, later ones start with code JIT compiled by earlier ones, the warm up phase keeps that from skewing measurement.
+ */
+public class LoadTest {
+    private static final double NANOS_PER_MILLI = 1_000_000d;
+
+    private final LoadTestConfig config;
+    private final HttpClient client;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<Operation, Stats> stats = new EnumMap<>(Operation.class);
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Operation[] weightedOperations;
+    private String baseUrl;
+    private String[] accounts;
+    private final Histogram[] warmupWindows;
+    private final Histogram steady = new Histogram();
+    private volatile boolean measuring;
+    private volatile long warmupStartedAt;
+
+    LoadTest(LoadTestConfig config, HttpClient.Version version) {
+        this.config = config;
+        this.client = HttpClient.newBuilder().executor(executor).version(version).build();
+        for (Operation operation : Operation.values()) {
+            stats.put(operation, new Stats());
+        }
+        this.weightedOperations = config.mix().entrySet().stream()
+                .flatMap(entry -> Stream.generate(entry::getKey).limit(entry.getValue()))
+                .toArray(Operation[]::new);
+        this.warmupWindows = Stream.generate(Histogram::new).limit(Math.max(1, config.warmup().toSeconds())).toArray(Histogram[]::new);
+    }
+
+    public static void main(String[] args) throws Exception {
+        final var config = LoadTestConfig.parse(args);
+        final var baseConfig = AppConfig.fromSystemProperties();
+        final var profiles = config.profiles().isEmpty()
+                ? List.of(baseConfig.serverProfile())
+                : config.profiles().stream().map(ServerProfile::fromSystemProperties).toList();
+        final Map<String, Result> results = new LinkedHashMap<>();
+        for (ServerProfile profile : profiles) {
+            var appConfig = baseConfig.withDataDirectory(Files.createTempDirectory("neverless-load")).withServerProfile(profile);
+            if (config.startupWarmup() != null) {
+                appConfig = appConfig.withWarmUpIterations(config.startupWarmup());
+            }
+            System.out.printf("%n=== server profile %s ===%n", profile.name());
+            final var app = new App(appConfig);
+            app.start(0);
+            try {
+                final var version = profile.http2() ? HttpClient.Version.HTTP_2 : HttpClient.Version.HTTP_1_1;
+                results.put(profile.name(), new LoadTest(config, version).run("http://localhost:%d".formatted(app.port())));
+            } finally {
+                app.stop();
+            }
+        }
+        if (results.size() > 1) {
+            compare(results);
+        }
+        System.exit(results.values().stream().allMatch(Result::passed) ? 0 : 1);
+    }
+
+    Result run(String baseUrl) throws Exception {
+        this.baseUrl = baseUrl;
+        final var firstRequestStartedAt = System.nanoTime();
+        send(HttpRequest.newBuilder(URI.create(baseUrl + "/healthcheck")).GET().build());
+        System.out.printf("First request answered %d ms after JVM start, took %.2f ms%n", ManagementFactory.getRuntimeMXBean().getUptime(),
+                (System.nanoTime() - firstRequestStartedAt) / NANOS_PER_MILLI);
+        createAccounts();
+
+        System.out.printf("Warming up for %ds at %d req/s%n", config.warmup().toSeconds(), config.rate());
+        warmupStartedAt = System.nanoTime();
+        drive(config.warmup());
+        awaitInFlight();
+
+        System.out.printf("Measuring for %ds at %d req/s%n", config.duration().toSeconds(), config.rate());
+        measuring = true;
+        final var startedAt = System.nanoTime();
+        drive(config.duration());
+        awaitInFlight();
+        measuring = false;
+        final var elapsed = Duration.ofNanos(System.nanoTime() - startedAt);
+
+        return report(elapsed);
+    }
+
+    private void createAccounts() throws IOException, InterruptedException {
+        accounts = new String[config.accounts()];
+        for (int i = 0; i < accounts.length; i++) {
+            accounts[i] = UUID.randomUUID().toString();
+            send(post("/accounts", "{\"accountId\":\"%s\"}".formatted(accounts[i])));
+            send(put("/accounts/%s/funds".formatted(accounts[i]), "{\"amount\":1000000000}"));
+        }
+    }
+
+    /*
+     * Single scheduling thread, every request gets its intended start time up front and is sent from its own
+     * virtual thread, so a slow response never delays sending of the next one.
+     */
+    private void drive(Duration duration) {
+        final var intervalNanos = TimeUnit.SECONDS.toNanos(1) / config.rate();
+        final var start = System.nanoTime();
+        final var end = start + duration.toNanos();
+        for (long i = 0; ; i++) {
+            final var intendedAt = start + i * intervalNanos;
+            if (intendedAt >= end) {
+                return;
+            }
+            long wait;
+            while ((wait = intendedAt - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            final var operation = weightedOperations[ThreadLocalRandom.current().nextInt(weightedOperations.length)];
+            if (inFlight.incrementAndGet() > config.maxInFlight()) {
+//                Generator would run out of memory long before application recovers, count it as failed
+                inFlight.decrementAndGet();
+                record(operation, intendedAt, intendedAt, false);
+                continue;
+            }
+            executor.execute(() -> {
+                try {
+                    execute(operation, intendedAt);
+                } finally {
+                    inFlight.decrementAndGet();
+                }
+            });
+        }
+    }
+
+    private void execute(Operation operation, long intendedAt) {
+        final var sentAt = System.nanoTime();
+        boolean success;
+        try {
+            final var status = send(request(operation));
+            success = status >= 200 && status < 300;
+        } catch (Exception ex) {
+            success = false;
+        }
+        record(operation, intendedAt, sentAt, success);
+    }
+
+    private HttpRequest request(Operation operation) {
+        final var account = accounts[ThreadLocalRandom.current().nextInt(accounts.length)];
+        return switch (operation) {
+            case CREATE -> post("/accounts", "{\"accountId\":\"%s\"}".formatted(UUID.randomUUID()));
+            case FUND -> put("/accounts/%s/funds".formatted(account), "{\"amount\":100}");
+            case WITHDRAW -> post("/accounts/%s/withdrawals".formatted(account),
+                    "{\"address\":\"%s\",\"amount\":10}".formatted(UUID.randomUUID()));
+            case READ -> HttpRequest.newBuilder(URI.create(baseUrl + "/accounts/" + account)).GET().build();
+        };
+    }
+
+    private void record(Operation operation, long intendedAt, long sentAt, boolean success) {
+        final var now = System.nanoTime();
+        if (!measuring) {
+            final var window = (int) TimeUnit.NANOSECONDS.toSeconds(intendedAt - warmupStartedAt);
+            if (warmupStartedAt != 0 && window >= 0 && window < warmupWindows.length) {
+                warmupWindows[window].record(now - intendedAt);
+            }
+            return;
+        }
+        steady.record(now - intendedAt);
+        final var operationStats = stats.get(operation);
+        operationStats.responseTime.record(now - intendedAt);
+        operationStats.serviceTime.record(now - sentAt);
+        if (!success) {
+            operationStats.errors.increment();
+        }
+    }
+
+    private void awaitInFlight() throws InterruptedException {
+        final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    private Result report(Duration elapsed) {
+        System.out.printf("%n%-9s %9s %8s %9s | %-45s | %-45s%n", "operation", "requests", "errors", "req/s",
+                "response time ms (p50 p90 p99 p99.9 max)", "service time ms (p50 p90 p99 p99.9 max)");
+        stats.forEach((operation, operationStats) -> {
+            if (operationStats.responseTime.count() > 0) {
+                printRow(operation.name().toLowerCase(), operationStats, elapsed);
+            }
+        });
+        long requests = 0;
+        long errors = 0;
+        double worstP99 = 0;
+        for (Stats operationStats : stats.values()) {
+            requests += operationStats.responseTime.count();
+            errors += operationStats.errors.sum();
+            worstP99 = Math.max(worstP99, operationStats.responseTime.valueAtQuantile(0.99) / NANOS_PER_MILLI);
+        }
+        reportSteadyState();
+        final var errorRate = requests == 0 ? 0 : (double) errors / requests;
+        System.out.printf("%ntotal %d requests, %.1f req/s, error rate %.4f, worst p99 %.2f ms%n",
+                requests, requests / (elapsed.toNanos() / 1e9), errorRate, worstP99);
+
+        boolean passed = errorRate <= config.maxErrorRate();
+        if (config.maxP99Millis() > 0 && worstP99 > config.maxP99Millis()) {
+            passed = false;
+        }
+        System.out.println(passed ? "PASSED" : "FAILED (maxP99Millis=%s, maxErrorRate=%s)".formatted(config.maxP99Millis(), config.maxErrorRate()));
+        return new Result(requests / (elapsed.toNanos() / 1e9), percentiles(steady), errorRate, passed);
+    }
+
+    private static void compare(Map<String, Result> results) {
+        System.out.printf("%n%-9s %9s %10s | %-45s%n", "profile", "req/s", "error rate", "response time ms (p50 p90 p99 p99.9 max)");
+        results.forEach((profile, result) -> System.out.printf("%-9s %9.1f %10.4f | %-45s%s%n", profile, result.requestsPerSecond(),
+                result.errorRate(), result.responseTimes(), result.passed() ? "" : " FAILED"));
+    }
+
+    //    First second of warm up from which on p99 of every second stays within 2x of p99 of measurement
+    private void reportSteadyState() {
+        final var steadyP99 = steady.valueAtQuantile(0.99);
+        var settledAt = -1;
+        final var windows = new StringBuilder();
+        for (int second = 0; second < warmupWindows.length; second++) {
+            final var p99 = warmupWindows[second].valueAtQuantile(0.99);
+            windows.append(" %.2f".formatted(p99 / NANOS_PER_MILLI));
+            if (p99 > 2 * steadyP99) {
+                settledAt = -1;
+            } else if (settledAt < 0) {
+                settledAt = second;
+            }
+        }
+        System.out.printf("warm up p99 ms per second:%s%n", windows);
+        System.out.println(settledAt < 0
+                ? "p99 did not settle during %ds of warm up".formatted(warmupWindows.length)
+                : "p99 settled after %ds of warm up traffic".formatted(settledAt));
+    }
+
+    private static void printRow(String name, Stats stats, Duration elapsed) {
+        System.out.printf("%-9s %9d %8d %9.1f | %-45s | %-45s%n", name, stats.responseTime.count(), stats.errors.sum(),
+                stats.responseTime.count() / (elapsed.toNanos() / 1e9), percentiles(stats.responseTime), percentiles(stats.serviceTime));
+    }
+
+    private static String percentiles(Histogram histogram) {
+        return "%.2f %.2f %.2f %.2f %.2f".formatted(
+                histogram.valueAtQuantile(0.5) / NANOS_PER_MILLI,
+                histogram.valueAtQuantile(0.9) / NANOS_PER_MILLI,
+                histogram.valueAtQuantile(0.99) / NANOS_PER_MILLI,
+                histogram.valueAtQuantile(0.999) / NANOS_PER_MILLI,
+                histogram.max() / NANOS_PER_MILLI);
+    }
+
+    private int send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private HttpRequest post(String path, String body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    private HttpRequest put(String path, String body) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(body)).build();
+    }
+
+    //    responseTimes of all operations together, as printed
+    record Result(double requestsPerSecond, String responseTimes, double errorRate, boolean passed) {
+    }
+
+    private static final class Stats {
+        final Histogram responseTime = new Histogram();
+        final Histogram serviceTime = new Histogram();
+        final LongAdder errors = new LongAdder();
+    }
+}
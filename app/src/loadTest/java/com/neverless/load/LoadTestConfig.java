@@ -0,0 +1,52 @@
+package com.neverless.load;
+
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Arguments are key=value pairs, i.e. rate=2000 duration=60 mix=create:5,fund:30,withdraw:15,read:50
+ *
+ * maxP99Millis and maxErrorRate make the run fail (non zero exit code) when exceeded, so it can be used as a gate.
+ * startupWarmup overrides iterations of application's own warm up before it reports ready, 0 starts it cold.
+ * profiles=platform,virtual,h2c runs the whole test once per server profile and compares them, without it the
+ * profile application is configured with is used.
+ */
+record LoadTestConfig(int rate, Duration warmup, Duration duration, int accounts, Map<Operation, Integer> mix,
+                      int maxInFlight, double maxP99Millis, double maxErrorRate, Integer startupWarmup, List<String> profiles) {
+
+    static LoadTestConfig parse(String[] args) {
+        final var values = new HashMap<String, String>();
+        for (String arg : args) {
+            final var separator = arg.indexOf('=');
+            if (separator < 1) {
+                throw new IllegalArgumentException("Expected key=value but got %s".formatted(arg));
+            }
+            values.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        return new LoadTestConfig(
+                Integer.parseInt(values.getOrDefault("rate", "500")),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("warmup", "10"))),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("duration", "30"))),
+                Integer.parseInt(values.getOrDefault("accounts", "1000")),
+                parseMix(values.getOrDefault("mix", "create:5,fund:30,withdraw:15,read:50")),
+                Integer.parseInt(values.getOrDefault("maxInFlight", "10000")),
+                Double.parseDouble(values.getOrDefault("maxP99Millis", "0")),
+                Double.parseDouble(values.getOrDefault("maxErrorRate", "0.01")),
+//                Application default unless given
+                values.containsKey("startupWarmup") ? Integer.valueOf(values.get("startupWarmup")) : null,
+                values.containsKey("profiles") ? List.of(values.get("profiles").split(",")) : List.of()
+        );
+    }
+
+    private static Map<Operation, Integer> parseMix(String mix) {
+        final var weights = new EnumMap<Operation, Integer>(Operation.class);
+        for (String entry : mix.split(",")) {
+            final var parts = entry.split(":");
+            weights.put(Operation.valueOf(parts[0].trim().toUpperCase()), Integer.parseInt(parts[1].trim()));
+        }
+        return weights;
+    }
+}
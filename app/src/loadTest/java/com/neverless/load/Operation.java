@@ -0,0 +1,8 @@
+package com.neverless.load;
+
+enum Operation {
+    CREATE,
+    FUND,
+    WITHDRAW,
+    READ
+}
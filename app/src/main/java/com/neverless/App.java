@@ -4,58 +4,186 @@
 package com.neverless;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
-import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.neverless.changefeed.ChangeFeed;
+import com.neverless.changefeed.ChangeFeedReader;
+import com.neverless.cluster.Cluster;
+import com.neverless.cluster.Membership;
 import com.neverless.domain.AccountRepository;
 import com.neverless.domain.impl.AccountRepositoryImpl;
 import com.neverless.integration.WithdrawalService;
 import com.neverless.integration.WithdrawalServiceStub;
+import com.neverless.jfr.LatencyWatchdog;
+import com.neverless.metrics.MetricsRegistry;
 import com.neverless.processing.AccountOperationManager;
+import com.neverless.processing.AccountVersionWatcher;
 import com.neverless.processing.ExternalWithdrawalManager;
+import com.neverless.processing.IdempotencyCache;
 import com.neverless.processing.InMemoryAccountOperationManager;
+import com.neverless.processing.PendingWithdrawalIndex;
+import com.neverless.processing.RateLimiter;
+import com.neverless.processing.TransferManager;
+import com.neverless.processing.WithdrawalEventBroadcaster;
+import com.neverless.processing.WithdrawalLifecycleTracker;
+import com.neverless.replication.ReplicationNode;
+import com.neverless.replication.ReplicationSource;
+import com.neverless.replication.StandbyFollower;
+import com.neverless.reports.AccountScanner;
+import com.neverless.resources.RateLimits;
+import com.neverless.resources.RequestLog;
 import com.neverless.resources.Resources;
+import com.neverless.resources.serialization.Serializers;
+import com.neverless.storage.TieredAccountRepository;
+import com.neverless.time.TimeSource;
 import io.javalin.Javalin;
 import io.javalin.json.JavalinJackson;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.InetSocketAddress;
 
 
 public class App {
-    private final AccountRepository accountRepo = new AccountRepositoryImpl();
-    private final AccountOperationManager accountOperationManager = new InMemoryAccountOperationManager(accountRepo, 8);
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final AccountRepository accountRepo;
+    private final AccountOperationManager accountOperationManager;
+    private final AccountVersionWatcher accountVersionWatcher = new AccountVersionWatcher();
+    private final WithdrawalEventBroadcaster withdrawalEventBroadcaster = new WithdrawalEventBroadcaster();
 
     private final WithdrawalService<Long> withdrawalService = new WithdrawalServiceStub<>();
-    private final ExternalWithdrawalManager externalWithdrawalManager = new ExternalWithdrawalManager(withdrawalService);
-    private final Resources resources = new Resources(accountOperationManager, externalWithdrawalManager);
+    private final ExternalWithdrawalManager externalWithdrawalManager;
+    private final IdempotencyCache idempotencyCache;
+    private final WithdrawalLifecycleTracker withdrawalLifecycleTracker;
+    private final Resources resources;
+    private final ObjectMapper objectMapper = Serializers.json();
     private final Javalin javalin;
+    private final LatencyWatchdog latencyWatchdog;
+    private final WarmUp warmUp;
+    private final ChangeFeed changeFeed;
+    private final AccountScanner accountScanner;
+    private final Cluster cluster;
+    private final ReplicationNode replicationNode;
+    private final boolean recoverWithdrawals;
+    //    Port given to start, 0 picks a free one
+    private volatile int requestedPort;
 
     public App() {
+        this(AppConfig.fromSystemProperties());
+    }
+
+    public App(AppConfig appConfig) {
+        this.recoverWithdrawals = appConfig.recoverWithdrawals();
+        this.withdrawalLifecycleTracker = new WithdrawalLifecycleTracker(appConfig.slowWithdrawalStageThreshold(), metrics, TimeSource.SYSTEM);
+        final var tieredRepo = appConfig.maxHotAccounts() > 0
+                ? new TieredAccountRepository(appConfig.maxHotAccounts(), appConfig.dataDirectory().resolve("accounts"), Serializers.cbor(), metrics)
+                : null;
+        this.accountRepo = tieredRepo != null ? tieredRepo : new AccountRepositoryImpl();
+        final var replicationSource = new ReplicationSource(accountRepo, Serializers.cbor(), metrics, appConfig.replicationMaxBacklog());
+        var accountChangeListener = accountVersionWatcher.andThen(replicationSource);
+        var accountEventListener = withdrawalEventBroadcaster.andThen(withdrawalLifecycleTracker).andThen(replicationSource);
+        final var changeFeedDirectory = appConfig.dataDirectory().resolve("changefeed");
+        this.changeFeed = appConfig.changeFeed()
+                ? new ChangeFeed(changeFeedDirectory, appConfig.changeFeedSegmentBytes(), appConfig.changeFeedMaxSegments(),
+                appConfig.changeFeedRetention(), appConfig.changeFeedMaxBacklog(), objectMapper, metrics)
+                : null;
+        if (changeFeed != null) {
+            accountChangeListener = accountChangeListener.andThen(changeFeed);
+            accountEventListener = accountEventListener.andThen(changeFeed);
+        }
+        this.accountOperationManager = new InMemoryAccountOperationManager(accountRepo, appConfig.shards(), accountChangeListener,
+                accountEventListener, metrics);
+        if (tieredRepo != null) {
+            tieredRepo.attach(accountEventListener, (accountId, action) -> accountOperationManager.doAccountOperationAsync(accountId, action,
+                    ex -> logger.error("Unable to evict account {}", accountId, ex)));
+        }
+        final var standbyFollower = appConfig.replicationPrimary() == null ? null
+                : new StandbyFollower(address(appConfig.replicationPrimary()), Serializers.cbor(), accountRepo, accountOperationManager, metrics);
+        this.replicationNode = new ReplicationNode(replicationSource, standbyFollower, appConfig.replicationPort(), accountOperationManager);
+        this.externalWithdrawalManager = new ExternalWithdrawalManager(withdrawalService, new PendingWithdrawalIndex(appConfig.dataDirectory()), metrics,
+                withdrawalLifecycleTracker, TimeSource.SYSTEM);
+        this.idempotencyCache = new IdempotencyCache(appConfig.idempotencyMaxEntries(), appConfig.idempotencyTtl());
+        this.idempotencyCache.registerMetrics(metrics);
+        this.cluster = appConfig.clusterMembership() == null
+                ? Cluster.standalone()
+                : Cluster.of(Membership.load(appConfig.clusterMembership(), appConfig.clusterNodeId()), Serializers.cbor(), metrics);
+        this.accountScanner = new AccountScanner(accountRepo, appConfig.scanParallelism(), metrics);
+        this.resources = new Resources(accountOperationManager, externalWithdrawalManager, objectMapper, accountVersionWatcher, withdrawalEventBroadcaster, idempotencyCache, metrics,
+                withdrawalLifecycleTracker, cluster, replicationNode, appConfig.standbyMaxStaleness(), new TransferManager(accountOperationManager, metrics),
+                rateLimits(appConfig), changeFeed == null ? null : new ChangeFeedReader(changeFeedDirectory), accountScanner);
+        this.warmUp = new WarmUp(appConfig.warmUpIterations(), appConfig.warmUpMaxDuration(), objectMapper, cluster);
+        this.latencyWatchdog = appConfig.latencyWatchdogThreshold().isZero() ? null : new LatencyWatchdog(appConfig.latencyWatchdogThreshold(), metrics);
         this.javalin = Javalin.create(config -> {
-            config.jsonMapper(new JavalinJackson(
-                    new ObjectMapper()
-                            .registerModule(new Jdk8Module())
-                            .registerModule(new JavaTimeModule()),
-                    false
-            ));
-            config.bundledPlugins.enableDevLogging();
+            config.jsonMapper(new JavalinJackson(objectMapper, false));
+            config.requestLogger.http(new RequestLog(appConfig.requestLogSampleRate())::log);
+            appConfig.serverProfile().apply(config, () -> requestedPort);
             config.router.mount(resources::register);
         });
     }
 
     public void start(int port) {
+        this.requestedPort = port;
+        if (recoverWithdrawals) {
+            resources.recoverPendingWithdrawals();
+        } else {
+            externalWithdrawalManager.reportUnrecovered();
+        }
+        externalWithdrawalManager.start();
+        cluster.start(resources.clusterHandler());
+        replicationNode.start();
         javalin.start(port);
+        warmUp.run(javalin.port());
+//        Not before, throwaway shards of warm up raise same JFR events as real ones
+        if (latencyWatchdog != null) {
+            latencyWatchdog.start();
+        }
+        resources.ready();
     }
 
     public void stop() {
+        replicationNode.close();
+        accountScanner.close();
         accountOperationManager.shutdown();
+        if (accountRepo instanceof TieredAccountRepository tieredRepo) {
+            tieredRepo.close();
+        }
+        if (changeFeed != null) {
+            changeFeed.close();
+        }
         externalWithdrawalManager.shutdown();
         javalin.stop();
+        cluster.close();
+        accountVersionWatcher.shutdown();
+        withdrawalEventBroadcaster.shutdown();
+        if (latencyWatchdog != null) {
+            latencyWatchdog.close();
+        }
     }
 
     public int port() {
         return javalin.port();
     }
 
+    private RateLimits rateLimits(AppConfig appConfig) {
+        final var accountLimiter = new RateLimiter(appConfig.accountRateLimit(), appConfig.rateLimitMaxBuckets());
+        accountLimiter.registerMetrics(metrics, "account");
+        final var clientLimiter = new RateLimiter(appConfig.clientRateLimit(), appConfig.rateLimitMaxBuckets());
+        clientLimiter.registerMetrics(metrics, "client");
+        return new RateLimits(accountLimiter, clientLimiter, appConfig.clientRateLimitHeader());
+    }
+
+    private static InetSocketAddress address(String hostAndPort) {
+        final var separator = hostAndPort.lastIndexOf(':');
+        return new InetSocketAddress(hostAndPort.substring(0, separator), Integer.parseInt(hostAndPort.substring(separator + 1)));
+    }
+
     public static void main(String[] args) {
         final var app = new App();
+//        Training run of class data sharing archive (buildlogic.app-cds), start and warm up load the classes it needs
+        if (Boolean.getBoolean("neverless.exit-after-start")) {
+            app.start(0);
+            app.stop();
+            System.exit(0);
+        }
         Runtime.getRuntime().addShutdownHook(new Thread(app::stop));
         app.start(8082);
 
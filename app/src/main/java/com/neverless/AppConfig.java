@@ -0,0 +1,228 @@
+package com.neverless;
+
+import com.neverless.processing.RateLimiter.Limit;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/*
+ * All tunables of the application in one place, read from system properties (-Dneverless.xxx=...) so the same
+ * jar can be started with different settings without code changes.
+ *
+ * Every setting is a field initialised from its property, so adding one is a field and its accessor. A config is never
+ * changed once created, with* methods return a changed copy.
+ */
+public final class AppConfig implements Cloneable {
+    private int shards = Integer.getInteger("neverless.shards", 8);
+    private Path dataDirectory = Path.of(System.getProperty("neverless.data-dir", "data"));
+    //    Roughly 200 bytes per entry, i.e. ~20MB with defaults
+    private int idempotencyMaxEntries = Integer.getInteger("neverless.idempotency.max-entries", 100_000);
+    private Duration idempotencyTtl = Duration.ofSeconds(Long.getLong("neverless.idempotency.ttl-seconds", 24 * 60 * 60));
+    //    0 turns the watchdog (and the JFR recording stream behind it) off
+    private Duration latencyWatchdogThreshold = Duration.ofMillis(Long.getLong("neverless.watchdog.threshold-millis", 1000));
+    private Duration slowWithdrawalStageThreshold = Duration.ofMillis(Long.getLong("neverless.withdrawals.slow-stage-millis", 5000));
+    //    No membership file means standalone, this node owns every account
+    private Path clusterMembership = Optional.ofNullable(System.getProperty("neverless.cluster.membership")).map(Path::of).orElse(null);
+    private String clusterNodeId = System.getProperty("neverless.cluster.node-id");
+    //    -1 means standbys are not served, a standby uses it once promoted
+    private int replicationPort = Integer.getInteger("neverless.replication.port", -1);
+    //    host:port of primary's replication port, makes this node a standby
+    private String replicationPrimary = System.getProperty("neverless.replication.primary");
+    private int replicationMaxBacklog = Integer.getInteger("neverless.replication.max-backlog", 1_000_000);
+    private Duration standbyMaxStaleness = Duration.ofMillis(Long.getLong("neverless.replication.max-staleness-millis", 1000));
+    //    Requests per second and burst, per-second of 0 turns a limit off
+    private Limit accountRateLimit = new Limit(Integer.getInteger("neverless.rate-limit.account.per-second", 100),
+            Integer.getInteger("neverless.rate-limit.account.burst", 200));
+    //    Off by default, behind a proxy or NAT every client has the same ip and would share one bucket
+    private Limit clientRateLimit = new Limit(Integer.getInteger("neverless.rate-limit.client.per-second", 0),
+            Integer.getInteger("neverless.rate-limit.client.burst", 10_000));
+    //    e.g. X-Forwarded-For set by the proxy in front, client is its last entry, no header keys clients by remote ip
+    private String clientRateLimitHeader = System.getProperty("neverless.rate-limit.client.header");
+    //    Per limit, roughly 100 bytes per bucket
+    private int rateLimitMaxBuckets = Integer.getInteger("neverless.rate-limit.max-buckets", 100_000);
+    //    0 keeps every account in memory, otherwise the rest is spilled to data-dir/accounts
+    private int maxHotAccounts = Integer.getInteger("neverless.storage.max-hot-accounts", 0);
+    //    Runs of hot paths before healthcheck reports ready, 0 starts cold
+    private int warmUpIterations = Integer.getInteger("neverless.warmup.iterations", 500);
+    private Duration warmUpMaxDuration = Duration.ofMillis(Long.getLong("neverless.warmup.max-millis", 10_000));
+    //    Share of requests logged, 1 logs every request, server errors are always logged
+    private double requestLogSampleRate = Double.parseDouble(System.getProperty("neverless.log.request-sample-rate", "0.01"));
+    //    Written to data-dir/changefeed, oldest segments go once there are more than max-segments or they are older than retention
+    private boolean changeFeed = Boolean.getBoolean("neverless.changefeed.enabled");
+    private int changeFeedSegmentBytes = Integer.getInteger("neverless.changefeed.segment-bytes", 64 * 1024 * 1024);
+    private int changeFeedMaxSegments = Integer.getInteger("neverless.changefeed.max-segments", 16);
+    private Duration changeFeedRetention = Duration.ofHours(Long.getLong("neverless.changefeed.retention-hours", 24));
+    //    Events waiting for writer, beyond that they are dropped and readers get a GAP
+    private int changeFeedMaxBacklog = Integer.getInteger("neverless.changefeed.max-backlog", 100_000);
+    //    Threads of admin scans and reports, half of the cores by default so shards keep the rest
+    private int scanParallelism = Integer.getInteger("neverless.scan.parallelism", Math.max(1, Runtime.getRuntime().availableProcessors() / 2));
+    //    neverless.server.profile is platform (default), virtual or h2c, single settings are overridden by neverless.server.*
+    private ServerProfile serverProfile = ServerProfile.fromSystemProperties();
+    //    Accounts do not survive a restart yet, so recovered withdrawals have no account to release funds on. Off until they do.
+    private boolean recoverWithdrawals = Boolean.getBoolean("neverless.withdrawals.recover-on-start");
+
+    private AppConfig() {
+    }
+
+    public static AppConfig fromSystemProperties() {
+        return new AppConfig();
+    }
+
+    public AppConfig withDataDirectory(Path dataDirectory) {
+        return copy(config -> config.dataDirectory = dataDirectory);
+    }
+
+    public AppConfig withCluster(Path clusterMembership, String clusterNodeId) {
+        return copy(config -> {
+            config.clusterMembership = clusterMembership;
+            config.clusterNodeId = clusterNodeId;
+        });
+    }
+
+    public AppConfig withWarmUpIterations(int warmUpIterations) {
+        return copy(config -> config.warmUpIterations = warmUpIterations);
+    }
+
+    public AppConfig withChangeFeed(int segmentBytes) {
+        return copy(config -> {
+            config.changeFeed = true;
+            config.changeFeedSegmentBytes = segmentBytes;
+        });
+    }
+
+    public AppConfig withServerProfile(ServerProfile serverProfile) {
+        return copy(config -> config.serverProfile = serverProfile);
+    }
+
+    public AppConfig withReplication(int replicationPort, String replicationPrimary) {
+        return copy(config -> {
+            config.replicationPort = replicationPort;
+            config.replicationPrimary = replicationPrimary;
+        });
+    }
+
+    //    Fields are all immutable values, so a shallow copy shares nothing that could change
+    private AppConfig copy(Consumer<AppConfig> change) {
+        try {
+            final var copy = (AppConfig) clone();
+            change.accept(copy);
+            return copy;
+        } catch (CloneNotSupportedException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    public int shards() {
+        return shards;
+    }
+
+    public Path dataDirectory() {
+        return dataDirectory;
+    }
+
+    public int idempotencyMaxEntries() {
+        return idempotencyMaxEntries;
+    }
+
+    public Duration idempotencyTtl() {
+        return idempotencyTtl;
+    }
+
+    public Duration latencyWatchdogThreshold() {
+        return latencyWatchdogThreshold;
+    }
+
+    public Duration slowWithdrawalStageThreshold() {
+        return slowWithdrawalStageThreshold;
+    }
+
+    public Path clusterMembership() {
+        return clusterMembership;
+    }
+
+    public String clusterNodeId() {
+        return clusterNodeId;
+    }
+
+    public int replicationPort() {
+        return replicationPort;
+    }
+
+    public String replicationPrimary() {
+        return replicationPrimary;
+    }
+
+    public int replicationMaxBacklog() {
+        return replicationMaxBacklog;
+    }
+
+    public Duration standbyMaxStaleness() {
+        return standbyMaxStaleness;
+    }
+
+    public Limit accountRateLimit() {
+        return accountRateLimit;
+    }
+
+    public Limit clientRateLimit() {
+        return clientRateLimit;
+    }
+
+    public String clientRateLimitHeader() {
+        return clientRateLimitHeader;
+    }
+
+    public int rateLimitMaxBuckets() {
+        return rateLimitMaxBuckets;
+    }
+
+    public int maxHotAccounts() {
+        return maxHotAccounts;
+    }
+
+    public int warmUpIterations() {
+        return warmUpIterations;
+    }
+
+    public Duration warmUpMaxDuration() {
+        return warmUpMaxDuration;
+    }
+
+    public double requestLogSampleRate() {
+        return requestLogSampleRate;
+    }
+
+    public boolean changeFeed() {
+        return changeFeed;
+    }
+
+    public int changeFeedSegmentBytes() {
+        return changeFeedSegmentBytes;
+    }
+
+    public int changeFeedMaxSegments() {
+        return changeFeedMaxSegments;
+    }
+
+    public Duration changeFeedRetention() {
+        return changeFeedRetention;
+    }
+
+    public int changeFeedMaxBacklog() {
+        return changeFeedMaxBacklog;
+    }
+
+    public int scanParallelism() {
+        return scanParallelism;
+    }
+
+    public ServerProfile serverProfile() {
+        return serverProfile;
+    }
+
+    public boolean recoverWithdrawals() {
+        return recoverWithdrawals;
+    }
+}
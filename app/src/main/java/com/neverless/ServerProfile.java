@@ -0,0 +1,91 @@
+package com.neverless;
+
+import io.javalin.compression.CompressionStrategy;
+import io.javalin.compression.Gzip;
+import io.javalin.config.JavalinConfig;
+import org.eclipse.jetty.http2.server.HTTP2CServerConnectionFactory;
+import org.eclipse.jetty.server.HttpConnectionFactory;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.util.thread.QueuedThreadPool;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.IntSupplier;
+
+/*
+ * How Jetty under Javalin runs requests, selected with -Dneverless.server.profile:
+ *
+ * - platform: bounded pool of platform threads, HTTP/1.1 only. Jetty and Javalin defaults, i.e. how it always ran.
+ * - virtual: every request on a virtual thread, like shards, so requests waiting for shards or for another node do
+ *   not hold a pool thread and there is no pool size to tune.
+ * - h2c: virtual threads and HTTP/2 without TLS (prior knowledge or Upgrade) next to HTTP/1.1 on the same port, so
+ *   clients and other services can multiplex requests over a few long lived connections.
+ *
+ * Single settings can be overridden with neverless.server.* properties, see fromSystemProperties.
+ * acceptors and selectors of -1 leave them to Jetty's heuristics (based on cores). idleTimeout is how long a kept
+ * alive connection may stay unused. Responses below compressionMinBytes are sent as they are, compressionLevel 0 turns
+ * compression off.
+ */
+public record ServerProfile(String name, boolean virtualThreads, int maxThreads, boolean http2, int acceptors, int selectors,
+                            Duration idleTimeout, int compressionMinBytes, int compressionLevel) {
+    public static final ServerProfile PLATFORM = new ServerProfile("platform", false, 250, false, -1, -1, Duration.ofSeconds(30), 1500, 6);
+    public static final ServerProfile VIRTUAL = new ServerProfile("virtual", true, 250, false, -1, -1, Duration.ofSeconds(30), 1500, 6);
+    //    Connections are meant to stay, so they are kept for longer
+    public static final ServerProfile H2C = new ServerProfile("h2c", true, 250, true, -1, -1, Duration.ofSeconds(120), 1500, 6);
+
+    private static final Map<String, ServerProfile> PROFILES = Map.of(PLATFORM.name, PLATFORM, VIRTUAL.name, VIRTUAL, H2C.name, H2C);
+
+    public static ServerProfile named(String name) {
+        final var profile = PROFILES.get(name);
+        if (profile == null) {
+            throw new IllegalArgumentException("Unknown server profile %s, expected one of %s".formatted(name, PROFILES.keySet()));
+        }
+        return profile;
+    }
+
+    public static ServerProfile fromSystemProperties() {
+        return fromSystemProperties(System.getProperty("neverless.server.profile", PLATFORM.name));
+    }
+
+    public static ServerProfile fromSystemProperties(String name) {
+        final var profile = named(name);
+        return new ServerProfile(profile.name,
+                profile.virtualThreads,
+//                Platform threads only, virtual threads are not pooled
+                Integer.getInteger("neverless.server.max-threads", profile.maxThreads),
+                profile.http2,
+                Integer.getInteger("neverless.server.acceptors", profile.acceptors),
+                Integer.getInteger("neverless.server.selectors", profile.selectors),
+                Duration.ofMillis(Long.getLong("neverless.server.idle-timeout-millis", profile.idleTimeout.toMillis())),
+                Integer.getInteger("neverless.server.compression-min-bytes", profile.compressionMinBytes),
+                Integer.getInteger("neverless.server.compression-level", profile.compressionLevel));
+    }
+
+    //    port is read when server starts, Javalin's start(port) only applies to its own default connector, not to added ones
+    void apply(JavalinConfig config, IntSupplier port) {
+        config.useVirtualThreads = virtualThreads;
+        if (!virtualThreads) {
+            final var threadPool = new QueuedThreadPool(maxThreads, Math.min(8, maxThreads));
+            threadPool.setName("http");
+            config.jetty.threadPool = threadPool;
+        }
+//        Created when server starts
+        config.jetty.addConnector((server, httpConfiguration) -> {
+            final var http1 = new HttpConnectionFactory(httpConfiguration);
+            final var connector = http2
+                    ? new ServerConnector(server, acceptors, selectors, http1, new HTTP2CServerConnectionFactory(httpConfiguration))
+                    : new ServerConnector(server, acceptors, selectors, http1);
+            connector.setHost(config.jetty.defaultHost);
+            connector.setPort(port.getAsInt());
+            connector.setIdleTimeout(idleTimeout.toMillis());
+            return connector;
+        });
+        if (compressionLevel == 0) {
+            config.http.disableCompression();
+        } else {
+            final var compression = new CompressionStrategy(null, new Gzip(compressionLevel));
+            compression.setDefaultMinSizeForCompression(compressionMinBytes);
+            config.http.customCompression(compression);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.neverless;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neverless.cluster.Cluster;
+import com.neverless.domain.AccountEventListener;
+import com.neverless.domain.AccountId;
+import com.neverless.domain.impl.AccountImpl.WithdrawalStatus;
+import com.neverless.domain.impl.AccountRepositoryImpl;
+import com.neverless.metrics.MetricsRegistry;
+import com.neverless.processing.InMemoryAccountOperationManager;
+import com.neverless.processing.TransferManager;
+import com.neverless.resources.Accounts.AccountResponse;
+import com.neverless.resources.WarmUpTraffic;
+import com.neverless.resources.dtos.AddFundRequest;
+import com.neverless.resources.dtos.CreateAccountRequest;
+import com.neverless.resources.dtos.TransferRequest;
+import com.neverless.resources.dtos.WithdrawalRequest;
+import com.neverless.resources.dtos.WithdrawalStatsResponse;
+import com.neverless.resources.serialization.Serializers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Runs hot paths before application reports ready, so the first real requests after a deploy do not pay for class
+ * loading and interpreted code in Jackson, Javalin routing, AccountImpl and the shard loop.
+ *
+ * Nothing real is touched. Account operations run against throwaway accounts in a throwaway repository and shards,
+ * JIT compiled code is per class so real shards profit from it all the same. Requests over http only read accounts
+ * which do not exist (and are owned by this node), so liabilities, replication and withdrawals stay as they are. They
+ * carry WarmUpTraffic's header, so they are left out of request metrics and request log, and latency watchdog is only
+ * started once warm up is done.
+ */
+class WarmUp {
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final int iterations;
+    private final Duration maxDuration;
+    private final ObjectMapper json;
+    private final Cluster cluster;
+
+    WarmUp(int iterations, Duration maxDuration, ObjectMapper json, Cluster cluster) {
+        this.iterations = iterations;
+        this.maxDuration = maxDuration;
+        this.json = json;
+        this.cluster = cluster;
+    }
+
+    void run(int port) {
+        if (iterations <= 0) {
+            return;
+        }
+        final var startedAt = System.nanoTime();
+        final var deadline = startedAt + maxDuration.toNanos();
+        try {
+            final var accountIterations = accountOperations(deadline);
+            final var httpIterations = httpRequests(port, deadline);
+            logger.info("Warmed up in {} ms, {} account and {} http iterations",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt), accountIterations, httpIterations);
+        } catch (Exception ex) {
+//            Only costs latency of first requests, never worth failing startup for
+            logger.warn("Warm up failed, starting cold", ex);
+        }
+    }
+
+    private int accountOperations(long deadline) throws Exception {
+        final var metrics = new MetricsRegistry();
+        final var accountOperationManager = new InMemoryAccountOperationManager(new AccountRepositoryImpl(), 2, account -> {
+        }, AccountEventListener.NONE, metrics);
+        final var transferManager = new TransferManager(accountOperationManager, metrics);
+        final var cbor = Serializers.cbor();
+        int i = 0;
+        try {
+            for (; i < iterations && System.nanoTime() < deadline; i++) {
+                final var from = json.readValue(json.writeValueAsBytes(new CreateAccountRequest(AccountId.random())), CreateAccountRequest.class).accountId();
+                final var to = AccountId.random();
+                accountOperationManager.createAccount(from);
+                accountOperationManager.createAccount(to);
+                final var funds = json.readValue(json.writeValueAsBytes(new AddFundRequest(100L)), AddFundRequest.class);
+                final var withdrawal = json.readValue(json.writeValueAsBytes(new WithdrawalRequest("warm-up", 10L)), WithdrawalRequest.class);
+                final var transfer = cbor.readValue(cbor.writeValueAsBytes(new TransferRequest(to, 20L)), TransferRequest.class);
+                final var done = new CountDownLatch(1);
+                accountOperationManager.doAccountOperationAsync(from, account -> {
+                    account.addToBalance(funds.amount());
+                    final var withdrawalId = account.withdraw(withdrawal.address(), withdrawal.amount());
+                    account.updateWithdrawalStatus(withdrawalId, WithdrawalStatus.PROCESSING);
+                    account.updateWithdrawalStatus(withdrawalId, WithdrawalStatus.SUCCESS);
+                }, ex -> {
+                });
+//                Queued behind the operation above on the same shard, so it completes last
+                transferManager.transfer(from, transfer.toAccountId(), transfer.amount(), completed -> done.countDown());
+                if (!done.await(1, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("Warm up account operations did not complete");
+                }
+                final var account = accountOperationManager.getAccount(from);
+                json.writeValueAsBytes(AccountResponse.of(account));
+                json.writeValueAsBytes(WithdrawalStatsResponse.of(account.withdrawalStats()));
+                json.writeValueAsBytes(accountOperationManager.getWithdrawalStatus(from));
+                json.writeValueAsBytes(account.transfers());
+            }
+        } finally {
+            accountOperationManager.shutdown();
+        }
+        return i;
+    }
+
+    private int httpRequests(int port, long deadline) throws IOException, InterruptedException {
+        final var client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        final var baseUrl = "http://localhost:%d".formatted(port);
+        int i = 0;
+        for (; i < iterations && System.nanoTime() < deadline; i++) {
+            final var accountId = localAccountId();
+            send(client, baseUrl + "/accounts/" + accountId);
+            send(client, baseUrl + "/accounts/" + accountId + "/withdrawals");
+            send(client, baseUrl + "/accounts/" + accountId + "/stats");
+            send(client, baseUrl + "/liabilities");
+        }
+        return i;
+    }
+
+    private static void send(HttpClient client, String url) throws IOException, InterruptedException {
+        client.send(HttpRequest.newBuilder(URI.create(url)).header(WarmUpTraffic.HEADER, WarmUpTraffic.token()).GET().build(),
+                HttpResponse.BodyHandlers.discarding());
+    }
+
+    //    Account of another node would be forwarded to it
+    private AccountId localAccountId() {
+        var accountId = AccountId.random();
+        while (!cluster.isLocal(accountId)) {
+            accountId = AccountId.random();
+        }
+        return accountId;
+    }
+}
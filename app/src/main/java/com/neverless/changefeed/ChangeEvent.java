@@ -0,0 +1,55 @@
+package com.neverless.changefeed;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.neverless.domain.AccountId;
+import com.neverless.domain.TransferId;
+import com.neverless.domain.impl.AccountImpl.Transfer;
+import com.neverless.domain.impl.AccountImpl.TransferDirection;
+import com.neverless.domain.impl.AccountImpl.TransferStatus;
+import com.neverless.domain.impl.AccountImpl.Withdrawal;
+import com.neverless.domain.impl.AccountImpl.WithdrawalStatus;
+import com.neverless.integration.WithdrawalService.WithdrawalId;
+
+import java.util.List;
+
+/*
+ * One line of the change feed. Offsets are consecutive over the whole feed, also across restarts.
+ *
+ * ACCOUNT_CREATED and ACCOUNT_CHANGED carry balances and version of the account after the change, plus withdrawals
+ * and transfers whose status the change moved (previousStatus absent for new ones). GAP means dropped events were
+ * not written, because the writer fell too far behind shards, readers have to resync those accounts from the API.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record ChangeEvent(long offset, Type type, long timestamp, AccountId accountId, Long version, Long balance, Long lockedBalance,
+                          List<WithdrawalChange> withdrawals, List<TransferChange> transfers, Long dropped) {
+
+    public enum Type {
+        ACCOUNT_CREATED,
+        ACCOUNT_CHANGED,
+        GAP
+    }
+
+    ChangeEvent withOffset(long offset) {
+        return new ChangeEvent(offset, type, timestamp, accountId, version, balance, lockedBalance, withdrawals, transfers, dropped);
+    }
+
+    static ChangeEvent gap(long timestamp, long dropped) {
+        return new ChangeEvent(0, Type.GAP, timestamp, null, null, null, null, null, null, dropped);
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record WithdrawalChange(WithdrawalId withdrawalId, Long amount, WithdrawalStatus previousStatus, WithdrawalStatus status, String message) {
+        static WithdrawalChange of(Withdrawal withdrawal, WithdrawalStatus previousStatus) {
+            return new WithdrawalChange(withdrawal.withdrawalId(), withdrawal.amount(), previousStatus, withdrawal.status(), withdrawal.message());
+        }
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public record TransferChange(TransferId transferId, AccountId counterparty, TransferDirection direction, Long amount,
+                                 TransferStatus previousStatus, TransferStatus status, String message) {
+        static TransferChange of(Transfer transfer, TransferStatus previousStatus) {
+            return new TransferChange(transfer.transferId(), transfer.counterparty(), transfer.direction(), transfer.amount(), previousStatus,
+                    transfer.status(), transfer.message());
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.neverless.changefeed;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neverless.changefeed.ChangeEvent.TransferChange;
+import com.neverless.changefeed.ChangeEvent.Type;
+import com.neverless.changefeed.ChangeEvent.WithdrawalChange;
+import com.neverless.domain.Account;
+import com.neverless.domain.AccountEventListener;
+import com.neverless.domain.AccountId;
+import com.neverless.domain.impl.AccountImpl.Transfer;
+import com.neverless.domain.impl.AccountImpl.TransferStatus;
+import com.neverless.domain.impl.AccountImpl.Withdrawal;
+import com.neverless.domain.impl.AccountImpl.WithdrawalStatus;
+import com.neverless.metrics.MetricsRegistry;
+import com.neverless.processing.AccountChangeListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Change data capture: every account creation and every applied operation which changed an account is written to a
+ * SegmentLog as one NDJSON line, with balances after the change and the withdrawal and transfer transitions it made.
+ *
+ * Shard threads only build the event and offer it to a bounded queue, serialization and writing happen on a single
+ * writer thread, so shard latency does not depend on the disk. When the writer falls more than maxBacklog events
+ * behind, events are dropped rather than stalling shards, and a GAP line tells readers to resync.
+ * Order of events of one account is the order its changes were applied.
+ */
+public class ChangeFeed implements AccountChangeListener, AccountEventListener, AutoCloseable {
+    private static final Duration RETENTION_CHECK_INTERVAL = Duration.ofMinutes(1);
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final ObjectMapper mapper;
+    private final SegmentLog log;
+    private final BlockingQueue<ChangeEvent> queue;
+    //    Withdrawal and transfer events arrive on shard thread while operation runs, accountChanged follows on same thread once it is done
+    private final ThreadLocal<Changes> changes = ThreadLocal.withInitial(Changes::new);
+    private final AtomicLong droppedSinceGap = new AtomicLong();
+    private final LongAdder written;
+    private final LongAdder dropped;
+    private final Thread writer;
+    private volatile boolean running = true;
+    private volatile long nextOffset;
+
+    public ChangeFeed(Path directory, int segmentBytes, int maxSegments, Duration retention, int maxBacklog, ObjectMapper mapper,
+                      MetricsRegistry metrics) {
+        this.mapper = mapper;
+        this.log = new SegmentLog(directory, segmentBytes, maxSegments, retention);
+        this.nextOffset = log.nextOffset();
+        this.queue = new ArrayBlockingQueue<>(maxBacklog);
+        this.written = metrics.counter("change_feed_events_total", "Events written to change feed");
+        this.dropped = metrics.counter("change_feed_dropped_total", "Events dropped because change feed writer was too far behind");
+        metrics.gauge("change_feed_backlog", "Events waiting to be written to change feed", queue::size);
+        metrics.gauge("change_feed_next_offset", "Offset the next change feed event gets", () -> nextOffset);
+        metrics.gauge("change_feed_segments", "Change feed segment files", log::segmentCount);
+//        Platform thread, page faults on mapped segments would block a virtual thread's carrier anyway
+        this.writer = Thread.ofPlatform().name("change-feed-writer").daemon().start(this::write);
+    }
+
+    @Override
+    public void withdrawalStatusChanged(AccountId accountId, Withdrawal withdrawal, WithdrawalStatus previousStatus) {
+        changes.get().withdrawals.add(WithdrawalChange.of(withdrawal, previousStatus));
+    }
+
+    @Override
+    public void transferStatusChanged(AccountId accountId, Transfer transfer, TransferStatus previousStatus) {
+        changes.get().transfers.add(TransferChange.of(transfer, previousStatus));
+    }
+
+    @Override
+    public void accountChanged(Account account) {
+        final var changed = changes.get();
+        offer(event(Type.ACCOUNT_CHANGED, account, copyOrNull(changed.withdrawals), copyOrNull(changed.transfers)));
+        changed.withdrawals.clear();
+        changed.transfers.clear();
+    }
+
+    @Override
+    public void accountCreated(Account account) {
+        offer(event(Type.ACCOUNT_CREATED, account, null, null));
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        log.close();
+    }
+
+    private void offer(ChangeEvent event) {
+        if (!queue.offer(event)) {
+            dropped.increment();
+            droppedSinceGap.incrementAndGet();
+        }
+    }
+
+    private static ChangeEvent event(Type type, Account account, List<WithdrawalChange> withdrawals, List<TransferChange> transfers) {
+        final var accountBalance = account.accountBalance();
+        return new ChangeEvent(0, type, System.currentTimeMillis(), account.id(), account.version(), accountBalance.balance(),
+                accountBalance.lockedBalance(), withdrawals, transfers, null);
+    }
+
+    //    Absent from the line when the change did not touch any
+    private static <T> List<T> copyOrNull(List<T> changes) {
+        return changes.isEmpty() ? null : List.copyOf(changes);
+    }
+
+    private void write() {
+        final Queue<ChangeEvent> batch = new ArrayDeque<>();
+        var retainAt = 0L;
+        while (running || !queue.isEmpty()) {
+            try {
+                final var first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch);
+                }
+                final var gap = droppedSinceGap.getAndSet(0);
+                if (gap > 0) {
+                    append(ChangeEvent.gap(System.currentTimeMillis(), gap));
+                }
+                while (!batch.isEmpty()) {
+                    append(batch.peek());
+                    batch.remove();
+                }
+                if (System.currentTimeMillis() >= retainAt) {
+                    log.retain(System.currentTimeMillis());
+                    retainAt = System.currentTimeMillis() + RETENTION_CHECK_INTERVAL.toMillis();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+//                Writer must keep going, whatever is left of the batch counts as dropped so readers see a gap
+                logger.error("Unable to write change feed events", ex);
+                dropped.add(batch.size());
+                droppedSinceGap.addAndGet(batch.size());
+                batch.clear();
+            }
+        }
+    }
+
+    private void append(ChangeEvent event) {
+        final byte[] line;
+        try {
+            final var json = mapper.writeValueAsBytes(event.withOffset(nextOffset));
+            line = new byte[json.length + 1];
+            System.arraycopy(json, 0, line, 0, json.length);
+            line[json.length] = '\n';
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Unable to serialize change feed event of account %s".formatted(event.accountId()), ex);
+        }
+        log.append(line);
+        nextOffset = log.nextOffset();
+        written.increment();
+    }
+
+    private static final class Changes {
+        private final List<WithdrawalChange> withdrawals = new ArrayList<>();
+        private final List<TransferChange> transfers = new ArrayList<>();
+    }
+}
@@ -0,0 +1,93 @@
+package com.neverless.changefeed;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+ * Reads change feed segments straight from files, so any process with access to the directory can tail the feed by
+ * offset and nothing of it goes through shards or the writer. Works while segments are written, only complete lines
+ * are returned.
+ *
+ * Finding an offset scans its segment from the start, positions reached by earlier reads are remembered so a reader
+ * tailing the feed only scans what is new.
+ */
+public class ChangeFeedReader {
+    private final Path directory;
+    //    Segment base offset -> {offset, position} of a line start seen before
+    private final ConcurrentMap<Long, long[]> positions = new ConcurrentHashMap<>();
+
+    public ChangeFeedReader(Path directory) {
+        this.directory = directory;
+    }
+
+    /*
+     * Lines from fromOffset on, at most limit of them, each ending with '\n'. Empty when nothing at or after fromOffset
+     * has been written yet. Offsets removed by retention are skipped, the first line returned then has a higher offset
+     * than asked for.
+     */
+    public List<String> read(long fromOffset, int limit) {
+        final List<String> lines = new ArrayList<>();
+        try {
+            final var segments = SegmentLog.segments(directory);
+            if (!segments.isEmpty()) {
+                final var firstBase = SegmentLog.baseOffset(segments.getFirst());
+                positions.keySet().removeIf(baseOffset -> baseOffset < firstBase);
+            }
+            for (int i = 0; i < segments.size() && lines.size() < limit; i++) {
+                final var nextBase = i + 1 < segments.size() ? SegmentLog.baseOffset(segments.get(i + 1)) : Long.MAX_VALUE;
+                if (nextBase <= fromOffset) {
+                    continue;
+                }
+                read(segments.get(i), Math.max(fromOffset, SegmentLog.baseOffset(segments.get(i))), limit, lines);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to read change feed in %s".formatted(directory), ex);
+        }
+        return lines;
+    }
+
+    private void read(Path file, long fromOffset, int limit, List<String> lines) throws IOException {
+        final var baseOffset = SegmentLog.baseOffset(file);
+        final MappedByteBuffer segment;
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (NoSuchFileException ex) {
+//            Removed by retention meanwhile
+            return;
+        }
+        final var known = positions.get(baseOffset);
+        var offset = baseOffset;
+        var lineStart = 0;
+        if (known != null && known[0] <= fromOffset) {
+            offset = known[0];
+            lineStart = (int) known[1];
+        }
+        for (int position = lineStart; position < segment.capacity() && lines.size() < limit; position++) {
+            final var value = segment.get(position);
+            if (value == 0) {
+                break;
+            }
+            if (value != '\n') {
+                continue;
+            }
+            if (offset >= fromOffset) {
+                final var line = new byte[position + 1 - lineStart];
+                segment.get(lineStart, line);
+                lines.add(new String(line, StandardCharsets.UTF_8));
+            }
+            offset++;
+            lineStart = position + 1;
+        }
+        positions.put(baseOffset, new long[]{offset, lineStart});
+    }
+}
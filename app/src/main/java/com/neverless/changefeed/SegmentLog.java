@@ -0,0 +1,163 @@
+package com.neverless.changefeed;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+/*
+ * Append only NDJSON lines in memory mapped segment files of fixed size, named after offset of their first line
+ * (00000000000000000042.ndjson). Line n of a segment has offset base + n. Unused tail of a segment is zeros, so a
+ * reader knows where written data ends without any index; a line is only complete once its '\n' is there.
+ *
+ * Appending is a copy into the page cache, which readers mapping the same file see right away, nothing is flushed
+ * per line. Single writer only.
+ */
+class SegmentLog implements AutoCloseable {
+    static final String SUFFIX = ".ndjson";
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final Path directory;
+    private final int segmentBytes;
+    private final int maxSegments;
+    private final Duration retention;
+    private FileChannel channel;
+    private MappedByteBuffer segment;
+    private long nextOffset;
+
+    SegmentLog(Path directory, int segmentBytes, int maxSegments, Duration retention) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxSegments = maxSegments;
+        this.retention = retention;
+        try {
+            Files.createDirectories(directory);
+            final var segments = segments(directory);
+            if (segments.isEmpty()) {
+                open(0);
+            } else {
+                recover(segments.getLast());
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to open change feed in %s".formatted(directory), ex);
+        }
+    }
+
+    long nextOffset() {
+        return nextOffset;
+    }
+
+    //    line has to end with '\n'
+    void append(byte[] line) {
+        if (line.length > segmentBytes) {
+            throw new IllegalArgumentException("Change feed line of %d bytes does not fit segment of %d bytes".formatted(line.length, segmentBytes));
+        }
+        if (segment.remaining() < line.length) {
+            roll();
+        }
+        segment.put(line);
+        nextOffset++;
+    }
+
+    //    Drops the oldest segments over maxSegments and the ones older than retention, never the one being written.
+    //    Done on every roll and periodically by the writer.
+    void retain(long nowMillis) {
+        try {
+            final var segments = segments(directory);
+            for (int i = 0; i < segments.size() - 1; i++) {
+                final var file = segments.get(i);
+                final var expired = Files.getLastModifiedTime(file).toMillis() < nowMillis - retention.toMillis();
+                if (expired || segments.size() - i > maxSegments) {
+                    Files.deleteIfExists(file);
+                    logger.info("Removed change feed segment {}", file.getFileName());
+                }
+            }
+        } catch (IOException ex) {
+            logger.warn("Unable to apply change feed retention in {}", directory, ex);
+        }
+    }
+
+    int segmentCount() {
+        try {
+            return segments(directory).size();
+        } catch (IOException ex) {
+            return -1;
+        }
+    }
+
+    @Override
+    public void close() {
+        segment.force();
+        closeChannel();
+    }
+
+    private void roll() {
+        segment.force();
+        closeChannel();
+        try {
+            open(nextOffset);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to roll change feed segment at offset %d".formatted(nextOffset), ex);
+        }
+        retain(System.currentTimeMillis());
+    }
+
+    private void open(long baseOffset) throws IOException {
+        channel = FileChannel.open(directory.resolve(fileName(baseOffset)), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        nextOffset = baseOffset;
+    }
+
+    //    Continues after the last complete line, a line cut short by a crash is overwritten
+    private void recover(Path last) throws IOException {
+        open(baseOffset(last));
+        var lineStart = 0;
+        for (int position = 0; position < segment.capacity(); position++) {
+            final var value = segment.get(position);
+            if (value == 0) {
+                break;
+            }
+            if (value == '\n') {
+                nextOffset++;
+                lineStart = position + 1;
+            }
+        }
+        for (int position = lineStart; position < segment.capacity() && segment.get(position) != 0; position++) {
+            segment.put(position, (byte) 0);
+        }
+        segment.position(lineStart);
+    }
+
+    private void closeChannel() {
+        try {
+            channel.close();
+        } catch (IOException ex) {
+            logger.warn("Unable to close change feed segment", ex);
+        }
+    }
+
+    static String fileName(long baseOffset) {
+        return "%020d%s".formatted(baseOffset, SUFFIX);
+    }
+
+    static long baseOffset(Path segment) {
+        final var name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    //    Oldest first
+    static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(SUFFIX)).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.neverless.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neverless.domain.AccountId;
+import com.neverless.exceptions.UnavailableException;
+import com.neverless.metrics.Histogram;
+import com.neverless.metrics.MetricsRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/*
+ * Partitioning of accounts over nodes listed in a Membership. Every node accepts any request, requests for accounts
+ * owned by another node are forwarded to it over the internal protocol (see Frame) and answered with its response.
+ *
+ * standalone() is a cluster of one, every account is local and nothing listens for other nodes.
+ */
+public class Cluster implements AutoCloseable {
+    private static final int VIRTUAL_NODES = 128;
+    private static final int CONNECTIONS_PER_PEER = 4;
+    private static final Duration FORWARD_TIMEOUT = Duration.ofSeconds(5);
+
+    private final Membership membership;
+    private final ConsistentHashRing ring;
+    private final Map<String, ClusterClient> clients = new HashMap<>();
+    private final ObjectMapper mapper;
+    private final Map<Opcode, Histogram> forwardLatencies = new EnumMap<>(Opcode.class);
+    private ClusterServer server;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private Cluster(Membership membership, ObjectMapper mapper, MetricsRegistry metrics) {
+        this.membership = membership;
+        this.mapper = mapper;
+        this.ring = membership == null ? null : new ConsistentHashRing(membership.nodes(), VIRTUAL_NODES);
+        if (membership != null) {
+            membership.nodes().stream()
+                    .filter(node -> !node.equals(membership.self()))
+                    .forEach(node -> clients.put(node.id(), new ClusterClient(node, CONNECTIONS_PER_PEER)));
+            for (Opcode opcode : Opcode.values()) {
+                forwardLatencies.put(opcode, metrics.histogram("cluster_forward_seconds", "Requests forwarded to owner node",
+                        "opcode", opcode.name().toLowerCase()));
+            }
+        }
+    }
+
+    public static Cluster standalone() {
+        return new Cluster(null, null, null);
+    }
+
+    public static Cluster of(Membership membership, ObjectMapper mapper, MetricsRegistry metrics) {
+        return new Cluster(membership, mapper, metrics);
+    }
+
+    public boolean isLocal(AccountId accountId) {
+        return ring == null || ring.owner(accountId).equals(membership.self());
+    }
+
+    public ClusterNode owner(AccountId accountId) {
+        return ring == null ? null : ring.owner(accountId);
+    }
+
+    /*
+     * Completes with owner's response, or exceptionally with the exception owner failed with (NotFoundException etc.)
+     * or UnavailableException when owner can not be reached in time.
+     */
+    public <T> CompletableFuture<T> forward(AccountId accountId, Opcode opcode, Object message, Class<T> responseType) {
+        final var owner = ring.owner(accountId);
+        final var startedAt = System.nanoTime();
+        final byte[] payload;
+        try {
+            payload = mapper.writeValueAsBytes(message);
+        } catch (IOException ex) {
+            return CompletableFuture.failedFuture(new UncheckedIOException(ex));
+        }
+        return clients.get(owner.id()).send(opcode, payload)
+                .orTimeout(FORWARD_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+                .handle((response, ex) -> {
+                    forwardLatencies.get(opcode).recordSince(startedAt);
+                    if (ex != null) {
+                        throw unwrap(ex, owner);
+                    }
+                    try {
+                        return mapper.readValue(response, responseType);
+                    } catch (IOException readFailure) {
+                        throw new UncheckedIOException(readFailure);
+                    }
+                });
+    }
+
+    /*
+     * For callers which are on a virtual thread anyway and wait for one response at a time.
+     */
+    public <T> T forwardAndWait(AccountId accountId, Opcode opcode, Object message, Class<T> responseType) {
+        try {
+            return forward(accountId, opcode, message, responseType).join();
+        } catch (CompletionException ex) {
+            throw unwrap(ex.getCause(), ring.owner(accountId));
+        }
+    }
+
+    public <T> T read(byte[] payload, Class<T> type) throws IOException {
+        return mapper.readValue(payload, type);
+    }
+
+    public byte[] write(Object message) throws IOException {
+        return mapper.writeValueAsBytes(message);
+    }
+
+    public void start(RequestHandler handler) {
+        if (membership == null) {
+            return;
+        }
+        server = new ClusterServer(membership.self().clusterAddress().getPort(), handler);
+        logger.info("Node {} is listening for cluster requests on port {}, {} nodes in cluster",
+                membership.self().id(), server.port(), membership.nodes().size());
+    }
+
+    @Override
+    public void close() {
+        clients.values().forEach(ClusterClient::close);
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable ex, ClusterNode owner) {
+        final var cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof TimeoutException) {
+            return new UnavailableException("Node %s did not answer in time".formatted(owner.id()), cause);
+        }
+        return cause instanceof RuntimeException runtime ? runtime : new IllegalStateException(cause);
+    }
+}
@@ -0,0 +1,180 @@
+package com.neverless.cluster;
+
+import com.neverless.exceptions.BadRequestException;
+import com.neverless.exceptions.DuplicateException;
+import com.neverless.exceptions.NotFoundException;
+import com.neverless.exceptions.UnavailableException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/*
+ * Pool of a few long lived connections to one peer. Requests are pipelined: they are written as soon as they are
+ * sent and do not wait for earlier responses on the same connection. Broken connections fail their pending requests
+ * and are re-opened by the next request using that slot.
+ */
+class ClusterClient implements AutoCloseable {
+    //    Well below forward timeout, an unreachable peer fails its requests rather than holding them for OS connect timeout
+    private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(1);
+    private final ClusterNode peer;
+    private final Connection[] connections;
+    //    One per slot, connecting one slot does not hold requests which would use other slots
+    private final ReentrantLock[] connectLocks;
+    private final AtomicInteger next = new AtomicInteger();
+    private final AtomicLong correlationIds = new AtomicLong();
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    ClusterClient(ClusterNode peer, int connections) {
+        this.peer = peer;
+        this.connections = new Connection[connections];
+        this.connectLocks = new ReentrantLock[connections];
+        for (int slot = 0; slot < connections; slot++) {
+            connectLocks[slot] = new ReentrantLock();
+        }
+    }
+
+    CompletableFuture<byte[]> send(Opcode opcode, byte[] payload) {
+        final Connection connection;
+        try {
+            connection = connection(Math.floorMod(next.getAndIncrement(), connections.length));
+        } catch (IOException ex) {
+            return CompletableFuture.failedFuture(new UnavailableException("Node %s is not reachable".formatted(peer.id()), ex));
+        }
+        return connection.send(new Frame(correlationIds.incrementAndGet(), opcode.code(), payload));
+    }
+
+    private Connection connection(int slot) throws IOException {
+        final var existing = connections[slot];
+        if (existing != null && existing.isOpen()) {
+            return existing;
+        }
+        final var connectLock = connectLocks[slot];
+        connectLock.lock();
+        try {
+            if (connections[slot] == null || !connections[slot].isOpen()) {
+                connections[slot] = new Connection(connect());
+            }
+            return connections[slot];
+        } finally {
+            connectLock.unlock();
+        }
+    }
+
+    //    Membership keeps addresses unresolved, they are looked up on every connect
+    private Socket connect() throws IOException {
+        final var address = new InetSocketAddress(peer.clusterAddress().getHostString(), peer.clusterAddress().getPort());
+        final var socket = new Socket();
+        try {
+            socket.connect(address, (int) CONNECT_TIMEOUT.toMillis());
+            return socket;
+        } catch (IOException ex) {
+            socket.close();
+            throw ex;
+        }
+    }
+
+    @Override
+    public void close() {
+        for (Connection connection : connections) {
+            if (connection != null) {
+                connection.close(new UnavailableException("Cluster client to %s is closed".formatted(peer.id())));
+            }
+        }
+    }
+
+    private final class Connection {
+        private final Socket socket;
+        private final DataOutputStream out;
+        private final DataInputStream in;
+        private final ReentrantLock writeLock = new ReentrantLock();
+        private final ConcurrentMap<Long, CompletableFuture<byte[]>> pending = new ConcurrentHashMap<>();
+        private volatile boolean open = true;
+
+        private Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            socket.setTcpNoDelay(true);
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            Thread.ofVirtual().name("cluster-client-" + peer.id()).start(this::readResponses);
+        }
+
+        boolean isOpen() {
+            return open;
+        }
+
+        CompletableFuture<byte[]> send(Frame request) {
+            final var response = new CompletableFuture<byte[]>();
+            pending.put(request.correlationId(), response);
+//            Timed out or cancelled requests must not stay in the map until connection dies
+            response.whenComplete((result, ex) -> pending.remove(request.correlationId()));
+            writeLock.lock();
+            try {
+                request.write(out);
+                out.flush();
+            } catch (IOException ex) {
+                close(new UnavailableException("Unable to send request to node %s".formatted(peer.id()), ex));
+            } finally {
+                writeLock.unlock();
+            }
+            if (!open) {
+//                Closed concurrently, after close() already failed what was pending
+                response.completeExceptionally(new UnavailableException("Connection to node %s is lost".formatted(peer.id())));
+            }
+            return response;
+        }
+
+        private void readResponses() {
+            try {
+                while (open) {
+                    final var response = Frame.read(in);
+                    final var future = pending.remove(response.correlationId());
+                    if (future != null) {
+                        complete(future, response);
+                    }
+                }
+            } catch (IOException ex) {
+                close(new UnavailableException("Connection to node %s is lost".formatted(peer.id()), ex));
+            }
+        }
+
+        private void complete(CompletableFuture<byte[]> future, Frame response) {
+            final var message = new String(response.payload(), UTF_8);
+            switch (response.code()) {
+                case Frame.OK -> future.complete(response.payload());
+                case Frame.BAD_REQUEST -> future.completeExceptionally(new BadRequestException(message));
+                case Frame.NOT_FOUND -> future.completeExceptionally(new NotFoundException(message));
+                case Frame.CONFLICT -> future.completeExceptionally(new DuplicateException(message));
+                default -> future.completeExceptionally(new IllegalStateException("Node %s failed: %s".formatted(peer.id(), message)));
+            }
+        }
+
+        private void close(RuntimeException cause) {
+            if (!open) {
+                return;
+            }
+            open = false;
+            try {
+                socket.close();
+            } catch (IOException ex) {
+                logger.debug("Unable to close connection to {}", peer.id(), ex);
+            }
+            pending.values().forEach(future -> future.completeExceptionally(cause));
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.neverless.cluster;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+
+/*
+ * httpAddress is what clients use, clusterAddress is where node listens for forwarded requests of other nodes.
+ */
+public record ClusterNode(String id, URI httpAddress, InetSocketAddress clusterAddress) {
+}
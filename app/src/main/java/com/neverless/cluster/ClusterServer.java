@@ -0,0 +1,132 @@
+package com.neverless.cluster;
+
+import com.neverless.exceptions.BadRequestException;
+import com.neverless.exceptions.DuplicateException;
+import com.neverless.exceptions.NotFoundException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/*
+ * Accepts connections of other nodes. Every connection is read by one virtual thread and every request on it runs on
+ * its own virtual thread, so a slow request does not hold up the ones pipelined behind it.
+ */
+class ClusterServer implements AutoCloseable {
+    private final ServerSocket serverSocket;
+    private final RequestHandler handler;
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private volatile boolean running = true;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    ClusterServer(int port, RequestHandler handler) {
+        this.handler = handler;
+        try {
+            this.serverSocket = new ServerSocket();
+            serverSocket.setReuseAddress(true);
+            serverSocket.bind(new InetSocketAddress(port));
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to listen for cluster connections on port %d".formatted(port), ex);
+        }
+        Thread.ofVirtual().name("cluster-acceptor").start(this::accept);
+    }
+
+    int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void accept() {
+        while (running) {
+            try {
+                final var socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                Thread.ofVirtual().name("cluster-connection").start(() -> serve(socket));
+            } catch (IOException ex) {
+                if (running) {
+                    logger.error("Unable to accept cluster connection", ex);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        final var writeLock = new ReentrantLock();
+        try (socket;
+             var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+             var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+            while (running) {
+                final var request = Frame.read(in);
+                Thread.startVirtualThread(() -> respond(request, out, writeLock));
+            }
+        } catch (EOFException | SocketException ex) {
+//            Peer closed connection or is gone, it reconnects when it needs to
+        } catch (IOException ex) {
+            logger.warn("Closing cluster connection from {}", socket.getRemoteSocketAddress(), ex);
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    private void respond(Frame request, DataOutputStream out, ReentrantLock writeLock) {
+        Frame response;
+        try {
+            response = new Frame(request.correlationId(), Frame.OK, handler.handle(Opcode.of(request.code()), request.payload()));
+        } catch (BadRequestException | IllegalArgumentException ex) {
+            response = error(request, Frame.BAD_REQUEST, ex);
+        } catch (NotFoundException ex) {
+            response = error(request, Frame.NOT_FOUND, ex);
+        } catch (DuplicateException ex) {
+            response = error(request, Frame.CONFLICT, ex);
+        } catch (Exception ex) {
+            logger.error("Unable to process forwarded {}", request.code(), ex);
+            response = error(request, Frame.ERROR, ex);
+        }
+        writeLock.lock();
+        try {
+            response.write(out);
+            out.flush();
+        } catch (IOException ex) {
+//            Connection is broken, reader thread notices it as well and caller fails its pending requests
+            logger.debug("Unable to send cluster response", ex);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private static Frame error(Frame request, byte status, Exception ex) {
+        return new Frame(request.correlationId(), status, String.valueOf(ex.getMessage()).getBytes(UTF_8));
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            serverSocket.close();
+        } catch (IOException ex) {
+            logger.warn("Unable to close cluster server socket", ex);
+        }
+        connections.forEach(socket -> {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+//                Closing anyway
+            }
+        });
+    }
+}
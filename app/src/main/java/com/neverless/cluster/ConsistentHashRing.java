@@ -0,0 +1,48 @@
+package com.neverless.cluster;
+
+import com.neverless.domain.AccountId;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/*
+ * Every node is placed on a 64 bit ring at many pseudo random points (virtual nodes), an account belongs to the node
+ * owning first point at or after hash of its id. Virtual nodes even out ranges between nodes, and adding or removing a
+ * node only moves accounts of the ranges next to its points.
+ */
+public class ConsistentHashRing {
+    private final TreeMap<Long, ClusterNode> ring = new TreeMap<>();
+
+    public ConsistentHashRing(List<ClusterNode> nodes, int virtualNodes) {
+        for (ClusterNode node : nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash("%s#%d".formatted(node.id(), i)), node);
+            }
+        }
+    }
+
+    public ClusterNode owner(AccountId accountId) {
+        final var uuid = accountId.value();
+        Map.Entry<Long, ClusterNode> entry = ring.ceilingEntry(mix(uuid.getMostSignificantBits() ^ mix(uuid.getLeastSignificantBits())));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    //    FNV-1a, then mixed, as node ids differ only in a few characters
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    //    Finalizer of SplitMix64, spreads every input bit over the whole output
+    private static long mix(long value) {
+        value = (value ^ (value >>> 30)) * 0xbf58476d1ce4e5b9L;
+        value = (value ^ (value >>> 27)) * 0x94d049bb133111ebL;
+        return value ^ (value >>> 31);
+    }
+}
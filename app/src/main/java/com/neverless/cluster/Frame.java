@@ -0,0 +1,43 @@
+package com.neverless.cluster;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/*
+ * Unit of the internal protocol, both directions use same layout:
+ *
+ *   int length | long correlation id | byte code | payload (length - 9 bytes)
+ *
+ * code is Opcode of a request and Status of a response. Correlation id pairs a response with its request, so a
+ * connection can carry many requests at once and owner answers them in whatever order they complete.
+ */
+record Frame(long correlationId, byte code, byte[] payload) {
+    private static final int HEADER = Long.BYTES + 1;
+    private static final int MAX_LENGTH = 16 * 1024 * 1024;
+
+    static final byte OK = 0;
+    static final byte BAD_REQUEST = 1;
+    static final byte NOT_FOUND = 2;
+    static final byte CONFLICT = 3;
+    static final byte ERROR = 4;
+
+    void write(DataOutputStream out) throws IOException {
+        out.writeInt(HEADER + payload.length);
+        out.writeLong(correlationId);
+        out.writeByte(code);
+        out.write(payload);
+    }
+
+    static Frame read(DataInputStream in) throws IOException {
+        final var length = in.readInt();
+        if (length < HEADER || length > MAX_LENGTH) {
+            throw new IOException("Invalid frame length %d".formatted(length));
+        }
+        final var correlationId = in.readLong();
+        final var code = in.readByte();
+        final var payload = new byte[length - HEADER];
+        in.readFully(payload);
+        return new Frame(correlationId, code, payload);
+    }
+}
@@ -0,0 +1,51 @@
+package com.neverless.cluster;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Static list of cluster nodes, read from a file with one node per line:
+ *
+ *   # node-id   http-address            cluster-address
+ *   node-a      http://localhost:8082   localhost:9082
+ *   node-b      http://localhost:8083   localhost:9083
+ *
+ * Every node must be started with the same file, self is picked by -Dneverless.cluster.node-id.
+ */
+public record Membership(List<ClusterNode> nodes, ClusterNode self) {
+
+    public static Membership load(Path file, String selfId) {
+        final List<String> lines;
+        try {
+            lines = Files.readAllLines(file);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to read cluster membership %s".formatted(file), ex);
+        }
+        final var nodes = new ArrayList<ClusterNode>();
+        for (String line : lines) {
+            final var trimmed = line.strip();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            final var parts = trimmed.split("\\s+");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Expected '<node-id> <http-address> <host:port>' but got '%s' in %s".formatted(trimmed, file));
+            }
+            nodes.add(new ClusterNode(parts[0], URI.create(parts[1]), address(parts[2])));
+        }
+        final var self = nodes.stream().filter(node -> node.id().equals(selfId)).findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Node %s is not listed in %s".formatted(selfId, file)));
+        return new Membership(List.copyOf(nodes), self);
+    }
+
+    private static InetSocketAddress address(String hostAndPort) {
+        final var separator = hostAndPort.lastIndexOf(':');
+        return InetSocketAddress.createUnresolved(hostAndPort.substring(0, separator), Integer.parseInt(hostAndPort.substring(separator + 1)));
+    }
+}
@@ -0,0 +1,46 @@
+package com.neverless.cluster;
+
+import com.neverless.domain.AccountId;
+import com.neverless.resources.Accounts.AccountResponse;
+import com.neverless.resources.dtos.AddFundRequest;
+import com.neverless.resources.dtos.WithdrawalRequest;
+import com.neverless.resources.dtos.WithdrawalResponse;
+import com.neverless.resources.dtos.WithdrawalStatsResponse;
+
+import java.util.List;
+
+/*
+ * Payloads of forwarded requests and their responses, written as CBOR.
+ * Idempotency-Key travels with the request, so retries are recognised by owner no matter which node they hit.
+ */
+public final class Messages {
+    private Messages() {
+    }
+
+    public record CreateAccount(AccountId accountId) {
+    }
+
+    public record AddFunds(AccountId accountId, AddFundRequest request, String idempotencyKey) {
+    }
+
+    public record CreateWithdrawal(AccountId accountId, WithdrawalRequest request, String idempotencyKey) {
+    }
+
+    public record GetAccount(AccountId accountId) {
+    }
+
+    public record Accepted(boolean replayed) {
+    }
+
+    public record VersionedAccount(long version, AccountResponse account) {
+    }
+
+    public record AppliedWithdrawal(WithdrawalResponse withdrawal) {
+    }
+
+    public record VersionedWithdrawals(long version, List<WithdrawalResponse> withdrawals) {
+    }
+
+    public record VersionedWithdrawalStats(long version, WithdrawalStatsResponse stats) {
+    }
+}
@@ -0,0 +1,29 @@
+package com.neverless.cluster;
+
+/*
+ * Operations one node can ask owner of an account to do, payloads are the records in Messages.
+ */
+public enum Opcode {
+    CREATE_ACCOUNT,
+    ADD_FUNDS,
+    CREATE_WITHDRAWAL,
+    GET_ACCOUNT,
+    GET_WITHDRAWALS,
+    GET_WITHDRAWAL_STATS,
+    //    Bulk lines, answered once owner's shard applied the change instead of once it is queued
+    APPLY_FUNDS,
+    APPLY_WITHDRAWAL;
+
+    private static final Opcode[] VALUES = values();
+
+    byte code() {
+        return (byte) ordinal();
+    }
+
+    static Opcode of(byte code) {
+        if (code < 0 || code >= VALUES.length) {
+            throw new IllegalArgumentException("Unknown opcode %d".formatted(code));
+        }
+        return VALUES[code];
+    }
+}
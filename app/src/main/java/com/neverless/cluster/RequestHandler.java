@@ -0,0 +1,10 @@
+package com.neverless.cluster;
+
+/*
+ * Executes requests forwarded by other nodes for accounts owned by this node. Runs on its own virtual thread per
+ * request, exceptions of com.neverless.exceptions are sent back and re-thrown on calling node.
+ */
+@FunctionalInterface
+public interface RequestHandler {
+    byte[] handle(Opcode opcode, byte[] payload) throws Exception;
+}
@@ -1,7 +1,9 @@
 package com.neverless.domain;
 
 import com.neverless.domain.impl.AccountImpl.AccountBalance;
+import com.neverless.domain.impl.AccountImpl.Transfer;
 import com.neverless.domain.impl.AccountImpl.Withdrawal;
+import com.neverless.domain.impl.AccountImpl.WithdrawalStats;
 import com.neverless.domain.impl.AccountImpl.WithdrawalStatus;
 import com.neverless.integration.WithdrawalService.WithdrawalId;
 
@@ -12,6 +14,9 @@ public interface Account {
 
     AccountBalance accountBalance();
 
+    //    Monotonically increasing, bumped by every mutation of balance or withdrawals
+    long version();
+
     void addToBalance(Long amount);
 
     WithdrawalId withdraw(String addressId, Long amount);
@@ -20,4 +25,27 @@ public interface Account {
 
     Collection<Withdrawal> withdrawals();
 
+    //    null when account has no such withdrawal
+    Withdrawal withdrawal(WithdrawalId withdrawalId);
+
+    //    Maintained as withdrawals change, reading it does not go through withdrawals
+    WithdrawalStats withdrawalStats();
+
+    //    Locks amount for an outgoing transfer, returned transfer is ERROR when amount is not available
+    Transfer reserveTransfer(AccountId to, Long amount);
+
+    //    Returns false when transfer was already received, i.e. credit is repeated
+    boolean receiveTransfer(TransferId transferId, AccountId from, Long amount);
+
+    //    Debits locked amount when destination was credited, otherwise releases it
+    Transfer settleTransfer(TransferId transferId, boolean credited);
+
+    Collection<Transfer> transfers();
+
+    //    Takes over state replicated from primary, ignored unless version is newer than account's own
+    void applyReplicated(AccountBalance accountBalance, long version, Collection<Withdrawal> changedWithdrawals, Collection<Transfer> changedTransfers);
+
+    //    Replaces whole state with full state replicated from primary, ignored when version is older than account's own
+    void applySnapshot(AccountBalance accountBalance, long version, Collection<Withdrawal> allWithdrawals, Collection<Transfer> allTransfers);
+
 }
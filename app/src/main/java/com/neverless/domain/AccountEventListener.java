@@ -0,0 +1,40 @@
+package com.neverless.domain;
+
+import com.neverless.domain.impl.AccountImpl.Transfer;
+import com.neverless.domain.impl.AccountImpl.TransferStatus;
+import com.neverless.domain.impl.AccountImpl.Withdrawal;
+import com.neverless.domain.impl.AccountImpl.WithdrawalStatus;
+
+/*
+ * Notified by account itself while a change is being applied, i.e. on the shard thread which owns the account.
+ * Implementations must be quick and must not block, anything expensive has to be handed off to another thread.
+ */
+public interface AccountEventListener {
+    AccountEventListener NONE = new AccountEventListener() {
+    };
+
+    //    previousStatus is null when withdrawal has just been created
+    default void withdrawalStatusChanged(AccountId accountId, Withdrawal withdrawal, WithdrawalStatus previousStatus) {
+    }
+
+    //    previousStatus is null when transfer has just been reserved or received
+    default void transferStatusChanged(AccountId accountId, Transfer transfer, TransferStatus previousStatus) {
+    }
+
+    default AccountEventListener andThen(AccountEventListener next) {
+        final var first = this;
+        return new AccountEventListener() {
+            @Override
+            public void withdrawalStatusChanged(AccountId accountId, Withdrawal withdrawal, WithdrawalStatus previousStatus) {
+                first.withdrawalStatusChanged(accountId, withdrawal, previousStatus);
+                next.withdrawalStatusChanged(accountId, withdrawal, previousStatus);
+            }
+
+            @Override
+            public void transferStatusChanged(AccountId accountId, Transfer transfer, TransferStatus previousStatus) {
+                first.transferStatusChanged(accountId, transfer, previousStatus);
+                next.transferStatusChanged(accountId, transfer, previousStatus);
+            }
+        };
+    }
+}
@@ -1,9 +1,35 @@
 package com.neverless.domain;
 
+import com.neverless.domain.impl.AccountImpl.AccountBalance;
+
 import java.util.Optional;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 public interface AccountRepository {
     Account save(Account account);
 
     Optional<Account> find(AccountId id);
+
+    //    null when account is not in memory, i.e. it either does not exist or has to be loaded with findAsync
+    default Account findLoaded(AccountId id) {
+        return find(id).orElse(null);
+    }
+
+    //    Loads accounts which are not in memory without blocking the caller
+    default CompletableFuture<Optional<Account>> findAsync(AccountId id) {
+        return CompletableFuture.completedFuture(find(id));
+    }
+
+    //    Balance of account without bringing it into memory, null when account does not exist
+    default AccountBalance findBalance(AccountId id) {
+        return find(id).map(Account::accountBalance).orElse(null);
+    }
+
+    //    Weakly consistent, accounts created while iterating may or may not be visited
+    void forEach(Consumer<Account> action);
+
+    //    Splits storage into parts which can be walked in parallel (see AccountScanner), weakly consistent like forEach
+    Spliterator<Account> spliterator();
 }
@@ -0,0 +1,19 @@
+package com.neverless.domain;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+import java.util.UUID;
+
+import static java.util.Objects.requireNonNull;
+
+public record TransferId(@JsonValue UUID value) {
+    @JsonCreator(mode = JsonCreator.Mode.DELEGATING)
+    public TransferId {
+        requireNonNull(value, "TransferId must not be null");
+    }
+
+    public static TransferId random() {
+        return new TransferId(UUID.randomUUID());
+    }
+}
@@ -1,8 +1,12 @@
 package com.neverless.domain.impl;
 
 import com.neverless.domain.Account;
+import com.neverless.domain.AccountEventListener;
 import com.neverless.domain.AccountId;
+import com.neverless.domain.TransferId;
 import com.neverless.integration.WithdrawalService.WithdrawalId;
+import com.neverless.jfr.BalanceCheckEvent;
+import com.neverless.jfr.ShardContext;
 import com.neverless.integration.WithdrawalService.WithdrawalState;
 import org.jetbrains.annotations.NotNull;
 
@@ -32,14 +36,32 @@ public class AccountImpl implements Account {
 
     private final Map<WithdrawalId, Withdrawal> withdrawals;
 
+    //    Both outgoing and incoming, incoming ones make a repeated credit of same transfer a no-op
+    private final Map<TransferId, Transfer> transfers;
+
+    //    Only single (shard) thread ever writes it, volatile is enough for readers to see latest value
+    private volatile long version;
+
+    //    Kept up to date on every withdrawal change, so stats are read in O(1) however long the history is. Immutable
+//    and replaced as a whole by the shard thread, so readers always see counts and amounts of the same moment.
+    private volatile WithdrawalStats withdrawalStats = WithdrawalStats.EMPTY;
+
+    private final AccountEventListener eventListener;
+
     public AccountImpl(AccountId accountId) {
         this(accountId, 0L);
     }
 
     public AccountImpl(AccountId accountId, Long initialBalance) {
+        this(accountId, initialBalance, AccountEventListener.NONE);
+    }
+
+    public AccountImpl(AccountId accountId, Long initialBalance, AccountEventListener eventListener) {
         this.withdrawals = new LinkedHashMap<>();
+        this.transfers = new LinkedHashMap<>();
         this.accountBalanceAtomicReference = new AtomicReference<>(new AccountBalance(initialBalance, 0L));
         this.accountId = accountId;
+        this.eventListener = eventListener;
     }
 
     @Override
@@ -52,19 +74,27 @@ public class AccountImpl implements Account {
         return accountBalanceAtomicReference.get();
     }
 
+    @Override
+    public long version() {
+        return version;
+    }
+
 
     @Override
     public void addToBalance(Long amount) {
         AccountBalance currentAccountBalance = accountBalanceAtomicReference.get();
         AccountBalance newAccountbalance = new AccountBalance(currentAccountBalance.balance + amount, currentAccountBalance.lockedBalance);
         accountBalanceAtomicReference.compareAndSet(currentAccountBalance, newAccountbalance);
+        version++;
     }
 
     @Override
     public WithdrawalId withdraw(String addressId, Long amount) {
         WithdrawalId withdrawalId = createWithdrawal(addressId, amount);
         AccountBalance currentAccountBalance = accountBalanceAtomicReference.get();
-        if (currentAccountBalance.balance - currentAccountBalance.lockedBalance < amount) {
+        long available = currentAccountBalance.balance - currentAccountBalance.lockedBalance;
+        recordBalanceCheck(withdrawalId, amount, available);
+        if (available < amount) {
             Withdrawal withdrawal = withdrawals.get(withdrawalId);
             String message = "You do not have enough balance to cover the withdrawal of amount %d".formatted(amount);
             Withdrawal updatedWithdrawal = new Withdrawal(withdrawal.withdrawalId(), withdrawal.addressId(), withdrawal.amount(), ERROR, message);
@@ -73,9 +103,25 @@ public class AccountImpl implements Account {
             AccountBalance newAccountbalance = new AccountBalance(currentAccountBalance.balance, currentAccountBalance.lockedBalance + amount);
             accountBalanceAtomicReference.compareAndSet(currentAccountBalance, newAccountbalance);
         }
+        withdrawalStats = withdrawalStats.added(withdrawals.get(withdrawalId).status(), amount);
+        version++;
+        eventListener.withdrawalStatusChanged(accountId, withdrawals.get(withdrawalId), null);
         return withdrawalId;
     }
 
+    private void recordBalanceCheck(WithdrawalId withdrawalId, Long amount, long available) {
+        BalanceCheckEvent event = new BalanceCheckEvent();
+        if (event.shouldCommit()) {
+            event.accountId = accountId.value().toString();
+            event.withdrawalId = withdrawalId.value().toString();
+            event.shard = ShardContext.current();
+            event.amount = amount;
+            event.available = available;
+            event.accepted = available >= amount;
+            event.commit();
+        }
+    }
+
     @NotNull
     private WithdrawalId createWithdrawal(String addressId, Long amount) {
         WithdrawalId withdrawalId;
@@ -107,6 +153,116 @@ public class AccountImpl implements Account {
         }
         Withdrawal updatedWithdrawal = new Withdrawal(withdrawal.withdrawalId(), withdrawal.addressId(), withdrawal.amount(), withdrawalStatus, "");
         withdrawals.put(withdrawalId, updatedWithdrawal);
+        withdrawalStats = withdrawalStats.moved(withdrawal.status(), withdrawalStatus, withdrawal.amount());
+        version++;
+        eventListener.withdrawalStatusChanged(accountId, updatedWithdrawal, withdrawal.status());
+    }
+
+    @Override
+    public Transfer reserveTransfer(AccountId to, Long amount) {
+        final var transferId = TransferId.random();
+        AccountBalance currentAccountBalance = accountBalanceAtomicReference.get();
+        Transfer transfer;
+        if (currentAccountBalance.balance - currentAccountBalance.lockedBalance < amount) {
+            transfer = new Transfer(transferId, to, amount, TransferDirection.OUTGOING, TransferStatus.ERROR,
+                    "You do not have enough balance to cover the transfer of amount %d".formatted(amount));
+        } else {
+            AccountBalance newAccountbalance = new AccountBalance(currentAccountBalance.balance, currentAccountBalance.lockedBalance + amount);
+            accountBalanceAtomicReference.compareAndSet(currentAccountBalance, newAccountbalance);
+            transfer = new Transfer(transferId, to, amount, TransferDirection.OUTGOING, TransferStatus.PENDING, "");
+        }
+        transfers.put(transferId, transfer);
+        version++;
+        eventListener.transferStatusChanged(accountId, transfer, null);
+        return transfer;
+    }
+
+    @Override
+    public boolean receiveTransfer(TransferId transferId, AccountId from, Long amount) {
+        if (transfers.containsKey(transferId)) {
+            return false;
+        }
+        AccountBalance currentAccountBalance = accountBalanceAtomicReference.get();
+        AccountBalance newAccountbalance = new AccountBalance(currentAccountBalance.balance + amount, currentAccountBalance.lockedBalance);
+        accountBalanceAtomicReference.compareAndSet(currentAccountBalance, newAccountbalance);
+        final var transfer = new Transfer(transferId, from, amount, TransferDirection.INCOMING, TransferStatus.SUCCESS, "");
+        transfers.put(transferId, transfer);
+        version++;
+        eventListener.transferStatusChanged(accountId, transfer, null);
+        return true;
+    }
+
+    @Override
+    public Transfer settleTransfer(TransferId transferId, boolean credited) {
+        Transfer transfer = transfers.get(transferId);
+        if (transfer.status() != TransferStatus.PENDING) {
+            return transfer;
+        }
+        AccountBalance currentAccountBalance = accountBalanceAtomicReference.get();
+        Transfer settledTransfer;
+        if (credited) {
+            AccountBalance newAccountbalance = new AccountBalance(currentAccountBalance.balance - transfer.amount(), currentAccountBalance.lockedBalance - transfer.amount());
+            accountBalanceAtomicReference.compareAndSet(currentAccountBalance, newAccountbalance);
+            settledTransfer = new Transfer(transferId, transfer.counterparty(), transfer.amount(), transfer.direction(), TransferStatus.SUCCESS, "");
+        } else {
+            AccountBalance newAccountbalance = new AccountBalance(currentAccountBalance.balance, currentAccountBalance.lockedBalance - transfer.amount());
+            accountBalanceAtomicReference.compareAndSet(currentAccountBalance, newAccountbalance);
+            settledTransfer = new Transfer(transferId, transfer.counterparty(), transfer.amount(), transfer.direction(), TransferStatus.ERROR,
+                    "Account %s could not be credited".formatted(transfer.counterparty()));
+        }
+        transfers.put(transferId, settledTransfer);
+        version++;
+        eventListener.transferStatusChanged(accountId, settledTransfer, transfer.status());
+        return settledTransfer;
+    }
+
+    @Override
+    public Collection<Transfer> transfers() {
+        return transfers.values();
+    }
+
+    /*
+     * Standby side of replication. Balances and version are absolute, withdrawals and transfers are only the ones which
+     * changed, so they are merged. Event listener is not notified, these changes were already reported on primary.
+     */
+    @Override
+    public void applyReplicated(AccountBalance accountBalance, long version, Collection<Withdrawal> changedWithdrawals, Collection<Transfer> changedTransfers) {
+        if (version <= this.version) {
+            return;
+        }
+        var stats = withdrawalStats;
+        for (Withdrawal withdrawal : changedWithdrawals) {
+            final var previous = withdrawals.put(withdrawal.withdrawalId(), withdrawal);
+            stats = previous == null ? stats.added(withdrawal.status(), withdrawal.amount())
+                    : stats.moved(previous.status(), withdrawal.status(), withdrawal.amount());
+        }
+        withdrawalStats = stats;
+        changedTransfers.forEach(transfer -> transfers.put(transfer.transferId(), transfer));
+        accountBalanceAtomicReference.set(accountBalance);
+        this.version = version;
+    }
+
+    /*
+     * Standby side of replication for snapshot entries. A change shipped while the snapshot was being read may have
+     * been applied already at the same version, with only the withdrawals it touched, so state is replaced rather than
+     * merged and stats are counted again from scratch.
+     */
+    @Override
+    public void applySnapshot(AccountBalance accountBalance, long version, Collection<Withdrawal> allWithdrawals, Collection<Transfer> allTransfers) {
+        if (version < this.version) {
+            return;
+        }
+        withdrawals.clear();
+        var stats = WithdrawalStats.EMPTY;
+        for (Withdrawal withdrawal : allWithdrawals) {
+            withdrawals.put(withdrawal.withdrawalId(), withdrawal);
+            stats = stats.added(withdrawal.status(), withdrawal.amount());
+        }
+        withdrawalStats = stats;
+        transfers.clear();
+        allTransfers.forEach(transfer -> transfers.put(transfer.transferId(), transfer));
+        accountBalanceAtomicReference.set(accountBalance);
+        this.version = version;
     }
 
     @Override
@@ -114,6 +270,16 @@ public class AccountImpl implements Account {
         return withdrawals.values();
     }
 
+    @Override
+    public Withdrawal withdrawal(WithdrawalId withdrawalId) {
+        return withdrawals.get(withdrawalId);
+    }
+
+    @Override
+    public WithdrawalStats withdrawalStats() {
+        return withdrawalStats;
+    }
+
     public record AccountBalance(Long balance, Long lockedBalance) {
 
     }
@@ -129,6 +295,70 @@ public class AccountImpl implements Account {
 
     }
 
+    //    Count and amount of withdrawals per current status, rejected withdrawals are counted as failed
+    public record WithdrawalStats(Totals pending, Totals processing, Totals succeeded, Totals failed) {
+        static final WithdrawalStats EMPTY = new WithdrawalStats(Totals.NONE, Totals.NONE, Totals.NONE, Totals.NONE);
+
+        //        Withdrawals only ever leave account once they succeeded
+        public long totalWithdrawn() {
+            return succeeded.amount();
+        }
+
+        WithdrawalStats added(WithdrawalStatus status, long amount) {
+            return with(status, totals(status).plus(amount));
+        }
+
+        WithdrawalStats moved(WithdrawalStatus from, WithdrawalStatus to, long amount) {
+            return with(from, totals(from).minus(amount)).added(to, amount);
+        }
+
+        private Totals totals(WithdrawalStatus status) {
+            return switch (status) {
+                case PENDING -> pending;
+                case PROCESSING -> processing;
+                case SUCCESS -> succeeded;
+                case ERROR -> failed;
+            };
+        }
+
+        private WithdrawalStats with(WithdrawalStatus status, Totals totals) {
+            return switch (status) {
+                case PENDING -> new WithdrawalStats(totals, processing, succeeded, failed);
+                case PROCESSING -> new WithdrawalStats(pending, totals, succeeded, failed);
+                case SUCCESS -> new WithdrawalStats(pending, processing, totals, failed);
+                case ERROR -> new WithdrawalStats(pending, processing, succeeded, totals);
+            };
+        }
+    }
+
+    public record Totals(long count, long amount) {
+        static final Totals NONE = new Totals(0, 0);
+
+        Totals plus(long amount) {
+            return new Totals(count + 1, this.amount + amount);
+        }
+
+        Totals minus(long amount) {
+            return new Totals(count - 1, this.amount - amount);
+        }
+    }
+
+    //    counterparty is destination of an outgoing transfer and source of an incoming one
+    public record Transfer(TransferId transferId, AccountId counterparty, Long amount, TransferDirection direction,
+                           TransferStatus status, String message) {
+    }
+
+    public enum TransferDirection {
+        OUTGOING,
+        INCOMING
+    }
+
+    public enum TransferStatus {
+        PENDING,
+        ERROR,
+        SUCCESS
+    }
+
     public enum WithdrawalStatus {
         PENDING,
         PROCESSING,
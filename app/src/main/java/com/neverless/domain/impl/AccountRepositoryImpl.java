@@ -6,8 +6,10 @@ import com.neverless.domain.AccountRepository;
 import com.neverless.exceptions.DuplicateException;
 
 import java.util.Optional;
+import java.util.Spliterator;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.Consumer;
 
 public class AccountRepositoryImpl implements AccountRepository {
 
@@ -27,4 +29,14 @@ public class AccountRepositoryImpl implements AccountRepository {
     public Optional<Account> find(AccountId accountId) {
         return Optional.ofNullable(accountStorage.get(accountId));
     }
+
+    @Override
+    public void forEach(Consumer<Account> action) {
+        accountStorage.values().forEach(action);
+    }
+
+    @Override
+    public Spliterator<Account> spliterator() {
+        return accountStorage.values().spliterator();
+    }
 }
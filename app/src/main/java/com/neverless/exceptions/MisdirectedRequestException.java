@@ -0,0 +1,17 @@
+package com.neverless.exceptions;
+
+/*
+ * Request has to be sent to the node owning the account, i.e. streams and long polls which are not forwarded.
+ */
+public class MisdirectedRequestException extends RuntimeException {
+    private final String owner;
+
+    public MisdirectedRequestException(String message, String owner) {
+        super(message);
+        this.owner = owner;
+    }
+
+    public String owner() {
+        return owner;
+    }
+}
@@ -0,0 +1,19 @@
+package com.neverless.exceptions;
+
+import java.time.Duration;
+
+/*
+ * Caller went over its rate limit, retryAfter is how long until its next request would be accepted.
+ */
+public class TooManyRequestsException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public TooManyRequestsException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration retryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,11 @@
+package com.neverless.exceptions;
+
+public class UnavailableException extends RuntimeException {
+    public UnavailableException(String message) {
+        super(message);
+    }
+
+    public UnavailableException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,53 @@
+package com.neverless.integration;
+
+import com.neverless.time.TimeSource;
+
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.neverless.integration.WithdrawalService.WithdrawalState.COMPLETED;
+import static com.neverless.integration.WithdrawalService.WithdrawalState.FAILED;
+import static com.neverless.integration.WithdrawalService.WithdrawalState.PROCESSING;
+
+/*
+ * Behaves like WithdrawalServiceStub (final state 1 to 10 seconds after request, completed or failed at random),
+ * but on a TimeSource and a seeded random, so with VirtualTimeSource runs are fast and reproducible.
+ * WithdrawalServiceStub itself must stay as is, so this is a copy rather than a change to it.
+ */
+public class SimulatedWithdrawalService implements WithdrawalService<Long> {
+    private final ConcurrentMap<WithdrawalId, Withdrawal> requests = new ConcurrentHashMap<>();
+    private final TimeSource timeSource;
+    private final Random random;
+
+    public SimulatedWithdrawalService(TimeSource timeSource, long seed) {
+        this.timeSource = timeSource;
+        this.random = new Random(seed);
+    }
+
+    @Override
+    public void requestWithdrawal(WithdrawalId id, Address address, Long amount) {
+//        Random is only drawn from for a new id, a retried request must not shift outcomes of all later withdrawals
+        final var existing = requests.computeIfAbsent(id, ignored -> newWithdrawal(address, amount));
+        if (!Objects.equals(existing.address, address) && !Objects.equals(existing.amount, amount))
+            throw new IllegalStateException("Withdrawal request with id[%s] is already present".formatted(id));
+    }
+
+    private synchronized Withdrawal newWithdrawal(Address address, Long amount) {
+        final var state = random.nextBoolean() ? COMPLETED : FAILED;
+        final var finaliseAt = timeSource.currentTimeMillis() + 1000 + random.nextLong(9000);
+        return new Withdrawal(state, finaliseAt, address, amount);
+    }
+
+    @Override
+    public WithdrawalState getRequestState(WithdrawalId id) {
+        final var request = requests.get(id);
+        if (request == null)
+            throw new IllegalArgumentException("Request %s is not found".formatted(id));
+        return request.finaliseAt <= timeSource.currentTimeMillis() ? request.state : PROCESSING;
+    }
+
+    private record Withdrawal(WithdrawalState state, long finaliseAt, Address address, Long amount) {
+    }
+}
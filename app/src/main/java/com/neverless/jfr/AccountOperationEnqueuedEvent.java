@@ -0,0 +1,32 @@
+package com.neverless.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/*
+ * One per operation on the request thread, so it is off by default, AccountOperationEvent already carries queue wait.
+ * Enable it in a custom .jfc when following a single account through the queues.
+ */
+@Name("com.neverless.AccountOperationEnqueued")
+@Label("Account Operation Enqueued")
+@Category({"Neverless", "Shards"})
+@Description("Operation handed to the shard queue of an account")
+@Enabled(false)
+@StackTrace(false)
+public class AccountOperationEnqueuedEvent extends jdk.jfr.Event {
+    @Label("Account Id")
+    public String accountId;
+
+    @Label("Shard")
+    public int shard;
+
+    @Label("Lane")
+    public String lane;
+
+    @Label("Queue Depth")
+    public int queueDepth;
+}
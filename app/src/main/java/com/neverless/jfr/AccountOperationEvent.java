@@ -0,0 +1,34 @@
+package com.neverless.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/*
+ * Duration is execution of the operation on the shard thread, time spent in the queue before it is in queueWait.
+ */
+@Name("com.neverless.AccountOperation")
+@Label("Account Operation")
+@Category({"Neverless", "Shards"})
+@Description("Account operation executed by a shard thread")
+@StackTrace(false)
+public class AccountOperationEvent extends jdk.jfr.Event {
+    @Label("Account Id")
+    public String accountId;
+
+    @Label("Shard")
+    public int shard;
+
+    @Label("Lane")
+    public String lane;
+
+    @Label("Queue Wait")
+    @Timespan(Timespan.NANOSECONDS)
+    public long queueWait;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -0,0 +1,32 @@
+package com.neverless.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.neverless.BalanceCheck")
+@Label("Balance Check")
+@Category({"Neverless", "Accounts"})
+@Description("Outcome of available balance check when a withdrawal is created")
+@StackTrace(false)
+public class BalanceCheckEvent extends jdk.jfr.Event {
+    @Label("Account Id")
+    public String accountId;
+
+    @Label("Withdrawal Id")
+    public String withdrawalId;
+
+    @Label("Shard")
+    public int shard;
+
+    @Label("Amount")
+    public long amount;
+
+    @Label("Available")
+    public long available;
+
+    @Label("Accepted")
+    public boolean accepted;
+}
@@ -0,0 +1,29 @@
+package com.neverless.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.neverless.CustodianStatusPoll")
+@Label("Custodian Status Poll")
+@Category({"Neverless", "Custodian"})
+@Description("getRequestState call to the external withdrawal service")
+@StackTrace(false)
+public class CustodianStatusPollEvent extends jdk.jfr.Event {
+    @Label("Account Id")
+    public String accountId;
+
+    @Label("Withdrawal Id")
+    public String withdrawalId;
+
+    @Label("Shard")
+    public int shard;
+
+    @Label("State")
+    public String state;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -0,0 +1,29 @@
+package com.neverless.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.neverless.CustodianSubmit")
+@Label("Custodian Submit")
+@Category({"Neverless", "Custodian"})
+@Description("requestWithdrawal call to the external withdrawal service")
+@StackTrace(false)
+public class CustodianSubmitEvent extends jdk.jfr.Event {
+    @Label("Account Id")
+    public String accountId;
+
+    @Label("Withdrawal Id")
+    public String withdrawalId;
+
+    @Label("Shard")
+    public int shard;
+
+    @Label("Amount")
+    public long amount;
+
+    @Label("Failed")
+    public boolean failed;
+}
@@ -0,0 +1,57 @@
+package com.neverless.jfr;
+
+import com.neverless.metrics.MetricsRegistry;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Streams our own JFR events in process and reports every one slower than threshold, so one slow withdrawal shows up
+ * in logs (with account, withdrawal and shard) instead of only moving a percentile.
+ *
+ * Threshold is applied by JFR itself, faster events are dropped at commit time and never reach the stream.
+ */
+public class LatencyWatchdog implements AutoCloseable {
+    private static final List<Class<? extends Event>> WATCHED = List.of(
+            AccountOperationEvent.class, CustodianSubmitEvent.class, CustodianStatusPollEvent.class);
+
+    private final RecordingStream stream;
+    private final LongAdder slowEvents;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    public LatencyWatchdog(Duration threshold, MetricsRegistry metrics) {
+        this.stream = new RecordingStream();
+        this.slowEvents = metrics.counter("latency_watchdog_slow_events_total", "JFR events slower than watchdog threshold");
+        for (Class<? extends Event> event : WATCHED) {
+            stream.enable(event).withThreshold(threshold).withoutStackTrace();
+//            By name, a stream also delivers every other event enabled by default (i.e. BalanceCheck), without threshold
+            stream.onEvent(EventType.getEventType(event).getName(), this::report);
+        }
+    }
+
+    public void start() {
+        stream.startAsync();
+    }
+
+    private void report(RecordedEvent event) {
+        slowEvents.increment();
+        logger.warn("Slow {} took {} ms: account {}, withdrawal {}, shard {}",
+                event.getEventType().getLabel(),
+                event.getDuration().toMillis(),
+                event.getString("accountId"),
+                event.hasField("withdrawalId") ? event.getString("withdrawalId") : "-",
+                event.getInt("shard"));
+    }
+
+    @Override
+    public void close() {
+        stream.close();
+    }
+}
@@ -0,0 +1,20 @@
+package com.neverless.jfr;
+
+/*
+ * Index of the shard current thread is running operations for, so events raised deep inside domain objects can carry it
+ * without passing it through every method. -1 outside of shard threads.
+ */
+public final class ShardContext {
+    private static final ThreadLocal<Integer> SHARD = ThreadLocal.withInitial(() -> -1);
+
+    private ShardContext() {
+    }
+
+    public static void enter(int shard) {
+        SHARD.set(shard);
+    }
+
+    public static int current() {
+        return SHARD.get();
+    }
+}
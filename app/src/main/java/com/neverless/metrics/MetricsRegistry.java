@@ -0,0 +1,128 @@
+package com.neverless.metrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.LongSupplier;
+
+/*
+ * Holds all metrics of the application and renders them in Prometheus text exposition format.
+ *
+ * Metrics are registered once (usually in constructors) and recorded to directly, the registry is not on the hot path.
+ * Histograms hold nanoseconds and are exposed as summaries in seconds.
+ */
+public class MetricsRegistry {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final double NANOS_PER_SECOND = 1_000_000_000d;
+
+    private final Map<String, Family> families = new ConcurrentHashMap<>();
+    private final List<Family> registrationOrder = new CopyOnWriteArrayList<>();
+
+    /*
+     * labels are name, value pairs, i.e. counter("requests_total", "...", "method", "GET")
+     */
+    public LongAdder counter(String name, String help, String... labels) {
+        LongAdder counter = new LongAdder();
+        register(name, help, Type.COUNTER, labels, (DoubleSupplier) counter::sum);
+        return counter;
+    }
+
+    public void counter(String name, String help, LongSupplier value, String... labels) {
+        register(name, help, Type.COUNTER, labels, (DoubleSupplier) value::getAsLong);
+    }
+
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        register(name, help, Type.GAUGE, labels, value);
+    }
+
+    public Histogram histogram(String name, String help, String... labels) {
+        Histogram histogram = new Histogram();
+        register(name, help, Type.SUMMARY, labels, histogram);
+        return histogram;
+    }
+
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        for (Family family : registrationOrder) {
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type.prometheusName).append('\n');
+            for (Series series : family.series) {
+                if (series.source instanceof Histogram histogram) {
+                    for (double quantile : QUANTILES) {
+                        sample(out, family.name, series.labels, "quantile", Double.toString(quantile),
+                                histogram.valueAtQuantile(quantile) / NANOS_PER_SECOND);
+                    }
+                    sample(out, family.name + "_sum", series.labels, null, null, histogram.sum() / NANOS_PER_SECOND);
+                    sample(out, family.name + "_count", series.labels, null, null, histogram.count());
+                } else {
+                    sample(out, family.name, series.labels, null, null, ((DoubleSupplier) series.source).getAsDouble());
+                }
+            }
+        }
+        return out.toString();
+    }
+
+    private void register(String name, String help, Type type, String[] labels, Object source) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels of %s must be name, value pairs".formatted(name));
+        }
+        Family family = families.computeIfAbsent(name, key -> {
+            Family created = new Family(name, help, type);
+            registrationOrder.add(created);
+            return created;
+        });
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric %s is already registered as %s".formatted(name, family.type));
+        }
+        family.series.add(new Series(labels, source));
+    }
+
+    private static void sample(StringBuilder out, String name, String[] labels, String extraLabel, String extraValue, double value) {
+        out.append(name);
+        if (labels.length > 0 || extraLabel != null) {
+            out.append('{');
+            String separator = "";
+            for (int i = 0; i < labels.length; i += 2) {
+                out.append(separator).append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+                separator = ",";
+            }
+            if (extraLabel != null) {
+                out.append(separator).append(extraLabel).append("=\"").append(extraValue).append('"');
+            }
+            out.append('}');
+        }
+        out.append(' ');
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            out.append((long) value);
+        } else {
+            out.append(value);
+        }
+        out.append('\n');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private enum Type {
+        COUNTER("counter"), GAUGE("gauge"), SUMMARY("summary");
+
+        private final String prometheusName;
+
+        Type(String prometheusName) {
+            this.prometheusName = prometheusName;
+        }
+    }
+
+    private record Family(String name, String help, Type type, List<Series> series) {
+        Family(String name, String help, Type type) {
+            this(name, help, type, new CopyOnWriteArrayList<>());
+        }
+    }
+
+    private record Series(String[] labels, Object source) {
+    }
+}
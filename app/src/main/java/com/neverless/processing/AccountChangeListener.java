@@ -0,0 +1,34 @@
+package com.neverless.processing;
+
+import com.neverless.domain.Account;
+
+/*
+ * Called by shard thread right after an operation changed the account, implementations must be quick and never block
+ * as every other account of the shard waits for them.
+ */
+@FunctionalInterface
+public interface AccountChangeListener {
+
+    void accountChanged(Account account);
+
+    //    Called by the thread creating the account, before any operation can be run on it
+    default void accountCreated(Account account) {
+    }
+
+    default AccountChangeListener andThen(AccountChangeListener next) {
+        final var first = this;
+        return new AccountChangeListener() {
+            @Override
+            public void accountChanged(Account account) {
+                first.accountChanged(account);
+                next.accountChanged(account);
+            }
+
+            @Override
+            public void accountCreated(Account account) {
+                first.accountCreated(account);
+                next.accountCreated(account);
+            }
+        };
+    }
+}
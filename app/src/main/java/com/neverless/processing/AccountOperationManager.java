@@ -2,14 +2,21 @@ package com.neverless.processing;
 
 import com.neverless.domain.Account;
 import com.neverless.domain.AccountId;
+import com.neverless.resources.dtos.TransferResponse;
 import com.neverless.resources.dtos.WithdrawalResponse;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
 public interface AccountOperationManager {
 
-    void doAccountOperationAsync(AccountId accountId, Consumer<Account> operation, Consumer<Exception> errorHandler);
+    //    New work, i.e. requests coming from clients
+    default void doAccountOperationAsync(AccountId accountId, Consumer<Account> operation, Consumer<Exception> errorHandler) {
+        doAccountOperationAsync(accountId, Lane.COMMAND, operation, errorHandler);
+    }
+
+    void doAccountOperationAsync(AccountId accountId, Lane lane, Consumer<Account> operation, Consumer<Exception> errorHandler);
 
     void validateAccountId(AccountId accountId);
 
@@ -19,6 +26,41 @@ public interface AccountOperationManager {
 
     List<WithdrawalResponse> getWithdrawalStatus(AccountId accountId);
 
+    List<TransferResponse> getTransfers(AccountId accountId);
+
+    //    Running sums of balances and locked balances of all accounts, read in O(shards)
+    LiabilityTotals liabilityTotals();
+
+    //    Scans accounts and compares them with running totals, per shard
+    CompletableFuture<List<ShardReconciliation>> reconcileLiabilities();
+
     void shutdown();
 
+    //    running are shard's totals and scanned the sums of its accounts at the same moment, any difference is drift
+    record ShardReconciliation(int shard, long accounts, LiabilityTotals running, LiabilityTotals scanned) {
+        public boolean isConsistent() {
+            return running.equals(scanned);
+        }
+    }
+
+    /*
+     * Operations of a shard are queued in lanes, served by weight. Completions release locked balance of work which
+     * was already accepted, so during a burst they overtake new commands instead of waiting behind them.
+     */
+    enum Lane {
+        //        Withdrawal status updates, transfer credits and settles
+        COMPLETION(8),
+        COMMAND(1);
+
+        private final int weight;
+
+        Lane(int weight) {
+            this.weight = weight;
+        }
+
+        //        Operations taken from the lane in a row before the next lane's turn
+        public int weight() {
+            return weight;
+        }
+    }
 }
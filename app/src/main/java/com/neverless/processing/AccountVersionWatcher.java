@@ -0,0 +1,58 @@
+package com.neverless.processing;
+
+import com.neverless.domain.Account;
+import com.neverless.domain.AccountId;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Lets long-poll requests wait for an account to change without holding a thread. Waiters are futures which are
+ * completed with true when account changes or with false once timeout expires. Futures are always completed on
+ * watcher's own executor, so neither shard threads nor the timer thread end up writing http responses.
+ */
+public class AccountVersionWatcher implements AccountChangeListener {
+
+    private final ConcurrentMap<AccountId, List<CompletableFuture<Boolean>>> waiters = new ConcurrentHashMap<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public CompletableFuture<Boolean> awaitChange(Account account, long sinceVersion, Duration timeout) {
+        final var accountId = account.id();
+        final var waiter = new CompletableFuture<Boolean>();
+        waiters.compute(accountId, (id, existing) -> {
+            var list = existing == null ? new ArrayList<CompletableFuture<Boolean>>() : existing;
+            list.add(waiter);
+            return list;
+        });
+//        Account could have changed between caller's check and registration above, in which case nobody will wake us up
+        if (account.version() > sinceVersion) {
+            executor.execute(() -> waiter.complete(true));
+        }
+        CompletableFuture.runAsync(() -> waiter.complete(false),
+                CompletableFuture.delayedExecutor(timeout.toMillis(), TimeUnit.MILLISECONDS, executor));
+        waiter.whenComplete((changed, ex) -> waiters.computeIfPresent(accountId, (id, list) -> {
+            list.remove(waiter);
+            return list.isEmpty() ? null : list;
+        }));
+        return waiter;
+    }
+
+    @Override
+    public void accountChanged(Account account) {
+        final var toWakeUp = waiters.remove(account.id());
+        if (toWakeUp != null) {
+            executor.execute(() -> toWakeUp.forEach(waiter -> waiter.complete(true)));
+        }
+    }
+
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
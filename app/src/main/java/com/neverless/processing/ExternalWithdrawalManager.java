@@ -6,46 +6,171 @@ import com.neverless.integration.WithdrawalService;
 import com.neverless.integration.WithdrawalService.Address;
 import com.neverless.integration.WithdrawalService.WithdrawalId;
 import com.neverless.integration.WithdrawalService.WithdrawalState;
-import kotlin.Pair;
+import com.neverless.jfr.CustodianStatusPollEvent;
+import com.neverless.jfr.CustodianSubmitEvent;
+import com.neverless.jfr.ShardContext;
+import com.neverless.metrics.Histogram;
+import com.neverless.metrics.MetricsRegistry;
+import com.neverless.time.TimeSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.util.Collection;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.BiConsumer;
 
 public class ExternalWithdrawalManager {
+    private static final Duration STATUS_POLL_INTERVAL = Duration.ofMillis(100);
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    public ExternalWithdrawalManager(WithdrawalService<Long> withdrawalService) {
+    public ExternalWithdrawalManager(WithdrawalService<Long> withdrawalService, PendingWithdrawalIndex pendingWithdrawalIndex, MetricsRegistry metrics,
+                                     WithdrawalLifecycleTracker lifecycleTracker, TimeSource timeSource) {
         this.withdrawalService = withdrawalService;
+        this.timeSource = timeSource;
+        this.pendingWithdrawalIndex = pendingWithdrawalIndex;
+        this.lifecycleTracker = lifecycleTracker;
         this.withdrawalQueue = new ConcurrentLinkedQueue<>();
+        metrics.gauge("external_withdrawals_pending", "Withdrawals waiting for final state from external service", pending::get);
+        this.requestLatency = metrics.histogram("external_withdrawal_request_seconds", "Latency of requestWithdrawal calls to external service");
+        this.requestErrors = metrics.counter("external_withdrawal_request_errors_total", "Failed requestWithdrawal calls to external service");
+        this.statusLatency = metrics.histogram("external_withdrawal_status_seconds", "Latency of getRequestState calls to external service");
+        this.statusErrors = metrics.counter("external_withdrawal_status_errors_total", "Failed getRequestState calls to external service");
+        this.timeToFinalState = metrics.histogram("external_withdrawal_time_to_final_state_seconds", "Time from submission to final state seen by status checker");
         statusTask = new StatusTask();
-        Thread.startVirtualThread(statusTask);
 
     }
 
     private final WithdrawalService<Long> withdrawalService;
-    private final ConcurrentLinkedQueue<Pair<AccountWithdrawalRequest, BiConsumer<AccountWithdrawalRequest, WithdrawalStatus>>> withdrawalQueue;
+    private final PendingWithdrawalIndex pendingWithdrawalIndex;
+    private final ConcurrentLinkedQueue<TrackedWithdrawal> withdrawalQueue;
+    //    ConcurrentLinkedQueue.size() walks the whole queue, so pending count is kept separately
+    private final AtomicInteger pending = new AtomicInteger();
     private final StatusTask statusTask;
+    private final WithdrawalLifecycleTracker lifecycleTracker;
+    private final TimeSource timeSource;
+    private final Histogram requestLatency;
+    private final LongAdder requestErrors;
+    private final Histogram statusLatency;
+    private final LongAdder statusErrors;
+    private final Histogram timeToFinalState;
 
 
+    /*
+     * Starts background status checker. Simulations on a VirtualTimeSource leave it stopped and run scans themselves,
+     * so nothing runs concurrently with them.
+     */
+    public void start() {
+        Thread.ofVirtual().name("withdrawal-status-checker").start(statusTask);
+    }
+
     public void withdraw(AccountWithdrawalRequest accountWithdrawalRequest, BiConsumer<AccountWithdrawalRequest, WithdrawalStatus> withdrawalCompletionHandler) {
+//        Indexed before external service hears of it, so a crash in between can not lose it. External service is idempotent
+//        on withdrawal id, requesting an indexed withdrawal it never got (or got already) again is safe.
+        pendingWithdrawalIndex.pending(accountWithdrawalRequest);
         try {
-            withdrawalService.requestWithdrawal(accountWithdrawalRequest.withdrawalId, accountWithdrawalRequest.address, accountWithdrawalRequest.amount);
+            requestWithdrawal(accountWithdrawalRequest);
         } catch (Exception ex) {
 //            If unable to request withdrawal with external service, make sure update withdrawal status with in our system and update locked balance.
             withdrawalCompletionHandler.accept(accountWithdrawalRequest, WithdrawalStatus.ERROR);
+            pendingWithdrawalIndex.remove(accountWithdrawalRequest.withdrawalId);
+            return;
+        }
+        lifecycleTracker.submitted(accountWithdrawalRequest.withdrawalId);
+        track(accountWithdrawalRequest, withdrawalCompletionHandler);
+    }
+
+    private void requestWithdrawal(AccountWithdrawalRequest accountWithdrawalRequest) {
+        long startedAt = System.nanoTime();
+        CustodianSubmitEvent event = new CustodianSubmitEvent();
+        event.begin();
+        boolean failed = false;
+        try {
+            withdrawalService.requestWithdrawal(accountWithdrawalRequest.withdrawalId, accountWithdrawalRequest.address, accountWithdrawalRequest.amount);
+        } catch (RuntimeException ex) {
+            failed = true;
+            requestErrors.increment();
+            throw ex;
+        } finally {
+            requestLatency.recordSince(startedAt);
+            event.end();
+            if (event.shouldCommit()) {
+                event.accountId = accountWithdrawalRequest.accountId().value().toString();
+                event.withdrawalId = accountWithdrawalRequest.withdrawalId().value().toString();
+                event.shard = ShardContext.current();
+                event.amount = accountWithdrawalRequest.amount();
+                event.failed = failed;
+                event.commit();
+            }
+        }
+    }
+
+    private void track(AccountWithdrawalRequest accountWithdrawalRequest, BiConsumer<AccountWithdrawalRequest, WithdrawalStatus> withdrawalCompletionHandler) {
+        withdrawalQueue.add(new TrackedWithdrawal(accountWithdrawalRequest, withdrawalCompletionHandler, timeSource.nanoTime()));
+        pending.incrementAndGet();
+    }
+
+    /*
+     * Puts withdrawals which were in flight when application stopped back to the status checker. Withdrawal ids are
+     * used by external service for idempotency, so re-requesting them is safe and makes sure external service knows them.
+     *
+     * Completions are applied to accounts of this process. Accounts are only kept in memory (tiered storage clears its
+     * directory on start), so after a restart there is no account to release funds on and every completion fails with
+     * NotFoundException. Only called with neverless.withdrawals.recover-on-start, for when accounts survive a restart.
+     */
+    public void recover(BiConsumer<AccountWithdrawalRequest, WithdrawalStatus> withdrawalCompletionHandler) {
+        var inFlight = pendingWithdrawalIndex.entries();
+        inFlight.forEach(entry -> resume(entry.request(), withdrawalCompletionHandler));
+        logger.info("Recovered {} in flight withdrawals", inFlight.size());
+    }
+
+    //    Withdrawals left in the index by a previous run stay there untouched, recovery is off
+    public void reportUnrecovered() {
+        final var inFlight = pendingWithdrawalIndex.size();
+        if (inFlight > 0) {
+            logger.warn("{} withdrawals were in flight when application stopped, not recovered as neverless.withdrawals.recover-on-start is off", inFlight);
+        }
+    }
+
+    /*
+     * Same as recover, for withdrawals another node submitted, i.e. the primary this node was a standby of.
+     */
+    public void takeOver(Collection<AccountWithdrawalRequest> inFlight, BiConsumer<AccountWithdrawalRequest, WithdrawalStatus> withdrawalCompletionHandler) {
+        inFlight.forEach(accountWithdrawalRequest -> {
+            pendingWithdrawalIndex.pending(accountWithdrawalRequest);
+            resume(accountWithdrawalRequest, withdrawalCompletionHandler);
+        });
+        logger.info("Took over {} in flight withdrawals", inFlight.size());
+    }
+
+    private void resume(AccountWithdrawalRequest accountWithdrawalRequest, BiConsumer<AccountWithdrawalRequest, WithdrawalStatus> withdrawalCompletionHandler) {
+        try {
+            requestWithdrawal(accountWithdrawalRequest);
+        } catch (Exception ex) {
+            logger.error("Unable to recover withdrawal {}", accountWithdrawalRequest.withdrawalId, ex);
+            withdrawalCompletionHandler.accept(accountWithdrawalRequest, WithdrawalStatus.ERROR);
+            pendingWithdrawalIndex.remove(accountWithdrawalRequest.withdrawalId);
+            return;
         }
-        withdrawalQueue.add(new Pair<>(accountWithdrawalRequest, withdrawalCompletionHandler));
+        track(accountWithdrawalRequest, withdrawalCompletionHandler);
     }
 
     public void shutdown() {
         logger.info("Stopping external withdraw status checker thread.");
         statusTask.shutdown();
-        if (!withdrawalQueue.isEmpty()) {
-            logger.warn("%d Incomplete tasks in withdrawal status queue".formatted(withdrawalQueue.size()));
+        if (pending.get() > 0) {
+            logger.warn("{} Incomplete tasks in withdrawal status queue, they stay in the index and are only recovered on next start with neverless.withdrawals.recover-on-start on",
+                    pending.get());
         }
+        pendingWithdrawalIndex.close();
+
+    }
 
+    //    Package private for benchmarks and simulations, which run scans themselves instead of starting background thread
+    StatusTask statusTask() {
+        return statusTask;
     }
 
     public record AccountWithdrawalRequest(AccountId accountId, WithdrawalId withdrawalId, Address address,
@@ -53,6 +178,11 @@ public class ExternalWithdrawalManager {
 
     }
 
+    private record TrackedWithdrawal(AccountWithdrawalRequest request,
+                                     BiConsumer<AccountWithdrawalRequest, WithdrawalStatus> completionHandler,
+                                     long submittedAtNanos) {
+    }
+
 
     class StatusTask implements Runnable {
 
@@ -63,26 +193,80 @@ public class ExternalWithdrawalManager {
         public void run() {
             while (running) {
                 checkWithdrawalStatus();
+                lifecycleTracker.sweep();
+                syncIndex();
+                pause();
             }
 
         }
 
-        private void checkWithdrawalStatus() {
+        //        Shards only write index records, making them durable is left to this thread so no shard waits for fsync
+        private void syncIndex() {
             try {
-                var finished = withdrawalQueue.stream().filter(it -> {
-                            var currentState = withdrawalService.getRequestState(it.getFirst().withdrawalId());
-                            if (currentState != WithdrawalState.PROCESSING) {
-                                it.getSecond().accept(it.getFirst(), WithdrawalStatus.of(currentState));
-                                return true;
-                            }
-                            return false;
-                        }
-
-                ).toList();
-                withdrawalQueue.removeAll(finished);
-
+                pendingWithdrawalIndex.sync();
             } catch (Exception ex) {
-                logger.error("Error while checking status of withdrawal", ex);
+                logger.error("Unable to sync pending withdrawal index", ex);
+            }
+        }
+
+        //        External service resolves withdrawals in seconds, so no need to poll it in a tight loop
+        private void pause() {
+            try {
+                timeSource.sleep(STATUS_POLL_INTERVAL);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                running = false;
+            }
+        }
+
+        void checkWithdrawalStatus() {
+//            Iterator removal keeps a scan O(pending), and an error on one withdrawal does not hold up the others
+            var iterator = withdrawalQueue.iterator();
+            while (iterator.hasNext()) {
+                var tracked = iterator.next();
+                try {
+                    var currentState = getRequestState(tracked.request());
+                    if (currentState != WithdrawalState.PROCESSING) {
+                        lifecycleTracker.finalState(tracked.request().withdrawalId());
+                        tracked.completionHandler().accept(tracked.request(), WithdrawalStatus.of(currentState));
+                        pendingWithdrawalIndex.remove(tracked.request().withdrawalId());
+                        timeToFinalState.record(timeSource.nanoTime() - tracked.submittedAtNanos());
+                        iterator.remove();
+                        pending.decrementAndGet();
+                    } else {
+                        lifecycleTracker.processing(tracked.request().withdrawalId());
+                        pendingWithdrawalIndex.processing(tracked.request());
+                    }
+                } catch (Exception ex) {
+                    logger.error("Error while checking status of withdrawal {}", tracked.request().withdrawalId(), ex);
+                }
+            }
+        }
+
+        private WithdrawalState getRequestState(AccountWithdrawalRequest request) {
+            long startedAt = System.nanoTime();
+            CustodianStatusPollEvent event = new CustodianStatusPollEvent();
+            event.begin();
+            WithdrawalState state = null;
+            try {
+                state = withdrawalService.getRequestState(request.withdrawalId());
+                return state;
+            } catch (RuntimeException ex) {
+                statusErrors.increment();
+                throw ex;
+            } finally {
+                statusLatency.recordSince(startedAt);
+                event.end();
+                if (event.shouldCommit()) {
+                    event.accountId = request.accountId().value().toString();
+                    event.withdrawalId = request.withdrawalId().value().toString();
+//                    Polled from status thread, not from a shard
+                    event.shard = -1;
+//                    No state when call threw, FAILED is custodian's answer for a failed withdrawal
+                    event.state = state == null ? null : state.name();
+                    event.failed = state == null;
+                    event.commit();
+                }
             }
         }
 
@@ -0,0 +1,112 @@
+package com.neverless.processing;
+
+import com.neverless.domain.AccountId;
+import com.neverless.metrics.MetricsRegistry;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Remembers Idempotency-Key of mutating requests per account, so client retries can be answered without enqueuing
+ * same operation again.
+ *
+ * Bounded by number of entries and by time to live. As every entry lives for same ttl, insertion order is also expiry
+ * order, so a single FIFO queue is enough to evict both expired and, above the bound, oldest entries in O(1).
+ */
+public class IdempotencyCache {
+
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final Queue<Entry> insertionOrder = new ConcurrentLinkedQueue<>();
+    private final int maxEntries;
+    private final long ttlNanos;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    public IdempotencyCache(int maxEntries, Duration ttl) {
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /*
+     * request is the parsed request body, a repeated key is only a replay when it comes with an equal request.
+     */
+    public Outcome claim(AccountId accountId, String idempotencyKey, Object request) {
+        final var key = new Key(accountId, idempotencyKey);
+        final var now = System.nanoTime();
+        final var fresh = new Entry(key, request, now + ttlNanos);
+        while (true) {
+            final var existing = entries.putIfAbsent(key, fresh);
+            if (existing == null) {
+                misses.increment();
+                insertionOrder.add(fresh);
+                evict(now);
+                return Outcome.FIRST;
+            }
+            if (existing.isExpired(now)) {
+                if (entries.remove(key, existing)) {
+                    expirations.increment();
+                }
+                continue;
+            }
+            hits.increment();
+            return existing.request().equals(request) ? Outcome.REPLAY : Outcome.CONFLICT;
+        }
+    }
+
+    public void registerMetrics(MetricsRegistry metrics) {
+        metrics.counter("idempotency_cache_hits_total", "Requests whose Idempotency-Key was already known", hits::sum);
+        metrics.counter("idempotency_cache_misses_total", "Requests with a new Idempotency-Key", misses::sum);
+        metrics.counter("idempotency_cache_evictions_total", "Entries evicted because cache was full", evictions::sum);
+        metrics.counter("idempotency_cache_expirations_total", "Entries removed after ttl", expirations::sum);
+        metrics.gauge("idempotency_cache_size", "Entries currently held", entries::size);
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), expirations.sum(), entries.size(), maxEntries);
+    }
+
+    private void evict(long now) {
+        Entry oldest;
+        while ((oldest = insertionOrder.peek()) != null && (entries.size() > maxEntries || oldest.isExpired(now))) {
+            if (!insertionOrder.remove(oldest)) {
+//                Another thread evicted it already
+                continue;
+            }
+            if (entries.remove(oldest.key(), oldest)) {
+                if (oldest.isExpired(now)) {
+                    expirations.increment();
+                } else {
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    public enum Outcome {
+        //        Key was not seen before (or expired), request must be processed
+        FIRST,
+        //        Same key and same request, original result should be returned
+        REPLAY,
+        //        Same key but different request
+        CONFLICT
+    }
+
+    public record Stats(long hits, long misses, long evictions, long expirations, int size, int maxEntries) {
+    }
+
+    private record Key(AccountId accountId, String idempotencyKey) {
+    }
+
+    private record Entry(Key key, Object request, long expiresAtNanos) {
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+}
@@ -1,19 +1,31 @@
 package com.neverless.processing;
 
 import com.neverless.domain.Account;
+import com.neverless.domain.AccountEventListener;
 import com.neverless.domain.AccountId;
 import com.neverless.domain.AccountRepository;
 import com.neverless.domain.impl.AccountImpl;
+import com.neverless.domain.impl.AccountImpl.AccountBalance;
 import com.neverless.exceptions.NotFoundException;
+import com.neverless.jfr.AccountOperationEnqueuedEvent;
+import com.neverless.jfr.AccountOperationEvent;
+import com.neverless.jfr.ShardContext;
+import com.neverless.metrics.Histogram;
+import com.neverless.metrics.MetricsRegistry;
+import com.neverless.resources.dtos.TransferResponse;
 import com.neverless.resources.dtos.WithdrawalResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Queue;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 import java.util.stream.IntStream;
 
@@ -23,29 +35,60 @@ public class InMemoryAccountOperationManager implements AccountOperationManager
     private final AccountRepository accountRepository;
     private final int concurrency;
     private final Map<Integer, TaskQueue> queues;
+    private final AccountEventListener accountEventListener;
+    private final AccountChangeListener accountChangeListener;
 
     private final Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    public InMemoryAccountOperationManager(AccountRepository accountRepository, int concurrency) {
+    public InMemoryAccountOperationManager(AccountRepository accountRepository, int concurrency, AccountChangeListener accountChangeListener,
+                                           AccountEventListener accountEventListener, MetricsRegistry metrics) {
         queues = new HashMap<>();
         this.accountRepository = accountRepository;
         this.concurrency = concurrency;
+        this.accountEventListener = accountEventListener;
+        this.accountChangeListener = accountChangeListener;
         IntStream.range(0, concurrency).forEach(i ->
                 {
-                    ConcurrentLinkedQueue<AccountOperation> queue = new ConcurrentLinkedQueue<>();
-                    AccountOperationTask task = new AccountOperationTask(queue, accountRepository);
-                    Thread.startVirtualThread(task);
-                    queues.put(i, new TaskQueue(queue, task));
+                    ShardMailbox<ShardTask> mailbox = new ShardMailbox<>();
+                    String shard = Integer.toString(i);
+                    metrics.gauge("account_operation_queue_depth", "Operations waiting in shard queue", mailbox::size, "shard", shard);
+                    Map<Lane, Histogram> queueWait = new EnumMap<>(Lane.class);
+                    for (Lane lane : Lane.values()) {
+                        String laneName = lane.name().toLowerCase();
+                        metrics.gauge("account_operation_lane_depth", "Operations waiting in shard queue lane", () -> mailbox.size(lane), "shard", shard, "lane", laneName);
+                        queueWait.put(lane, metrics.histogram("account_operation_queue_wait_seconds", "Time from enqueue to start of operation", "shard", shard, "lane", laneName));
+                    }
+                    AccountOperationTask task = new AccountOperationTask(i, mailbox, accountRepository, accountChangeListener, queueWait,
+                            metrics.histogram("account_operation_execution_seconds", "Time to execute operation on shard thread", "shard", shard));
+                    Thread.ofVirtual().name("account-shard-" + i).start(task);
+                    queues.put(i, new TaskQueue(mailbox, task));
                 }
         );
+        metrics.gauge("liabilities_balance", "Sum of balances of all accounts of this node", () -> liabilityTotals().balance());
+        metrics.gauge("liabilities_locked_balance", "Sum of locked balances of all accounts of this node", () -> liabilityTotals().lockedBalance());
+    }
+
+    //    Queues are selected as per accountId, so that same account operation will always be enqueued in the same queue
+    static int shardOf(AccountId accountId, int concurrency) {
+        return Math.abs(accountId.hashCode() % concurrency);
     }
 
     @Override
-    public void doAccountOperationAsync(AccountId accountId, Consumer<Account> operation, Consumer<Exception> errorHandler) {
-        AccountOperation accountOperation = new AccountOperation(accountId, operation, errorHandler);
-//        Queues are selected as per accountId, so that same account operation will always be enqueued in the same queue
-//        and operations will run in serial fashion to make sure no locking on account object required
-        queues.get(Math.abs(accountId.hashCode() % concurrency)).queue().add(accountOperation);
+    public void doAccountOperationAsync(AccountId accountId, Lane lane, Consumer<Account> operation, Consumer<Exception> errorHandler) {
+        AccountOperation accountOperation = new AccountOperation(accountId, lane, operation, errorHandler, System.nanoTime());
+//        Operations of an account run in serial fashion on its shard, to make sure no locking on account object required
+        int shard = shardOf(accountId, concurrency);
+        ShardMailbox<ShardTask> mailbox = queues.get(shard).mailbox();
+        mailbox.add(lane, accountOperation);
+
+        AccountOperationEnqueuedEvent event = new AccountOperationEnqueuedEvent();
+        if (event.shouldCommit()) {
+            event.accountId = accountId.value().toString();
+            event.shard = shard;
+            event.lane = lane.name();
+            event.queueDepth = mailbox.size();
+            event.commit();
+        }
     }
 
     @Override
@@ -61,8 +104,10 @@ public class InMemoryAccountOperationManager implements AccountOperationManager
 
     @Override
     public Account createAccount(AccountId accountId) {
-        final var account = new AccountImpl(accountId);
-        return accountRepository.save(account);
+        final var account = accountRepository.save(new AccountImpl(accountId, 0L, accountEventListener));
+        queues.get(shardOf(accountId, concurrency)).task().accounts.add(accountId);
+        accountChangeListener.accountCreated(account);
+        return account;
     }
 
     @Override
@@ -73,59 +118,247 @@ public class InMemoryAccountOperationManager implements AccountOperationManager
         return account.withdrawals().stream().map(it -> new WithdrawalResponse(it.withdrawalId(), it.status(), it.amount(), it.message())).toList();
     }
 
+    @Override
+    public List<TransferResponse> getTransfers(AccountId accountId) {
+        final var account = getAccount(accountId);
+        return account.transfers().stream()
+                .map(it -> new TransferResponse(it.transferId(), it.direction(), it.counterparty(), it.status(), it.amount(), it.message()))
+                .toList();
+    }
+
+    @Override
+    public LiabilityTotals liabilityTotals() {
+        long balance = 0;
+        long lockedBalance = 0;
+        for (TaskQueue taskQueue : queues.values()) {
+            balance += taskQueue.task().balance;
+            lockedBalance += taskQueue.task().lockedBalance;
+        }
+        return new LiabilityTotals(balance, lockedBalance);
+    }
+
+    /*
+     * Every shard scans its own accounts on its own thread, so shards run in parallel and none of the scanned accounts
+     * or the shard's running totals can change during its scan. A shard only visits ids of accounts created on it, and
+     * takes balances of accounts which are not in memory from the repository without loading them.
+     */
+    @Override
+    public CompletableFuture<List<ShardReconciliation>> reconcileLiabilities() {
+        final var scans = queues.values().stream().map(taskQueue -> {
+            final var scan = new ShardScan(new CompletableFuture<>(), System.nanoTime());
+            taskQueue.mailbox().add(scan.lane(), scan);
+            return scan.result();
+        }).toList();
+        return CompletableFuture.allOf(scans.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> scans.stream().map(CompletableFuture::join).toList());
+    }
+
     @Override
     public void shutdown() {
         queues.forEach((key, task) -> {
-            logger.info("Stopping thread %d".formatted(key));
+            logger.info("Stopping thread {}", key);
             task.task().shutdownThread();
-            if (!task.queue().isEmpty()) {
-                logger.warn("%d Incomplete tasks in queue %d".formatted(task.queue().size(), key));
+            if (task.mailbox().size() > 0) {
+                logger.warn("{} Incomplete tasks in queue {}", task.mailbox().size(), key);
             }
         });
     }
 
 
     //    To Keep Queue and Thread together
-    record TaskQueue(Queue<AccountOperation> queue, AccountOperationTask task) {
+    record TaskQueue(ShardMailbox<ShardTask> mailbox, AccountOperationTask task) {
     }
 
+    sealed interface ShardTask permits AccountOperation, ShardScan, AccountLoaded {
+        Lane lane();
 
-    record AccountOperation(AccountId accountId, Consumer<Account> operation, Consumer<Exception> errorHandler) {
+        long enqueuedAtNanos();
+    }
+
+    record AccountOperation(AccountId accountId, Lane lane, Consumer<Account> operation, Consumer<Exception> errorHandler,
+                            long enqueuedAtNanos) implements ShardTask {
+    }
+
+    //    Reconciliation of shard's running totals against its accounts
+    record ShardScan(CompletableFuture<ShardReconciliation> result, long enqueuedAtNanos) implements ShardTask {
+        @Override
+        public Lane lane() {
+            return Lane.COMMAND;
+        }
+    }
+
+    //    Account which was not in memory has been loaded (account is null when it does not exist, failure when it could not be loaded)
+    record AccountLoaded(AccountId accountId, Account account, Throwable failure, long enqueuedAtNanos) implements ShardTask {
+        @Override
+        public Lane lane() {
+            return Lane.COMPLETION;
+        }
     }
 
     static class AccountOperationTask implements Runnable {
 
 
-        public AccountOperationTask(ConcurrentLinkedQueue<AccountOperation> queue,
-                                    AccountRepository accountRepository) {
-            this.queue = queue;
+        public AccountOperationTask(int shard,
+                                    ShardMailbox<ShardTask> mailbox,
+                                    AccountRepository accountRepository,
+                                    AccountChangeListener accountChangeListener,
+                                    Map<Lane, Histogram> queueWait,
+                                    Histogram execution) {
+            this.shard = shard;
+            this.mailbox = mailbox;
             this.accountRepository = accountRepository;
+            this.accountChangeListener = accountChangeListener;
+            this.queueWait = queueWait;
+            this.execution = execution;
         }
 
         private transient boolean running = true;
-        private final ConcurrentLinkedQueue<AccountOperation> queue;
+        private final int shard;
+        private final ShardMailbox<ShardTask> mailbox;
         private final AccountRepository accountRepository;
+        private final AccountChangeListener accountChangeListener;
+        private final Map<Lane, Histogram> queueWait;
+        private final Histogram execution;
+        private final Logger logger = LoggerFactory.getLogger(this.getClass());
+        //        Stripe of liability totals, sum of balances of this shard's accounts. Only the shard thread writes it,
+//        so there is no contention and no need for atomic updates, volatile makes it readable from other threads.
+        private volatile long balance;
+        private volatile long lockedBalance;
+        //        Operations of accounts being loaded, in order, they run once account is in memory. Shard thread only.
+        private final Map<AccountId, List<AccountOperation>> waitingForLoad = new HashMap<>();
+        //        Ids of this shard's accounts, added by whichever thread creates account, read by reconciliation
+        private final Set<AccountId> accounts = ConcurrentHashMap.newKeySet();
 
         @Override
         public void run() {
+            ShardContext.enter(shard);
             while (running) {
                 processTask();
             }
         }
 
         private void processTask() {
-            AccountOperation accountOperation = queue.poll();
-            if (accountOperation == null) {
+//            Park while queue is empty instead of spinning, a spinning virtual thread never gives its carrier thread
+//            back, so with fewer cores than shards some shards would never run. Timeout is there to notice shutdown.
+            ShardTask shardTask;
+            try {
+                shardTask = mailbox.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                running = false;
+                return;
+            }
+            if (shardTask == null) {
                 return;
             }
+            switch (shardTask) {
+                case ShardScan scan -> {
+                    queueWait.get(scan.lane()).recordSince(scan.enqueuedAtNanos());
+                    scan.result().complete(reconcile());
+                }
+                case AccountLoaded loaded -> {
+                    final var waiting = waitingForLoad.remove(loaded.accountId());
+                    if (loaded.account() == null) {
+                        waiting.forEach(accountOperation -> execute(accountOperation, null, loaded.failure()));
+                    } else {
+//                        Looked up again one by one, an operation can evict account and the ones after it have to wait
+//                        for the next load
+                        waiting.forEach(this::dispatch);
+                    }
+                }
+                case AccountOperation accountOperation -> dispatch(accountOperation);
+            }
+        }
+
+        private void dispatch(AccountOperation accountOperation) {
+            final var waiting = waitingForLoad.get(accountOperation.accountId());
+            if (waiting != null) {
+                waiting.add(accountOperation);
+                return;
+            }
+            final var account = accountRepository.findLoaded(accountOperation.accountId());
+            if (account == null) {
+                load(accountOperation);
+                return;
+            }
+            execute(accountOperation, account, null);
+        }
 
+        //        Disk is read off the shard thread, shard carries on with other accounts meanwhile
+        private void load(AccountOperation accountOperation) {
+            final var accountId = accountOperation.accountId();
+            final List<AccountOperation> waiting = new ArrayList<>();
+            waiting.add(accountOperation);
+            waitingForLoad.put(accountId, waiting);
+            accountRepository.findAsync(accountId).whenComplete((account, ex) -> mailbox.add(Lane.COMPLETION,
+                    new AccountLoaded(accountId, account == null ? null : account.orElse(null), ex, System.nanoTime())));
+        }
+
+        private void execute(AccountOperation accountOperation, Account account, Throwable loadFailure) {
+            long startedAt = System.nanoTime();
+            long waited = startedAt - accountOperation.enqueuedAtNanos();
+            queueWait.get(accountOperation.lane()).record(waited);
+            AccountOperationEvent event = new AccountOperationEvent();
+            event.begin();
+
+            long versionBefore = 0;
+            AccountBalance balanceBefore = null;
+            boolean failed = false;
             try {
-                var account = accountRepository.find(accountOperation.accountId())
-                        .orElseThrow(() -> new NotFoundException("Account %s is not found".formatted(accountOperation.accountId())));
+                if (loadFailure != null) {
+                    throw new IllegalStateException("Account %s could not be loaded".formatted(accountOperation.accountId()), loadFailure);
+                }
+                if (account == null) {
+                    throw new NotFoundException("Account %s is not found".formatted(accountOperation.accountId()));
+                }
+                versionBefore = account.version();
+                balanceBefore = account.accountBalance();
                 accountOperation.operation().accept(account);
             } catch (Exception ex) {
+                failed = true;
                 accountOperation.errorHandler().accept(ex);
             }
+            if (account != null && account.version() != versionBefore) {
+                final var balanceAfter = account.accountBalance();
+                balance += balanceAfter.balance() - balanceBefore.balance();
+                lockedBalance += balanceAfter.lockedBalance() - balanceBefore.lockedBalance();
+                notifyChanged(account);
+            }
+            execution.recordSince(startedAt);
+
+            event.end();
+            if (event.shouldCommit()) {
+                event.accountId = accountOperation.accountId().value().toString();
+                event.shard = shard;
+                event.lane = accountOperation.lane().name();
+                event.queueWait = waited;
+                event.failed = failed;
+                event.commit();
+            }
+        }
+
+        private ShardReconciliation reconcile() {
+//            accounts, balance, locked balance
+            final long[] scanned = new long[3];
+            for (AccountId accountId : accounts) {
+                final var accountBalance = accountRepository.findBalance(accountId);
+                if (accountBalance != null) {
+                    scanned[0]++;
+                    scanned[1] += accountBalance.balance();
+                    scanned[2] += accountBalance.lockedBalance();
+                }
+            }
+            return new ShardReconciliation(shard, scanned[0], new LiabilityTotals(balance, lockedBalance),
+                    new LiabilityTotals(scanned[1], scanned[2]));
+        }
+
+        private void notifyChanged(Account account) {
+            try {
+                accountChangeListener.accountChanged(account);
+            } catch (Exception ex) {
+//                Listener must never take shard thread down with it
+                logger.error("Account change listener failed for {}", account.id(), ex);
+            }
         }
 
         public void shutdownThread() {
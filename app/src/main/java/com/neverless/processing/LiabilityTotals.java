@@ -0,0 +1,15 @@
+package com.neverless.processing;
+
+/*
+ * What the service owes its account holders, in total and locked for withdrawals and transfers in flight.
+ */
+public record LiabilityTotals(long balance, long lockedBalance) {
+
+    public LiabilityTotals plus(LiabilityTotals other) {
+        return new LiabilityTotals(balance + other.balance, lockedBalance + other.lockedBalance);
+    }
+
+    public LiabilityTotals minus(LiabilityTotals other) {
+        return new LiabilityTotals(balance - other.balance, lockedBalance - other.lockedBalance);
+    }
+}
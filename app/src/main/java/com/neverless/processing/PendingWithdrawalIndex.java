@@ -0,0 +1,255 @@
+package com.neverless.processing;
+
+import com.neverless.domain.AccountId;
+import com.neverless.domain.impl.AccountImpl.WithdrawalStatus;
+import com.neverless.integration.WithdrawalService.Address;
+import com.neverless.integration.WithdrawalService.WithdrawalId;
+import com.neverless.processing.ExternalWithdrawalManager.AccountWithdrawalRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/*
+ * Small append-only on-disk index of withdrawals which are in flight with the external withdrawal service
+ * (PENDING/PROCESSING). Only status changes are appended, so the cost of keeping it up to date does not depend on
+ * number of accounts or size of withdrawal history, and on startup only this file is read to find out which
+ * withdrawals still need to be tracked.
+ *
+ * File format is one record per line:
+ *   S|<accountId>|<withdrawalId>|<amount>|<status>|<url encoded address>   - withdrawal is (still) in flight
+ *   R|<withdrawalId>                                                       - withdrawal reached final state
+ * A torn last line (crash in the middle of write) is ignored while loading.
+ *
+ * Records are written straight away (so they survive a crash of the process) but fsynced in batches by sync(), which
+ * the status checker calls on every poll, so shard threads appending records never wait for the disk. A crash of the
+ * machine can lose records of the last poll interval.
+ */
+public class PendingWithdrawalIndex implements AutoCloseable {
+    private static final String FILE_NAME = "pending-withdrawals.idx";
+    //    Rewrite file once it has this many records more than live entries, so file does not grow forever
+    private static final int COMPACTION_SLACK = 10_000;
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final Path file;
+    private final boolean forceWrites;
+    //    Shard threads and status checker thread write concurrently, ReentrantLock instead of synchronized so virtual
+    //    threads are not pinned to their carrier while doing file IO
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<WithdrawalId, Entry> entries = new LinkedHashMap<>();
+    private FileChannel channel;
+    private long recordsInFile;
+    //    Records written since last fsync
+    private boolean dirty;
+
+    public PendingWithdrawalIndex(Path dataDirectory) {
+        this(dataDirectory, true);
+    }
+
+    /*
+     * forceWrites false makes sync a no-op, only meant for simulations where the index does not have to
+     * survive a crash but would otherwise dominate run time.
+     */
+    public PendingWithdrawalIndex(Path dataDirectory, boolean forceWrites) {
+        this.forceWrites = forceWrites;
+        try {
+            Files.createDirectories(dataDirectory);
+            this.file = dataDirectory.resolve(FILE_NAME);
+            load();
+            compact();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to open pending withdrawal index in %s".formatted(dataDirectory), ex);
+        }
+    }
+
+    public void pending(AccountWithdrawalRequest request) {
+        put(new Entry(request, WithdrawalStatus.PENDING));
+    }
+
+    public void processing(AccountWithdrawalRequest request) {
+        lock.lock();
+        try {
+            Entry existing = entries.get(request.withdrawalId());
+//            Status checker sees PROCESSING on every poll, only first transition needs to be written
+            if (existing != null && existing.status() == WithdrawalStatus.PROCESSING) {
+                return;
+            }
+            put(new Entry(request, WithdrawalStatus.PROCESSING));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void remove(WithdrawalId withdrawalId) {
+        lock.lock();
+        try {
+            if (entries.remove(withdrawalId) != null) {
+                append("R|%s\n".formatted(withdrawalId.value()));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public List<Entry> entries() {
+        lock.lock();
+        try {
+            return new ArrayList<>(entries.values());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    //    Makes records written so far durable, one fsync for all of them. Runs outside the lock, appends go on meanwhile.
+    public void sync() {
+        final FileChannel written;
+        lock.lock();
+        try {
+            written = dirty && forceWrites ? channel : null;
+            dirty = false;
+        } finally {
+            lock.unlock();
+        }
+        if (written == null) {
+            return;
+        }
+        try {
+            written.force(false);
+        } catch (ClosedChannelException ex) {
+//            Compacted meanwhile, compaction fsyncs the file it writes
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to sync pending withdrawal index %s".formatted(file), ex);
+        }
+    }
+
+    @Override
+    public void close() {
+        sync();
+        lock.lock();
+        try {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        } catch (IOException ex) {
+            logger.warn("Unable to close pending withdrawal index", ex);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void put(Entry entry) {
+        lock.lock();
+        try {
+            entries.put(entry.request().withdrawalId(), entry);
+            append(encode(entry));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void append(String record) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(record.getBytes(UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            dirty = true;
+            recordsInFile++;
+            if (recordsInFile > entries.size() + COMPACTION_SLACK) {
+                compact();
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to write pending withdrawal index %s".formatted(file), ex);
+        }
+    }
+
+    private void load() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        for (String line : Files.readAllLines(file, UTF_8)) {
+            try {
+                String[] parts = line.split("\\|", 6);
+                switch (parts[0]) {
+                    case "S" -> {
+                        Entry entry = decode(parts);
+                        entries.put(entry.request().withdrawalId(), entry);
+                    }
+                    case "R" -> entries.remove(WithdrawalId.of(UUID.fromString(parts[1])));
+                    default -> throw new IllegalArgumentException("Unknown record type " + parts[0]);
+                }
+            } catch (RuntimeException ex) {
+                logger.warn("Skipping unreadable record in pending withdrawal index: {}", line);
+            }
+        }
+        logger.info("Loaded {} in flight withdrawals from {}", entries.size(), file);
+    }
+
+    //    Write only live entries to a temp file and atomically swap it with the current one
+    private void compact() throws IOException {
+        Path tmp = file.resolveSibling(FILE_NAME + ".tmp");
+        StringBuilder content = new StringBuilder();
+        entries.values().forEach(entry -> content.append(encode(entry)));
+        Files.writeString(tmp, content, UTF_8, CREATE, TRUNCATE_EXISTING, WRITE);
+        try (FileChannel tmpChannel = FileChannel.open(tmp, WRITE)) {
+            tmpChannel.force(true);
+        }
+        if (channel != null) {
+            channel.close();
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, CREATE, WRITE, APPEND);
+        recordsInFile = entries.size();
+    }
+
+    private static String encode(Entry entry) {
+        AccountWithdrawalRequest request = entry.request();
+        return "S|%s|%s|%d|%s|%s\n".formatted(request.accountId().value(), request.withdrawalId().value(), request.amount(),
+                entry.status(), URLEncoder.encode(request.address().value(), UTF_8));
+    }
+
+    private static Entry decode(String[] parts) {
+        AccountWithdrawalRequest request = new AccountWithdrawalRequest(
+                AccountId.fromString(parts[1]),
+                WithdrawalId.of(UUID.fromString(parts[2])),
+                Address.fromString(URLDecoder.decode(parts[5], UTF_8)),
+                Long.parseLong(parts[3])
+        );
+        return new Entry(request, WithdrawalStatus.valueOf(parts[4]));
+    }
+
+    public record Entry(AccountWithdrawalRequest request, WithdrawalStatus status) {
+    }
+}
@@ -0,0 +1,107 @@
+package com.neverless.processing;
+
+import com.neverless.metrics.MetricsRegistry;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Token buckets per key (account, client), without locks. A bucket is a single long: the time at which it is full
+ * again. Taking a token moves that time one interval forward with a CAS, and is refused when it would end up more than
+ * burst intervals ahead of now. Refill is lazy. A bucket whose time has passed is full, which is the same as having no
+ * bucket at all, so such idle buckets are dropped by a sweep every few seconds.
+ *
+ * Table is bounded by maxBuckets. When it is full of active buckets, new keys are let through untracked until a sweep
+ * makes room, an active key always keeps its bucket.
+ */
+public class RateLimiter {
+    private static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(5);
+
+    private final ConcurrentMap<Object, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final int maxBuckets;
+    private final AtomicLong nextSweepAt;
+
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder untracked = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public RateLimiter(Limit limit, int maxBuckets) {
+        this.intervalNanos = limit.isDisabled() ? 0 : TimeUnit.SECONDS.toNanos(1) / limit.perSecond();
+        this.burstNanos = intervalNanos * limit.burst();
+        this.maxBuckets = maxBuckets;
+        this.nextSweepAt = new AtomicLong(System.nanoTime() + SWEEP_INTERVAL_NANOS);
+    }
+
+    //    0 when request may go ahead, otherwise nanos until key gets a token again
+    public long tryAcquire(Object key) {
+        if (intervalNanos == 0) {
+            return 0;
+        }
+        final var now = System.nanoTime();
+        sweepIfDue(now);
+        var bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxBuckets) {
+                untracked.increment();
+                return 0;
+            }
+            bucket = buckets.computeIfAbsent(key, ignored -> new AtomicLong(now));
+        }
+        while (true) {
+            final var fullAt = bucket.get();
+            final var next = (fullAt - now < 0 ? now : fullAt) + intervalNanos;
+            final var ahead = next - now;
+            if (ahead > burstNanos) {
+                rejected.increment();
+                return ahead - burstNanos;
+            }
+            if (bucket.compareAndSet(fullAt, next)) {
+                return 0;
+            }
+        }
+    }
+
+    public void registerMetrics(MetricsRegistry metrics, String limit) {
+        metrics.counter("rate_limit_rejected_total", "Requests refused because their bucket was empty", rejected::sum, "limit", limit);
+        metrics.counter("rate_limit_untracked_total", "Requests let through without a bucket because table was full", untracked::sum, "limit", limit);
+        metrics.counter("rate_limit_evictions_total", "Idle buckets dropped", evictions::sum, "limit", limit);
+        metrics.gauge("rate_limit_buckets", "Buckets currently held", buckets::size, "limit", limit);
+    }
+
+    int size() {
+        return buckets.size();
+    }
+
+    //    Package private for tests, which cannot wait for sweep interval
+    void sweep(long now) {
+//        Conditional removal, a bucket replaced in between stays. A token taken from a bucket just being removed is lost,
+//        which at most lets its key have one more request.
+        buckets.entrySet().removeIf(entry -> {
+            final var idle = entry.getValue().get() - now <= 0;
+            if (idle) {
+                evictions.increment();
+            }
+            return idle;
+        });
+    }
+
+    private void sweepIfDue(long now) {
+        final var sweepAt = nextSweepAt.get();
+//        Only the thread winning the CAS sweeps, others carry on
+        if (now - sweepAt >= 0 && nextSweepAt.compareAndSet(sweepAt, now + SWEEP_INTERVAL_NANOS)) {
+            sweep(now);
+        }
+    }
+
+    //    perSecond of 0 turns limiter off
+    public record Limit(int perSecond, int burst) {
+        public boolean isDisabled() {
+            return perSecond <= 0;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.neverless.processing;
+
+import com.neverless.processing.AccountOperationManager.Lane;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Queue of one shard, split into lanes. Any thread can add, only the shard thread takes. Lanes are served by weighted
+ * round robin: a lane gets up to its weight of operations in a row before the next lane's turn, so a burst in one lane
+ * delays the others but never starves them. Order is kept within a lane, not across lanes.
+ */
+class ShardMailbox<T> {
+    private static final Lane[] LANES = Lane.values();
+
+    private final Map<Lane, Queue<T>> lanes = new EnumMap<>(Lane.class);
+    //    One permit per queued operation, lets the shard thread park on all lanes at once
+    private final Semaphore queued = new Semaphore(0);
+    //    Shard thread only
+    private int turn;
+    private int takenInTurn;
+
+    ShardMailbox() {
+        for (Lane lane : LANES) {
+            lanes.put(lane, new LinkedBlockingQueue<>());
+        }
+    }
+
+    void add(Lane lane, T operation) {
+        lanes.get(lane).add(operation);
+        queued.release();
+    }
+
+    //    null when nothing was queued within timeout
+    T poll(long timeout, TimeUnit unit) throws InterruptedException {
+        if (!queued.tryAcquire(timeout, unit)) {
+            return null;
+        }
+//        Permit is only released after its operation is added and there is a single taker, so some lane has one
+        while (true) {
+            if (takenInTurn < LANES[turn].weight()) {
+                final var operation = lanes.get(LANES[turn]).poll();
+                if (operation != null) {
+                    takenInTurn++;
+                    return operation;
+                }
+            }
+            turn = (turn + 1) % LANES.length;
+            takenInTurn = 0;
+        }
+    }
+
+    int size() {
+        return queued.availablePermits();
+    }
+
+    int size(Lane lane) {
+        return lanes.get(lane).size();
+    }
+}
@@ -0,0 +1,87 @@
+package com.neverless.processing;
+
+import com.neverless.domain.AccountId;
+import com.neverless.domain.TransferId;
+import com.neverless.domain.impl.AccountImpl.Transfer;
+import com.neverless.domain.impl.AccountImpl.TransferStatus;
+import com.neverless.metrics.Histogram;
+import com.neverless.metrics.MetricsRegistry;
+import com.neverless.processing.AccountOperationManager.Lane;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/*
+ * Moves funds between two accounts without any lock spanning both. Every step is an operation on the shard owning the
+ * account it changes, and hands over to the next step through the other shard's queue:
+ *
+ *   1. reserve on source, amount is locked (or transfer is rejected when it is not available)
+ *   2. credit on destination, recorded by transfer id, so crediting same transfer again changes nothing
+ *   3. settle on source, locked amount is debited, or released when destination could not be credited
+ *
+ * From 1 to 3 amount is locked on source and can not be spent twice. Transfers still pending on a primary are driven
+ * from step 2 again by a promoted standby, that is why step 2 has to be idempotent.
+ */
+public class TransferManager {
+    private final AccountOperationManager accountOperationManager;
+    private final Histogram latency;
+    private final LongAdder succeeded;
+    private final LongAdder failed;
+    private final LongAdder rejected;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    public TransferManager(AccountOperationManager accountOperationManager, MetricsRegistry metrics) {
+        this.accountOperationManager = accountOperationManager;
+        this.latency = metrics.histogram("transfer_seconds", "Time from reserve on source account to settle on it");
+        this.succeeded = metrics.counter("transfers_total", "Settled internal transfers", "status", "success");
+        this.failed = metrics.counter("transfers_total", "Settled internal transfers", "status", "error");
+        this.rejected = metrics.counter("transfers_total", "Settled internal transfers", "status", "rejected");
+    }
+
+    //    completionHandler gets the outgoing transfer once it is settled or rejected, on source account's shard thread
+    public void transfer(AccountId from, AccountId to, Long amount, Consumer<Transfer> completionHandler) {
+        final var startedAt = System.nanoTime();
+        accountOperationManager.doAccountOperationAsync(from, source -> {
+            final var transfer = source.reserveTransfer(to, amount);
+            if (transfer.status() == TransferStatus.PENDING) {
+                credit(from, transfer, startedAt, completionHandler);
+            } else {
+                rejected.increment();
+                completionHandler.accept(transfer);
+            }
+        }, ex -> logger.error("Unable to reserve transfer from account {}", from, ex));
+    }
+
+    public void resume(Collection<PendingTransfer> pendingTransfers) {
+        pendingTransfers.forEach(pending -> credit(pending.from(), pending.transfer(), System.nanoTime(), transfer -> {
+        }));
+        logger.info("Resumed {} pending transfers", pendingTransfers.size());
+    }
+
+    //    Credit and settle finish a reserved transfer, so they go in completion lane like withdrawal status updates
+    private void credit(AccountId from, Transfer transfer, long startedAt, Consumer<Transfer> completionHandler) {
+        accountOperationManager.doAccountOperationAsync(transfer.counterparty(), Lane.COMPLETION, destination -> {
+            destination.receiveTransfer(transfer.transferId(), from, transfer.amount());
+            settle(from, transfer.transferId(), true, startedAt, completionHandler);
+        }, ex -> {
+            logger.warn("Unable to credit transfer {} to account {}, releasing it", transfer.transferId(), transfer.counterparty(), ex);
+            settle(from, transfer.transferId(), false, startedAt, completionHandler);
+        });
+    }
+
+    private void settle(AccountId from, TransferId transferId, boolean credited, long startedAt, Consumer<Transfer> completionHandler) {
+        accountOperationManager.doAccountOperationAsync(from, Lane.COMPLETION, source -> {
+            final var settled = source.settleTransfer(transferId, credited);
+            latency.recordSince(startedAt);
+            (settled.status() == TransferStatus.SUCCESS ? succeeded : failed).increment();
+            completionHandler.accept(settled);
+        }, ex -> logger.error("Unable to settle transfer {} of account {}", transferId, from, ex));
+    }
+
+    //    from is the source account, transfer its outgoing side
+    public record PendingTransfer(AccountId from, Transfer transfer) {
+    }
+}
@@ -0,0 +1,188 @@
+package com.neverless.processing;
+
+import com.neverless.domain.AccountEventListener;
+import com.neverless.domain.AccountId;
+import com.neverless.domain.impl.AccountImpl.Withdrawal;
+import com.neverless.domain.impl.AccountImpl.WithdrawalStatus;
+import com.neverless.resources.dtos.WithdrawalEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Pushes withdrawal status transitions to subscribers of one account or of all accounts.
+ *
+ * Shard threads only drop the event into a bounded queue (nothing at all while there are no subscribers), a single
+ * dispatcher thread fans it out to subscribers and every subscriber is written to by its own thread from its own
+ * bounded buffer. A subscriber which does not keep up gets its buffer dropped and is told to resync, i.e. to re-read
+ * withdrawals through REST api, so one slow client never holds up shards or other subscribers.
+ */
+public class WithdrawalEventBroadcaster implements AccountEventListener {
+    private static final int DISPATCH_QUEUE_SIZE = 65_536;
+    private static final int SUBSCRIBER_BUFFER_SIZE = 1_024;
+    private static final long HEARTBEAT_SECONDS = 15;
+
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final BlockingQueue<WithdrawalEvent> dispatchQueue = new ArrayBlockingQueue<>(DISPATCH_QUEUE_SIZE);
+    private final ConcurrentMap<AccountId, Set<Mailbox>> accountSubscribers = new ConcurrentHashMap<>();
+    private final Set<Mailbox> globalSubscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private long sequence;
+    private volatile boolean dispatchOverflow;
+    private volatile boolean running = true;
+
+    public WithdrawalEventBroadcaster() {
+        Thread.startVirtualThread(this::dispatch);
+    }
+
+    @Override
+    public void withdrawalStatusChanged(AccountId accountId, Withdrawal withdrawal, WithdrawalStatus previousStatus) {
+        if (subscriberCount.get() == 0) {
+            return;
+        }
+        var event = new WithdrawalEvent(0, accountId, withdrawal.withdrawalId(), previousStatus, withdrawal.status(),
+                withdrawal.amount(), withdrawal.message());
+        if (!dispatchQueue.offer(event)) {
+            dispatchOverflow = true;
+        }
+    }
+
+    /*
+     * accountId null subscribes to all accounts.
+     */
+    public Subscription subscribe(AccountId accountId, Subscriber subscriber) {
+        var mailbox = new Mailbox(subscriber);
+        if (accountId == null) {
+            globalSubscribers.add(mailbox);
+        } else {
+            accountSubscribers.computeIfAbsent(accountId, id -> ConcurrentHashMap.newKeySet()).add(mailbox);
+        }
+        subscriberCount.incrementAndGet();
+        Thread.startVirtualThread(mailbox::deliver);
+        return () -> {
+            if (accountId == null ? globalSubscribers.remove(mailbox) : removeAccountSubscriber(accountId, mailbox)) {
+                subscriberCount.decrementAndGet();
+            }
+            mailbox.close();
+        };
+    }
+
+    public void shutdown() {
+        running = false;
+        globalSubscribers.forEach(Mailbox::close);
+        accountSubscribers.values().forEach(mailboxes -> mailboxes.forEach(Mailbox::close));
+    }
+
+    private boolean removeAccountSubscriber(AccountId accountId, Mailbox mailbox) {
+        var removed = new boolean[1];
+        accountSubscribers.computeIfPresent(accountId, (id, mailboxes) -> {
+            removed[0] = mailboxes.remove(mailbox);
+            return mailboxes.isEmpty() ? null : mailboxes;
+        });
+        return removed[0];
+    }
+
+    private void dispatch() {
+        while (running) {
+            try {
+                var event = dispatchQueue.poll(100, TimeUnit.MILLISECONDS);
+                if (dispatchOverflow) {
+//                    Events were lost before reaching any subscriber, nobody can trust what they have seen so far
+                    dispatchOverflow = false;
+                    logger.warn("Withdrawal event dispatch queue overflowed, asking all subscribers to resync");
+                    globalSubscribers.forEach(Mailbox::resync);
+                    accountSubscribers.values().forEach(mailboxes -> mailboxes.forEach(Mailbox::resync));
+                }
+                if (event == null) {
+                    continue;
+                }
+                var sequenced = new WithdrawalEvent(++sequence, event.accountId(), event.withdrawalId(), event.previousStatus(),
+                        event.status(), event.amount(), event.message());
+                globalSubscribers.forEach(mailbox -> mailbox.offer(sequenced));
+                var subscribers = accountSubscribers.get(sequenced.accountId());
+                if (subscribers != null) {
+                    subscribers.forEach(mailbox -> mailbox.offer(sequenced));
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception ex) {
+                logger.error("Error while dispatching withdrawal event", ex);
+            }
+        }
+    }
+
+    public interface Subscriber {
+        void onEvent(WithdrawalEvent event);
+
+        //        Some events were dropped, subscriber should re-read state it cares about
+        void onResync();
+
+        //        Nothing happened for a while, lets subscriber keep connection alive and detect closed connections
+        void onHeartbeat();
+    }
+
+    @FunctionalInterface
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final class Mailbox {
+        private static final Object RESYNC = new Object();
+        private static final Object CLOSE = new Object();
+
+        private final Subscriber subscriber;
+        private final BlockingQueue<Object> buffer = new ArrayBlockingQueue<>(SUBSCRIBER_BUFFER_SIZE);
+        private volatile boolean closed;
+
+        private Mailbox(Subscriber subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        void offer(WithdrawalEvent event) {
+            if (!buffer.offer(event)) {
+                resync();
+            }
+        }
+
+        void resync() {
+            buffer.clear();
+            buffer.offer(RESYNC);
+        }
+
+        void close() {
+            closed = true;
+            buffer.clear();
+            buffer.offer(CLOSE);
+        }
+
+        void deliver() {
+            try {
+                while (!closed) {
+                    var item = buffer.poll(HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+                    if (item == null) {
+                        subscriber.onHeartbeat();
+                    } else if (item == RESYNC) {
+                        subscriber.onResync();
+                    } else if (item instanceof WithdrawalEvent event) {
+                        subscriber.onEvent(event);
+                    }
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } catch (Exception ex) {
+//                Subscriber is gone (i.e. connection closed), its subscription is cleaned up by its owner
+                closed = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.neverless.processing;
+
+import com.neverless.domain.AccountEventListener;
+import com.neverless.domain.AccountId;
+import com.neverless.domain.impl.AccountImpl.Withdrawal;
+import com.neverless.domain.impl.AccountImpl.WithdrawalStatus;
+import com.neverless.integration.WithdrawalService.WithdrawalId;
+import com.neverless.metrics.Histogram;
+import com.neverless.metrics.MetricsRegistry;
+import com.neverless.time.TimeSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/*
+ * Timestamps every withdrawal at each stage between http request and release of locked balance, and aggregates time
+ * spent in every stage, so it is visible whether funds stay locked because of our queues or because of custodian.
+ *
+ * Stages of one withdrawal are reported from different threads (http, shard, status checker), but always one after
+ * another with a queue hand-off in between, which already orders the writes. A stage is only measured once it is
+ * reached, so sweep() is run periodically to also report withdrawals which are still waiting for a stage.
+ * Withdrawals accepted before a restart are unknown to tracker and are ignored.
+ */
+public class WithdrawalLifecycleTracker implements AccountEventListener {
+    private static final int MAX_SLOW_WITHDRAWALS = 100;
+    private static final Lifecycle REJECTED = new Lifecycle(null, 0);
+
+    private final ConcurrentMap<WithdrawalId, Lifecycle> inFlight = new ConcurrentHashMap<>();
+    private final Map<Stage, Histogram> stageLatencies = new EnumMap<>(Stage.class);
+    private final Histogram total;
+    private final long slowStageNanos;
+    private final TimeSource timeSource;
+    private final Deque<SlowStage> slowStages = new ArrayDeque<>();
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    public WithdrawalLifecycleTracker(Duration slowStageThreshold, MetricsRegistry metrics, TimeSource timeSource) {
+        this.timeSource = timeSource;
+        this.slowStageNanos = slowStageThreshold.toNanos();
+        for (Stage stage : Stage.values()) {
+            if (stage != Stage.ACCEPTED) {
+                stageLatencies.put(stage, metrics.histogram("withdrawal_stage_seconds", "Time spent by withdrawals before reaching a stage",
+                        "stage", stage.label));
+            }
+        }
+        this.total = metrics.histogram("withdrawal_funds_locked_seconds", "Time from http request to release of locked balance");
+    }
+
+    //    Timestamp for accepted stage, taken when http request was read
+    public long now() {
+        return timeSource.nanoTime();
+    }
+
+    /*
+     * Called on shard thread once withdrawal exists, acceptedAtNanos is now() when http request was read.
+     */
+    public void applied(AccountId accountId, WithdrawalId withdrawalId, long acceptedAtNanos) {
+        final var lifecycle = new Lifecycle(accountId, acceptedAtNanos);
+        if (inFlight.putIfAbsent(withdrawalId, lifecycle) != null) {
+//            Marked REJECTED by balance check a moment ago on this same thread
+            inFlight.remove(withdrawalId);
+            return;
+        }
+        reached(withdrawalId, lifecycle, Stage.APPLIED);
+    }
+
+    public void submitted(WithdrawalId withdrawalId) {
+        reached(withdrawalId, Stage.SUBMITTED);
+    }
+
+    public void processing(WithdrawalId withdrawalId) {
+        reached(withdrawalId, Stage.PROCESSING);
+    }
+
+    public void finalState(WithdrawalId withdrawalId) {
+        reached(withdrawalId, Stage.FINAL_STATE);
+    }
+
+    @Override
+    public void withdrawalStatusChanged(AccountId accountId, Withdrawal withdrawal, WithdrawalStatus previousStatus) {
+        final var status = withdrawal.status();
+        if (status != WithdrawalStatus.SUCCESS && status != WithdrawalStatus.ERROR) {
+            return;
+        }
+        if (previousStatus == null) {
+//            Rejected by balance check, nothing was locked. Event comes from inside withdraw(), before applied() is called
+            inFlight.put(withdrawal.withdrawalId(), REJECTED);
+            return;
+        }
+        final var lifecycle = inFlight.remove(withdrawal.withdrawalId());
+        if (lifecycle != null && lifecycle != REJECTED) {
+            reached(withdrawal.withdrawalId(), lifecycle, Stage.UNLOCKED);
+            total.record(lifecycle.lastAtNanos - lifecycle.acceptedAtNanos);
+        }
+    }
+
+    /*
+     * Called periodically by status checker. Reports every withdrawal which is waiting for its next stage longer than
+     * threshold, once per stage, a custodian which never answers would otherwise never show up.
+     */
+    public void sweep() {
+        final var now = timeSource.nanoTime();
+        inFlight.forEach((withdrawalId, lifecycle) -> {
+            if (lifecycle == REJECTED) {
+                return;
+            }
+//            Stage is read before its timestamp and written after it, so a timestamp is never older than its stage
+            final var lastStage = lifecycle.lastStage;
+            final var waiting = now - lifecycle.lastAtNanos;
+            if (waiting > slowStageNanos && lifecycle.reportedWaitingAt != lastStage) {
+                lifecycle.reportedWaitingAt = lastStage;
+                reportSlow(new SlowStage(lifecycle.accountId, withdrawalId, Stage.values()[lastStage.ordinal() + 1],
+                        Duration.ofNanos(waiting), false));
+            }
+        });
+    }
+
+    public Map<Stage, Histogram> stageLatencies() {
+        return stageLatencies;
+    }
+
+    public Histogram total() {
+        return total;
+    }
+
+    public List<SlowStage> slowStages() {
+        synchronized (slowStages) {
+            return List.copyOf(slowStages);
+        }
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    private void reached(WithdrawalId withdrawalId, Stage stage) {
+        final var lifecycle = inFlight.get(withdrawalId);
+        if (lifecycle != null && lifecycle != REJECTED) {
+            reached(withdrawalId, lifecycle, stage);
+        }
+    }
+
+    private void reached(WithdrawalId withdrawalId, Lifecycle lifecycle, Stage stage) {
+        if (stage.ordinal() <= lifecycle.lastStage.ordinal()) {
+//            i.e. PROCESSING is seen on every status poll, only first one counts
+            return;
+        }
+        final var now = timeSource.nanoTime();
+//        Stages custodian skipped (i.e. no PROCESSING seen) are folded into the next one
+        final var spent = now - lifecycle.lastAtNanos;
+        stageLatencies.get(stage).record(spent);
+        lifecycle.lastAtNanos = now;
+        lifecycle.lastStage = stage;
+        if (spent > slowStageNanos) {
+            reportSlow(new SlowStage(lifecycle.accountId, withdrawalId, stage, Duration.ofNanos(spent), true));
+        }
+    }
+
+    private void reportSlow(SlowStage slowStage) {
+        if (slowStage.reached()) {
+            logger.warn("Withdrawal {} of account {} took {} ms to reach {}", slowStage.withdrawalId(), slowStage.accountId(),
+                    slowStage.duration().toMillis(), slowStage.stage().label);
+        } else {
+            logger.warn("Withdrawal {} of account {} is waiting {} ms to reach {}", slowStage.withdrawalId(), slowStage.accountId(),
+                    slowStage.duration().toMillis(), slowStage.stage().label);
+        }
+        synchronized (slowStages) {
+            if (slowStages.size() == MAX_SLOW_WITHDRAWALS) {
+                slowStages.removeFirst();
+            }
+            slowStages.addLast(slowStage);
+        }
+    }
+
+    public enum Stage {
+        ACCEPTED("accepted"),
+        //        Waited in shard queue and was applied to the account
+        APPLIED("applied"),
+        //        requestWithdrawal call to custodian returned
+        SUBMITTED("submitted"),
+        //        First status poll answering PROCESSING
+        PROCESSING("processing"),
+        //        Status poll answering COMPLETED/FAILED
+        FINAL_STATE("final_state"),
+        //        Balance released by updateWithdrawalStatus on the shard
+        UNLOCKED("unlocked");
+
+        public final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+    }
+
+    //    reached is false for a withdrawal found by sweep, which is still waiting for stage
+    public record SlowStage(AccountId accountId, WithdrawalId withdrawalId, Stage stage, Duration duration, boolean reached) {
+    }
+
+    private static final class Lifecycle {
+        private final AccountId accountId;
+        private final long acceptedAtNanos;
+        //        Read by sweep on status checker thread
+        private volatile Stage lastStage = Stage.ACCEPTED;
+        private volatile long lastAtNanos;
+        //        Status checker thread only
+        private Stage reportedWaitingAt;
+
+        private Lifecycle(AccountId accountId, long acceptedAtNanos) {
+            this.accountId = accountId;
+            this.acceptedAtNanos = acceptedAtNanos;
+            this.lastAtNanos = acceptedAtNanos;
+        }
+    }
+}
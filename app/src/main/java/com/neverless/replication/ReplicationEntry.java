@@ -0,0 +1,45 @@
+package com.neverless.replication;
+
+import com.neverless.domain.Account;
+import com.neverless.domain.AccountId;
+import com.neverless.domain.impl.AccountImpl.Transfer;
+import com.neverless.domain.impl.AccountImpl.Withdrawal;
+
+import java.util.List;
+
+/*
+ * One entry of the replication stream, written as CBOR with an int length prefix.
+ */
+record ReplicationEntry(Type type, long primaryTimeMillis, AccountState account) {
+
+    enum Type {
+        ACCOUNT,
+        //        Full state of an account, replaces whatever standby has for it at same or older version
+        SNAPSHOT,
+        //        Every account before it has been shipped with its full state
+        SNAPSHOT_COMPLETE,
+        //        Every change made before primaryTimeMillis has been shipped
+        HEARTBEAT
+    }
+
+    static ReplicationEntry account(Account account, List<Withdrawal> withdrawals, List<Transfer> transfers) {
+        final var balance = account.accountBalance();
+        return new ReplicationEntry(Type.ACCOUNT, System.currentTimeMillis(),
+                new AccountState(account.id(), account.version(), balance.balance(), balance.lockedBalance(), withdrawals, transfers));
+    }
+
+    static ReplicationEntry snapshot(Account account) {
+        final var balance = account.accountBalance();
+        return new ReplicationEntry(Type.SNAPSHOT, System.currentTimeMillis(), new AccountState(account.id(), account.version(),
+                balance.balance(), balance.lockedBalance(), List.copyOf(account.withdrawals()), List.copyOf(account.transfers())));
+    }
+
+    static ReplicationEntry marker(Type type) {
+        return new ReplicationEntry(type, System.currentTimeMillis(), null);
+    }
+
+    //    Balances and version are absolute, withdrawals and transfers are only the ones changed (all of them in snapshot)
+    record AccountState(AccountId accountId, long version, Long balance, Long lockedBalance, List<Withdrawal> withdrawals,
+                        List<Transfer> transfers) {
+    }
+}
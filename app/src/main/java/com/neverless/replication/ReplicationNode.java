@@ -0,0 +1,75 @@
+package com.neverless.replication;
+
+import com.neverless.exceptions.BadRequestException;
+import com.neverless.processing.AccountOperationManager;
+
+import java.time.Duration;
+
+/*
+ * Replication role of this node. A primary ships its changes to standbys connecting to its replication port (if one
+ * is set), a standby follows a primary and becomes one itself when promoted.
+ */
+public class ReplicationNode implements AutoCloseable {
+    private final ReplicationSource source;
+    private final StandbyFollower follower;
+    private final int port;
+    private final AccountOperationManager accountOperationManager;
+
+    //    follower is null on a primary, port is -1 when standbys are not served
+    public ReplicationNode(ReplicationSource source, StandbyFollower follower, int port, AccountOperationManager accountOperationManager) {
+        this.source = source;
+        this.follower = follower;
+        this.port = port;
+        this.accountOperationManager = accountOperationManager;
+    }
+
+    public void start() {
+        if (follower != null) {
+            follower.start();
+        } else {
+            listen();
+        }
+    }
+
+    public boolean isStandby() {
+        return follower != null && !follower.isPromoted();
+    }
+
+    public boolean isSynced() {
+        return !isStandby() || follower.isSynced();
+    }
+
+    public Duration staleness() {
+        return isStandby() ? follower.staleness() : Duration.ZERO;
+    }
+
+    public int standbys() {
+        return source.standbys();
+    }
+
+    /*
+     * Makes this standby a primary, returns withdrawals and transfers it has to take over.
+     */
+    public synchronized TakeOver promote() {
+        if (!isStandby()) {
+            throw new BadRequestException("Node is not a standby");
+        }
+        final var inFlight = follower.promote();
+        listen();
+        return inFlight;
+    }
+
+    private void listen() {
+        if (port >= 0) {
+            source.listen(port, accountOperationManager);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (follower != null) {
+            follower.close();
+        }
+        source.close();
+    }
+}
@@ -0,0 +1,277 @@
+package com.neverless.replication;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neverless.domain.Account;
+import com.neverless.domain.AccountEventListener;
+import com.neverless.domain.AccountId;
+import com.neverless.domain.AccountRepository;
+import com.neverless.domain.impl.AccountImpl.Transfer;
+import com.neverless.domain.impl.AccountImpl.TransferStatus;
+import com.neverless.domain.impl.AccountImpl.Withdrawal;
+import com.neverless.domain.impl.AccountImpl.WithdrawalStatus;
+import com.neverless.metrics.MetricsRegistry;
+import com.neverless.processing.AccountChangeListener;
+import com.neverless.processing.AccountOperationManager;
+import com.neverless.replication.ReplicationEntry.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Primary side of replication. Every change of an account is shipped to connected standbys as its new balances and
+ * version plus the withdrawals the change touched. A standby which connects first gets full state of every account as
+ * SNAPSHOT entries, read on the shard owning it so it lines up with changes shipped meanwhile, followed by
+ * SNAPSHOT_COMPLETE. A change shipped ahead of its account's snapshot can carry the same version, standby replaces
+ * that account's state with the snapshot instead of ignoring it.
+ * Heartbeats go through the same stream, so a standby which applied one has every change made before it.
+ *
+ * Shard threads only put entries on per standby queues, a standby falling more than maxBacklog entries behind is
+ * disconnected and starts over with a new snapshot when it reconnects.
+ */
+public class ReplicationSource implements AccountChangeListener, AccountEventListener, AutoCloseable {
+    private static final Duration HEARTBEAT_INTERVAL = Duration.ofMillis(100);
+
+    private final AccountRepository accountRepository;
+    private final ObjectMapper mapper;
+    private final int maxBacklog;
+    private final List<Standby> standbys = new CopyOnWriteArrayList<>();
+    //    Entries are queued under this lock, so a heartbeat is never queued ahead of a change made before it
+    private final ReentrantLock publishLock = new ReentrantLock();
+    //    Withdrawal and transfer events arrive on shard thread while operation runs, accountChanged follows on same thread once it is done
+    private final ThreadLocal<Changes> changes = ThreadLocal.withInitial(Changes::new);
+    private final LongAdder shipped;
+    private final LongAdder dropped;
+    private volatile boolean running;
+    private ServerSocket serverSocket;
+    private AccountOperationManager accountOperationManager;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    public ReplicationSource(AccountRepository accountRepository, ObjectMapper mapper, MetricsRegistry metrics, int maxBacklog) {
+        this.accountRepository = accountRepository;
+        this.mapper = mapper;
+        this.maxBacklog = maxBacklog;
+        metrics.gauge("replication_standbys", "Standbys connected to this node", standbys::size);
+        metrics.gauge("replication_backlog", "Entries queued for slowest standby",
+                () -> standbys.stream().mapToInt(standby -> standby.queue.size()).max().orElse(0));
+        this.shipped = metrics.counter("replication_entries_shipped_total", "Replication entries written to standbys");
+        this.dropped = metrics.counter("replication_standbys_dropped_total", "Standbys disconnected for falling too far behind");
+    }
+
+    /*
+     * Starts accepting standbys, port 0 picks a free one.
+     */
+    public void listen(int port, AccountOperationManager accountOperationManager) {
+        this.accountOperationManager = accountOperationManager;
+        try {
+            serverSocket = new ServerSocket(port);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to listen for standbys on port %d".formatted(port), ex);
+        }
+        running = true;
+        Thread.ofVirtual().name("replication-acceptor").start(this::accept);
+        Thread.ofVirtual().name("replication-heartbeat").start(this::heartbeat);
+        logger.info("Listening for standbys on port {}", serverSocket.getLocalPort());
+    }
+
+    public int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int standbys() {
+        return standbys.size();
+    }
+
+    @Override
+    public void withdrawalStatusChanged(AccountId accountId, Withdrawal withdrawal, WithdrawalStatus previousStatus) {
+        if (!standbys.isEmpty()) {
+            changes.get().withdrawals.add(withdrawal);
+        }
+    }
+
+    @Override
+    public void transferStatusChanged(AccountId accountId, Transfer transfer, TransferStatus previousStatus) {
+        if (!standbys.isEmpty()) {
+            changes.get().transfers.add(transfer);
+        }
+    }
+
+    @Override
+    public void accountChanged(Account account) {
+        final var changed = changes.get();
+        if (!standbys.isEmpty()) {
+            publish(ReplicationEntry.account(account, List.copyOf(changed.withdrawals), List.copyOf(changed.transfers)));
+        }
+        changed.withdrawals.clear();
+        changed.transfers.clear();
+    }
+
+    @Override
+    public void accountCreated(Account account) {
+        if (!standbys.isEmpty()) {
+            publish(ReplicationEntry.account(account, List.of(), List.of()));
+        }
+    }
+
+    private void publish(ReplicationEntry entry) {
+        publishLock.lock();
+        try {
+            standbys.forEach(standby -> standby.offer(entry));
+        } finally {
+            publishLock.unlock();
+        }
+    }
+
+    private void accept() {
+        while (running) {
+            try {
+                final var standby = new Standby(serverSocket.accept());
+                Thread.ofVirtual().name("replication-sender-" + standby.socket.getRemoteSocketAddress()).start(standby);
+                register(standby);
+            } catch (IOException ex) {
+                if (running) {
+                    logger.error("Unable to accept standby", ex);
+                }
+            }
+        }
+    }
+
+    private void register(Standby standby) {
+        publishLock.lock();
+        try {
+            standbys.add(standby);
+        } finally {
+            publishLock.unlock();
+        }
+        logger.info("Standby {} connected, sending snapshot", standby.socket.getRemoteSocketAddress());
+//        One extra count held while iterating, so completion is not reported before every account was handed to shards
+        final var remaining = new AtomicLong(1);
+        accountRepository.forEach(account -> {
+            remaining.incrementAndGet();
+            accountOperationManager.doAccountOperationAsync(account.id(), current -> {
+                standby.offerLocked(ReplicationEntry.snapshot(current));
+                snapshotted(standby, remaining);
+            }, ex -> snapshotted(standby, remaining));
+        });
+        snapshotted(standby, remaining);
+    }
+
+    private void snapshotted(Standby standby, AtomicLong remaining) {
+        if (remaining.decrementAndGet() == 0) {
+            standby.offerLocked(ReplicationEntry.marker(Type.SNAPSHOT_COMPLETE));
+        }
+    }
+
+    //    Also keeps standbys from taking an idle primary for a dead one
+    private void heartbeat() {
+        while (running) {
+            try {
+                Thread.sleep(HEARTBEAT_INTERVAL);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (!standbys.isEmpty()) {
+                publish(ReplicationEntry.marker(Type.HEARTBEAT));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
+            } catch (IOException ignored) {
+            }
+        }
+        standbys.forEach(Standby::close);
+    }
+
+    private static final class Changes {
+        private final List<Withdrawal> withdrawals = new ArrayList<>();
+        private final List<Transfer> transfers = new ArrayList<>();
+    }
+
+    private final class Standby implements Runnable {
+        private final Socket socket;
+        private final BlockingQueue<ReplicationEntry> queue = new LinkedBlockingQueue<>(maxBacklog);
+        private volatile boolean open = true;
+
+        private Standby(Socket socket) {
+            this.socket = socket;
+        }
+
+        //        Caller holds publishLock
+        private void offer(ReplicationEntry entry) {
+            if (!queue.offer(entry) && open) {
+                logger.warn("Standby {} is more than {} entries behind, disconnecting it", socket.getRemoteSocketAddress(), maxBacklog);
+                dropped.increment();
+                close();
+            }
+        }
+
+        private void offerLocked(ReplicationEntry entry) {
+            publishLock.lock();
+            try {
+                offer(entry);
+            } finally {
+                publishLock.unlock();
+            }
+        }
+
+        @Override
+        public void run() {
+            try (var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+                while (open) {
+                    final var entry = queue.poll(HEARTBEAT_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+                    if (entry == null) {
+                        continue;
+                    }
+                    final var bytes = mapper.writeValueAsBytes(entry);
+                    out.writeInt(bytes.length);
+                    out.write(bytes);
+                    shipped.increment();
+//                    Batches whatever is queued into as few packets as possible
+                    if (queue.isEmpty()) {
+                        out.flush();
+                    }
+                }
+            } catch (IOException ex) {
+                if (open) {
+                    logger.warn("Lost standby {}: {}", socket.getRemoteSocketAddress(), ex.getMessage());
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            } finally {
+                close();
+            }
+        }
+
+        private void close() {
+            open = false;
+            standbys.remove(this);
+            queue.clear();
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.neverless.replication;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neverless.domain.AccountRepository;
+import com.neverless.domain.TransferId;
+import com.neverless.domain.impl.AccountImpl.AccountBalance;
+import com.neverless.domain.impl.AccountImpl.TransferDirection;
+import com.neverless.domain.impl.AccountImpl.TransferStatus;
+import com.neverless.domain.impl.AccountImpl.WithdrawalStatus;
+import com.neverless.integration.WithdrawalService.Address;
+import com.neverless.integration.WithdrawalService.WithdrawalId;
+import com.neverless.metrics.MetricsRegistry;
+import com.neverless.processing.AccountOperationManager;
+import com.neverless.processing.ExternalWithdrawalManager.AccountWithdrawalRequest;
+import com.neverless.processing.TransferManager.PendingTransfer;
+import com.neverless.replication.ReplicationEntry.AccountState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Standby side of replication. Follows primary's stream and applies it through the shards, so accounts of a standby
+ * are only ever changed by their shard threads, same as on primary. Whenever the stream breaks it reconnects and gets
+ * a new snapshot, until promoted.
+ *
+ * Staleness is how long ago primary sent the last heartbeat applied here, every change made on primary before that
+ * has been received. Clocks of primary and standby are assumed to be in sync.
+ */
+public class StandbyFollower implements AutoCloseable {
+    private static final Duration RECONNECT_INTERVAL = Duration.ofSeconds(1);
+    //    Primary sends a heartbeat every 100ms, several missing in a row means it is gone
+    private static final Duration READ_TIMEOUT = Duration.ofSeconds(2);
+
+    private final InetSocketAddress primary;
+    private final ObjectMapper mapper;
+    private final AccountRepository accountRepository;
+    private final AccountOperationManager accountOperationManager;
+    //    Withdrawals primary has submitted to external service and not seen final state of, taken over on promotion
+    private final Map<WithdrawalId, AccountWithdrawalRequest> inFlight = new ConcurrentHashMap<>();
+    //    Outgoing transfers reserved on primary and not settled yet, driven to completion on promotion
+    private final Map<TransferId, PendingTransfer> pendingTransfers = new ConcurrentHashMap<>();
+    private final LongAdder applied;
+    private volatile long replicatedUpToMillis = System.currentTimeMillis();
+    private volatile boolean synced;
+    private volatile boolean promoted;
+    private volatile Socket socket;
+    private Thread thread;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    public StandbyFollower(InetSocketAddress primary, ObjectMapper mapper, AccountRepository accountRepository,
+                           AccountOperationManager accountOperationManager, MetricsRegistry metrics) {
+        this.primary = primary;
+        this.mapper = mapper;
+        this.accountRepository = accountRepository;
+        this.accountOperationManager = accountOperationManager;
+        metrics.gauge("replication_lag_seconds", "How far behind primary this standby is", () -> staleness().toMillis() / 1000d);
+        this.applied = metrics.counter("replication_entries_received_total", "Replication entries received from primary, heartbeats included");
+    }
+
+    public void start() {
+        thread = Thread.ofVirtual().name("replication-follower").start(this::follow);
+    }
+
+    //    Has received full state of primary at least once
+    public boolean isSynced() {
+        return synced;
+    }
+
+    public boolean isPromoted() {
+        return promoted;
+    }
+
+    public Duration staleness() {
+        return promoted ? Duration.ZERO : Duration.ofMillis(Math.max(0, System.currentTimeMillis() - replicatedUpToMillis));
+    }
+
+    /*
+     * Stops following primary. Entries already received are still queued on the shards ahead of anything done after
+     * promotion. Returns withdrawals and transfers which were still in flight on primary, they have to be taken over.
+     */
+    public TakeOver promote() {
+        promoted = true;
+        closeSocket();
+        if (thread != null) {
+            try {
+                thread.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        logger.info("Promoted, no longer following {}", primary);
+        return new TakeOver(List.copyOf(inFlight.values()), List.copyOf(pendingTransfers.values()));
+    }
+
+    private void follow() {
+        while (!promoted) {
+            try (var connection = new Socket()) {
+                connection.connect(primary, (int) READ_TIMEOUT.toMillis());
+                connection.setSoTimeout((int) READ_TIMEOUT.toMillis());
+                socket = connection;
+                logger.info("Following primary {}", primary);
+                read(new DataInputStream(new BufferedInputStream(connection.getInputStream())));
+            } catch (IOException ex) {
+                if (!promoted) {
+                    logger.warn("Replication stream from {} broken, reconnecting: {}", primary, ex.getMessage());
+                }
+            }
+            if (!promoted) {
+                pause();
+            }
+        }
+    }
+
+    private void read(DataInputStream in) throws IOException {
+//        Heartbeats only count once this connection's snapshot is complete, until then some accounts may be missing
+        var snapshotComplete = false;
+        while (!promoted) {
+            final var bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            final var entry = mapper.readValue(bytes, ReplicationEntry.class);
+            switch (entry.type()) {
+                case ACCOUNT -> apply(entry.account(), false);
+                case SNAPSHOT -> apply(entry.account(), true);
+                case SNAPSHOT_COMPLETE -> {
+                    snapshotComplete = true;
+                    synced = true;
+                    replicatedUpToMillis = entry.primaryTimeMillis();
+                    logger.info("Snapshot from {} applied", primary);
+                }
+                case HEARTBEAT -> {
+                    if (snapshotComplete) {
+                        replicatedUpToMillis = entry.primaryTimeMillis();
+                    }
+                }
+            }
+            applied.increment();
+        }
+    }
+
+    private void apply(AccountState state, boolean snapshot) {
+        final var accountId = state.accountId();
+        if (accountRepository.find(accountId).isEmpty()) {
+            accountOperationManager.createAccount(accountId);
+        }
+        state.withdrawals().forEach(withdrawal -> {
+            if (withdrawal.status() == WithdrawalStatus.PENDING || withdrawal.status() == WithdrawalStatus.PROCESSING) {
+                inFlight.put(withdrawal.withdrawalId(), new AccountWithdrawalRequest(accountId, withdrawal.withdrawalId(),
+                        Address.fromString(withdrawal.addressId()), withdrawal.amount()));
+            } else {
+                inFlight.remove(withdrawal.withdrawalId());
+            }
+        });
+        state.transfers().stream().filter(transfer -> transfer.direction() == TransferDirection.OUTGOING).forEach(transfer -> {
+            if (transfer.status() == TransferStatus.PENDING) {
+                pendingTransfers.put(transfer.transferId(), new PendingTransfer(accountId, transfer));
+            } else {
+                pendingTransfers.remove(transfer.transferId());
+            }
+        });
+        if (state.version() > 0) {
+            final var balance = new AccountBalance(state.balance(), state.lockedBalance());
+            accountOperationManager.doAccountOperationAsync(accountId,
+                    account -> {
+                        if (snapshot) {
+                            account.applySnapshot(balance, state.version(), state.withdrawals(), state.transfers());
+                        } else {
+                            account.applyReplicated(balance, state.version(), state.withdrawals(), state.transfers());
+                        }
+                    },
+                    ex -> logger.error("Unable to apply replicated state of account {}", accountId, ex));
+        }
+    }
+
+    private void pause() {
+        try {
+            Thread.sleep(RECONNECT_INTERVAL);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            promoted = true;
+        }
+    }
+
+    private void closeSocket() {
+        final var current = socket;
+        if (current != null) {
+            try {
+                current.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        promoted = true;
+        closeSocket();
+    }
+}
@@ -0,0 +1,12 @@
+package com.neverless.replication;
+
+import com.neverless.processing.ExternalWithdrawalManager.AccountWithdrawalRequest;
+import com.neverless.processing.TransferManager.PendingTransfer;
+
+import java.util.List;
+
+/*
+ * Work a primary had in flight when its standby was promoted.
+ */
+public record TakeOver(List<AccountWithdrawalRequest> withdrawals, List<PendingTransfer> transfers) {
+}
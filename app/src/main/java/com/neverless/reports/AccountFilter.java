@@ -0,0 +1,21 @@
+package com.neverless.reports;
+
+import java.util.function.Predicate;
+
+/*
+ * Conditions of an admin scan, null ones do not apply. lockedWithoutWithdrawals finds accounts with funds locked but no
+ * withdrawal pending or processing, i.e. locks which only a transfer in flight (settled within milliseconds) or a bug
+ * can explain.
+ */
+public record AccountFilter(Long minBalance, Long maxBalance, Long minLockedBalance, boolean lockedWithoutWithdrawals)
+        implements Predicate<AccountRow> {
+    public static final AccountFilter ALL = new AccountFilter(null, null, null, false);
+
+    @Override
+    public boolean test(AccountRow row) {
+        return (minBalance == null || row.balance() >= minBalance)
+                && (maxBalance == null || row.balance() <= maxBalance)
+                && (minLockedBalance == null || row.lockedBalance() >= minLockedBalance)
+                && (!lockedWithoutWithdrawals || row.lockedBalance() > 0 && row.inFlightWithdrawals() == 0);
+    }
+}
@@ -0,0 +1,19 @@
+package com.neverless.reports;
+
+import com.neverless.domain.Account;
+import com.neverless.domain.AccountId;
+
+/*
+ * What scans look at of an account, read once so filter and report see the same values. Balances and withdrawal
+ * stats are each replaced as a whole by the shard thread, reading them from a scan thread needs no locking.
+ */
+public record AccountRow(AccountId id, long balance, long lockedBalance, long inFlightWithdrawals, long inFlightWithdrawalAmount) {
+
+    public static AccountRow of(Account account) {
+        final var accountBalance = account.accountBalance();
+        final var withdrawalStats = account.withdrawalStats();
+        return new AccountRow(account.id(), accountBalance.balance(), accountBalance.lockedBalance(),
+                withdrawalStats.pending().count() + withdrawalStats.processing().count(),
+                withdrawalStats.pending().amount() + withdrawalStats.processing().amount());
+    }
+}
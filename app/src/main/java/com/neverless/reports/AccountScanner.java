@@ -0,0 +1,75 @@
+package com.neverless.reports;
+
+import com.neverless.domain.AccountRepository;
+import com.neverless.metrics.Histogram;
+import com.neverless.metrics.MetricsRegistry;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/*
+ * Runs admin queries over all accounts of this node as parallel streams over the repository's spliterator, in a
+ * fork/join pool of their own. Shards are neither asked nor waited for, scans only read what shards publish safely
+ * (see AccountRow), so results are weakly consistent: every account which existed for the whole scan is seen once,
+ * with values of some moment during the scan.
+ *
+ * The pool is separate from the common pool and from the scheduler of virtual threads (shards, http), and smaller than
+ * the machine, so a long scan slows nothing else down beyond the cores it gets.
+ */
+public class AccountScanner implements AutoCloseable {
+    private final AccountRepository accountRepository;
+    private final ForkJoinPool pool;
+    private final LongAdder scans;
+    private final LongAdder scanned;
+    private final Histogram duration;
+
+    public AccountScanner(AccountRepository accountRepository, int parallelism, MetricsRegistry metrics) {
+        this.accountRepository = accountRepository;
+        this.pool = new ForkJoinPool(parallelism, pool -> {
+            final var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("account-scan-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+        this.scans = metrics.counter("account_scans_total", "Admin scans over all accounts");
+        this.scanned = metrics.counter("account_scan_accounts_total", "Accounts visited by admin scans");
+        this.duration = metrics.histogram("account_scan_seconds", "Time an admin scan took");
+    }
+
+    //    Up to limit matching accounts, which ones when there are more is not defined
+    public CompletableFuture<List<AccountRow>> find(AccountFilter filter, int limit) {
+        return scan(rows -> rows.filter(filter).unordered().limit(limit).toList());
+    }
+
+    public CompletableFuture<AccountSummary> summarize(AccountFilter filter) {
+        return scan(rows -> rows.collect(AccountSummary.collector(filter)));
+    }
+
+    /*
+     * query gets a parallel stream of all accounts and runs on the scan pool, so its terminal operation forks into the
+     * pool rather than into the common one.
+     */
+    public <T> CompletableFuture<T> scan(Function<Stream<AccountRow>, T> query) {
+        return CompletableFuture.supplyAsync(() -> {
+            final var startedAt = System.nanoTime();
+            try {
+                return query.apply(StreamSupport.stream(accountRepository.spliterator(), true)
+                        .map(AccountRow::of)
+                        .peek(row -> scanned.increment()));
+            } finally {
+                scans.increment();
+                duration.recordSince(startedAt);
+            }
+        }, pool);
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,105 @@
+package com.neverless.reports;
+
+import com.neverless.processing.LiabilityTotals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collector;
+
+/*
+ * Aggregate of matching accounts, with balances bucketed by order of magnitude (0, 1-9, 10-99, ...). Empty buckets
+ * above the highest balance are left out.
+ */
+public record AccountSummary(long scanned, long matched, LiabilityTotals totals, long accountsWithLockedBalance,
+                             long inFlightWithdrawals, long inFlightWithdrawalAmount, List<BalanceBucket> balanceDistribution) {
+
+    //    One accumulator per split, merged as fork/join tasks complete, so scan threads never share anything
+    public static Collector<AccountRow, ?, AccountSummary> collector(AccountFilter filter) {
+        return Collector.of(() -> new Accumulator(filter), Accumulator::add, Accumulator::merge, Accumulator::summary,
+                Collector.Characteristics.UNORDERED);
+    }
+
+    //    Balances from inclusive to exclusive, to is null for the last (unbounded) bucket
+    public record BalanceBucket(long from, Long to, long accounts) {
+    }
+
+    private static final class Accumulator {
+        //        Bucket 0 is balance 0 (and negative), bucket n is balances of n digits
+        private static final int BUCKETS = 20;
+
+        private final AccountFilter filter;
+        private final long[] buckets = new long[BUCKETS];
+        private long scanned;
+        private long matched;
+        private long balance;
+        private long lockedBalance;
+        private long accountsWithLockedBalance;
+        private long inFlightWithdrawals;
+        private long inFlightWithdrawalAmount;
+
+        private Accumulator(AccountFilter filter) {
+            this.filter = filter;
+        }
+
+        private void add(AccountRow row) {
+            scanned++;
+            if (!filter.test(row)) {
+                return;
+            }
+            matched++;
+            balance += row.balance();
+            lockedBalance += row.lockedBalance();
+            if (row.lockedBalance() > 0) {
+                accountsWithLockedBalance++;
+            }
+            inFlightWithdrawals += row.inFlightWithdrawals();
+            inFlightWithdrawalAmount += row.inFlightWithdrawalAmount();
+            buckets[bucket(row.balance())]++;
+        }
+
+        private Accumulator merge(Accumulator other) {
+            scanned += other.scanned;
+            matched += other.matched;
+            balance += other.balance;
+            lockedBalance += other.lockedBalance;
+            accountsWithLockedBalance += other.accountsWithLockedBalance;
+            inFlightWithdrawals += other.inFlightWithdrawals;
+            inFlightWithdrawalAmount += other.inFlightWithdrawalAmount;
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets[i] += other.buckets[i];
+            }
+            return this;
+        }
+
+        private AccountSummary summary() {
+            var last = BUCKETS - 1;
+            while (last > 0 && buckets[last] == 0) {
+                last--;
+            }
+            final List<BalanceBucket> distribution = new ArrayList<>();
+            var from = 0L;
+            for (int i = 0; i <= last; i++) {
+                final var to = i < BUCKETS - 1 ? (i == 0 ? 1L : from * 10) : null;
+                distribution.add(new BalanceBucket(from, to, buckets[i]));
+                if (to != null) {
+                    from = to;
+                }
+            }
+            return new AccountSummary(scanned, matched, new LiabilityTotals(balance, lockedBalance), accountsWithLockedBalance,
+                    inFlightWithdrawals, inFlightWithdrawalAmount, List.copyOf(distribution));
+        }
+
+        private static int bucket(long balance) {
+            if (balance <= 0) {
+                return 0;
+            }
+            var digits = 1;
+            var bound = 10L;
+            while (digits < BUCKETS - 1 && balance >= bound) {
+                digits++;
+                bound *= 10;
+            }
+            return digits;
+        }
+    }
+}
@@ -1,81 +1,221 @@
 package com.neverless.resources;
 
+import com.neverless.cluster.Cluster;
+import com.neverless.cluster.Messages.Accepted;
+import com.neverless.cluster.Messages.AddFunds;
+import com.neverless.cluster.Messages.CreateAccount;
+import com.neverless.cluster.Messages.CreateWithdrawal;
+import com.neverless.cluster.Messages.GetAccount;
+import com.neverless.cluster.Messages.VersionedAccount;
+import com.neverless.cluster.Messages.VersionedWithdrawalStats;
+import com.neverless.cluster.Messages.VersionedWithdrawals;
+import com.neverless.cluster.Opcode;
 import com.neverless.domain.Account;
 import com.neverless.domain.AccountId;
 import com.neverless.domain.impl.AccountImpl.AccountBalance;
 import com.neverless.domain.impl.AccountImpl.WithdrawalStatus;
 import com.neverless.integration.WithdrawalService;
+import com.neverless.exceptions.BadRequestException;
+import com.neverless.exceptions.DuplicateException;
+import com.neverless.exceptions.MisdirectedRequestException;
 import com.neverless.processing.AccountOperationManager;
+import com.neverless.processing.AccountOperationManager.Lane;
+import com.neverless.processing.AccountVersionWatcher;
 import com.neverless.processing.ExternalWithdrawalManager;
+import com.neverless.processing.IdempotencyCache;
+import com.neverless.processing.WithdrawalLifecycleTracker;
 import com.neverless.processing.ExternalWithdrawalManager.AccountWithdrawalRequest;
 import com.neverless.resources.dtos.AddFundRequest;
 import com.neverless.resources.dtos.CreateAccountRequest;
 import com.neverless.resources.dtos.WithdrawalRequest;
+import com.neverless.resources.dtos.WithdrawalResponse;
+import com.neverless.resources.dtos.WithdrawalStatsResponse;
+import com.neverless.resources.serialization.WireFormat;
 import io.javalin.http.Context;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 public class Accounts {
+    private static final long DEFAULT_LONG_POLL_MILLIS = 30_000;
+    private static final long MAX_LONG_POLL_MILLIS = 60_000;
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final int MAX_IDEMPOTENCY_KEY_LENGTH = 255;
+
     private final AccountOperationManager accountOperationManager;
     private final ExternalWithdrawalManager externalWithdrawalManager;
+    private final WireFormat wireFormat;
+    private final AccountVersionWatcher accountVersionWatcher;
+    private final IdempotencyCache idempotencyCache;
+    private final WithdrawalLifecycleTracker lifecycleTracker;
+    private final Cluster cluster;
     final private Logger logger = LoggerFactory.getLogger(this.getClass());
 
-    public Accounts(AccountOperationManager accountOperationManager, ExternalWithdrawalManager externalWithdrawalManager) {
+    public Accounts(AccountOperationManager accountOperationManager, ExternalWithdrawalManager externalWithdrawalManager, WireFormat wireFormat,
+                    AccountVersionWatcher accountVersionWatcher, IdempotencyCache idempotencyCache,
+                    WithdrawalLifecycleTracker lifecycleTracker, Cluster cluster) {
         this.accountOperationManager = accountOperationManager;
         this.externalWithdrawalManager = externalWithdrawalManager;
+        this.wireFormat = wireFormat;
+        this.accountVersionWatcher = accountVersionWatcher;
+        this.idempotencyCache = idempotencyCache;
+        this.lifecycleTracker = lifecycleTracker;
+        this.cluster = cluster;
     }
 
     public void validateAccountId(Context context) {
         final var accountId = AccountId.fromString(context.pathParam("id"));
+        if (!cluster.isLocal(accountId)) {
+//            Owner validates forwarded requests itself
+            requireOwnerForStreaming(context, accountId);
+            return;
+        }
         accountOperationManager.validateAccountId(accountId);
     }
 
     public void getAccount(Context context) {
         final var accountId = AccountId.fromString(context.pathParam("id"));
+        if (!cluster.isLocal(accountId)) {
+            requireOwnerForStreaming(context, accountId);
+            context.future(() -> cluster.forward(accountId, Opcode.GET_ACCOUNT, new GetAccount(accountId), VersionedAccount.class)
+                    .thenAccept(remote -> writeVersioned(context, remote.version(), remote::account)));
+            return;
+        }
         final var account = accountOperationManager.getAccount(accountId);
-        context.json(AccountResponse.of(account)).status(200);
+        respondWithVersion(context, account, () -> AccountResponse.of(account));
     }
 
 
     public void createAccount(Context context) {
-        final var createAccountRequest = context.bodyAsClass(CreateAccountRequest.class);
-        Account account = accountOperationManager.createAccount(createAccountRequest.accountId());
-        context.json(AccountResponse.of(account)).status(200);
+        final var createAccountRequest = wireFormat.read(context, CreateAccountRequest.class);
+        final var accountId = createAccountRequest.accountId();
+        if (accountId != null && !cluster.isLocal(accountId)) {
+            context.future(() -> cluster.forward(accountId, Opcode.CREATE_ACCOUNT, new CreateAccount(accountId), VersionedAccount.class)
+                    .thenAccept(remote -> wireFormat.write(context.status(200), remote.account())));
+            return;
+        }
+        Account account = accountOperationManager.createAccount(accountId);
+        wireFormat.write(context.status(200), AccountResponse.of(account));
     }
 
     public void addFunds(Context context) {
         final var id = AccountId.fromString(context.pathParam("id"));
-        final var addFundRequest = context.bodyAsClass(AddFundRequest.class);
+        final var addFundRequest = wireFormat.read(context, AddFundRequest.class);
+        if (!cluster.isLocal(id)) {
+            forwardWrite(context, id, Opcode.ADD_FUNDS, new AddFunds(id, addFundRequest, context.header(IDEMPOTENCY_KEY)));
+            return;
+        }
 
-        accountOperationManager.doAccountOperationAsync(id,
-                (Account accountToBeUpdated) -> accountToBeUpdated.addToBalance(addFundRequest.amount()), getExceptionHandler(id));
+        if (isFirstAttempt(context, id, addFundRequest)) {
+            addFunds(id, addFundRequest.amount());
+        }
         context.status(204);
     }
 
+    //    Completes with account as it is right after funds were added
+    CompletableFuture<VersionedAccount> addFunds(AccountId id, Long amount) {
+        final var applied = new CompletableFuture<VersionedAccount>();
+        accountOperationManager.doAccountOperationAsync(id, (Account accountToBeUpdated) -> {
+            accountToBeUpdated.addToBalance(amount);
+            applied.complete(new VersionedAccount(accountToBeUpdated.version(), AccountResponse.of(accountToBeUpdated)));
+        }, getExceptionHandler(id, applied));
+        return applied;
+    }
+
     public void createWithdrawal(Context context) {
         final var accountId = AccountId.fromString(context.pathParam("id"));
-        final var withdrawalRequest = context.bodyAsClass(WithdrawalRequest.class);
+        final var withdrawalRequest = wireFormat.read(context, WithdrawalRequest.class);
+        if (!cluster.isLocal(accountId)) {
+            forwardWrite(context, accountId, Opcode.CREATE_WITHDRAWAL, new CreateWithdrawal(accountId, withdrawalRequest, context.header(IDEMPOTENCY_KEY)));
+            return;
+        }
 
+        if (isFirstAttempt(context, accountId, withdrawalRequest)) {
+            createWithdrawal(accountId, withdrawalRequest);
+        }
+        context.status(204);
+    }
+
+    /*
+     * Requests carrying an Idempotency-Key which was already accepted for the same account and same request are
+     * retries, they get original response without going to the shard again.
+     */
+    boolean isFirstAttempt(Context context, AccountId accountId, Object request) {
+        final var firstAttempt = isFirstAttempt(accountId, context.header(IDEMPOTENCY_KEY), request);
+        if (!firstAttempt) {
+            context.header("Idempotent-Replayed", "true");
+        }
+        return firstAttempt;
+    }
+
+    //    idempotencyKey is null when request did not carry one
+    boolean isFirstAttempt(AccountId accountId, String idempotencyKey, Object request) {
+        if (idempotencyKey == null) {
+            return true;
+        }
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_IDEMPOTENCY_KEY_LENGTH) {
+            throw new BadRequestException("%s must be 1 to %d characters long".formatted(IDEMPOTENCY_KEY, MAX_IDEMPOTENCY_KEY_LENGTH));
+        }
+        return switch (idempotencyCache.claim(accountId, idempotencyKey, request)) {
+            case FIRST -> true;
+            case REPLAY -> false;
+            case CONFLICT ->
+                    throw new DuplicateException("%s %s was already used for a different request".formatted(IDEMPOTENCY_KEY, idempotencyKey));
+        };
+    }
+
+    private void forwardWrite(Context context, AccountId accountId, Opcode opcode, Object message) {
+        context.future(() -> cluster.forward(accountId, opcode, message, Accepted.class)
+                .thenAccept(accepted -> {
+                    if (accepted.replayed()) {
+                        context.header("Idempotent-Replayed", "true");
+                    }
+                    context.status(204);
+                }));
+    }
+
+    /*
+     * Streams and long polls wait for changes on the shard owning the account, they are not forwarded, client is
+     * pointed to the owner instead.
+     */
+    private void requireOwnerForStreaming(Context context, AccountId accountId) {
+        if (context.path().endsWith("/events") || context.queryParam("sinceVersion") != null) {
+            final var owner = cluster.owner(accountId);
+            throw new MisdirectedRequestException("Account %s is served by node %s".formatted(accountId, owner.id()), owner.httpAddress().toString());
+        }
+    }
+
+    //    Completes with withdrawal as it is once handed to external system, ERROR when balance did not cover it
+    CompletableFuture<WithdrawalResponse> createWithdrawal(AccountId accountId, WithdrawalRequest withdrawalRequest) {
+        final var acceptedAt = lifecycleTracker.now();
+        final var created = new CompletableFuture<WithdrawalResponse>();
         accountOperationManager.doAccountOperationAsync(accountId, (Account accountToBeUpdated) -> {
 
 //            Create withdrawal with in internal System
             var withdrawalId = accountToBeUpdated.withdraw(withdrawalRequest.address(), withdrawalRequest.amount());
-//            Create withdrawal with in external system
-            AccountWithdrawalRequest accountWithdrawalRequest = new AccountWithdrawalRequest(
-                    accountId,
-                    withdrawalId,
-                    WithdrawalService.Address.fromString(withdrawalRequest.address()),
-                    withdrawalRequest.amount()
-            );
-            externalWithdrawalManager.withdraw(accountWithdrawalRequest, this::updateWithdrawalStatus);
+            lifecycleTracker.applied(accountId, withdrawalId, acceptedAt);
+            final var withdrawal = accountToBeUpdated.withdrawal(withdrawalId);
+//            Rejected by balance check, nothing is locked and there is nothing to pay out
+            if (withdrawal.status() != WithdrawalStatus.ERROR) {
+//                Create withdrawal with in external system
+                AccountWithdrawalRequest accountWithdrawalRequest = new AccountWithdrawalRequest(
+                        accountId,
+                        withdrawalId,
+                        WithdrawalService.Address.fromString(withdrawalRequest.address()),
+                        withdrawalRequest.amount()
+                );
+                externalWithdrawalManager.withdraw(accountWithdrawalRequest, this::updateWithdrawalStatus);
+            }
+            created.complete(new WithdrawalResponse(withdrawal.withdrawalId(), withdrawal.status(), withdrawal.amount(), withdrawal.message()));
 
-        }, getExceptionHandler(accountId));
-
-
-        context.status(204);
+        }, getExceptionHandler(accountId, created));
+        return created;
     }
 
     @NotNull
@@ -83,21 +223,105 @@ public class Accounts {
         return (Exception ex) -> {
 //            More sophisticated error handling can be done here, i.e. add to deadletter queue etc
 //            For now i am just reporting it to logs.
-            logger.error("Unable to add funds for account %s".formatted(accountId), ex);
+            logger.error("Unable to add funds for account {}", accountId, ex);
         };
     }
 
+    private Consumer<Exception> getExceptionHandler(AccountId accountId, CompletableFuture<?> outcome) {
+        final var exceptionHandler = getExceptionHandler(accountId);
+        return (Exception ex) -> {
+            exceptionHandler.accept(ex);
+            outcome.completeExceptionally(ex);
+        };
+    }
+
+    public void recoverPendingWithdrawals() {
+        externalWithdrawalManager.recover(this::updateWithdrawalStatus);
+    }
+
+    //    Withdrawals of a primary this node has been promoted over
+    public void takeOverWithdrawals(Collection<AccountWithdrawalRequest> inFlight) {
+        externalWithdrawalManager.takeOver(inFlight, this::updateWithdrawalStatus);
+    }
+
     private void updateWithdrawalStatus(AccountWithdrawalRequest accountWithdrawalRequest, WithdrawalStatus withdrawalStatus) {
-        accountOperationManager.doAccountOperationAsync(accountWithdrawalRequest.accountId(),
+//        Completion lane, releasing locked balance must not wait behind new withdrawals of the shard
+        accountOperationManager.doAccountOperationAsync(accountWithdrawalRequest.accountId(), Lane.COMPLETION,
                 (Account accountToBeUpdated) -> accountToBeUpdated.updateWithdrawalStatus(accountWithdrawalRequest.withdrawalId(), withdrawalStatus), getExceptionHandler(accountWithdrawalRequest.accountId())
         );
     }
 
     public void getWithdrawalStatus(Context context) {
         final var accountId = AccountId.fromString(context.pathParam("id"));
-        final var withdrawal = accountOperationManager.getWithdrawalStatus(accountId);
+        if (!cluster.isLocal(accountId)) {
+            context.future(() -> cluster.forward(accountId, Opcode.GET_WITHDRAWALS, new GetAccount(accountId), VersionedWithdrawals.class)
+                    .thenAccept(remote -> writeVersioned(context, remote.version(), remote::withdrawals)));
+            return;
+        }
+        final var account = accountOperationManager.getAccount(accountId);
+
+        respondWithVersion(context, account, () -> accountOperationManager.getWithdrawalStatus(accountId));
+    }
+
+    public void getWithdrawalStats(Context context) {
+        final var accountId = AccountId.fromString(context.pathParam("id"));
+        if (!cluster.isLocal(accountId)) {
+            context.future(() -> cluster.forward(accountId, Opcode.GET_WITHDRAWAL_STATS, new GetAccount(accountId), VersionedWithdrawalStats.class)
+                    .thenAccept(remote -> writeVersioned(context, remote.version(), remote::stats)));
+            return;
+        }
+        final var account = accountOperationManager.getAccount(accountId);
+
+        respondWithVersion(context, account, () -> WithdrawalStatsResponse.of(account.withdrawalStats()));
+    }
+
+    /*
+     * Account version is exposed as ETag, so pollers sending If-None-Match get 304 without body while nothing changed.
+     * With ?sinceVersion=N request is parked (without holding a thread) until account moves past version N or
+     * ?timeoutMs expires, in which case it is answered with 304 as well.
+     */
+    private void respondWithVersion(Context context, Account account, Supplier<Object> body) {
+        final var sinceVersion = longQueryParam(context, "sinceVersion", -1);
+        if (sinceVersion < 0 || account.version() > sinceVersion) {
+            writeVersioned(context, account.version(), body);
+            return;
+        }
+        final var timeout = Duration.ofMillis(Math.min(longQueryParam(context, "timeoutMs", DEFAULT_LONG_POLL_MILLIS), MAX_LONG_POLL_MILLIS));
+        context.future(() -> accountVersionWatcher.awaitChange(account, sinceVersion, timeout)
+                .thenAccept(changed -> {
+                    if (changed) {
+                        writeVersioned(context, account.version(), body);
+                    } else {
+                        context.header("ETag", etag(account.version())).status(304);
+                    }
+                }));
+    }
 
-        context.json(withdrawal).status(200);
+    //    Version must be read before body, so at worst ETag is older than body and client just gets full body once more
+    private void writeVersioned(Context context, long version, Supplier<Object> body) {
+        final var etag = etag(version);
+        context.header("ETag", etag).header("Vary", "Accept");
+        if (etag.equals(context.header("If-None-Match"))) {
+            context.status(304);
+            return;
+        }
+        wireFormat.write(context.status(200), body.get());
+    }
+
+    private static String etag(long version) {
+        return "\"%d\"".formatted(version);
+    }
+
+    private static long longQueryParam(Context context, String name, long defaultValue) {
+        final var value = context.queryParam(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException ex) {
+            throw new BadRequestException("Query parameter %s must be a number".formatted(name));
+        }
     }
 
 
@@ -0,0 +1,193 @@
+package com.neverless.resources;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.neverless.cluster.Cluster;
+import com.neverless.cluster.Messages.AddFunds;
+import com.neverless.cluster.Messages.AppliedWithdrawal;
+import com.neverless.cluster.Messages.CreateWithdrawal;
+import com.neverless.cluster.Messages.GetAccount;
+import com.neverless.cluster.Messages.VersionedAccount;
+import com.neverless.cluster.Opcode;
+import com.neverless.exceptions.BadRequestException;
+import com.neverless.exceptions.NotFoundException;
+import com.neverless.exceptions.TooManyRequestsException;
+import com.neverless.exceptions.UnavailableException;
+import com.neverless.processing.AccountOperationManager;
+import com.neverless.resources.Accounts.AccountResponse;
+import com.neverless.resources.dtos.AddFundRequest;
+import com.neverless.resources.dtos.BulkAccountRequest;
+import com.neverless.resources.dtos.BulkFundRequest;
+import com.neverless.resources.dtos.BulkItemResult;
+import com.neverless.resources.dtos.BulkWithdrawalRequest;
+import io.javalin.http.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+
+/*
+ * Bulk variants of Accounts endpoints. Request and response bodies are NDJSON (one json document per line), each
+ * request line is parsed and handed to the shards as soon as it is read, and its result is written back once the shard
+ * applied it: account after funds were added, id of created withdrawal or why it was rejected. Results are written in
+ * order of request lines, at most MAX_LINES_IN_FLIGHT lines wait for theirs, so neither request nor response is ever
+ * held in memory as a whole.
+ *
+ * Lines of accounts owned by another node are forwarded to it one by one, Idempotency-Key does not apply to bulk lines.
+ * Per account rate limit applies to every line which changes an account, a line over it gets 429.
+ */
+public class BulkAccounts {
+    static final String NDJSON = "application/x-ndjson";
+    private static final int MAX_LINES_IN_FLIGHT = 256;
+
+    private final Accounts accounts;
+    private final AccountOperationManager accountOperationManager;
+    private final Cluster cluster;
+    private final RateLimits rateLimits;
+    //    Readers and writer are immutable and thread safe, building them once saves Jackson a lookup per line
+    private final ObjectReader fundRequestReader;
+    private final ObjectReader withdrawalRequestReader;
+    private final ObjectReader accountRequestReader;
+    private final ObjectWriter resultWriter;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    public BulkAccounts(Accounts accounts, AccountOperationManager accountOperationManager, Cluster cluster, RateLimits rateLimits, ObjectMapper objectMapper) {
+        this.accounts = accounts;
+        this.accountOperationManager = accountOperationManager;
+        this.cluster = cluster;
+        this.rateLimits = rateLimits;
+        this.fundRequestReader = objectMapper.readerFor(BulkFundRequest.class);
+        this.withdrawalRequestReader = objectMapper.readerFor(BulkWithdrawalRequest.class);
+        this.accountRequestReader = objectMapper.readerFor(BulkAccountRequest.class);
+        this.resultWriter = objectMapper.writerFor(BulkItemResult.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    public void addFunds(Context context) throws IOException {
+        processLines(context, fundRequestReader, (long line, BulkFundRequest request) -> {
+            if (request.accountId() == null || request.amount() == null || request.amount() <= 0) {
+                return completedFuture(BulkItemResult.failed(line, request.accountId(), 400, "AccountId and positive amount are required"));
+            }
+            if (!cluster.isLocal(request.accountId())) {
+//                Owner validates forwarded lines itself, same as single requests forwarded to it
+                rateLimits.limitAccount(request.accountId());
+                return cluster.forward(request.accountId(), Opcode.APPLY_FUNDS,
+                                new AddFunds(request.accountId(), new AddFundRequest(request.amount()), null), VersionedAccount.class)
+                        .thenApply(applied -> BulkItemResult.found(line, applied.account()));
+            }
+            accountOperationManager.validateAccountId(request.accountId());
+            rateLimits.limitAccount(request.accountId());
+            return accounts.addFunds(request.accountId(), request.amount())
+                    .thenApply(applied -> BulkItemResult.found(line, applied.account()));
+        });
+    }
+
+    public void createWithdrawals(Context context) throws IOException {
+        processLines(context, withdrawalRequestReader, (long line, BulkWithdrawalRequest request) -> {
+            if (request.accountId() == null || request.address() == null || request.amount() == null || request.amount() <= 0) {
+                return completedFuture(BulkItemResult.failed(line, request.accountId(), 400, "AccountId, address and positive amount are required"));
+            }
+            if (!cluster.isLocal(request.accountId())) {
+//                Owner validates forwarded lines itself, same as single requests forwarded to it
+                rateLimits.limitAccount(request.accountId());
+                return cluster.forward(request.accountId(), Opcode.APPLY_WITHDRAWAL,
+                                new CreateWithdrawal(request.accountId(), request.toWithdrawalRequest(), null), AppliedWithdrawal.class)
+                        .thenApply(applied -> BulkItemResult.withdrawal(line, request.accountId(), applied.withdrawal()));
+            }
+            accountOperationManager.validateAccountId(request.accountId());
+            rateLimits.limitAccount(request.accountId());
+            return accounts.createWithdrawal(request.accountId(), request.toWithdrawalRequest())
+                    .thenApply(withdrawal -> BulkItemResult.withdrawal(line, request.accountId(), withdrawal));
+        });
+    }
+
+    public void getAccounts(Context context) throws IOException {
+        processLines(context, accountRequestReader, (long line, BulkAccountRequest request) -> {
+            if (request.accountId() == null) {
+                return completedFuture(BulkItemResult.failed(line, null, 400, "AccountId is required"));
+            }
+            if (!cluster.isLocal(request.accountId())) {
+                return cluster.forward(request.accountId(), Opcode.GET_ACCOUNT, new GetAccount(request.accountId()), VersionedAccount.class)
+                        .thenApply(remote -> BulkItemResult.found(line, remote.account()));
+            }
+            return completedFuture(BulkItemResult.found(line, AccountResponse.of(accountOperationManager.getAccount(request.accountId()))));
+        });
+    }
+
+    private <T> void processLines(Context context, ObjectReader reader, LineHandler<T> handler) throws IOException {
+        context.status(200).contentType(NDJSON);
+        try (BufferedReader requestBody = new BufferedReader(new InputStreamReader(context.bodyInputStream(), UTF_8));
+             OutputStream responseBody = new BufferedOutputStream(context.outputStream())) {
+            long lineNumber = 0;
+            String line;
+//            Results of lines still being applied, in order of lines. Lines of different accounts run on different
+//            shards meanwhile, a result is written once it and all results before it are there.
+            final Deque<CompletableFuture<BulkItemResult>> inFlight = new ArrayDeque<>();
+            while ((line = requestBody.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                inFlight.addLast(handleLine(lineNumber, line, reader, handler));
+                while (!inFlight.isEmpty() && (inFlight.size() >= MAX_LINES_IN_FLIGHT || inFlight.peekFirst().isDone())) {
+                    writeResult(responseBody, inFlight.removeFirst().join());
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                writeResult(responseBody, inFlight.removeFirst().join());
+            }
+        }
+    }
+
+    private void writeResult(OutputStream responseBody, BulkItemResult result) throws IOException {
+        resultWriter.writeValue(responseBody, result);
+        responseBody.write('\n');
+    }
+
+    //    Never completes exceptionally, a failure is the result of its line
+    private <T> CompletableFuture<BulkItemResult> handleLine(long lineNumber, String line, ObjectReader reader, LineHandler<T> handler) {
+        T request;
+        try {
+            request = reader.readValue(line);
+        } catch (JsonProcessingException ex) {
+            return completedFuture(BulkItemResult.failed(lineNumber, null, 400, "Malformed line: %s".formatted(ex.getOriginalMessage())));
+        }
+        try {
+            return handler.handle(lineNumber, request).exceptionally(ex -> failed(lineNumber, ex));
+        } catch (Exception ex) {
+            return completedFuture(failed(lineNumber, ex));
+        }
+    }
+
+    private BulkItemResult failed(long lineNumber, Throwable failure) {
+        final var ex = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+        return switch (ex) {
+            case BadRequestException badRequest -> BulkItemResult.failed(lineNumber, null, 400, badRequest.getMessage());
+            case NotFoundException notFound -> BulkItemResult.failed(lineNumber, null, 404, notFound.getMessage());
+            case TooManyRequestsException tooMany -> BulkItemResult.failed(lineNumber, null, 429, tooMany.getMessage());
+            case UnavailableException unavailable -> BulkItemResult.failed(lineNumber, null, 503, unavailable.getMessage());
+            default -> {
+                logger.error("Unable to process bulk line {}", lineNumber, ex);
+                yield BulkItemResult.failed(lineNumber, null, 500, "Server Error: Unable to process this line at the moment");
+            }
+        };
+    }
+
+    @FunctionalInterface
+    private interface LineHandler<T> {
+        CompletableFuture<BulkItemResult> handle(long line, T request);
+    }
+}
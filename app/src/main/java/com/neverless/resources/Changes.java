@@ -0,0 +1,45 @@
+package com.neverless.resources;
+
+import com.neverless.changefeed.ChangeFeedReader;
+import com.neverless.exceptions.BadRequestException;
+import com.neverless.exceptions.NotFoundException;
+import io.javalin.http.Context;
+
+/*
+ * Change feed over http for readers which can not read its files. Served from the files like any other reader, so
+ * it neither goes through shards nor slows the writer down. Clients continue from offset of the last line plus one.
+ */
+public class Changes {
+    private static final int MAX_LIMIT = 10_000;
+
+    private final ChangeFeedReader reader;
+
+    //    reader is null when change feed is off
+    public Changes(ChangeFeedReader reader) {
+        this.reader = reader;
+    }
+
+    public void getChanges(Context context) {
+        if (reader == null) {
+            throw new NotFoundException("Change feed is not enabled");
+        }
+        final var fromOffset = longQueryParam(context, "fromOffset", 0);
+        final var limit = longQueryParam(context, "limit", 1000);
+        if (fromOffset < 0 || limit < 1 || limit > MAX_LIMIT) {
+            throw new BadRequestException("fromOffset must not be negative and limit has to be between 1 and %d".formatted(MAX_LIMIT));
+        }
+        context.status(200).contentType(BulkAccounts.NDJSON).result(String.join("", reader.read(fromOffset, (int) limit)));
+    }
+
+    private static long longQueryParam(Context context, String name, long defaultValue) {
+        final var value = context.queryParam(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException ex) {
+            throw new BadRequestException("Query parameter %s must be a number".formatted(name));
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.neverless.resources;
+
+import com.neverless.cluster.Cluster;
+import com.neverless.cluster.Messages.Accepted;
+import com.neverless.cluster.Messages.AddFunds;
+import com.neverless.cluster.Messages.AppliedWithdrawal;
+import com.neverless.cluster.Messages.CreateAccount;
+import com.neverless.cluster.Messages.CreateWithdrawal;
+import com.neverless.cluster.Messages.GetAccount;
+import com.neverless.cluster.Messages.VersionedAccount;
+import com.neverless.cluster.Messages.VersionedWithdrawalStats;
+import com.neverless.cluster.Messages.VersionedWithdrawals;
+import com.neverless.cluster.Opcode;
+import com.neverless.cluster.RequestHandler;
+import com.neverless.processing.AccountOperationManager;
+import com.neverless.resources.Accounts.AccountResponse;
+import com.neverless.resources.dtos.WithdrawalStatsResponse;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/*
+ * Owner side of forwarded requests, runs same operations as Accounts endpoints do for local accounts.
+ */
+class ClusterEndpoint implements RequestHandler {
+    private final Accounts accounts;
+    private final AccountOperationManager accountOperationManager;
+    private final Cluster cluster;
+
+    ClusterEndpoint(Accounts accounts, AccountOperationManager accountOperationManager, Cluster cluster) {
+        this.accounts = accounts;
+        this.accountOperationManager = accountOperationManager;
+        this.cluster = cluster;
+    }
+
+    @Override
+    public byte[] handle(Opcode opcode, byte[] payload) throws IOException {
+        return cluster.write(switch (opcode) {
+            case CREATE_ACCOUNT -> {
+                final var message = cluster.read(payload, CreateAccount.class);
+                final var account = accountOperationManager.createAccount(message.accountId());
+                yield new VersionedAccount(account.version(), AccountResponse.of(account));
+            }
+            case ADD_FUNDS -> {
+                final var message = cluster.read(payload, AddFunds.class);
+                accountOperationManager.validateAccountId(message.accountId());
+                final var firstAttempt = accounts.isFirstAttempt(message.accountId(), message.idempotencyKey(), message.request());
+                if (firstAttempt) {
+                    accounts.addFunds(message.accountId(), message.request().amount());
+                }
+                yield new Accepted(!firstAttempt);
+            }
+            case CREATE_WITHDRAWAL -> {
+                final var message = cluster.read(payload, CreateWithdrawal.class);
+                accountOperationManager.validateAccountId(message.accountId());
+                final var firstAttempt = accounts.isFirstAttempt(message.accountId(), message.idempotencyKey(), message.request());
+                if (firstAttempt) {
+                    accounts.createWithdrawal(message.accountId(), message.request());
+                }
+                yield new Accepted(!firstAttempt);
+            }
+            case APPLY_FUNDS -> {
+                final var message = cluster.read(payload, AddFunds.class);
+                accountOperationManager.validateAccountId(message.accountId());
+                yield join(accounts.addFunds(message.accountId(), message.request().amount()));
+            }
+            case APPLY_WITHDRAWAL -> {
+                final var message = cluster.read(payload, CreateWithdrawal.class);
+                accountOperationManager.validateAccountId(message.accountId());
+                yield new AppliedWithdrawal(join(accounts.createWithdrawal(message.accountId(), message.request())));
+            }
+            case GET_ACCOUNT -> {
+                final var account = accountOperationManager.getAccount(cluster.read(payload, GetAccount.class).accountId());
+//                Version first, same as for local reads
+                final var version = account.version();
+                yield new VersionedAccount(version, AccountResponse.of(account));
+            }
+            case GET_WITHDRAWALS -> {
+                final var accountId = cluster.read(payload, GetAccount.class).accountId();
+                final var version = accountOperationManager.getAccount(accountId).version();
+                yield new VersionedWithdrawals(version, accountOperationManager.getWithdrawalStatus(accountId));
+            }
+            case GET_WITHDRAWAL_STATS -> {
+                final var account = accountOperationManager.getAccount(cluster.read(payload, GetAccount.class).accountId());
+                final var version = account.version();
+                yield new VersionedWithdrawalStats(version, WithdrawalStatsResponse.of(account.withdrawalStats()));
+            }
+        });
+    }
+
+    //    Every forwarded request has its own virtual thread, waiting for the shard does not hold up the others
+    private static <T> T join(CompletableFuture<T> outcome) {
+        try {
+            return outcome.join();
+        } catch (CompletionException ex) {
+            throw ex.getCause() instanceof RuntimeException cause ? cause : ex;
+        }
+    }
+}
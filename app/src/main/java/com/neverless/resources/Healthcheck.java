@@ -3,8 +3,20 @@ package com.neverless.resources;
 import io.javalin.http.Context;
 
 public class Healthcheck {
+    //    Http port is open while application warms up, load balancer should not send traffic yet
+    private volatile boolean ready;
+
     public void check(Context ctx) {
+        if (!ready) {
+            ctx.status(503);
+            ctx.result("WARMING_UP");
+            return;
+        }
         ctx.status(200);
         ctx.result("OK");
     }
+
+    void ready() {
+        ready = true;
+    }
 }
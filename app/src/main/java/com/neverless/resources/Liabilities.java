@@ -0,0 +1,52 @@
+package com.neverless.resources;
+
+import com.neverless.processing.AccountOperationManager;
+import com.neverless.processing.AccountOperationManager.ShardReconciliation;
+import com.neverless.processing.LiabilityTotals;
+import com.neverless.resources.dtos.ReconciliationResponse;
+import com.neverless.resources.dtos.ReconciliationResponse.ShardDrift;
+import io.javalin.http.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/*
+ * Totals of this node's accounts. In cluster mode every node reports its own accounts only.
+ */
+public class Liabilities {
+    private final AccountOperationManager accountOperationManager;
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    public Liabilities(AccountOperationManager accountOperationManager) {
+        this.accountOperationManager = accountOperationManager;
+    }
+
+    public void getTotals(Context context) {
+        context.json(accountOperationManager.liabilityTotals());
+    }
+
+    public void reconcile(Context context) {
+        context.future(() -> accountOperationManager.reconcileLiabilities()
+                .thenAccept(shards -> context.json(response(shards))));
+    }
+
+    private ReconciliationResponse response(List<ShardReconciliation> shards) {
+        var running = new LiabilityTotals(0, 0);
+        var scanned = new LiabilityTotals(0, 0);
+        long accounts = 0;
+        for (ShardReconciliation shard : shards) {
+            running = running.plus(shard.running());
+            scanned = scanned.plus(shard.scanned());
+            accounts += shard.accounts();
+        }
+        final var drifting = shards.stream()
+                .filter(shard -> !shard.isConsistent())
+                .map(shard -> new ShardDrift(shard.shard(), shard.accounts(), shard.running(), shard.scanned()))
+                .toList();
+        if (!drifting.isEmpty()) {
+            logger.warn("Liability totals drifted from accounts on shards {}", drifting);
+        }
+        return new ReconciliationResponse(drifting.isEmpty(), accounts, running, scanned, scanned.minus(running), drifting);
+    }
+}
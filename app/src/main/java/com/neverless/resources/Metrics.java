@@ -0,0 +1,66 @@
+package com.neverless.resources;
+
+import com.neverless.metrics.Histogram;
+import com.neverless.metrics.MetricsRegistry;
+import io.javalin.http.Context;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Per endpoint latency and request counts, plus the /metrics endpoint that exposes everything registered in
+ * MetricsRegistry in Prometheus text format.
+ *
+ * Endpoints are labelled by route pattern (/accounts/{id}), not by actual path, so number of series stays bounded.
+ * Requests of startup warm up are not counted.
+ */
+public class Metrics {
+    private static final String STARTED_AT = "metrics.startedAt";
+    private static final String UNMATCHED = "unmatched";
+
+    private final MetricsRegistry registry;
+    private final Map<String, Histogram> latencies = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> requests = new ConcurrentHashMap<>();
+
+    public Metrics(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void start(Context context) {
+        if (WarmUpTraffic.isWarmUp(context)) {
+            return;
+        }
+        context.attribute(STARTED_AT, System.nanoTime());
+    }
+
+    public void record(Context context) {
+        Long startedAt = context.attribute(STARTED_AT);
+        if (startedAt == null) {
+            return;
+        }
+        final var method = context.method().name();
+        final var path = routeOf(context);
+        latencies.computeIfAbsent(method + " " + path, key ->
+                        registry.histogram("http_request_seconds", "Latency of HTTP requests per endpoint", "method", method, "path", path))
+                .recordSince(startedAt);
+        final var status = Integer.toString(context.statusCode());
+        requests.computeIfAbsent(method + " " + path + " " + status, key ->
+                        registry.counter("http_requests_total", "HTTP requests per endpoint and status", "method", method, "path", path, "status", status))
+                .increment();
+    }
+
+    public void scrape(Context context) {
+        context.contentType("text/plain; version=0.0.4; charset=utf-8").result(registry.scrape());
+    }
+
+    private static String routeOf(Context context) {
+        try {
+            final var path = context.endpointHandlerPath();
+            return path == null || path.isEmpty() || path.equals("*") ? UNMATCHED : path;
+        } catch (IllegalStateException ex) {
+//            No endpoint matched this request
+            return UNMATCHED;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.neverless.resources;
+
+import com.neverless.domain.AccountId;
+import com.neverless.exceptions.TooManyRequestsException;
+import com.neverless.processing.RateLimiter;
+import io.javalin.http.Context;
+import io.javalin.http.HandlerType;
+
+import java.time.Duration;
+
+/*
+ * Per client and per account limits on requests which enqueue work on the shards, checked before anything is enqueued,
+ * so one flooding client or account can not fill the shard queue it shares with other accounts. Reads do not go through
+ * shard queues and are not limited.
+ *
+ * Clients are told apart by remote ip, or behind a proxy by clientHeader which the proxy sets. Only its last entry is
+ * used, it is the one added by the proxy, entries before it come from the client and can be anything.
+ */
+public class RateLimits {
+    private final RateLimiter accountLimiter;
+    private final RateLimiter clientLimiter;
+    private final String clientHeader;
+
+    public RateLimits(RateLimiter accountLimiter, RateLimiter clientLimiter, String clientHeader) {
+        this.accountLimiter = accountLimiter;
+        this.clientLimiter = clientLimiter;
+        this.clientHeader = clientHeader;
+    }
+
+    public void limitClient(Context context) {
+        if (isWrite(context)) {
+            final var client = client(context);
+            acquire(clientLimiter, client, "Client %s".formatted(client));
+        }
+    }
+
+    //    Runs after account id is validated, so only existing accounts of this node get a bucket
+    public void limitAccount(Context context) {
+        if (isWrite(context)) {
+            limitAccount(AccountId.fromString(context.pathParam("id")));
+        }
+    }
+
+    void limitAccount(AccountId accountId) {
+        acquire(accountLimiter, accountId, "Account %s".formatted(accountId));
+    }
+
+    private String client(Context context) {
+        final var forwarded = clientHeader == null ? null : context.header(clientHeader);
+        if (forwarded == null || forwarded.isBlank()) {
+            return context.ip();
+        }
+        return forwarded.substring(forwarded.lastIndexOf(',') + 1).trim();
+    }
+
+    private static boolean isWrite(Context context) {
+//        Bulk multi get is a POST but does not enqueue anything
+        return (context.method() == HandlerType.POST || context.method() == HandlerType.PUT) && !context.path().equals("/bulk/accounts");
+    }
+
+    private static void acquire(RateLimiter limiter, Object key, String subject) {
+        final var waitNanos = limiter.tryAcquire(key);
+        if (waitNanos > 0) {
+            throw new TooManyRequestsException("%s is over its rate limit".formatted(subject), Duration.ofNanos(waitNanos));
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.neverless.resources;
+
+import com.neverless.exceptions.BadRequestException;
+import com.neverless.exceptions.UnavailableException;
+import com.neverless.processing.TransferManager;
+import com.neverless.replication.ReplicationNode;
+import com.neverless.resources.dtos.ReplicationStatusResponse;
+import io.javalin.http.Context;
+import io.javalin.http.HandlerType;
+
+import java.time.Duration;
+
+public class Replication {
+    static final String STALENESS = "Neverless-Staleness-Millis";
+
+    private final ReplicationNode replicationNode;
+    private final Accounts accounts;
+    private final TransferManager transferManager;
+    private final Duration maxStaleness;
+
+    public Replication(ReplicationNode replicationNode, Accounts accounts, TransferManager transferManager, Duration maxStaleness) {
+        this.replicationNode = replicationNode;
+        this.accounts = accounts;
+        this.transferManager = transferManager;
+        this.maxStaleness = maxStaleness;
+    }
+
+    /*
+     * Standby only serves reads, and only while it is no more than ?maxStalenessMs (default from config) behind primary.
+     */
+    public void guard(Context context) {
+        final var path = context.path();
+        if (!replicationNode.isStandby() || path.startsWith("/replication") || path.equals("/healthcheck") || path.equals("/metrics")) {
+            return;
+        }
+//        Bulk multi get is a POST but does not change anything
+        if (context.method() != HandlerType.GET && !path.equals("/bulk/accounts")) {
+            throw new UnavailableException("Node is a standby, changes are only accepted by primary");
+        }
+        final var allowed = allowedStaleness(context);
+        final var staleness = replicationNode.staleness();
+        if (!replicationNode.isSynced() || staleness.compareTo(allowed) > 0) {
+            throw new UnavailableException("Standby is %d ms behind primary, at most %d ms allowed".formatted(staleness.toMillis(), allowed.toMillis()));
+        }
+        context.header(STALENESS, Long.toString(staleness.toMillis()));
+    }
+
+    public void getStatus(Context context) {
+        context.json(status());
+    }
+
+    public void promote(Context context) {
+        final var takeOver = replicationNode.promote();
+        accounts.takeOverWithdrawals(takeOver.withdrawals());
+        transferManager.resume(takeOver.transfers());
+        context.json(status());
+    }
+
+    private ReplicationStatusResponse status() {
+        return new ReplicationStatusResponse(replicationNode.isStandby() ? "standby" : "primary", replicationNode.isSynced(),
+                replicationNode.staleness().toMillis(), replicationNode.standbys());
+    }
+
+    private Duration allowedStaleness(Context context) {
+        final var value = context.queryParam("maxStalenessMs");
+        if (value == null) {
+            return maxStaleness;
+        }
+        try {
+            return Duration.ofMillis(Long.parseLong(value));
+        } catch (NumberFormatException ex) {
+            throw new BadRequestException("Query parameter maxStalenessMs must be a number");
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.neverless.resources;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.neverless.exceptions.BadRequestException;
+import com.neverless.reports.AccountFilter;
+import com.neverless.reports.AccountRow;
+import com.neverless.reports.AccountScanner;
+import io.javalin.http.Context;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/*
+ * Back-office questions over all accounts of this node, i.e. which accounts have a balance above X or funds locked
+ * without any withdrawal in flight. Answered by AccountScanner, without going through shards. In cluster mode every
+ * node reports its own accounts only.
+ *
+ * Filters (all optional): minBalance, maxBalance, minLockedBalance, lockedWithoutWithdrawals=true.
+ */
+public class Reports {
+    private static final int MAX_LIMIT = 100_000;
+
+    private final AccountScanner accountScanner;
+    private final ObjectWriter rowWriter;
+
+    public Reports(AccountScanner accountScanner, ObjectMapper objectMapper) {
+        this.accountScanner = accountScanner;
+        this.rowWriter = objectMapper.writerFor(AccountRow.class);
+    }
+
+    //    Matching accounts as NDJSON, at most limit of them
+    public void findAccounts(Context context) {
+        final var filter = filter(context);
+        final var limit = longQueryParam(context, "limit");
+        if (limit != null && (limit < 1 || limit > MAX_LIMIT)) {
+            throw new BadRequestException("limit has to be between 1 and %d".formatted(MAX_LIMIT));
+        }
+        context.future(() -> accountScanner.find(filter, limit == null ? 1000 : limit.intValue())
+                .thenAccept(rows -> context.status(200).contentType(BulkAccounts.NDJSON).result(ndjson(rows))));
+    }
+
+    //    Counts, totals and balance distribution of matching accounts
+    public void summarize(Context context) {
+        final var filter = filter(context);
+        context.future(() -> accountScanner.summarize(filter).thenAccept(context::json));
+    }
+
+    private static AccountFilter filter(Context context) {
+        return new AccountFilter(longQueryParam(context, "minBalance"), longQueryParam(context, "maxBalance"),
+                longQueryParam(context, "minLockedBalance"), Boolean.parseBoolean(context.queryParam("lockedWithoutWithdrawals")));
+    }
+
+    private String ndjson(List<AccountRow> rows) {
+        final var result = new StringBuilder();
+        try {
+            for (AccountRow row : rows) {
+                result.append(rowWriter.writeValueAsString(row)).append('\n');
+            }
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return result.toString();
+    }
+
+    private static Long longQueryParam(Context context, String name) {
+        final var value = context.queryParam(name);
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException ex) {
+            throw new BadRequestException("Query parameter %s must be a number".formatted(name));
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.neverless.resources;
+
+import io.javalin.http.Context;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * Replaces Javalin's dev logging, which logs every request with headers and body. Only a sample of requests is
+ * logged, server errors always are, so there is a trace of traffic without paying for it on every request.
+ * Nothing is allocated for requests which are not logged. Requests of startup warm up are never logged.
+ */
+public class RequestLog {
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+    private final double sampleRate;
+
+    public RequestLog(double sampleRate) {
+        this.sampleRate = sampleRate;
+    }
+
+    public void log(Context ctx, Float executionTimeMs) {
+        if (WarmUpTraffic.isWarmUp(ctx)) {
+            return;
+        }
+        final var status = ctx.statusCode();
+        if (status >= 500) {
+            logger.warn("{} {} answered {} in {} ms", ctx.method(), ctx.path(), status, executionTimeMs);
+            return;
+        }
+        if (sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate && logger.isInfoEnabled()) {
+            logger.info("{} {} answered {} in {} ms", ctx.method(), ctx.path(), status, executionTimeMs);
+        }
+    }
+}
@@ -1,33 +1,128 @@
 package com.neverless.resources;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neverless.changefeed.ChangeFeedReader;
+import com.neverless.cluster.Cluster;
+import com.neverless.cluster.RequestHandler;
+import com.neverless.exceptions.BadRequestException;
 import com.neverless.exceptions.DuplicateException;
+import com.neverless.exceptions.MisdirectedRequestException;
 import com.neverless.exceptions.NotFoundException;
+import com.neverless.exceptions.TooManyRequestsException;
+import com.neverless.exceptions.UnavailableException;
+import com.neverless.metrics.MetricsRegistry;
 import com.neverless.processing.AccountOperationManager;
+import com.neverless.processing.AccountVersionWatcher;
 import com.neverless.processing.ExternalWithdrawalManager;
+import com.neverless.processing.IdempotencyCache;
+import com.neverless.processing.TransferManager;
+import com.neverless.processing.WithdrawalEventBroadcaster;
+import com.neverless.processing.WithdrawalLifecycleTracker;
+import com.neverless.replication.ReplicationNode;
+import com.neverless.reports.AccountScanner;
+import com.neverless.resources.serialization.Serializers;
+import com.neverless.resources.serialization.WireFormat;
 import io.javalin.router.JavalinDefaultRouting;
 
+import java.time.Duration;
+
 public class Resources {
     private final Healthcheck healthcheck;
     private final Accounts accounts;
+    private final BulkAccounts bulkAccounts;
+    private final WithdrawalEvents withdrawalEvents;
+    private final Metrics metrics;
+    private final WithdrawalLatency withdrawalLatency;
+    private final ClusterEndpoint clusterEndpoint;
+    private final Replication replication;
+    private final Transfers transfers;
+    private final RateLimits rateLimits;
+    private final Liabilities liabilities;
+    private final Changes changes;
+    private final Reports reports;
 
-    public Resources(AccountOperationManager accountOperationManager, ExternalWithdrawalManager externalWithdrawalManager) {
+    public Resources(AccountOperationManager accountOperationManager, ExternalWithdrawalManager externalWithdrawalManager, ObjectMapper objectMapper,
+                     AccountVersionWatcher accountVersionWatcher, WithdrawalEventBroadcaster withdrawalEventBroadcaster,
+                     IdempotencyCache idempotencyCache, MetricsRegistry metricsRegistry, WithdrawalLifecycleTracker lifecycleTracker,
+                     Cluster cluster, ReplicationNode replicationNode, Duration maxStandbyStaleness, TransferManager transferManager,
+                     RateLimits rateLimits, ChangeFeedReader changeFeedReader, AccountScanner accountScanner) {
         healthcheck = new Healthcheck();
-        accounts = new Accounts(accountOperationManager, externalWithdrawalManager);
+        final var wireFormat = new WireFormat(objectMapper, Serializers.cbor());
+        accounts = new Accounts(accountOperationManager, externalWithdrawalManager, wireFormat, accountVersionWatcher,
+                idempotencyCache, lifecycleTracker, cluster);
+        transfers = new Transfers(accountOperationManager, transferManager, accounts, wireFormat, cluster);
+        bulkAccounts = new BulkAccounts(accounts, accountOperationManager, cluster, rateLimits, objectMapper);
+        withdrawalEvents = new WithdrawalEvents(withdrawalEventBroadcaster);
+        metrics = new Metrics(metricsRegistry);
+        withdrawalLatency = new WithdrawalLatency(lifecycleTracker);
+        clusterEndpoint = new ClusterEndpoint(accounts, accountOperationManager, cluster);
+        replication = new Replication(replicationNode, accounts, transferManager, maxStandbyStaleness);
+        this.rateLimits = rateLimits;
+        liabilities = new Liabilities(accountOperationManager);
+        changes = new Changes(changeFeedReader);
+        reports = new Reports(accountScanner, objectMapper);
+    }
+
+    public void recoverPendingWithdrawals() {
+        accounts.recoverPendingWithdrawals();
+    }
+
+    //    Healthcheck reports OK from now on
+    public void ready() {
+        healthcheck.ready();
+    }
+
+    //    Handles requests other nodes forward for accounts owned by this node
+    public RequestHandler clusterHandler() {
+        return clusterEndpoint;
     }
 
     public void register(JavalinDefaultRouting router) {
+        router.exception(BadRequestException.class, (ex, ctx) -> ctx.status(400).json(new HttpError(ex.getMessage())));
         router.exception(NotFoundException.class, (ex, ctx) -> ctx.status(404).json(new HttpError(ex.getMessage())));
         router.exception(DuplicateException.class, (ex, ctx) -> ctx.status(409).json(new HttpError(ex.getMessage())));
+        router.exception(MisdirectedRequestException.class, (ex, ctx) -> ctx.status(421).header("Neverless-Owner", ex.owner()).json(new HttpError(ex.getMessage())));
+        router.exception(TooManyRequestsException.class, (ex, ctx) -> ctx.status(429)
+                .header("Retry-After", Long.toString(Math.max(1, (ex.retryAfter().toMillis() + 999) / 1000)))
+                .json(new HttpError(ex.getMessage())));
+        router.exception(UnavailableException.class, (ex, ctx) -> ctx.status(503).json(new HttpError(ex.getMessage())));
         router.exception(Exception.class, (ex, ctx) -> ctx.status(500).json(new HttpError("Server Error: Unable to process your request at the moment")));
 
+        router.before(metrics::start);
+        router.after(metrics::record);
+        router.before(replication::guard);
+        router.before(rateLimits::limitClient);
         router.before("/accounts/{id}/*", accounts::validateAccountId);
+        router.before("/accounts/{id}/*", rateLimits::limitAccount);
 
         router.get("/healthcheck", healthcheck::check);
+        router.get("/metrics", metrics::scrape);
         router.get("/accounts/{id}", accounts::getAccount);
 //        Caller can send money from their account to an external withdrawal address through an API
         router.post("/accounts/{id}/withdrawals", accounts::createWithdrawal);
 //        Caller can see operation/withdrawals progress
         router.get("/accounts/{id}/withdrawals", accounts::getWithdrawalStatus);
+//        Counts and amounts of withdrawals per status, without going through withdrawals
+        router.get("/accounts/{id}/stats", accounts::getWithdrawalStats);
+//        Moves funds to another account of this service, without going through external withdrawal service
+        router.post("/accounts/{id}/transfers", transfers::createTransfer);
+        router.get("/accounts/{id}/transfers", transfers::getTransfers);
+//        Caller can be pushed withdrawal status transitions instead of polling, per account or for all accounts (back-office)
+        router.sse("/accounts/{id}/withdrawals/events", withdrawalEvents::streamAccount);
+        router.sse("/withdrawals/events", withdrawalEvents::streamAll);
+//        How long withdrawals keep funds locked, per stage, and the latest ones which were slow in any stage
+        router.get("/withdrawals/latency", withdrawalLatency::getLatency);
+//        Total balance and locked balance of all accounts for treasury, and a check of those totals against accounts
+        router.get("/liabilities", liabilities::getTotals);
+        router.get("/liabilities/reconciliation", liabilities::reconcile);
+//        Every balance change and withdrawal/transfer transition as NDJSON, by offset, for analytics and reconciliation jobs
+        router.get("/changes", changes::getChanges);
+//        Back-office reports over all accounts, filtered list (NDJSON) and aggregate, scanned in parallel off the shards
+        router.get("/reports/accounts", reports::findAccounts);
+        router.get("/reports/summary", reports::summarize);
+//        Role of this node, and promotion of a standby to primary once its primary is gone
+        router.get("/replication", replication::getStatus);
+        router.post("/replication/promote", replication::promote);
 
 //        Created following endpoints to make sure i can test it and system can work functionally
 //        Service to create an account
@@ -35,6 +130,11 @@ public class Resources {
 //        Service to add funds to account
         router.put("/accounts/{id}/funds", accounts::addFunds);
 
+//        Bulk (NDJSON) variants for upstream batch jobs, kept out of /accounts/{id}/* so they skip per account validation filter
+        router.post("/bulk/funds", bulkAccounts::addFunds);
+        router.post("/bulk/withdrawals", bulkAccounts::createWithdrawals);
+        router.post("/bulk/accounts", bulkAccounts::getAccounts);
+
 
     }
 
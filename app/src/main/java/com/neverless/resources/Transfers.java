@@ -0,0 +1,72 @@
+package com.neverless.resources;
+
+import com.neverless.cluster.Cluster;
+import com.neverless.domain.AccountId;
+import com.neverless.exceptions.BadRequestException;
+import com.neverless.exceptions.MisdirectedRequestException;
+import com.neverless.processing.AccountOperationManager;
+import com.neverless.processing.TransferManager;
+import com.neverless.resources.dtos.TransferRequest;
+import com.neverless.resources.serialization.WireFormat;
+import io.javalin.http.Context;
+
+/*
+ * Internal transfers between two accounts, see TransferManager. Accepted transfers show up in
+ * GET /accounts/{id}/transfers of both accounts.
+ */
+public class Transfers {
+    private final AccountOperationManager accountOperationManager;
+    private final TransferManager transferManager;
+    private final Accounts accounts;
+    private final WireFormat wireFormat;
+    private final Cluster cluster;
+
+    public Transfers(AccountOperationManager accountOperationManager, TransferManager transferManager, Accounts accounts, WireFormat wireFormat,
+                     Cluster cluster) {
+        this.accountOperationManager = accountOperationManager;
+        this.transferManager = transferManager;
+        this.accounts = accounts;
+        this.wireFormat = wireFormat;
+        this.cluster = cluster;
+    }
+
+    public void createTransfer(Context context) {
+        final var from = AccountId.fromString(context.pathParam("id"));
+        final var transferRequest = wireFormat.read(context, TransferRequest.class);
+        if (transferRequest.toAccountId() == null || transferRequest.amount() == null || transferRequest.amount() <= 0) {
+            throw new BadRequestException("toAccountId and positive amount are required");
+        }
+        if (transferRequest.toAccountId().equals(from)) {
+            throw new BadRequestException("Transfer to the same account is not allowed");
+        }
+        requireSameNode(from, transferRequest.toAccountId());
+        accountOperationManager.validateAccountId(transferRequest.toAccountId());
+
+        if (accounts.isFirstAttempt(context, from, transferRequest)) {
+            transferManager.transfer(from, transferRequest.toAccountId(), transferRequest.amount(), transfer -> {
+            });
+        }
+        context.status(204);
+    }
+
+    public void getTransfers(Context context) {
+        final var accountId = AccountId.fromString(context.pathParam("id"));
+        if (!cluster.isLocal(accountId)) {
+            final var owner = cluster.owner(accountId);
+            throw new MisdirectedRequestException("Account %s is served by node %s".formatted(accountId, owner.id()), owner.httpAddress().toString());
+        }
+        wireFormat.write(context.status(200), accountOperationManager.getTransfers(accountId));
+    }
+
+    //    Both legs have to run on shards of this node, transfers across nodes are not supported
+    private void requireSameNode(AccountId from, AccountId to) {
+        if (cluster.isLocal(from) && cluster.isLocal(to)) {
+            return;
+        }
+        final var owner = cluster.owner(from);
+        if (!owner.equals(cluster.owner(to))) {
+            throw new BadRequestException("Accounts %s and %s are served by different nodes, transfer between them is not supported".formatted(from, to));
+        }
+        throw new MisdirectedRequestException("Accounts %s and %s are served by node %s".formatted(from, to, owner.id()), owner.httpAddress().toString());
+    }
+}
@@ -0,0 +1,25 @@
+package com.neverless.resources;
+
+import io.javalin.http.Context;
+
+import java.util.UUID;
+
+/*
+ * Marks requests application sends to itself while warming up, so they stay out of request metrics and request log.
+ * Value is random per process, a client sending the header does not hide its own requests.
+ */
+public final class WarmUpTraffic {
+    public static final String HEADER = "X-Neverless-Warm-Up";
+    private static final String TOKEN = UUID.randomUUID().toString();
+
+    private WarmUpTraffic() {
+    }
+
+    public static String token() {
+        return TOKEN;
+    }
+
+    static boolean isWarmUp(Context context) {
+        return TOKEN.equals(context.header(HEADER));
+    }
+}
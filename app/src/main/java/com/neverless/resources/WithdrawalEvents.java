@@ -0,0 +1,51 @@
+package com.neverless.resources;
+
+import com.neverless.domain.AccountId;
+import com.neverless.processing.WithdrawalEventBroadcaster;
+import com.neverless.processing.WithdrawalEventBroadcaster.Subscriber;
+import com.neverless.resources.dtos.WithdrawalEvent;
+import io.javalin.http.sse.SseClient;
+
+/*
+ * Server sent event streams of withdrawal status transitions, "withdrawal" events carry a WithdrawalEvent and a
+ * "resync" event means some events were dropped because client was too slow and withdrawals should be re-read.
+ */
+public class WithdrawalEvents {
+    private final WithdrawalEventBroadcaster broadcaster;
+
+    public WithdrawalEvents(WithdrawalEventBroadcaster broadcaster) {
+        this.broadcaster = broadcaster;
+    }
+
+    public void streamAccount(SseClient client) {
+        stream(client, AccountId.fromString(client.ctx().pathParam("id")));
+    }
+
+    public void streamAll(SseClient client) {
+        stream(client, null);
+    }
+
+    private void stream(SseClient client, AccountId accountId) {
+        client.keepAlive();
+        final var subscription = broadcaster.subscribe(accountId, new SseSubscriber(client));
+        client.onClose(subscription::close);
+    }
+
+    private record SseSubscriber(SseClient client) implements Subscriber {
+
+        @Override
+        public void onEvent(WithdrawalEvent event) {
+            client.sendEvent("withdrawal", event, Long.toString(event.sequence()));
+        }
+
+        @Override
+        public void onResync() {
+            client.sendEvent("resync", "{}");
+        }
+
+        @Override
+        public void onHeartbeat() {
+            client.sendComment("heartbeat");
+        }
+    }
+}
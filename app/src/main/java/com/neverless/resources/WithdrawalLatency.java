@@ -0,0 +1,26 @@
+package com.neverless.resources;
+
+import com.neverless.processing.WithdrawalLifecycleTracker;
+import com.neverless.resources.dtos.WithdrawalLatencyResponse;
+import com.neverless.resources.dtos.WithdrawalLatencyResponse.Latency;
+import com.neverless.resources.dtos.WithdrawalLatencyResponse.SlowStage;
+import io.javalin.http.Context;
+
+import java.util.LinkedHashMap;
+
+public class WithdrawalLatency {
+    private final WithdrawalLifecycleTracker lifecycleTracker;
+
+    public WithdrawalLatency(WithdrawalLifecycleTracker lifecycleTracker) {
+        this.lifecycleTracker = lifecycleTracker;
+    }
+
+    public void getLatency(Context context) {
+        final var stages = new LinkedHashMap<String, Latency>();
+        lifecycleTracker.stageLatencies().forEach((stage, histogram) -> stages.put(stage.label, Latency.of(histogram)));
+        final var slow = lifecycleTracker.slowStages().stream()
+                .map(it -> new SlowStage(it.accountId(), it.withdrawalId(), it.stage().label, it.duration().toMillis(), it.reached()))
+                .toList();
+        context.json(new WithdrawalLatencyResponse(lifecycleTracker.inFlight(), stages, Latency.of(lifecycleTracker.total()), slow));
+    }
+}
@@ -0,0 +1,6 @@
+package com.neverless.resources.dtos;
+
+import com.neverless.domain.AccountId;
+
+public record BulkAccountRequest(AccountId accountId) {
+}
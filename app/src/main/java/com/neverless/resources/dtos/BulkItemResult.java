@@ -0,0 +1,31 @@
+package com.neverless.resources.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.neverless.domain.AccountId;
+import com.neverless.domain.impl.AccountImpl.WithdrawalStatus;
+import com.neverless.resources.Accounts.AccountResponse;
+
+/*
+ * One line of a bulk response, line is the number of request line (starting from 1) this result belongs to.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BulkItemResult(long line, AccountId accountId, int status, String message, AccountResponse account,
+                             WithdrawalResponse withdrawal) {
+
+    //    Account read, or as it is right after funds were added to it
+    public static BulkItemResult found(long line, AccountResponse account) {
+        return new BulkItemResult(line, account.id(), 200, null, account, null);
+    }
+
+    //    Withdrawal rejected by balance check exists too, in ERROR, so its id is on the line as well
+    public static BulkItemResult withdrawal(long line, AccountId accountId, WithdrawalResponse withdrawal) {
+        if (withdrawal.status() == WithdrawalStatus.ERROR) {
+            return new BulkItemResult(line, accountId, 422, withdrawal.message(), null, withdrawal);
+        }
+        return new BulkItemResult(line, accountId, 201, null, null, withdrawal);
+    }
+
+    public static BulkItemResult failed(long line, AccountId accountId, int status, String message) {
+        return new BulkItemResult(line, accountId, status, message, null, null);
+    }
+}
@@ -0,0 +1,10 @@
+package com.neverless.resources.dtos;
+
+import com.neverless.domain.AccountId;
+
+public record BulkWithdrawalRequest(AccountId accountId, String address, Long amount) {
+
+    public WithdrawalRequest toWithdrawalRequest() {
+        return new WithdrawalRequest(address, amount);
+    }
+}
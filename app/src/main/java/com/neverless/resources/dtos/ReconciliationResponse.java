@@ -0,0 +1,15 @@
+package com.neverless.resources.dtos;
+
+import com.neverless.processing.LiabilityTotals;
+
+import java.util.List;
+
+/*
+ * drift is scanned minus running totals, driftingShards lists only shards where they differ.
+ */
+public record ReconciliationResponse(boolean consistent, long accounts, LiabilityTotals running, LiabilityTotals scanned,
+                                     LiabilityTotals drift, List<ShardDrift> driftingShards) {
+
+    public record ShardDrift(int shard, long accounts, LiabilityTotals running, LiabilityTotals scanned) {
+    }
+}
@@ -0,0 +1,7 @@
+package com.neverless.resources.dtos;
+
+/*
+ * role is primary or standby, stalenessMillis is how far behind primary a standby is (0 on primary).
+ */
+public record ReplicationStatusResponse(String role, boolean synced, long stalenessMillis, int standbys) {
+}
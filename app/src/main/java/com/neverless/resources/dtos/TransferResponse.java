@@ -0,0 +1,10 @@
+package com.neverless.resources.dtos;
+
+import com.neverless.domain.AccountId;
+import com.neverless.domain.TransferId;
+import com.neverless.domain.impl.AccountImpl.TransferDirection;
+import com.neverless.domain.impl.AccountImpl.TransferStatus;
+
+public record TransferResponse(TransferId transferId, TransferDirection direction, AccountId counterparty, TransferStatus status,
+                               Long amount, String message) {
+}
@@ -0,0 +1,15 @@
+package com.neverless.resources.dtos;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.neverless.domain.AccountId;
+import com.neverless.domain.impl.AccountImpl.WithdrawalStatus;
+import com.neverless.integration.WithdrawalService.WithdrawalId;
+
+/*
+ * A withdrawal status transition, sequence is increasing over all events of the application.
+ * previousStatus is absent for newly created withdrawals.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record WithdrawalEvent(long sequence, AccountId accountId, WithdrawalId withdrawalId, WithdrawalStatus previousStatus,
+                              WithdrawalStatus status, Long amount, String message) {
+}
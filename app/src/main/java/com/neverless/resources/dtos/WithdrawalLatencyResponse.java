@@ -0,0 +1,32 @@
+package com.neverless.resources.dtos;
+
+import com.neverless.domain.AccountId;
+import com.neverless.integration.WithdrawalService.WithdrawalId;
+import com.neverless.metrics.Histogram;
+
+import java.util.List;
+import java.util.Map;
+
+/*
+ * stages is time spent by withdrawals before reaching each stage, total is http request to release of locked balance.
+ * slow are the latest withdrawals which spent longer than threshold in any stage, reached is false for the ones which
+ * were still waiting for stage when found. All values are milliseconds.
+ */
+public record WithdrawalLatencyResponse(int inFlight, Map<String, Latency> stages, Latency total, List<SlowStage> slow) {
+
+    public record Latency(long count, double p50, double p90, double p99, double p999, double max) {
+        private static final double NANOS_PER_MILLI = 1_000_000d;
+
+        public static Latency of(Histogram histogram) {
+            return new Latency(histogram.count(),
+                    histogram.valueAtQuantile(0.5) / NANOS_PER_MILLI,
+                    histogram.valueAtQuantile(0.9) / NANOS_PER_MILLI,
+                    histogram.valueAtQuantile(0.99) / NANOS_PER_MILLI,
+                    histogram.valueAtQuantile(0.999) / NANOS_PER_MILLI,
+                    histogram.max() / NANOS_PER_MILLI);
+        }
+    }
+
+    public record SlowStage(AccountId accountId, WithdrawalId withdrawalId, String stage, long millis, boolean reached) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.neverless.resources.dtos;
+
+import com.neverless.domain.impl.AccountImpl.Totals;
+import com.neverless.domain.impl.AccountImpl.WithdrawalStats;
+
+public record WithdrawalStatsResponse(Totals pending, Totals processing, Totals succeeded, Totals failed,
+                                      Long totalWithdrawn) {
+
+    public static WithdrawalStatsResponse of(WithdrawalStats stats) {
+        return new WithdrawalStatsResponse(stats.pending(), stats.processing(), stats.succeeded(), stats.failed(), stats.totalWithdrawn());
+    }
+}
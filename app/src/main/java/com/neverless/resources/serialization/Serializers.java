@@ -0,0 +1,112 @@
+package com.neverless.resources.serialization;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.neverless.resources.Accounts.AccountResponse;
+import com.neverless.resources.dtos.WithdrawalResponse;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/*
+ * Object mappers used on the wire. Hottest responses (account and withdrawal list reads) are written by hand instead
+ * of Jackson's reflection based bean serializers, they produce exactly same documents as the generated ones would.
+ */
+public final class Serializers {
+
+    private Serializers() {
+    }
+
+    public static ObjectMapper json() {
+        return configure(new ObjectMapper());
+    }
+
+    public static ObjectMapper cbor() {
+        return configure(new CBORMapper());
+    }
+
+    private static ObjectMapper configure(ObjectMapper mapper) {
+        return mapper
+                .registerModule(new Jdk8Module())
+                .registerModule(new JavaTimeModule())
+                .registerModule(new SimpleModule("neverless-responses")
+                        .addSerializer(AccountResponse.class, new AccountResponseSerializer())
+                        .addSerializer(WithdrawalResponse.class, new WithdrawalResponseSerializer()));
+    }
+
+    //    Binary formats get ids as 16 raw bytes instead of 36 characters, Jackson's UUID deserializer accepts both forms
+    static void writeUuid(JsonGenerator gen, UUID value) throws IOException {
+        if (gen.canWriteBinaryNatively()) {
+            gen.writeBinary(ByteBuffer.allocate(16)
+                    .putLong(value.getMostSignificantBits())
+                    .putLong(value.getLeastSignificantBits())
+                    .array());
+        } else {
+            gen.writeString(value.toString());
+        }
+    }
+
+    static void writeNumber(JsonGenerator gen, Long value) throws IOException {
+        if (value == null) {
+            gen.writeNull();
+        } else {
+            gen.writeNumber(value.longValue());
+        }
+    }
+
+    static final class AccountResponseSerializer extends StdSerializer<AccountResponse> {
+        private static final SerializableString ID = new SerializedString("id");
+        private static final SerializableString BALANCE = new SerializedString("balance");
+        private static final SerializableString LOCKED_BALANCE = new SerializedString("lockedBalance");
+
+        AccountResponseSerializer() {
+            super(AccountResponse.class);
+        }
+
+        @Override
+        public void serialize(AccountResponse value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(value, 3);
+            gen.writeFieldName(ID);
+            writeUuid(gen, value.id().value());
+            gen.writeFieldName(BALANCE);
+            writeNumber(gen, value.balance());
+            gen.writeFieldName(LOCKED_BALANCE);
+            writeNumber(gen, value.lockedBalance());
+            gen.writeEndObject();
+        }
+    }
+
+    static final class WithdrawalResponseSerializer extends StdSerializer<WithdrawalResponse> {
+        private static final SerializableString WITHDRAWAL_ID = new SerializedString("withdrawalId");
+        private static final SerializableString STATUS = new SerializedString("status");
+        private static final SerializableString AMOUNT = new SerializedString("amount");
+        private static final SerializableString MESSAGE = new SerializedString("message");
+
+        WithdrawalResponseSerializer() {
+            super(WithdrawalResponse.class);
+        }
+
+        @Override
+        public void serialize(WithdrawalResponse value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeStartObject(value, 4);
+            gen.writeFieldName(WITHDRAWAL_ID);
+            writeUuid(gen, value.withdrawalId().value());
+            gen.writeFieldName(STATUS);
+            gen.writeString(value.status().name());
+            gen.writeFieldName(AMOUNT);
+            writeNumber(gen, value.amount());
+            gen.writeFieldName(MESSAGE);
+            gen.writeString(value.message());
+            gen.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.neverless.resources.serialization;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neverless.exceptions.BadRequestException;
+import io.javalin.http.Context;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/*
+ * Content negotiation between json (default) and CBOR (RFC 8949). Clients ask for CBOR responses with
+ * "Accept: application/cbor" and send CBOR request bodies with "Content-Type: application/cbor".
+ *
+ * Responses are serialised straight to a byte array, which for small documents is cheaper than Context.json which
+ * streams the document through a piped stream.
+ */
+public class WireFormat {
+    public static final String JSON = "application/json";
+    public static final String CBOR = "application/cbor";
+
+    private final ObjectMapper jsonMapper;
+    private final ObjectMapper cborMapper;
+
+    public WireFormat(ObjectMapper jsonMapper, ObjectMapper cborMapper) {
+        this.jsonMapper = jsonMapper;
+        this.cborMapper = cborMapper;
+    }
+
+    public <T> T read(Context context, Class<T> type) {
+        if (isCbor(context.contentType())) {
+            try {
+                return cborMapper.readValue(context.bodyAsBytes(), type);
+            } catch (JsonProcessingException ex) {
+                throw new BadRequestException("Malformed CBOR body: %s".formatted(ex.getOriginalMessage()));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }
+        return context.bodyAsClass(type);
+    }
+
+    public void write(Context context, Object value) {
+        boolean cbor = isCbor(context.header("Accept"));
+        try {
+            context.contentType(cbor ? CBOR : JSON)
+                    .result((cbor ? cborMapper : jsonMapper).writeValueAsBytes(value));
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static boolean isCbor(String mediaType) {
+        return mediaType != null && mediaType.contains(CBOR);
+    }
+}
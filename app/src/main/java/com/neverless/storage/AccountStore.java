@@ -0,0 +1,79 @@
+package com.neverless.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neverless.domain.AccountId;
+import com.neverless.domain.impl.AccountImpl.Transfer;
+import com.neverless.domain.impl.AccountImpl.Withdrawal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/*
+ * Cold accounts on local disk, one file per account, spread over 256 directories by first two characters of account
+ * id so no directory gets huge. A file is written to a temporary name and then moved over the old one, so readers
+ * never see a half written account.
+ *
+ * Accounts only live in memory, store is a spill area of the running application and is emptied on startup.
+ */
+class AccountStore {
+    private final Path directory;
+    private final ObjectMapper mapper;
+
+    AccountStore(Path directory, ObjectMapper mapper) {
+        this.directory = directory;
+        this.mapper = mapper;
+        try {
+            if (Files.exists(directory)) {
+                try (Stream<Path> files = Files.walk(directory)) {
+                    files.sorted(Comparator.reverseOrder()).forEach(AccountStore::delete);
+                }
+            }
+            Files.createDirectories(directory);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to prepare account store in %s".formatted(directory), ex);
+        }
+    }
+
+    void write(StoredAccount account) {
+        final var file = file(account.accountId());
+        final var temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.getParent());
+            Files.write(temporary, mapper.writeValueAsBytes(account));
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to store account %s".formatted(account.accountId()), ex);
+        }
+    }
+
+    StoredAccount read(AccountId accountId) {
+        try {
+            return mapper.readValue(Files.readAllBytes(file(accountId)), StoredAccount.class);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to load account %s".formatted(accountId), ex);
+        }
+    }
+
+    private Path file(AccountId accountId) {
+        final var id = accountId.value().toString();
+        return directory.resolve(id.substring(0, 2)).resolve(id);
+    }
+
+    private static void delete(Path path) {
+        try {
+            Files.delete(path);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    record StoredAccount(AccountId accountId, long version, Long balance, Long lockedBalance, List<Withdrawal> withdrawals,
+                         List<Transfer> transfers) {
+    }
+}
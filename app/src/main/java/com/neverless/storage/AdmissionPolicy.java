@@ -0,0 +1,89 @@
+package com.neverless.storage;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/*
+ * Decides which accounts stay in memory, along the lines of W-TinyLFU: new accounts enter a small LRU window (1%),
+ * accounts leaving the window compete with the least recently used account of main space, and the one accessed more
+ * often recently (as per FrequencySketch) stays. Main space is a segmented LRU, accounts accessed again while on
+ * probation are promoted to the protected segment (80% of main).
+ *
+ * A scan touching each account once can only churn the window, it never pushes frequently used accounts out.
+ *
+ * Not thread safe, used under TieredAccountRepository's policy lock.
+ */
+class AdmissionPolicy<K> {
+    private final int windowCapacity;
+    private final int protectedCapacity;
+    private final int mainCapacity;
+    private final FrequencySketch sketch;
+    //    Access ordered, eldest first
+    private final LinkedHashMap<K, Boolean> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Boolean> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<K, Boolean> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+    AdmissionPolicy(int capacity) {
+        this.windowCapacity = Math.max(1, capacity / 100);
+        this.mainCapacity = Math.max(1, capacity - windowCapacity);
+        this.protectedCapacity = mainCapacity * 8 / 10;
+        this.sketch = new FrequencySketch(capacity);
+    }
+
+    void recordAccess(K key) {
+        sketch.increment(key);
+        if (window.get(key) != null || protectedSegment.get(key) != null) {
+            return;
+        }
+        if (probation.remove(key) != null) {
+            protectedSegment.put(key, Boolean.TRUE);
+            if (protectedSegment.size() > protectedCapacity) {
+                final var demoted = eldest(protectedSegment);
+                protectedSegment.remove(demoted);
+                probation.put(demoted, Boolean.TRUE);
+            }
+        }
+    }
+
+    //    Returns keys which have to leave memory to make room, possibly the added key itself
+    List<K> add(K key) {
+        sketch.increment(key);
+        window.put(key, Boolean.TRUE);
+        final List<K> evicted = new ArrayList<>(1);
+        while (window.size() > windowCapacity) {
+            final var candidate = eldest(window);
+            window.remove(candidate);
+            if (probation.size() + protectedSegment.size() < mainCapacity) {
+                probation.put(candidate, Boolean.TRUE);
+                continue;
+            }
+            final var victim = probation.isEmpty() ? eldest(protectedSegment) : eldest(probation);
+            if (sketch.frequency(candidate) > sketch.frequency(victim)) {
+                probation.remove(victim);
+                protectedSegment.remove(victim);
+                probation.put(candidate, Boolean.TRUE);
+                evicted.add(victim);
+            } else {
+                evicted.add(candidate);
+            }
+        }
+        return evicted;
+    }
+
+    void remove(K key) {
+        if (window.remove(key) == null && probation.remove(key) == null) {
+            protectedSegment.remove(key);
+        }
+    }
+
+    boolean contains(K key) {
+        return window.containsKey(key) || probation.containsKey(key) || protectedSegment.containsKey(key);
+    }
+
+    private static <K> K eldest(LinkedHashMap<K, Boolean> segment) {
+        final Iterator<K> iterator = segment.keySet().iterator();
+        return iterator.next();
+    }
+}
@@ -0,0 +1,72 @@
+package com.neverless.storage;
+
+/*
+ * Count-min sketch of how often keys were accessed recently, 4 bit counters (so at most 15) in 4 rows. Once there were
+ * 10 times as many increments as the sketch is sized for, all counters are halved, so old popularity fades and a
+ * formerly hot account can not stay in memory forever on its history alone.
+ *
+ * Not thread safe, used under the policy lock.
+ */
+class FrequencySketch {
+    private static final long[] SEEDS = {0x97cb3127L, 0xc3a5c85cL, 0x9ae16a3bL, 0xc2b2ae35L};
+    private static final long RESET_MASK = 0x7777_7777_7777_7777L;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int expectedKeys) {
+        final var size = Integer.highestOneBit(Math.max(16, expectedKeys) - 1) << 1;
+        this.table = new long[size];
+        this.tableMask = size - 1;
+        this.sampleSize = 10 * Math.max(16, expectedKeys);
+    }
+
+    int frequency(Object key) {
+        final var hash = spread(key.hashCode());
+        var frequency = Integer.MAX_VALUE;
+        for (int row = 0; row < SEEDS.length; row++) {
+            frequency = Math.min(frequency, (int) ((table[index(hash, row)] >>> offset(hash, row)) & 0xF));
+        }
+        return frequency;
+    }
+
+    void increment(Object key) {
+        final var hash = spread(key.hashCode());
+        var added = false;
+        for (int row = 0; row < SEEDS.length; row++) {
+            final var index = index(hash, row);
+            final var offset = offset(hash, row);
+            if (((table[index] >>> offset) & 0xF) < 15) {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+
+    private int index(int hash, int row) {
+        final var h = (hash + SEEDS[row]) * SEEDS[row];
+        return (int) (h ^ (h >>> 32)) & tableMask;
+    }
+
+    //    Each row uses its own counter out of the 16 in a long
+    private static int offset(int hash, int row) {
+        return (((hash >>> (row * 4)) & 3) + row * 4) << 2;
+    }
+
+    private static int spread(int hash) {
+        final var h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
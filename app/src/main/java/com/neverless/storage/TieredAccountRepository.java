@@ -0,0 +1,263 @@
+package com.neverless.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.neverless.domain.Account;
+import com.neverless.domain.AccountEventListener;
+import com.neverless.domain.AccountId;
+import com.neverless.domain.AccountRepository;
+import com.neverless.domain.impl.AccountImpl;
+import com.neverless.domain.impl.AccountImpl.AccountBalance;
+import com.neverless.exceptions.DuplicateException;
+import com.neverless.metrics.Histogram;
+import com.neverless.metrics.MetricsRegistry;
+import com.neverless.storage.AccountStore.StoredAccount;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/*
+ * Keeps at most maxHotAccounts accounts in memory, AdmissionPolicy decides which, the rest is in AccountStore on disk
+ * and loaded again when needed. Shards load through findAsync, so a shard never waits for disk, it carries on with
+ * other accounts meanwhile. Loads of the same account are shared.
+ *
+ * Account is only dropped from memory on its shard, same as any other change to it, so a change can never be made to a
+ * copy which is just being written out. Shard takes a copy and hands it to a writer thread, until it is on disk account
+ * is evicting, and loads of it wait for the write and then read it back. Until attach is called nothing is evicted.
+ */
+public class TieredAccountRepository implements AccountRepository {
+    private final Logger logger = LoggerFactory.getLogger(this.getClass());
+
+    private final ConcurrentMap<AccountId, Account> hot = new ConcurrentHashMap<>();
+    //    Accounts which are on disk only, with balance they were written with so reconciliation never reads disk.
+    //    An account is always in at least one of hot and cold.
+    private final ConcurrentMap<AccountId, AccountBalance> cold = new ConcurrentHashMap<>();
+    //    Accounts dropped from memory which are being written to disk. An account is always in at least one of hot,
+    //    evicting and cold, it is added to the next one before it is removed from the previous one.
+    private final ConcurrentMap<AccountId, Eviction> evicting = new ConcurrentHashMap<>();
+    private final ConcurrentMap<AccountId, CompletableFuture<Optional<Account>>> loading = new ConcurrentHashMap<>();
+    private final AdmissionPolicy<AccountId> policy;
+    //    ReentrantLock so virtual threads are not pinned, accesses are only recorded when lock is free, like a lossy buffer
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final AccountStore store;
+    private final ExecutorService loader = Executors.newVirtualThreadPerTaskExecutor();
+    private final ExecutorService writer = Executors.newVirtualThreadPerTaskExecutor();
+
+    private volatile AccountEventListener eventListener = AccountEventListener.NONE;
+    private volatile BiConsumer<AccountId, Consumer<Account>> onShard;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final Histogram loadLatency;
+
+    public TieredAccountRepository(int maxHotAccounts, Path directory, ObjectMapper mapper, MetricsRegistry metrics) {
+        this.policy = new AdmissionPolicy<>(maxHotAccounts);
+        this.store = new AccountStore(directory, mapper);
+        this.loadLatency = metrics.histogram("account_storage_load_seconds", "Time to load a cold account from disk");
+        metrics.counter("account_storage_hits_total", "Account lookups served from memory", hits::sum);
+        metrics.counter("account_storage_misses_total", "Account lookups which loaded account from disk", misses::sum);
+        metrics.counter("account_storage_evictions_total", "Accounts written to disk and dropped from memory", evictions::sum);
+        metrics.gauge("account_storage_hit_ratio", "Share of account lookups served from memory", this::hitRatio);
+        metrics.gauge("account_storage_accounts", "Accounts per storage tier", hot::size, "tier", "hot");
+        metrics.gauge("account_storage_accounts", "Accounts per storage tier", evicting::size, "tier", "evicting");
+        metrics.gauge("account_storage_accounts", "Accounts per storage tier", cold::size, "tier", "cold");
+    }
+
+    /*
+     * Accounts loaded from disk get eventListener, same as accounts created by AccountOperationManager. onShard runs an
+     * action on the shard owning the account, it is how accounts get evicted.
+     */
+    public void attach(AccountEventListener eventListener, BiConsumer<AccountId, Consumer<Account>> onShard) {
+        this.eventListener = eventListener;
+        this.onShard = onShard;
+    }
+
+    @Override
+    public Account save(Account account) {
+        if (cold.containsKey(account.id()) || evicting.containsKey(account.id()) || hot.putIfAbsent(account.id(), account) != null) {
+            throw new DuplicateException("Account with id %s already exists".formatted(account.id()));
+        }
+        admit(account.id());
+        return account;
+    }
+
+    @Override
+    public Optional<Account> find(AccountId id) {
+        final var account = findLoaded(id);
+        return account != null ? Optional.of(account) : findAsync(id).join();
+    }
+
+    @Override
+    public Account findLoaded(AccountId id) {
+        final var account = hot.get(id);
+        if (account != null) {
+            hits.increment();
+            if (policyLock.tryLock()) {
+                try {
+                    policy.recordAccess(id);
+                } finally {
+                    policyLock.unlock();
+                }
+            }
+        }
+        return account;
+    }
+
+    @Override
+    public CompletableFuture<Optional<Account>> findAsync(AccountId id) {
+        final var account = findLoaded(id);
+        if (account != null) {
+            return CompletableFuture.completedFuture(Optional.of(account));
+        }
+        final var eviction = evicting.get(id);
+        if (eviction != null) {
+            return eviction.written().thenCompose(ignored -> findAsync(id));
+        }
+        if (!cold.containsKey(id)) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        return load(id);
+    }
+
+    //    Does not record an access, a scan must not make accounts look hot
+    @Override
+    public AccountBalance findBalance(AccountId id) {
+        final var account = hot.get(id);
+        if (account != null) {
+            return account.accountBalance();
+        }
+        final var eviction = evicting.get(id);
+        return eviction != null ? new AccountBalance(eviction.stored().balance(), eviction.stored().lockedBalance()) : cold.get(id);
+    }
+
+    //    Weakly consistent, accounts on disk are visited as copies read from disk, which are not kept in memory
+    @Override
+    public void forEach(Consumer<Account> action) {
+        hot.values().forEach(action);
+        for (Eviction eviction : evicting.values()) {
+            if (!hot.containsKey(eviction.stored().accountId())) {
+                action.accept(restore(eviction.stored()));
+            }
+        }
+        for (AccountId id : cold.keySet()) {
+            if (!hot.containsKey(id)) {
+                action.accept(restore(store.read(id)));
+            }
+        }
+    }
+
+    //    Hot accounts split like the map they are in, cold ones are read from disk by whichever thread gets their part
+    @Override
+    public Spliterator<Account> spliterator() {
+        final Stream<Account> evicted = evicting.values().stream()
+                .filter(eviction -> !hot.containsKey(eviction.stored().accountId()))
+                .map(eviction -> restore(eviction.stored()));
+        final Stream<Account> onDisk = cold.keySet().stream()
+                .filter(id -> !hot.containsKey(id))
+                .map(id -> restore(store.read(id)));
+        return Stream.concat(hot.values().stream(), Stream.concat(evicted, onDisk)).spliterator();
+    }
+
+    public void close() {
+        loader.shutdownNow();
+        writer.shutdownNow();
+    }
+
+    private CompletableFuture<Optional<Account>> load(AccountId id) {
+        final var load = loading.computeIfAbsent(id, ignored -> CompletableFuture.supplyAsync(() -> loadFromDisk(id), loader));
+        load.whenComplete((account, ex) -> loading.remove(id, load));
+        return load;
+    }
+
+    private Optional<Account> loadFromDisk(AccountId id) {
+        final var loaded = hot.get(id);
+        if (loaded != null) {
+            return Optional.of(loaded);
+        }
+        final var startedAt = System.nanoTime();
+        final var account = restore(store.read(id));
+        misses.increment();
+        hot.put(id, account);
+        cold.remove(id);
+        loadLatency.recordSince(startedAt);
+        admit(id);
+        return Optional.of(account);
+    }
+
+    private void admit(AccountId id) {
+        final List<AccountId> victims;
+        policyLock.lock();
+        try {
+            victims = policy.add(id);
+        } finally {
+            policyLock.unlock();
+        }
+        final var evictor = onShard;
+        if (evictor == null) {
+            return;
+        }
+        victims.forEach(victim -> evictor.accept(victim, this::evict));
+    }
+
+    //    Runs on account's shard, nothing else can change account meanwhile. Disk is written off the shard thread.
+    private void evict(Account account) {
+        final var id = account.id();
+        if (hot.get(id) != account) {
+            return;
+        }
+        final var balance = account.accountBalance();
+        final var eviction = new Eviction(new StoredAccount(id, account.version(), balance.balance(), balance.lockedBalance(),
+                new ArrayList<>(account.withdrawals()), new ArrayList<>(account.transfers())), new CompletableFuture<>());
+        evicting.put(id, eviction);
+        hot.remove(id, account);
+        writer.execute(() -> write(eviction));
+    }
+
+    private void write(Eviction eviction) {
+        final var id = eviction.stored().accountId();
+        try {
+            store.write(eviction.stored());
+            cold.put(id, new AccountBalance(eviction.stored().balance(), eviction.stored().lockedBalance()));
+            evictions.increment();
+            logger.debug("Evicted account {}", id);
+        } catch (Exception ex) {
+//            Account goes back to memory as it was, nothing could change it while it was evicting
+            logger.error("Unable to evict account {}, keeping it in memory", id, ex);
+            hot.put(id, restore(eviction.stored()));
+            admit(id);
+        } finally {
+            evicting.remove(id, eviction);
+            eviction.written().complete(null);
+        }
+    }
+
+    private Account restore(StoredAccount stored) {
+        final var account = new AccountImpl(stored.accountId(), 0L, eventListener);
+        account.applySnapshot(new AccountBalance(stored.balance(), stored.lockedBalance()), stored.version(), stored.withdrawals(), stored.transfers());
+        return account;
+    }
+
+    private record Eviction(StoredAccount stored, CompletableFuture<Void> written) {
+    }
+
+    private double hitRatio() {
+        final var hitCount = hits.sum();
+        final var total = hitCount + misses.sum();
+        return total == 0 ? 1.0 : (double) hitCount / total;
+    }
+}
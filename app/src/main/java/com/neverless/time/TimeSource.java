@@ -0,0 +1,32 @@
+package com.neverless.time;
+
+import java.time.Duration;
+
+/*
+ * Time as seen by withdrawal processing (status polling, time to final state, lifecycle stages). SYSTEM is the real
+ * clock, VirtualTimeSource lets simulations move time forward by hand.
+ */
+public interface TimeSource {
+    TimeSource SYSTEM = new TimeSource() {
+        @Override
+        public long nanoTime() {
+            return System.nanoTime();
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+
+        @Override
+        public void sleep(Duration duration) throws InterruptedException {
+            Thread.sleep(duration);
+        }
+    };
+
+    long nanoTime();
+
+    long currentTimeMillis();
+
+    void sleep(Duration duration) throws InterruptedException;
+}
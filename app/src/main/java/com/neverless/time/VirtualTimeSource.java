@@ -0,0 +1,60 @@
+package com.neverless.time;
+
+import java.time.Duration;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+ * Time which only moves when advance() is called, so a run over hours of withdrawal processing can be simulated in
+ * seconds and replayed exactly. Threads sleeping on it wake up once time was advanced past their deadline.
+ *
+ * Sleepers are mostly virtual threads, a lock rather than synchronized/wait() lets them unmount while waiting.
+ */
+public class VirtualTimeSource implements TimeSource {
+    private final long epochMillis;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition advanced = lock.newCondition();
+    private long nanos;
+
+    public VirtualTimeSource(long epochMillis) {
+        this.epochMillis = epochMillis;
+    }
+
+    @Override
+    public long nanoTime() {
+        lock.lock();
+        try {
+            return nanos;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return epochMillis + nanoTime() / 1_000_000;
+    }
+
+    @Override
+    public void sleep(Duration duration) throws InterruptedException {
+        lock.lock();
+        try {
+            final var wakeUpAt = nanos + duration.toNanos();
+            while (nanos < wakeUpAt) {
+                advanced.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void advance(Duration duration) {
+        lock.lock();
+        try {
+            nanos += duration.toNanos();
+            advanced.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.neverless.changefeed;
+
+import com.neverless.changefeed.ChangeEvent.Type;
+import com.neverless.domain.AccountId;
+import com.neverless.domain.impl.AccountRepositoryImpl;
+import com.neverless.metrics.MetricsRegistry;
+import com.neverless.processing.InMemoryAccountOperationManager;
+import com.neverless.resources.serialization.Serializers;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ChangeFeedTest {
+    private static final int SEGMENT_BYTES = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void should_write_changes_of_accounts_in_order_over_rolled_segments() throws IOException {
+        // given
+        final var accountId = AccountId.random();
+
+        // when
+        try (var changeFeed = changeFeed(100)) {
+            final var accountOperationManager = accountOperationManager(changeFeed);
+            accountOperationManager.createAccount(accountId);
+            for (int i = 0; i < 100; i++) {
+                accountOperationManager.doAccountOperationAsync(accountId, account -> account.addToBalance(1L), ex -> {
+                });
+            }
+            awaitLines(101);
+            accountOperationManager.shutdown();
+        }
+
+        // then
+        assertThat(SegmentLog.segments(directory)).hasSizeGreaterThan(1);
+        final var events = events(0, 1000);
+        assertThat(events).extracting(ChangeEvent::offset).containsExactlyElementsOf(range(0, 101));
+        assertThat(events.getFirst().type()).isEqualTo(Type.ACCOUNT_CREATED);
+        assertThat(events.getLast().type()).isEqualTo(Type.ACCOUNT_CHANGED);
+        assertThat(events.getLast().balance()).isEqualTo(100L);
+        assertThat(events(42, 5)).extracting(ChangeEvent::offset).containsExactly(42L, 43L, 44L, 45L, 46L);
+    }
+
+    @Test
+    void should_continue_offsets_after_reopen_and_drop_segments_beyond_retention() throws IOException {
+        // given
+        try (var changeFeed = changeFeed(100)) {
+            final var accountOperationManager = accountOperationManager(changeFeed);
+            for (int i = 0; i < 100; i++) {
+                accountOperationManager.createAccount(AccountId.random());
+            }
+            awaitLines(100);
+            accountOperationManager.shutdown();
+        }
+
+        // when
+        try (var changeFeed = changeFeed(2)) {
+            final var accountOperationManager = accountOperationManager(changeFeed);
+            accountOperationManager.createAccount(AccountId.random());
+            awaitUntil(() -> !events(100, 1).isEmpty());
+            accountOperationManager.shutdown();
+        }
+
+        // then
+        assertThat(SegmentLog.segments(directory)).hasSize(2);
+        assertThat(events(100, 1)).singleElement().extracting(ChangeEvent::offset).isEqualTo(100L);
+        assertThat(events(0, 1)).singleElement().extracting(ChangeEvent::offset).isNotEqualTo(0L);
+    }
+
+    private ChangeFeed changeFeed(int maxSegments) {
+        return new ChangeFeed(directory, SEGMENT_BYTES, maxSegments, Duration.ofHours(1), 1000, Serializers.json(), new MetricsRegistry());
+    }
+
+    private static InMemoryAccountOperationManager accountOperationManager(ChangeFeed changeFeed) {
+        return new InMemoryAccountOperationManager(new AccountRepositoryImpl(), 2, changeFeed, changeFeed, new MetricsRegistry());
+    }
+
+    private void awaitLines(int count) {
+        awaitUntil(() -> new ChangeFeedReader(directory).read(0, count + 1).size() == count);
+    }
+
+    //    Writer runs on its own thread
+    private static void awaitUntil(BooleanSupplier condition) {
+        final var deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition met within 5s").isLessThan(deadline);
+            Thread.onSpinWait();
+        }
+    }
+
+    private List<ChangeEvent> events(long fromOffset, int limit) {
+        final var mapper = Serializers.json();
+        return new ChangeFeedReader(directory).read(fromOffset, limit).stream().map(line -> {
+            try {
+                return mapper.readValue(line, ChangeEvent.class);
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }).toList();
+    }
+
+    private static List<Long> range(long from, long to) {
+        return LongStream.range(from, to).boxed().toList();
+    }
+}
@@ -0,0 +1,112 @@
+package com.neverless.cluster;
+
+import com.neverless.cluster.Messages.GetAccount;
+import com.neverless.cluster.Messages.VersionedAccount;
+import com.neverless.domain.AccountId;
+import com.neverless.exceptions.NotFoundException;
+import com.neverless.exceptions.UnavailableException;
+import com.neverless.metrics.MetricsRegistry;
+import com.neverless.resources.Accounts.AccountResponse;
+import com.neverless.resources.serialization.Serializers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ClusterTest {
+    @TempDir
+    Path directory;
+    private Cluster nodeA;
+    private Cluster nodeB;
+    private AccountId missing;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        final var membership = directory.resolve("cluster.txt");
+        Files.writeString(membership, """
+                # two nodes on localhost
+                node-a http://localhost:8082 localhost:%d
+                node-b http://localhost:8083 localhost:%d
+                """.formatted(freePort(), freePort()));
+        nodeA = Cluster.of(Membership.load(membership, "node-a"), Serializers.cbor(), new MetricsRegistry());
+        nodeB = Cluster.of(Membership.load(membership, "node-b"), Serializers.cbor(), new MetricsRegistry());
+        missing = remoteAccounts().findFirst().orElseThrow();
+        nodeB.start((opcode, payload) -> {
+            final var accountId = nodeB.read(payload, GetAccount.class).accountId();
+            if (accountId.equals(missing)) {
+                throw new NotFoundException("Account %s is not found".formatted(accountId));
+            }
+            return nodeB.write(new VersionedAccount(3, new AccountResponse(accountId, 100L, 10L)));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodeA.close();
+        nodeB.close();
+    }
+
+    @Test
+    void should_own_every_account_on_exactly_one_node() {
+        // expect
+        IntStream.range(0, 1000).mapToObj(i -> new AccountId(UUID.randomUUID()))
+                .forEach(accountId -> assertThat(nodeA.isLocal(accountId)).isNotEqualTo(nodeB.isLocal(accountId)));
+    }
+
+    @Test
+    void should_answer_pipelined_requests_with_their_own_responses() {
+        final var accounts = remoteAccounts().limit(500).toList();
+
+        // when
+        final var responses = accounts.stream()
+                .map(accountId -> nodeA.forward(accountId, Opcode.GET_ACCOUNT, new GetAccount(accountId), VersionedAccount.class))
+                .toList();
+
+        // then
+        CompletableFuture.allOf(responses.toArray(CompletableFuture[]::new)).join();
+        assertThat(responses).extracting(response -> response.join().account().id()).containsExactlyElementsOf(accounts);
+        assertThat(responses).allSatisfy(response -> assertThat(response.join().version()).isEqualTo(3));
+    }
+
+    @Test
+    void should_fail_with_owners_exception() {
+        // expect
+        assertThatThrownBy(() -> nodeA.forwardAndWait(missing, Opcode.GET_ACCOUNT, new GetAccount(missing), VersionedAccount.class))
+                .isInstanceOf(NotFoundException.class)
+                .hasMessageContaining("is not found");
+    }
+
+    @Test
+    void should_fail_with_unavailable_when_owner_is_down() {
+        final var accountId = remoteAccounts().findFirst().orElseThrow();
+
+        // when
+        nodeB.close();
+
+        // then
+        assertThatThrownBy(() -> nodeA.forwardAndWait(accountId, Opcode.GET_ACCOUNT, new GetAccount(accountId), VersionedAccount.class))
+                .isInstanceOf(UnavailableException.class);
+    }
+
+    private Stream<AccountId> remoteAccounts() {
+        return Stream.generate(() -> new AccountId(UUID.randomUUID())).filter(accountId -> !nodeA.isLocal(accountId));
+    }
+
+    private static int freePort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
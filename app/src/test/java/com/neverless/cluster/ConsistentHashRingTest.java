@@ -0,0 +1,67 @@
+package com.neverless.cluster;
+
+import com.neverless.domain.AccountId;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ConsistentHashRingTest {
+    private static final int ACCOUNTS = 100_000;
+
+    @Test
+    void should_spread_accounts_evenly_over_nodes() {
+        final var ring = new ConsistentHashRing(nodes(4), 128);
+        final var owned = new HashMap<String, Integer>();
+
+        // when
+        IntStream.range(0, ACCOUNTS).forEach(i -> owned.merge(ring.owner(account(i)).id(), 1, Integer::sum));
+
+        // then
+        assertThat(owned).hasSize(4);
+        assertThat(owned.values()).allSatisfy(count -> assertThat(count).isBetween(ACCOUNTS / 4 * 8 / 10, ACCOUNTS / 4 * 12 / 10));
+    }
+
+    @Test
+    void should_only_move_accounts_to_added_node() {
+        final var before = new ConsistentHashRing(nodes(4), 128);
+        final var after = new ConsistentHashRing(nodes(5), 128);
+
+        // when
+        final var moved = IntStream.range(0, ACCOUNTS)
+                .filter(i -> !before.owner(account(i)).equals(after.owner(account(i))))
+                .mapToObj(i -> after.owner(account(i)).id())
+                .toList();
+
+        // then
+        assertThat(moved).containsOnly("node-4");
+        assertThat(moved.size()).isLessThan(ACCOUNTS / 5 * 13 / 10);
+    }
+
+    @Test
+    void should_pick_same_owner_regardless_of_membership_order() {
+        final var nodes = nodes(3);
+        final var ring = new ConsistentHashRing(nodes, 128);
+        final var reversed = new ConsistentHashRing(nodes.reversed(), 128);
+
+        // expect
+        IntStream.range(0, 1000).forEach(i -> assertThat(ring.owner(account(i))).isEqualTo(reversed.owner(account(i))));
+    }
+
+    private static List<ClusterNode> nodes(int count) {
+        return IntStream.range(0, count)
+                .mapToObj(i -> new ClusterNode("node-" + i, URI.create("http://localhost:%d".formatted(8082 + i)),
+                        InetSocketAddress.createUnresolved("localhost", 9082 + i)))
+                .toList();
+    }
+
+    private static AccountId account(int i) {
+        return new AccountId(new UUID(i * 31L, i));
+    }
+}
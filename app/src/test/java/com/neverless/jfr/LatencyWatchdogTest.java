@@ -0,0 +1,70 @@
+package com.neverless.jfr;
+
+import com.neverless.metrics.MetricsRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LatencyWatchdogTest {
+
+    @Test
+    void should_report_only_events_slower_than_threshold() throws InterruptedException {
+        final var metrics = new MetricsRegistry();
+        try (final var watchdog = new LatencyWatchdog(Duration.ofMillis(20), metrics)) {
+            watchdog.start();
+
+            // when
+            commitOperation(Duration.ofMillis(1));
+            commitOperation(Duration.ofMillis(50));
+
+            // then
+            final var deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (!metrics.scrape().contains("latency_watchdog_slow_events_total 1") && System.nanoTime() < deadline) {
+                Thread.sleep(100);
+            }
+            assertThat(metrics.scrape()).contains("latency_watchdog_slow_events_total 1");
+        }
+    }
+
+    @Test
+    void should_not_report_events_it_does_not_watch() throws InterruptedException {
+        final var metrics = new MetricsRegistry();
+        try (final var watchdog = new LatencyWatchdog(Duration.ofMillis(20), metrics)) {
+            watchdog.start();
+
+            // when
+            commitBalanceCheck();
+            commitOperation(Duration.ofMillis(50));
+
+            // then
+            final var deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+            while (metrics.scrape().contains("latency_watchdog_slow_events_total 0\n") && System.nanoTime() < deadline) {
+                Thread.sleep(100);
+            }
+//            Balance check is committed first by the same thread, so it would be streamed before the slow operation
+            assertThat(metrics.scrape()).contains("latency_watchdog_slow_events_total 1\n");
+        }
+    }
+
+    private static void commitBalanceCheck() {
+        final var event = new BalanceCheckEvent();
+        event.accountId = "account";
+        event.shard = 0;
+        event.accepted = true;
+        event.commit();
+    }
+
+    private static void commitOperation(Duration duration) throws InterruptedException {
+        final var event = new AccountOperationEvent();
+        event.begin();
+        Thread.sleep(duration.toMillis());
+        event.end();
+        if (event.shouldCommit()) {
+            event.accountId = "account";
+            event.shard = 0;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.neverless.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class HistogramTest {
+
+    @Test
+    void should_report_quantiles_within_bucket_precision() {
+        final var histogram = new Histogram();
+
+        // when
+        for (long millis = 1; millis <= 1000; millis++) {
+            histogram.record(millis * 1_000_000L);
+        }
+
+        // then
+        assertThat(histogram.count()).isEqualTo(1000);
+        assertThat(histogram.max()).isEqualTo(1_000_000_000L);
+        assertThat((double) histogram.valueAtQuantile(0.5)).isCloseTo(500_000_000d, within(500_000_000d / 16));
+        assertThat((double) histogram.valueAtQuantile(0.9)).isCloseTo(900_000_000d, within(900_000_000d / 16));
+        assertThat(histogram.valueAtQuantile(1.0)).isEqualTo(1_000_000_000L);
+    }
+
+    @Test
+    void should_report_zero_when_nothing_recorded() {
+        // expect
+        assertThat(new Histogram().valueAtQuantile(0.99)).isZero();
+    }
+
+    @Test
+    void should_render_prometheus_text() {
+        final var registry = new MetricsRegistry();
+        registry.counter("requests_total", "Requests", "method", "GET").add(3);
+        registry.histogram("latency_seconds", "Latency").record(2_000_000_000L);
+
+        // when
+        final var text = registry.scrape();
+
+        // then
+        assertThat(text).contains("# TYPE requests_total counter", "requests_total{method=\"GET\"} 3",
+                "# TYPE latency_seconds summary", "latency_seconds_count 1", "latency_seconds_sum 2");
+    }
+}
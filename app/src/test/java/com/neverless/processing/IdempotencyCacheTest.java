@@ -0,0 +1,58 @@
+package com.neverless.processing;
+
+import com.neverless.domain.AccountId;
+import com.neverless.processing.IdempotencyCache.Outcome;
+import com.neverless.resources.dtos.AddFundRequest;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IdempotencyCacheTest {
+
+    @Test
+    void should_replay_same_request_and_reject_different_one_with_same_key() {
+        final var cache = new IdempotencyCache(10, Duration.ofMinutes(1));
+        final var accountId = AccountId.random();
+
+        // expect
+        assertThat(cache.claim(accountId, "key", new AddFundRequest(100L))).isEqualTo(Outcome.FIRST);
+        assertThat(cache.claim(accountId, "key", new AddFundRequest(100L))).isEqualTo(Outcome.REPLAY);
+        assertThat(cache.claim(accountId, "key", new AddFundRequest(200L))).isEqualTo(Outcome.CONFLICT);
+        assertThat(cache.claim(AccountId.random(), "key", new AddFundRequest(200L))).isEqualTo(Outcome.FIRST);
+        assertThat(cache.stats().hits()).isEqualTo(2);
+        assertThat(cache.stats().misses()).isEqualTo(2);
+    }
+
+    @Test
+    void should_evict_oldest_entries_above_bound() {
+        final var cache = new IdempotencyCache(2, Duration.ofMinutes(1));
+        final var accountId = AccountId.random();
+
+        // when
+        cache.claim(accountId, "1", new AddFundRequest(1L));
+        cache.claim(accountId, "2", new AddFundRequest(1L));
+        cache.claim(accountId, "3", new AddFundRequest(1L));
+
+        // then
+        assertThat(cache.stats().size()).isEqualTo(2);
+        assertThat(cache.stats().evictions()).isEqualTo(1);
+        assertThat(cache.claim(accountId, "1", new AddFundRequest(1L))).isEqualTo(Outcome.FIRST);
+        assertThat(cache.claim(accountId, "3", new AddFundRequest(1L))).isEqualTo(Outcome.REPLAY);
+    }
+
+    @Test
+    void should_forget_keys_after_ttl() throws InterruptedException {
+        final var cache = new IdempotencyCache(10, Duration.ofMillis(50));
+        final var accountId = AccountId.random();
+        cache.claim(accountId, "key", new AddFundRequest(1L));
+
+        // when
+        Thread.sleep(100);
+
+        // then
+        assertThat(cache.claim(accountId, "key", new AddFundRequest(1L))).isEqualTo(Outcome.FIRST);
+        assertThat(cache.stats().expirations()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,71 @@
+package com.neverless.processing;
+
+import com.neverless.domain.AccountEventListener;
+import com.neverless.domain.AccountId;
+import com.neverless.domain.impl.AccountRepositoryImpl;
+import com.neverless.metrics.MetricsRegistry;
+import com.neverless.processing.AccountOperationManager.ShardReconciliation;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LiabilityTotalsTest {
+    private final AccountRepositoryImpl repository = new AccountRepositoryImpl();
+    private final InMemoryAccountOperationManager accountOperationManager = new InMemoryAccountOperationManager(repository, 4, account -> {
+    }, AccountEventListener.NONE, new MetricsRegistry());
+
+    @AfterEach
+    void tearDown() {
+        accountOperationManager.shutdown();
+    }
+
+    @Test
+    void should_keep_running_totals_of_all_accounts() {
+        final List<AccountId> accounts = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            final var accountId = AccountId.random();
+            accountOperationManager.createAccount(accountId);
+            accountOperationManager.doAccountOperationAsync(accountId, account -> account.addToBalance(100L), ex -> {
+            });
+            accountOperationManager.doAccountOperationAsync(accountId, account -> account.withdraw("address", 30L), ex -> {
+            });
+            accounts.add(accountId);
+        }
+
+        // when
+        final var reconciliation = reconcile();
+
+        // then
+        assertThat(accountOperationManager.liabilityTotals()).isEqualTo(new LiabilityTotals(10_000L, 3_000L));
+        assertThat(reconciliation).allMatch(ShardReconciliation::isConsistent);
+        assertThat(reconciliation.stream().mapToLong(ShardReconciliation::accounts).sum()).isEqualTo(accounts.size());
+    }
+
+    @Test
+    void should_report_drift_of_changes_made_outside_shards() {
+        final var accountId = AccountId.random();
+        accountOperationManager.createAccount(accountId);
+        accountOperationManager.doAccountOperationAsync(accountId, account -> account.addToBalance(100L), ex -> {
+        });
+        reconcile();
+
+        // when
+        repository.find(accountId).orElseThrow().addToBalance(5L);
+
+        // then
+        assertThat(reconcile()).filteredOn(shard -> !shard.isConsistent()).singleElement().satisfies(shard -> {
+            assertThat(shard.running()).isEqualTo(new LiabilityTotals(100L, 0L));
+            assertThat(shard.scanned()).isEqualTo(new LiabilityTotals(105L, 0L));
+        });
+    }
+
+    //    Scan is queued behind operations enqueued before it, so it sees all of them applied
+    private List<ShardReconciliation> reconcile() {
+        return accountOperationManager.reconcileLiabilities().orTimeout(5, TimeUnit.SECONDS).join();
+    }
+}
@@ -0,0 +1,103 @@
+package com.neverless.processing;
+
+import com.neverless.domain.AccountId;
+import com.neverless.domain.impl.AccountImpl.WithdrawalStatus;
+import com.neverless.integration.WithdrawalService;
+import com.neverless.integration.WithdrawalService.Address;
+import com.neverless.integration.WithdrawalService.WithdrawalId;
+import com.neverless.integration.WithdrawalService.WithdrawalState;
+import com.neverless.metrics.MetricsRegistry;
+import com.neverless.processing.ExternalWithdrawalManager.AccountWithdrawalRequest;
+import com.neverless.processing.PendingWithdrawalIndex.Entry;
+import com.neverless.time.TimeSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PendingWithdrawalIndexTest {
+
+    @TempDir
+    Path dataDirectory;
+
+    @Test
+    void should_recover_in_flight_withdrawals_after_reopen() {
+        // given
+        final var pending = request("some|address\nwith separators");
+        final var processing = request("address-2");
+        final var completed = request("address-3");
+        try (var index = new PendingWithdrawalIndex(dataDirectory)) {
+            index.pending(pending);
+            index.pending(processing);
+            index.pending(completed);
+            index.processing(processing);
+            index.processing(processing);
+            index.remove(completed.withdrawalId());
+        }
+
+        // when
+        try (var reopened = new PendingWithdrawalIndex(dataDirectory)) {
+            // then
+            assertThat(reopened.entries()).containsExactly(
+                    new Entry(pending, WithdrawalStatus.PENDING),
+                    new Entry(processing, WithdrawalStatus.PROCESSING)
+            );
+        }
+    }
+
+    @Test
+    void should_ignore_torn_record_at_the_end_of_file() throws IOException {
+        // given
+        final var pending = request("address");
+        try (var index = new PendingWithdrawalIndex(dataDirectory)) {
+            index.pending(pending);
+        }
+        Files.writeString(dataDirectory.resolve("pending-withdrawals.idx"), "S|broken", StandardOpenOption.APPEND);
+
+        // when
+        try (var reopened = new PendingWithdrawalIndex(dataDirectory)) {
+            // then
+            assertThat(reopened.entries()).containsExactly(new Entry(pending, WithdrawalStatus.PENDING));
+        }
+    }
+
+    @Test
+    void should_index_withdrawal_before_external_service_is_asked_for_it() {
+        // given
+        final var request = request("address");
+        final var metrics = new MetricsRegistry();
+        try (var index = new PendingWithdrawalIndex(dataDirectory)) {
+            final List<Entry> indexedWhenRequested = new ArrayList<>();
+            final var manager = new ExternalWithdrawalManager(new WithdrawalService<>() {
+                @Override
+                public void requestWithdrawal(WithdrawalId id, Address address, Long amount) {
+                    indexedWhenRequested.addAll(index.entries());
+                }
+
+                @Override
+                public WithdrawalState getRequestState(WithdrawalId id) {
+                    return WithdrawalState.PROCESSING;
+                }
+            }, index, metrics, new WithdrawalLifecycleTracker(Duration.ofMinutes(1), metrics, TimeSource.SYSTEM), TimeSource.SYSTEM);
+
+            // when
+            manager.withdraw(request, (withdrawal, status) -> {
+            });
+
+            // then
+            assertThat(indexedWhenRequested).containsExactly(new Entry(request, WithdrawalStatus.PENDING));
+        }
+    }
+
+    private static AccountWithdrawalRequest request(String address) {
+        return new AccountWithdrawalRequest(AccountId.random(), WithdrawalId.random(), Address.fromString(address), 100L);
+    }
+}
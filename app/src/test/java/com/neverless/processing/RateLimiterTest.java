@@ -0,0 +1,61 @@
+package com.neverless.processing;
+
+import com.neverless.domain.AccountId;
+import com.neverless.processing.RateLimiter.Limit;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RateLimiterTest {
+
+    @Test
+    void should_allow_burst_and_then_reject_until_refilled() {
+        final var limiter = new RateLimiter(new Limit(1, 3), 10);
+        final var accountId = AccountId.random();
+
+        // expect
+        assertThat(limiter.tryAcquire(accountId)).isZero();
+        assertThat(limiter.tryAcquire(accountId)).isZero();
+        assertThat(limiter.tryAcquire(accountId)).isZero();
+        assertThat(limiter.tryAcquire(accountId)).isPositive().isLessThanOrEqualTo(TimeUnit.SECONDS.toNanos(1));
+        assertThat(limiter.tryAcquire(AccountId.random())).isZero();
+    }
+
+    @Test
+    void should_keep_separate_buckets_per_key() {
+        final var limiter = new RateLimiter(new Limit(1, 1), 10);
+
+        // expect
+        assertThat(limiter.tryAcquire("client-1")).isZero();
+        assertThat(limiter.tryAcquire("client-1")).isPositive();
+        assertThat(limiter.tryAcquire("client-2")).isZero();
+    }
+
+    @Test
+    void should_evict_idle_buckets_and_let_keys_through_untracked_when_full() {
+        final var limiter = new RateLimiter(new Limit(1000, 1), 2);
+        limiter.tryAcquire("client-1");
+        limiter.tryAcquire("client-2");
+
+        // when
+        final var untracked = limiter.tryAcquire("client-3");
+        limiter.sweep(System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+
+        // then
+        assertThat(untracked).isZero();
+        assertThat(limiter.size()).isZero();
+    }
+
+    @Test
+    void should_let_everything_through_when_disabled() {
+        final var limiter = new RateLimiter(new Limit(0, 0), 10);
+
+        // expect
+        for (int i = 0; i < 1000; i++) {
+            assertThat(limiter.tryAcquire("client")).isZero();
+        }
+        assertThat(limiter.size()).isZero();
+    }
+}
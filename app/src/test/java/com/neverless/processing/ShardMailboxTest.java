@@ -0,0 +1,47 @@
+package com.neverless.processing;
+
+import com.neverless.processing.AccountOperationManager.Lane;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ShardMailboxTest {
+
+    @Test
+    void should_let_completions_overtake_queued_commands() throws InterruptedException {
+        final var mailbox = new ShardMailbox<String>();
+        mailbox.add(Lane.COMMAND, "command-1");
+        mailbox.add(Lane.COMMAND, "command-2");
+        mailbox.add(Lane.COMPLETION, "completion-1");
+
+        // expect
+        assertThat(mailbox.poll(0, TimeUnit.MILLISECONDS)).isEqualTo("completion-1");
+        assertThat(mailbox.poll(0, TimeUnit.MILLISECONDS)).isEqualTo("command-1");
+        assertThat(mailbox.poll(0, TimeUnit.MILLISECONDS)).isEqualTo("command-2");
+        assertThat(mailbox.poll(0, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void should_not_starve_commands_during_burst_of_completions() throws InterruptedException {
+        final var mailbox = new ShardMailbox<String>();
+        mailbox.add(Lane.COMMAND, "command");
+        for (int i = 0; i < 100; i++) {
+            mailbox.add(Lane.COMPLETION, "completion");
+        }
+
+        // when
+        final List<String> taken = new ArrayList<>();
+        for (int i = 0; i <= Lane.COMPLETION.weight(); i++) {
+            taken.add(mailbox.poll(0, TimeUnit.MILLISECONDS));
+        }
+
+        // then
+        assertThat(taken).containsOnlyOnce("command");
+        assertThat(mailbox.size()).isEqualTo(101 - taken.size());
+        assertThat(mailbox.size(Lane.COMMAND)).isZero();
+    }
+}
@@ -0,0 +1,142 @@
+package com.neverless.processing;
+
+import com.neverless.domain.AccountEventListener;
+import com.neverless.domain.AccountId;
+import com.neverless.domain.impl.AccountImpl;
+import com.neverless.domain.impl.AccountImpl.Transfer;
+import com.neverless.domain.impl.AccountImpl.TransferDirection;
+import com.neverless.domain.impl.AccountImpl.TransferStatus;
+import com.neverless.domain.impl.AccountRepositoryImpl;
+import com.neverless.metrics.MetricsRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TransferManagerTest {
+    private final AccountRepositoryImpl repository = new AccountRepositoryImpl();
+    private final InMemoryAccountOperationManager accountOperationManager = new InMemoryAccountOperationManager(repository, 4, account -> {
+    }, AccountEventListener.NONE, new MetricsRegistry());
+    private final TransferManager transferManager = new TransferManager(accountOperationManager, new MetricsRegistry());
+
+    @AfterEach
+    void tearDown() {
+        accountOperationManager.shutdown();
+    }
+
+    @Test
+    void should_debit_source_and_credit_destination() {
+        final var from = account(100L);
+        final var to = account(0L);
+
+        // when
+        final var transfer = transfer(from, to, 30L);
+
+        // then
+        assertThat(transfer.status()).isEqualTo(TransferStatus.SUCCESS);
+        assertThat(balance(from)).isEqualTo(new AccountImpl.AccountBalance(70L, 0L));
+        assertThat(balance(to)).isEqualTo(new AccountImpl.AccountBalance(30L, 0L));
+        assertThat(repository.find(to).orElseThrow().transfers()).singleElement().satisfies(incoming -> {
+            assertThat(incoming.transferId()).isEqualTo(transfer.transferId());
+            assertThat(incoming.direction()).isEqualTo(TransferDirection.INCOMING);
+            assertThat(incoming.counterparty()).isEqualTo(from);
+        });
+    }
+
+    @Test
+    void should_reject_transfer_when_funds_are_not_available() {
+        final var from = account(10L);
+        final var to = account(0L);
+
+        // when
+        final var transfer = transfer(from, to, 30L);
+
+        // then
+        assertThat(transfer.status()).isEqualTo(TransferStatus.ERROR);
+        assertThat(balance(from)).isEqualTo(new AccountImpl.AccountBalance(10L, 0L));
+        assertThat(balance(to)).isEqualTo(new AccountImpl.AccountBalance(0L, 0L));
+    }
+
+    @Test
+    void should_release_reserved_funds_when_destination_does_not_exist() {
+        final var from = account(100L);
+
+        // when
+        final var transfer = transfer(from, AccountId.random(), 30L);
+
+        // then
+        assertThat(transfer.status()).isEqualTo(TransferStatus.ERROR);
+        assertThat(balance(from)).isEqualTo(new AccountImpl.AccountBalance(100L, 0L));
+    }
+
+    @Test
+    void should_keep_total_balance_with_concurrent_transfers_between_shards() throws InterruptedException {
+        final List<AccountId> accounts = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            accounts.add(account(1000L));
+        }
+        final var random = new Random(7);
+        final var done = new CountDownLatch(20_000);
+
+        // when
+        for (int i = 0; i < 20_000; i++) {
+            final var from = accounts.get(random.nextInt(accounts.size()));
+            final var to = accounts.get(random.nextInt(accounts.size()));
+            if (from.equals(to)) {
+                done.countDown();
+                continue;
+            }
+            transferManager.transfer(from, to, (long) random.nextInt(200) + 1, transfer -> done.countDown());
+        }
+
+        // then
+        assertThat(done.await(30, TimeUnit.SECONDS)).isTrue();
+        final var balances = accounts.stream().map(this::balance).toList();
+        assertThat(balances.stream().mapToLong(AccountImpl.AccountBalance::balance).sum()).isEqualTo(50 * 1000L);
+        assertThat(balances).allSatisfy(balance -> {
+            assertThat(balance.balance()).isNotNegative();
+            assertThat(balance.lockedBalance()).isZero();
+        });
+    }
+
+    @Test
+    void should_credit_resumed_transfer_only_once() {
+        final var from = account(100L);
+        final var to = account(0L);
+        final var transfer = transfer(from, to, 30L);
+
+        // when
+        transferManager.resume(List.of(new TransferManager.PendingTransfer(from, transfer)));
+
+        // then
+//        Queued behind the repeated credit on destination's shard
+        final var credited = new CompletableFuture<Void>();
+        accountOperationManager.doAccountOperationAsync(to, account -> credited.complete(null), credited::completeExceptionally);
+        credited.join();
+        assertThat(balance(to)).isEqualTo(new AccountImpl.AccountBalance(30L, 0L));
+        assertThat(balance(from)).isEqualTo(new AccountImpl.AccountBalance(70L, 0L));
+    }
+
+    private AccountId account(long balance) {
+        final var accountId = AccountId.random();
+        repository.save(new AccountImpl(accountId, balance));
+        return accountId;
+    }
+
+    private Transfer transfer(AccountId from, AccountId to, long amount) {
+        final var settled = new CompletableFuture<Transfer>();
+        transferManager.transfer(from, to, amount, settled::complete);
+        return settled.orTimeout(5, TimeUnit.SECONDS).join();
+    }
+
+    private AccountImpl.AccountBalance balance(AccountId accountId) {
+        return repository.find(accountId).orElseThrow().accountBalance();
+    }
+}
@@ -0,0 +1,100 @@
+package com.neverless.processing;
+
+import com.neverless.domain.AccountId;
+import com.neverless.domain.impl.AccountImpl.Withdrawal;
+import com.neverless.domain.impl.AccountImpl.WithdrawalStatus;
+import com.neverless.integration.WithdrawalService.WithdrawalId;
+import com.neverless.metrics.MetricsRegistry;
+import com.neverless.processing.WithdrawalLifecycleTracker.Stage;
+import com.neverless.time.TimeSource;
+import com.neverless.time.VirtualTimeSource;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WithdrawalLifecycleTrackerTest {
+
+    @Test
+    void should_record_every_stage_once_until_balance_is_unlocked() {
+        final var tracker = new WithdrawalLifecycleTracker(Duration.ofMinutes(1), new MetricsRegistry(), TimeSource.SYSTEM);
+        final var accountId = AccountId.random();
+        final var withdrawalId = WithdrawalId.random();
+
+        // when
+        tracker.applied(accountId, withdrawalId, System.nanoTime());
+        tracker.submitted(withdrawalId);
+        tracker.processing(withdrawalId);
+        tracker.processing(withdrawalId);
+        tracker.finalState(withdrawalId);
+        tracker.withdrawalStatusChanged(accountId, withdrawal(withdrawalId, WithdrawalStatus.SUCCESS), WithdrawalStatus.PENDING);
+
+        // then
+        assertThat(tracker.inFlight()).isZero();
+        assertThat(tracker.total().count()).isEqualTo(1);
+        assertThat(tracker.stageLatencies()).hasSize(5);
+        tracker.stageLatencies().values().forEach(histogram -> assertThat(histogram.count()).isEqualTo(1));
+        assertThat(tracker.slowStages()).isEmpty();
+    }
+
+    @Test
+    void should_report_stages_slower_than_threshold() {
+        final var tracker = new WithdrawalLifecycleTracker(Duration.ofMillis(10), new MetricsRegistry(), TimeSource.SYSTEM);
+        final var accountId = AccountId.random();
+        final var withdrawalId = WithdrawalId.random();
+
+        // when
+        tracker.applied(accountId, withdrawalId, System.nanoTime() - Duration.ofSeconds(1).toNanos());
+
+        // then
+        assertThat(tracker.slowStages()).singleElement().satisfies(slow -> {
+            assertThat(slow.withdrawalId()).isEqualTo(withdrawalId);
+            assertThat(slow.stage()).isEqualTo(Stage.APPLIED);
+            assertThat(slow.duration()).isGreaterThanOrEqualTo(Duration.ofSeconds(1));
+        });
+    }
+
+    @Test
+    void should_report_withdrawals_waiting_for_a_stage_longer_than_threshold_once() {
+        final var timeSource = new VirtualTimeSource(0);
+        final var tracker = new WithdrawalLifecycleTracker(Duration.ofSeconds(5), new MetricsRegistry(), timeSource);
+        final var accountId = AccountId.random();
+        final var withdrawalId = WithdrawalId.random();
+        tracker.applied(accountId, withdrawalId, tracker.now());
+        tracker.submitted(withdrawalId);
+
+        // when
+        timeSource.advance(Duration.ofSeconds(6));
+        tracker.sweep();
+        timeSource.advance(Duration.ofSeconds(6));
+        tracker.sweep();
+
+        // then
+        assertThat(tracker.slowStages()).singleElement().satisfies(slow -> {
+            assertThat(slow.withdrawalId()).isEqualTo(withdrawalId);
+            assertThat(slow.stage()).isEqualTo(Stage.PROCESSING);
+            assertThat(slow.duration()).isEqualTo(Duration.ofSeconds(6));
+            assertThat(slow.reached()).isFalse();
+        });
+    }
+
+    @Test
+    void should_not_track_withdrawals_rejected_by_balance_check() {
+        final var tracker = new WithdrawalLifecycleTracker(Duration.ofMinutes(1), new MetricsRegistry(), TimeSource.SYSTEM);
+        final var accountId = AccountId.random();
+        final var withdrawalId = WithdrawalId.random();
+
+        // when
+        tracker.withdrawalStatusChanged(accountId, withdrawal(withdrawalId, WithdrawalStatus.ERROR), null);
+        tracker.applied(accountId, withdrawalId, System.nanoTime());
+
+        // then
+        assertThat(tracker.inFlight()).isZero();
+        assertThat(tracker.stageLatencies().get(Stage.APPLIED).count()).isZero();
+    }
+
+    private static Withdrawal withdrawal(WithdrawalId withdrawalId, WithdrawalStatus status) {
+        return new Withdrawal(withdrawalId, "address", 100L, status, "");
+    }
+}
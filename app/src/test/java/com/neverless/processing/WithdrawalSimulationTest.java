@@ -0,0 +1,110 @@
+package com.neverless.processing;
+
+import com.neverless.domain.AccountId;
+import com.neverless.domain.impl.AccountImpl.WithdrawalStatus;
+import com.neverless.integration.SimulatedWithdrawalService;
+import com.neverless.integration.WithdrawalService.Address;
+import com.neverless.integration.WithdrawalService.WithdrawalId;
+import com.neverless.metrics.MetricsRegistry;
+import com.neverless.processing.ExternalWithdrawalManager.AccountWithdrawalRequest;
+import com.neverless.time.VirtualTimeSource;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Drives ExternalWithdrawalManager on virtual time: every tick new withdrawals arrive, time moves by one poll interval
+ * and one status scan runs, minutes of custodian delays take a couple of seconds.
+ */
+public class WithdrawalSimulationTest {
+    private static final Duration TICK = Duration.ofMillis(100);
+
+    @TempDir
+    Path dataDirectory;
+
+    @Test
+    void should_drain_backlog_within_custodian_delay() {
+        // when
+        final var result = simulate(100_000, 2_000, 42);
+
+        // then
+        assertThat(result.completed() + result.failed()).isEqualTo(100_000);
+        assertThat(result.completed()).isBetween(45_000L, 55_000L);
+//        Custodian resolves within 10s, status checker sees it at most one tick later
+        assertThat(result.maxTimeToFinalState()).isLessThanOrEqualTo(Duration.ofSeconds(10).plus(TICK));
+//        Little's law: 2000/s arriving and staying ~5.5s on average
+        assertThat(result.peakPending()).isBetween(9_000L, 15_000L);
+    }
+
+    @Test
+    void should_be_reproducible_with_same_seed() {
+        // expect
+        assertThat(simulate(10_000, 1_000, 7)).isEqualTo(simulate(10_000, 1_000, 7));
+    }
+
+    @Test
+    void should_not_change_later_outcomes_when_withdrawal_is_requested_again() {
+        // given
+        final var address = Address.fromString("address");
+        final var retried = WithdrawalId.random();
+        final var later = Stream.generate(WithdrawalId::random).limit(20).toList();
+        final var clock = new VirtualTimeSource(0);
+        final var once = new SimulatedWithdrawalService(clock, 42);
+        final var twice = new SimulatedWithdrawalService(clock, 42);
+
+        // when
+        once.requestWithdrawal(retried, address, 10L);
+        later.forEach(withdrawalId -> once.requestWithdrawal(withdrawalId, address, 10L));
+        twice.requestWithdrawal(retried, address, 10L);
+        twice.requestWithdrawal(retried, address, 10L);
+        later.forEach(withdrawalId -> twice.requestWithdrawal(withdrawalId, address, 10L));
+        clock.advance(Duration.ofSeconds(10));
+
+        // then
+        assertThat(twice.getRequestState(retried)).isEqualTo(once.getRequestState(retried));
+        assertThat(later).allSatisfy(withdrawalId ->
+                assertThat(twice.getRequestState(withdrawalId)).isEqualTo(once.getRequestState(withdrawalId)));
+    }
+
+    private Result simulate(int withdrawals, int perSecond, long seed) {
+        final var clock = new VirtualTimeSource(0);
+        final var metrics = new MetricsRegistry();
+        final var manager = new ExternalWithdrawalManager(new SimulatedWithdrawalService(clock, seed),
+                new PendingWithdrawalIndex(dataDirectory.resolve(Long.toString(seed) + withdrawals), false), metrics,
+                new WithdrawalLifecycleTracker(Duration.ofMinutes(1), metrics, clock), clock);
+        final var completed = new AtomicLong();
+        final var failed = new AtomicLong();
+        final var maxTimeToFinalState = new AtomicLong();
+        final var submittedAt = new HashMap<WithdrawalId, Long>();
+        final var address = Address.fromString("address");
+        final var perTick = perSecond * TICK.toMillis() / 1000;
+
+        long submitted = 0;
+        long peakPending = 0;
+        while (submitted < withdrawals || completed.get() + failed.get() < withdrawals) {
+            for (int i = 0; i < perTick && submitted < withdrawals; i++, submitted++) {
+                final var withdrawalId = WithdrawalId.random();
+                submittedAt.put(withdrawalId, clock.nanoTime());
+                manager.withdraw(new AccountWithdrawalRequest(AccountId.random(), withdrawalId, address, 10L), (request, status) -> {
+                    maxTimeToFinalState.accumulateAndGet(clock.nanoTime() - submittedAt.get(request.withdrawalId()), Math::max);
+                    (status == WithdrawalStatus.SUCCESS ? completed : failed).incrementAndGet();
+                });
+            }
+            peakPending = Math.max(peakPending, submitted - completed.get() - failed.get());
+            clock.advance(TICK);
+            manager.statusTask().checkWithdrawalStatus();
+        }
+        manager.shutdown();
+        return new Result(completed.get(), failed.get(), peakPending, Duration.ofNanos(maxTimeToFinalState.get()), Duration.ofNanos(clock.nanoTime()));
+    }
+
+    private record Result(long completed, long failed, long peakPending, Duration maxTimeToFinalState, Duration elapsed) {
+    }
+}
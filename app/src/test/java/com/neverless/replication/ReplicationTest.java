@@ -0,0 +1,142 @@
+package com.neverless.replication;
+
+import com.neverless.domain.AccountEventListener;
+import com.neverless.domain.AccountId;
+import com.neverless.domain.AccountRepository;
+import com.neverless.domain.impl.AccountRepositoryImpl;
+import com.neverless.metrics.MetricsRegistry;
+import com.neverless.processing.InMemoryAccountOperationManager;
+import com.neverless.resources.serialization.Serializers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+public class ReplicationTest {
+    private final AccountRepository primaryRepository = new AccountRepositoryImpl();
+    private final AccountRepository standbyRepository = new AccountRepositoryImpl();
+    private ReplicationSource source;
+    private InMemoryAccountOperationManager primary;
+    private InMemoryAccountOperationManager standby;
+    private StandbyFollower follower;
+
+    @BeforeEach
+    void setUp() {
+        source = new ReplicationSource(primaryRepository, Serializers.cbor(), new MetricsRegistry(), 100_000);
+        primary = new InMemoryAccountOperationManager(primaryRepository, 4, source, AccountEventListener.NONE.andThen(source), new MetricsRegistry());
+        standby = new InMemoryAccountOperationManager(standbyRepository, 4, account -> {
+        }, AccountEventListener.NONE, new MetricsRegistry());
+        source.listen(0, primary);
+        follower = new StandbyFollower(new InetSocketAddress("localhost", source.port()), Serializers.cbor(), standbyRepository, standby, new MetricsRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        follower.close();
+        source.close();
+        primary.shutdown();
+        standby.shutdown();
+    }
+
+    @Test
+    void should_replicate_accounts_existing_before_and_changed_after_standby_connected() {
+        final var accounts = new ArrayList<AccountId>();
+        for (int i = 0; i < 500; i++) {
+            accounts.add(fundedAccount(100L));
+        }
+
+        // when
+        follower.start();
+        accounts.forEach(accountId -> primary.doAccountOperationAsync(accountId, account -> account.withdraw("address", 30L), ex -> {
+        }));
+        for (int i = 0; i < 100; i++) {
+            accounts.add(fundedAccount(50L));
+        }
+
+        // then
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> assertReplicated(accounts));
+        assertThat(follower.isSynced()).isTrue();
+        assertThat(follower.staleness()).isLessThan(Duration.ofSeconds(1));
+    }
+
+    @Test
+    void should_replicate_full_state_of_account_changed_while_standby_connects() throws InterruptedException {
+        final var accountId = fundedAccount(100L);
+        primary.doAccountOperationAsync(accountId, account -> account.withdraw("address", 10L), ex -> {
+        });
+        final var started = new CountDownLatch(1);
+        final var release = new CountDownLatch(1);
+        primary.doAccountOperationAsync(accountId, account -> {
+            started.countDown();
+            awaitUninterruptibly(release);
+            account.withdraw("address", 20L);
+        }, ex -> {
+        });
+        started.await();
+
+        // when
+        follower.start();
+        await().atMost(Duration.ofSeconds(10)).until(() -> source.standbys() == 1);
+        release.countDown();
+
+        // then
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> assertReplicated(List.of(accountId)));
+        assertThat(standbyRepository.find(accountId).orElseThrow().withdrawalStats())
+                .isEqualTo(primaryRepository.find(accountId).orElseThrow().withdrawalStats());
+        assertThat(follower.promote().withdrawals()).hasSize(2);
+    }
+
+    @Test
+    void should_hand_over_in_flight_withdrawals_on_promotion() {
+        final var accountId = fundedAccount(100L);
+        follower.start();
+        primary.doAccountOperationAsync(accountId, account -> account.withdraw("address", 30L), ex -> {
+        });
+        await().atMost(Duration.ofSeconds(10)).untilAsserted(() -> assertReplicated(List.of(accountId)));
+
+        // when
+        final var takeOver = follower.promote();
+
+        // then
+        assertThat(follower.isPromoted()).isTrue();
+        assertThat(takeOver.withdrawals()).singleElement().satisfies(request -> {
+            assertThat(request.accountId()).isEqualTo(accountId);
+            assertThat(request.amount()).isEqualTo(30L);
+        });
+    }
+
+    private AccountId fundedAccount(long amount) {
+        final var accountId = AccountId.random();
+        primary.createAccount(accountId);
+        primary.doAccountOperationAsync(accountId, account -> account.addToBalance(amount), ex -> {
+        });
+        return accountId;
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void assertReplicated(List<AccountId> accounts) {
+        accounts.forEach(accountId -> {
+            final var original = primaryRepository.find(accountId).orElseThrow();
+            assertThat(standbyRepository.find(accountId)).hasValueSatisfying(replica -> {
+                assertThat(replica.version()).isEqualTo(original.version());
+                assertThat(replica.accountBalance()).isEqualTo(original.accountBalance());
+                assertThat(replica.withdrawals()).containsExactlyElementsOf(List.copyOf(original.withdrawals()));
+            });
+        });
+    }
+}
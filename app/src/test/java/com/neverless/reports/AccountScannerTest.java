@@ -0,0 +1,78 @@
+package com.neverless.reports;
+
+import com.neverless.domain.Account;
+import com.neverless.domain.AccountId;
+import com.neverless.domain.impl.AccountImpl;
+import com.neverless.domain.impl.AccountRepositoryImpl;
+import com.neverless.metrics.MetricsRegistry;
+import com.neverless.processing.LiabilityTotals;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccountScannerTest {
+    private final AccountRepositoryImpl repository = new AccountRepositoryImpl();
+    private final AccountScanner accountScanner = new AccountScanner(repository, 4, new MetricsRegistry());
+
+    @AfterEach
+    void tearDown() {
+        accountScanner.close();
+    }
+
+    @Test
+    void should_summarize_every_account_once() {
+        // given
+        for (long i = 0; i < 100_000; i++) {
+            repository.save(new AccountImpl(AccountId.random(), i));
+        }
+
+        // when
+        final var all = accountScanner.summarize(AccountFilter.ALL).orTimeout(10, TimeUnit.SECONDS).join();
+        final var rich = accountScanner.summarize(new AccountFilter(90_000L, null, null, false)).orTimeout(10, TimeUnit.SECONDS).join();
+
+        // then
+        assertThat(all.scanned()).isEqualTo(100_000);
+        assertThat(all.matched()).isEqualTo(100_000);
+        assertThat(all.totals()).isEqualTo(new LiabilityTotals(99_999L * 100_000 / 2, 0));
+        assertThat(all.balanceDistribution()).extracting(AccountSummary.BalanceBucket::accounts)
+                .containsExactly(1L, 9L, 90L, 900L, 9_000L, 90_000L);
+        assertThat(rich.scanned()).isEqualTo(100_000);
+        assertThat(rich.matched()).isEqualTo(10_000);
+    }
+
+    @Test
+    void should_find_accounts_with_locked_balance_but_no_withdrawal_in_flight() {
+        // given
+        final Account idle = new AccountImpl(AccountId.random(), 100L);
+        final Account withdrawing = new AccountImpl(AccountId.random(), 100L);
+        withdrawing.withdraw("address", 30L);
+        final Account transferring = new AccountImpl(AccountId.random(), 100L);
+        transferring.reserveTransfer(idle.id(), 40L);
+        repository.save(idle);
+        repository.save(withdrawing);
+        repository.save(transferring);
+
+        // when
+        final var found = accountScanner.find(new AccountFilter(null, null, null, true), 10).orTimeout(10, TimeUnit.SECONDS).join();
+
+        // then
+        assertThat(found).containsExactly(new AccountRow(transferring.id(), 100L, 40L, 0, 0));
+    }
+
+    @Test
+    void should_return_at_most_limit_accounts() {
+        // given
+        for (int i = 0; i < 1_000; i++) {
+            repository.save(new AccountImpl(AccountId.random(), 10L));
+        }
+
+        // when
+        final var found = accountScanner.find(new AccountFilter(10L, 10L, null, false), 25).orTimeout(10, TimeUnit.SECONDS).join();
+
+        // then
+        assertThat(found).hasSize(25).allMatch(row -> row.balance() == 10L);
+    }
+}
@@ -0,0 +1,75 @@
+package com.neverless.resources.serialization;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.neverless.domain.AccountId;
+import com.neverless.domain.impl.AccountImpl.WithdrawalStatus;
+import com.neverless.integration.WithdrawalService.WithdrawalId;
+import com.neverless.resources.Accounts.AccountResponse;
+import com.neverless.resources.dtos.WithdrawalResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SerializersTest {
+    private final ObjectMapper reflective = new ObjectMapper().registerModule(new Jdk8Module());
+
+    @Test
+    void should_write_same_json_as_reflection_based_serializers() throws Exception {
+        // given
+        final var account = new AccountResponse(AccountId.random(), 500L, 100L);
+        final var withdrawals = List.of(
+                new WithdrawalResponse(WithdrawalId.random(), WithdrawalStatus.PENDING, 100L, ""),
+                new WithdrawalResponse(WithdrawalId.random(), WithdrawalStatus.ERROR, 200L, "Not enough balance")
+        );
+
+        // when
+        final var json = Serializers.json();
+
+        // then
+        assertThat(json.writeValueAsString(account)).isEqualTo(reflective.writeValueAsString(account));
+        assertThat(json.writeValueAsString(withdrawals)).isEqualTo(reflective.writeValueAsString(withdrawals));
+    }
+
+    @Test
+    void should_read_back_cbor_responses_and_be_smaller_than_json() throws Exception {
+        // given
+        final var withdrawals = List.of(
+                new WithdrawalResponse(WithdrawalId.random(), WithdrawalStatus.SUCCESS, 100L, ""),
+                new WithdrawalResponse(WithdrawalId.random(), WithdrawalStatus.PROCESSING, 200L, "")
+        );
+        final var cbor = Serializers.cbor();
+
+        // when
+        final var bytes = cbor.writeValueAsBytes(withdrawals);
+
+        // then
+        assertThat(cbor.readValue(bytes, new TypeReference<List<WithdrawalResponse>>() {
+        })).isEqualTo(withdrawals);
+        assertThat(bytes.length).isLessThan(Serializers.json().writeValueAsBytes(withdrawals).length);
+    }
+
+    //    Same documents as SerializerBenchmark, sizes are the ones listed in README
+    @Test
+    void should_encode_benchmark_documents_to_sizes_listed_in_readme() throws Exception {
+        // given
+        final var account = new AccountResponse(AccountId.random(), 1_000_000L, 2_500L);
+        final var withdrawals = IntStream.range(0, 50)
+                .mapToObj(i -> new WithdrawalResponse(WithdrawalId.random(), WithdrawalStatus.values()[i % 4], 100L + i, ""))
+                .toList();
+
+        // when
+        final var json = Serializers.json();
+        final var cbor = Serializers.cbor();
+
+        // then
+        assertThat(json.writeValueAsBytes(account)).hasSize(84);
+        assertThat(cbor.writeValueAsBytes(account)).hasSize(51);
+        assertThat(json.writeValueAsBytes(withdrawals)).hasSize(5066);
+        assertThat(cbor.writeValueAsBytes(withdrawals)).hasSize(3217);
+    }
+}
@@ -0,0 +1,143 @@
+package com.neverless.storage;
+
+import com.neverless.domain.AccountEventListener;
+import com.neverless.domain.AccountId;
+import com.neverless.domain.impl.AccountImpl.AccountBalance;
+import com.neverless.metrics.MetricsRegistry;
+import com.neverless.processing.AccountOperationManager.ShardReconciliation;
+import com.neverless.processing.InMemoryAccountOperationManager;
+import com.neverless.processing.LiabilityTotals;
+import com.neverless.processing.TransferManager;
+import com.neverless.resources.serialization.Serializers;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+public class TieredAccountRepositoryTest {
+    private static final int MAX_HOT_ACCOUNTS = 50;
+
+    @TempDir
+    Path dataDirectory;
+
+    private TieredAccountRepository repository;
+    private InMemoryAccountOperationManager accountOperationManager;
+
+    @AfterEach
+    void tearDown() {
+        accountOperationManager.shutdown();
+        repository.close();
+    }
+
+    @Test
+    void should_keep_all_changes_of_accounts_moving_between_memory_and_disk() throws InterruptedException {
+        // given
+        start();
+        final var transferManager = new TransferManager(accountOperationManager, new MetricsRegistry());
+        final var accounts = accounts(1_000, 100L);
+        final var random = new Random(42);
+        final var transfers = 5_000;
+        final var completed = new CountDownLatch(transfers);
+
+        // when
+        for (int i = 0; i < transfers; i++) {
+            final var from = random.nextInt(accounts.size());
+            final var to = (from + 1 + random.nextInt(accounts.size() - 1)) % accounts.size();
+            transferManager.transfer(accounts.get(from), accounts.get(to), (long) random.nextInt(50), transfer -> completed.countDown());
+        }
+
+        // then
+        assertThat(completed.await(30, TimeUnit.SECONDS)).isTrue();
+        final var reconciliation = accountOperationManager.reconcileLiabilities().orTimeout(5, TimeUnit.SECONDS).join();
+        assertThat(reconciliation).allMatch(ShardReconciliation::isConsistent);
+        assertThat(reconciliation.stream().mapToLong(ShardReconciliation::accounts).sum()).isEqualTo(accounts.size());
+        assertThat(accountOperationManager.liabilityTotals()).isEqualTo(new LiabilityTotals(100_000L, 0L));
+        final var total = accounts.stream()
+                .map(accountId -> repository.find(accountId).orElseThrow().accountBalance())
+                .peek(balance -> assertThat(balance.lockedBalance()).isZero())
+                .mapToLong(AccountBalance::balance)
+                .sum();
+        assertThat(total).isEqualTo(100_000L);
+    }
+
+    @Test
+    void should_keep_frequently_used_accounts_in_memory_during_a_scan() throws InterruptedException {
+        // given
+        start();
+        final var accounts = accounts(1_000, 0L);
+        final var frequent = accounts.subList(0, MAX_HOT_ACCOUNTS / 2);
+        for (int i = 0; i < 10; i++) {
+            touch(frequent);
+        }
+
+        // when
+        touch(accounts.subList(MAX_HOT_ACCOUNTS / 2, accounts.size()));
+
+        // then
+        assertThat(frequent).filteredOn(accountId -> repository.findLoaded(accountId) != null)
+                .hasSizeGreaterThan(frequent.size() * 9 / 10);
+    }
+
+    @Test
+    void should_reconcile_accounts_on_disk_without_loading_them() throws InterruptedException {
+        // given
+        start();
+        final var accounts = accounts(1_000, 10L);
+        touch(accounts);
+//        Evictions of the last loads run on shards after the touch
+        await().atMost(Duration.ofSeconds(5)).until(() -> loaded(accounts).size() <= MAX_HOT_ACCOUNTS);
+        final var loaded = loaded(accounts);
+
+        // when
+        final var reconciliation = accountOperationManager.reconcileLiabilities().orTimeout(5, TimeUnit.SECONDS).join();
+
+        // then
+        assertThat(reconciliation).allMatch(ShardReconciliation::isConsistent);
+        assertThat(reconciliation.stream().mapToLong(ShardReconciliation::accounts).sum()).isEqualTo(accounts.size());
+        assertThat(loaded(accounts)).containsExactlyInAnyOrderElementsOf(loaded);
+    }
+
+    private void start() {
+        final var metrics = new MetricsRegistry();
+        repository = new TieredAccountRepository(MAX_HOT_ACCOUNTS, dataDirectory, Serializers.json(), metrics);
+        accountOperationManager = new InMemoryAccountOperationManager(repository, 4, account -> {
+        }, AccountEventListener.NONE, metrics);
+        repository.attach(AccountEventListener.NONE, (accountId, action) -> accountOperationManager.doAccountOperationAsync(accountId, action, ex -> {
+        }));
+    }
+
+    private List<AccountId> accounts(int count, long balance) {
+        final List<AccountId> accounts = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            final var accountId = AccountId.random();
+            accountOperationManager.createAccount(accountId);
+            accountOperationManager.doAccountOperationAsync(accountId, account -> account.addToBalance(balance), ex -> {
+            });
+            accounts.add(accountId);
+        }
+        return accounts;
+    }
+
+    private List<AccountId> loaded(List<AccountId> accounts) {
+        return accounts.stream().filter(accountId -> repository.findLoaded(accountId) != null).toList();
+    }
+
+    //    One at a time, so that accesses are not dropped while policy lock is busy
+    private void touch(List<AccountId> accounts) throws InterruptedException {
+        for (AccountId accountId : accounts) {
+            final var touched = new CountDownLatch(1);
+            accountOperationManager.doAccountOperationAsync(accountId, account -> touched.countDown(), ex -> touched.countDown());
+            assertThat(touched.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.neverless.spec;
+
+import com.neverless.domain.AccountId;
+import com.neverless.resources.dtos.AddFundRequest;
+import com.neverless.resources.dtos.CreateAccountRequest;
+import io.restassured.response.Response;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AccountVersionSpec extends FunctionalSpec {
+
+    protected AccountVersionSpec(ApplicationContext context) {
+        super(context);
+    }
+
+    @Test
+    void should_respond_with_not_modified_when_etag_matches() {
+        final var accountId = AccountId.random();
+        createAccount(accountId);
+
+        // when
+        final var first = when().get("/accounts/{id}", accountId.value()).thenReturn();
+        final var second = given().header("If-None-Match", first.header("ETag")).get("/accounts/{id}", accountId.value()).thenReturn();
+
+        // then
+        assertThat(first.statusCode()).isEqualTo(200);
+        assertThat(first.header("ETag")).isEqualTo("\"0\"");
+        assertThat(second.statusCode()).isEqualTo(304);
+        assertThat(second.body().asString()).isEmpty();
+    }
+
+    @Test
+    void should_respond_to_long_poll_once_account_changes() throws Exception {
+        final var accountId = AccountId.random();
+        createAccount(accountId);
+
+        // when
+        final var longPoll = async(() -> given().queryParam("sinceVersion", 0).queryParam("timeoutMs", 10_000)
+                .get("/accounts/{id}", accountId.value()).thenReturn());
+        Thread.sleep(200);
+        when().body(new AddFundRequest(500L)).put("/accounts/{id}/funds", accountId.value()).thenReturn();
+
+        // then
+        final var response = longPoll.get();
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.header("ETag")).isEqualTo("\"1\"");
+        assertThatJson(response.body().asString()).inPath("balance").isEqualTo(500);
+    }
+
+    @Test
+    void should_respond_with_not_modified_when_long_poll_times_out() {
+        final var accountId = AccountId.random();
+        createAccount(accountId);
+
+        // when
+        final var response = given().queryParam("sinceVersion", 0).queryParam("timeoutMs", 200)
+                .get("/accounts/{id}/withdrawals", accountId.value()).thenReturn();
+
+        // then
+        assertThat(response.statusCode()).isEqualTo(304);
+        assertThat(response.header("ETag")).isEqualTo("\"0\"");
+    }
+
+    private FutureTask<Response> async(Callable<Response> callable) {
+        FutureTask<Response> futureTask = new FutureTask<>(callable);
+        Thread.startVirtualThread(futureTask);
+        return futureTask;
+    }
+
+    private void createAccount(AccountId id) {
+        when().body(new CreateAccountRequest(id)).post("/accounts").thenReturn();
+    }
+}
@@ -134,6 +134,21 @@ public class AccountsSpec extends FunctionalSpec {
 
     }
 
+    @Test
+    void should_not_submit_withdrawal_to_external_service_when_not_enough_funds_in_account() {
+        final var accountId = AccountId.random();
+        createAccount(accountId);
+        addFundsToAccount(accountId, 10L);
+        final var submittedBefore = externalWithdrawalRequests();
+
+        // when
+        createWithdrawal(accountId, UUID.randomUUID().toString(), 100L);
+        createWithdrawal(accountId, UUID.randomUUID().toString(), 5L);
+
+        // then
+        assertThat(externalWithdrawalRequests()).isEqualTo(submittedBefore + 1);
+    }
+
     @Test
     void should_respond_with_accepted_status_when_withdrawal_requested_when_enough_funds_in_account() {
         final var accountId = AccountId.random();
@@ -337,6 +352,33 @@ public class AccountsSpec extends FunctionalSpec {
         return true;
     }
 
+    @Test
+    void should_respond_with_withdrawal_stats_by_status() {
+        final var accountId = AccountId.random();
+        createAccount(accountId);
+        addFundsToAccount(accountId, 500L);
+
+        // when
+        createWithdrawal(accountId, UUID.randomUUID().toString(), 100L);
+        createWithdrawal(accountId, UUID.randomUUID().toString(), 150L);
+        createWithdrawal(accountId, UUID.randomUUID().toString(), 1000L);
+
+        // then
+        await().atMost(Duration.of(30, SECONDS)).untilAsserted(() -> {
+            final var response = when().get("/accounts/{id}/stats", accountId.value()).thenReturn();
+            assertThat(response.statusCode()).isEqualTo(200);
+            final var body = response.body().asString();
+            assertThatJson(body).inPath("pending").isEqualTo("{\"count\": 0, \"amount\": 0}");
+            assertThatJson(body).inPath("processing").isEqualTo("{\"count\": 0, \"amount\": 0}");
+            final var succeeded = response.jsonPath().getLong("succeeded.amount");
+            final var failed = response.jsonPath().getLong("failed.amount");
+            assertThat(succeeded + failed).isEqualTo(1250L);
+            assertThat(response.jsonPath().getLong("succeeded.count") + response.jsonPath().getLong("failed.count")).isEqualTo(3L);
+            assertThat(failed).isGreaterThanOrEqualTo(1000L);
+            assertThatJson(body).inPath("totalWithdrawn").isEqualTo(succeeded);
+        });
+    }
+
     private Response createAccount(AccountId id) {
         final var createAccountRequest = new CreateAccountRequest(id);
         return when().body(createAccountRequest).post("/accounts").thenReturn();
@@ -357,6 +399,16 @@ public class AccountsSpec extends FunctionalSpec {
         return futureTask;
     }
 
+    //    Every requestWithdrawal call to external service is timed, so its histogram count is how many it received
+    private long externalWithdrawalRequests() {
+        final var metrics = when().get("/metrics").thenReturn().body().asString();
+        return metrics.lines()
+                .filter(line -> line.startsWith("external_withdrawal_request_seconds_count "))
+                .mapToLong(line -> Long.parseLong(line.substring(line.indexOf(' ') + 1)))
+                .findFirst()
+                .orElse(0L);
+    }
+
     private void addFundsToAccount(AccountId accountId, Long amount) {
         final var addFundRequest = new AddFundRequest(amount);
         when().body(addFundRequest).put("/accounts/{id}/funds", accountId.value()).thenReturn();
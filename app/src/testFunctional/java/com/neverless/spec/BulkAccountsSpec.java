@@ -0,0 +1,115 @@
+package com.neverless.spec;
+
+import com.neverless.domain.AccountId;
+import com.neverless.resources.dtos.CreateAccountRequest;
+import com.neverless.resources.dtos.WithdrawalResponse;
+import io.restassured.RestAssured;
+import io.restassured.http.ContentType;
+import io.restassured.path.json.JsonPath;
+import io.restassured.response.Response;
+import org.awaitility.Durations;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static io.restassured.config.EncoderConfig.encoderConfig;
+import static java.time.temporal.ChronoUnit.SECONDS;
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+public class BulkAccountsSpec extends FunctionalSpec {
+
+    protected BulkAccountsSpec(ApplicationContext context) {
+        super(context);
+    }
+
+    @Test
+    void should_add_funds_for_every_valid_line_and_report_status_per_line() {
+        final var accountId = AccountId.random();
+        final var missingAccountId = AccountId.random();
+        createAccount(accountId);
+
+        // when
+        final var response = postNdjson("/bulk/funds", """
+                {"accountId": "%s", "amount": 100}
+                {"accountId": "%s", "amount": 50}
+                not a json
+                {"accountId": "%s", "amount": 25}
+                """.formatted(accountId.value(), missingAccountId.value(), accountId.value()));
+
+        // then
+        assertThat(response.statusCode()).isEqualTo(200);
+        final var lines = response.body().asString().lines().toList();
+        assertThat(lines).hasSize(4);
+        assertThatJson(lines.get(0)).isEqualTo("""
+                {"line": 1, "accountId": "%s", "status": 200, "account": {"id": "%s", "balance": 100, "lockedBalance": 0}}
+                """.formatted(accountId.value(), accountId.value()));
+        assertThatJson(lines.get(1)).inPath("status").isEqualTo(404);
+        assertThatJson(lines.get(2)).inPath("status").isEqualTo(400);
+        assertThatJson(lines.get(3)).inPath("account.balance").isEqualTo(125);
+
+        // and
+        await().atMost(Duration.of(5, SECONDS)).pollInterval(Durations.ONE_HUNDRED_MILLISECONDS)
+                .untilAsserted(() -> assertThatJson(getAccounts(accountId).body().asString()).isEqualTo("""
+                        {"line": 1, "accountId": "%s", "status": 200, "account": {"id": "%s", "balance": 125, "lockedBalance": 0}}
+                        """.formatted(accountId.value(), accountId.value())));
+    }
+
+    @Test
+    void should_report_created_and_rejected_withdrawal_per_line() {
+        final var accountId = AccountId.random();
+        createAccount(accountId);
+        postNdjson("/bulk/funds", """
+                {"accountId": "%s", "amount": 1000}
+                """.formatted(accountId.value()));
+
+        // when
+        final var response = postNdjson("/bulk/withdrawals", """
+                {"accountId": "%s", "address": "address-1", "amount": 100}
+                {"accountId": "%s", "address": "address-2", "amount": 200}
+                {"accountId": "%s", "address": "address-3", "amount": 5000}
+                """.formatted(accountId.value(), accountId.value(), accountId.value()));
+
+        // then
+        final var lines = response.body().asString().lines().toList();
+        assertThat(lines).hasSize(3);
+        assertThatJson(lines.get(0)).inPath("status").isEqualTo(201);
+        assertThatJson(lines.get(0)).inPath("withdrawal.status").isEqualTo("PENDING");
+        assertThatJson(lines.get(1)).inPath("withdrawal.amount").isEqualTo(200);
+        assertThatJson(lines.get(2)).inPath("status").isEqualTo(422);
+        assertThatJson(lines.get(2)).inPath("withdrawal.status").isEqualTo("ERROR");
+        final var withdrawalId = JsonPath.from(lines.get(0)).getString("withdrawal.withdrawalId");
+        final var withdrawals = when().get("/accounts/{id}/withdrawals", accountId.value()).body().jsonPath().getList(".", WithdrawalResponse.class);
+        assertThat(withdrawals).hasSize(3).extracting(withdrawal -> withdrawal.withdrawalId().value().toString()).contains(withdrawalId);
+    }
+
+    @Test
+    void should_report_not_found_accounts_in_multi_get() {
+        final var accountId = AccountId.random();
+
+        // when
+        final var response = getAccounts(accountId);
+
+        // then
+        assertThatJson(response.body().asString()).isEqualTo("""
+                {"line": 1, "status": 404, "message": "Account %s is not found"}
+                """.formatted(accountId));
+    }
+
+    private Response getAccounts(AccountId accountId) {
+        return postNdjson("/bulk/accounts", """
+                {"accountId": "%s"}
+                """.formatted(accountId.value()));
+    }
+
+    //    RestAssured does not know how to encode application/x-ndjson, body is sent as it is
+    private Response postNdjson(String path, String body) {
+        return given().config(RestAssured.config().encoderConfig(encoderConfig().encodeContentTypeAs("application/x-ndjson", ContentType.TEXT)))
+                .contentType("application/x-ndjson").body(body).when().post(path).thenReturn();
+    }
+
+    private void createAccount(AccountId id) {
+        when().body(new CreateAccountRequest(id)).post("/accounts").thenReturn();
+    }
+}
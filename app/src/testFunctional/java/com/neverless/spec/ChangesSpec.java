@@ -0,0 +1,69 @@
+package com.neverless.spec;
+
+import com.neverless.domain.AccountId;
+import com.neverless.resources.dtos.AddFundRequest;
+import com.neverless.resources.dtos.CreateAccountRequest;
+import com.neverless.resources.dtos.WithdrawalRequest;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+public class ChangesSpec extends FunctionalSpec {
+
+    protected ChangesSpec(ApplicationContext context) {
+        super(context);
+    }
+
+    @Test
+    void should_stream_balance_changes_and_withdrawal_transitions_of_account() {
+        final var accountId = AccountId.random();
+
+        // when
+        when().body(new CreateAccountRequest(accountId)).post("/accounts").then().statusCode(200);
+        when().body(new AddFundRequest(100L)).put("/accounts/{id}/funds", accountId.value()).then().statusCode(204);
+        when().body(new WithdrawalRequest(UUID.randomUUID().toString(), 30L)).post("/accounts/{id}/withdrawals", accountId.value()).then().statusCode(204);
+
+        // then
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(changesOf(accountId)).hasSizeGreaterThanOrEqualTo(3));
+        final var changes = changesOf(accountId);
+        assertThatJson(changes.get(0)).isEqualTo("""
+                {"offset": "${json-unit.any-number}", "type": "ACCOUNT_CREATED", "timestamp": "${json-unit.any-number}",
+                 "accountId": "%s", "version": 0, "balance": 0, "lockedBalance": 0}""".formatted(accountId.value()));
+        assertThatJson(changes.get(1)).isEqualTo("""
+                {"offset": "${json-unit.any-number}", "type": "ACCOUNT_CHANGED", "timestamp": "${json-unit.any-number}",
+                 "accountId": "%s", "version": 1, "balance": 100, "lockedBalance": 0}""".formatted(accountId.value()));
+        assertThatJson(changes.get(2)).inPath("lockedBalance").isEqualTo(30);
+        assertThatJson(changes.get(2)).inPath("withdrawals[0].amount").isEqualTo(30);
+        assertThatJson(changes.get(2)).inPath("withdrawals[0].status").isEqualTo("PENDING");
+    }
+
+    @Test
+    void should_respond_with_bad_request_for_negative_offset() {
+        // when
+        final var response = when().get("/changes?fromOffset=-1").thenReturn();
+
+        // then
+        assertThat(response.statusCode()).isEqualTo(400);
+    }
+
+    //    Pages through the whole feed, other specs write to it too
+    private List<String> changesOf(AccountId accountId) {
+        final List<String> changes = new ArrayList<>();
+        var fromOffset = 0L;
+        while (true) {
+            final var lines = when().get("/changes?fromOffset={offset}&limit=1000", fromOffset).thenReturn().body().asString().lines().toList();
+            if (lines.isEmpty()) {
+                return changes;
+            }
+            lines.stream().filter(line -> line.contains(accountId.value().toString())).forEach(changes::add);
+            fromOffset += lines.size();
+        }
+    }
+}
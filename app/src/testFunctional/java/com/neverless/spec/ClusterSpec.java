@@ -0,0 +1,120 @@
+package com.neverless.spec;
+
+import com.neverless.App;
+import com.neverless.AppConfig;
+import com.neverless.domain.AccountId;
+import com.neverless.resources.dtos.AddFundRequest;
+import com.neverless.resources.dtos.CreateAccountRequest;
+import io.restassured.RestAssured;
+import io.restassured.specification.RequestSpecification;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/*
+ * Starts two nodes on localhost with their own membership, instead of shared application of FunctionalSpec.
+ */
+public class ClusterSpec {
+
+    @TempDir
+    Path directory;
+    private App nodeA;
+    private App nodeB;
+    private int httpPortA;
+    private int httpPortB;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        httpPortA = freePort();
+        httpPortB = freePort();
+        final var membership = directory.resolve("cluster.txt");
+        Files.writeString(membership, """
+                node-a http://localhost:%d localhost:%d
+                node-b http://localhost:%d localhost:%d
+                """.formatted(httpPortA, freePort(), httpPortB, freePort()));
+        nodeA = start(membership, "node-a", httpPortA);
+        nodeB = start(membership, "node-b", httpPortB);
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodeA.stop();
+        nodeB.stop();
+    }
+
+    @Test
+    void should_serve_accounts_through_any_node() {
+        final var accountId = AccountId.random();
+
+        // when
+        nodeA().body(new CreateAccountRequest(accountId)).post("/accounts").then().statusCode(200);
+        nodeB().body(new AddFundRequest(500L)).put("/accounts/{id}/funds", accountId.value()).then().statusCode(204);
+
+        // then
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            assertThatJson(nodeA().get("/accounts/{id}", accountId.value()).thenReturn().body().asString())
+                    .isEqualTo("{\"id\": \"%s\", \"balance\": 500, \"lockedBalance\": 0}".formatted(accountId.value()));
+            assertThatJson(nodeB().get("/accounts/{id}", accountId.value()).thenReturn().body().asString())
+                    .isEqualTo("{\"id\": \"%s\", \"balance\": 500, \"lockedBalance\": 0}".formatted(accountId.value()));
+        });
+    }
+
+    @Test
+    void should_answer_unknown_account_with_not_found_on_any_node() {
+        final var accountId = AccountId.random();
+
+        // expect
+        assertThat(nodeA().get("/accounts/{id}", accountId.value()).thenReturn().statusCode()).isEqualTo(404);
+        assertThat(nodeB().get("/accounts/{id}", accountId.value()).thenReturn().statusCode()).isEqualTo(404);
+    }
+
+    @Test
+    void should_point_long_poll_to_owner_node() {
+        final var accountId = AccountId.random();
+        nodeA().body(new CreateAccountRequest(accountId)).post("/accounts").then().statusCode(200);
+
+        // when
+        final var fromA = nodeA().get("/accounts/{id}?sinceVersion=0&timeoutMs=10", accountId.value()).thenReturn();
+        final var fromB = nodeB().get("/accounts/{id}?sinceVersion=0&timeoutMs=10", accountId.value()).thenReturn();
+
+        // then
+        assertThat(List.of(fromA.statusCode(), fromB.statusCode())).containsOnlyOnce(421);
+        final var owner = fromA.statusCode() == 421 ? httpPortB : httpPortA;
+        final var misdirected = fromA.statusCode() == 421 ? fromA : fromB;
+        assertThat(misdirected.header("Neverless-Owner")).isEqualTo("http://localhost:%d".formatted(owner));
+    }
+
+    private RequestSpecification nodeA() {
+        return RestAssured.given().port(httpPortA).contentType("application/json").when();
+    }
+
+    private RequestSpecification nodeB() {
+        return RestAssured.given().port(httpPortB).contentType("application/json").when();
+    }
+
+    private App start(Path membership, String nodeId, int httpPort) throws IOException {
+        final var app = new App(AppConfig.fromSystemProperties()
+                .withDataDirectory(Files.createTempDirectory(directory, nodeId))
+                .withCluster(membership, nodeId));
+        app.start(httpPort);
+        return app;
+    }
+
+    private static int freePort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
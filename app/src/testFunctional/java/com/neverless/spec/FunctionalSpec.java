@@ -1,6 +1,7 @@
 package com.neverless.spec;
 
 import com.neverless.App;
+import com.neverless.AppConfig;
 import io.restassured.RestAssured;
 import io.restassured.builder.RequestSpecBuilder;
 import io.restassured.specification.RequestSpecification;
@@ -10,6 +11,10 @@ import org.junit.jupiter.api.extension.ParameterContext;
 import org.junit.jupiter.api.extension.ParameterResolutionException;
 import org.junit.jupiter.api.extension.ParameterResolver;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+
 @ExtendWith(FunctionalSpec.ApplicationExtension.class)
 public abstract class FunctionalSpec {
 
@@ -53,7 +58,12 @@ public abstract class FunctionalSpec {
         public final App app;
 
         public ApplicationContext() {
-            app = new App();
+            try {
+                app = new App(AppConfig.fromSystemProperties().withDataDirectory(Files.createTempDirectory("neverless-spec"))
+                        .withChangeFeed(1024 * 1024));
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
 
             app.start(0);
         }
@@ -0,0 +1,59 @@
+package com.neverless.spec;
+
+import com.neverless.domain.AccountId;
+import com.neverless.resources.dtos.AddFundRequest;
+import com.neverless.resources.dtos.CreateAccountRequest;
+import io.restassured.response.Response;
+import org.awaitility.Durations;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static java.time.temporal.ChronoUnit.SECONDS;
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+public class IdempotencySpec extends FunctionalSpec {
+
+    protected IdempotencySpec(ApplicationContext context) {
+        super(context);
+    }
+
+    @Test
+    void should_add_funds_only_once_when_request_is_retried_with_same_idempotency_key() {
+        final var accountId = AccountId.random();
+        when().body(new CreateAccountRequest(accountId)).post("/accounts").thenReturn();
+
+        // when
+        final var first = addFunds(accountId, "retry-key", 100L);
+        final var retry = addFunds(accountId, "retry-key", 100L);
+        addFunds(accountId, "other-key", 100L);
+
+        // then
+        assertThat(first.statusCode()).isEqualTo(204);
+        assertThat(retry.statusCode()).isEqualTo(204);
+        assertThat(retry.header("Idempotent-Replayed")).isEqualTo("true");
+        await().atMost(Duration.of(5, SECONDS)).pollInterval(Durations.ONE_HUNDRED_MILLISECONDS)
+                .untilAsserted(() -> assertThatJson(when().get("/accounts/{id}", accountId.value()).body().asString())
+                        .inPath("balance").isEqualTo(200));
+    }
+
+    @Test
+    void should_respond_with_conflict_when_idempotency_key_is_reused_for_different_request() {
+        final var accountId = AccountId.random();
+        when().body(new CreateAccountRequest(accountId)).post("/accounts").thenReturn();
+        addFunds(accountId, "reused-key", 100L);
+
+        // when
+        final var response = addFunds(accountId, "reused-key", 300L);
+
+        // then
+        assertThat(response.statusCode()).isEqualTo(409);
+    }
+
+    private Response addFunds(AccountId accountId, String idempotencyKey, Long amount) {
+        return given().header("Idempotency-Key", idempotencyKey).body(new AddFundRequest(amount))
+                .when().put("/accounts/{id}/funds", accountId.value()).thenReturn();
+    }
+}
@@ -0,0 +1,34 @@
+package com.neverless.spec;
+
+import com.neverless.domain.AccountId;
+import com.neverless.resources.dtos.CreateAccountRequest;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class MetricsSpec extends FunctionalSpec {
+
+    protected MetricsSpec(ApplicationContext context) {
+        super(context);
+    }
+
+    @Test
+    void should_expose_endpoint_and_shard_metrics_in_prometheus_format() {
+        final var accountId = AccountId.random();
+        when().body(new CreateAccountRequest(accountId)).post("/accounts").thenReturn();
+        when().get("/accounts/{id}", accountId.value()).thenReturn();
+
+        // when
+        final var response = when().get("/metrics").thenReturn();
+
+        // then
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.contentType()).startsWith("text/plain");
+        assertThat(response.body().asString()).contains(
+                "http_request_seconds_count{method=\"GET\",path=\"/accounts/{id}\"}",
+                "http_requests_total{method=\"POST\",path=\"/accounts\",status=\"200\"}",
+                "account_operation_queue_depth{shard=\"0\"}",
+                "external_withdrawals_pending",
+                "idempotency_cache_size");
+    }
+}
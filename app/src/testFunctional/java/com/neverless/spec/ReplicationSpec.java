@@ -0,0 +1,110 @@
+package com.neverless.spec;
+
+import com.neverless.App;
+import com.neverless.AppConfig;
+import com.neverless.domain.AccountId;
+import com.neverless.resources.dtos.AddFundRequest;
+import com.neverless.resources.dtos.CreateAccountRequest;
+import io.restassured.RestAssured;
+import io.restassured.specification.RequestSpecification;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+/*
+ * Starts a primary and a standby following it on localhost, instead of shared application of FunctionalSpec.
+ */
+public class ReplicationSpec {
+
+    @TempDir
+    Path directory;
+    private App primary;
+    private App standby;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        final var replicationPort = freePort();
+        primary = start("primary", AppConfig.fromSystemProperties().withReplication(replicationPort, null));
+        standby = start("standby", AppConfig.fromSystemProperties().withReplication(-1, "localhost:%d".formatted(replicationPort)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        standby.stop();
+        primary.stop();
+    }
+
+    @Test
+    void should_serve_changes_of_primary_from_standby() {
+        final var accountId = AccountId.random();
+
+        // when
+        on(primary).body(new CreateAccountRequest(accountId)).post("/accounts").then().statusCode(200);
+        on(primary).body(new AddFundRequest(500L)).put("/accounts/{id}/funds", accountId.value()).then().statusCode(204);
+
+        // then
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            final var response = on(standby).get("/accounts/{id}", accountId.value()).thenReturn();
+            assertThat(response.statusCode()).isEqualTo(200);
+            assertThat(response.header("Neverless-Staleness-Millis")).isNotNull();
+            assertThatJson(response.body().asString())
+                    .isEqualTo("{\"id\": \"%s\", \"balance\": 500, \"lockedBalance\": 0}".formatted(accountId.value()));
+        });
+    }
+
+    @Test
+    void should_reject_changes_on_standby() {
+        final var accountId = AccountId.random();
+
+        // when
+        final var response = on(standby).body(new CreateAccountRequest(accountId)).post("/accounts").thenReturn();
+
+        // then
+        assertThat(response.statusCode()).isEqualTo(503);
+    }
+
+    @Test
+    void should_accept_changes_once_standby_is_promoted() {
+        final var accountId = AccountId.random();
+        on(primary).body(new CreateAccountRequest(accountId)).post("/accounts").then().statusCode(200);
+        await().atMost(Duration.ofSeconds(5))
+                .until(() -> on(standby).get("/accounts/{id}", accountId.value()).thenReturn().statusCode() == 200);
+
+        // when
+        final var promotion = on(standby).post("/replication/promote").thenReturn();
+        on(standby).body(new AddFundRequest(100L)).put("/accounts/{id}/funds", accountId.value()).then().statusCode(204);
+
+        // then
+        assertThatJson(promotion.body().asString()).inPath("role").isEqualTo("primary");
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThatJson(on(standby).get("/accounts/{id}", accountId.value()).thenReturn().body().asString())
+                        .inPath("balance").isEqualTo(100));
+    }
+
+    private RequestSpecification on(App app) {
+        return RestAssured.given().port(app.port()).contentType("application/json").when();
+    }
+
+    private App start(String name, AppConfig config) throws IOException {
+        final var app = new App(config.withDataDirectory(Files.createTempDirectory(directory, name)));
+        app.start(0);
+        return app;
+    }
+
+    private static int freePort() throws IOException {
+        try (var socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.neverless.spec;
+
+import com.neverless.domain.AccountId;
+import com.neverless.resources.dtos.AddFundRequest;
+import com.neverless.resources.dtos.CreateAccountRequest;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+public class ReportsSpec extends FunctionalSpec {
+
+    protected ReportsSpec(ApplicationContext context) {
+        super(context);
+    }
+
+    @Test
+    void should_find_and_summarize_accounts_by_balance() {
+        // given
+        final var accountId = AccountId.random();
+//        Other specs create accounts too, a balance of its own singles this one out
+        final var balance = 1_000_000_000_000L + ThreadLocalRandom.current().nextLong(1_000_000_000L);
+        when().body(new CreateAccountRequest(accountId)).post("/accounts").then().statusCode(200);
+        when().body(new AddFundRequest(balance)).put("/accounts/{id}/funds", accountId.value()).then().statusCode(204);
+
+        // when
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> assertThat(
+                when().get("/reports/accounts?minBalance={balance}&maxBalance={balance}", balance, balance).thenReturn().body().asString())
+                .isNotEmpty());
+        final var accounts = when().get("/reports/accounts?minBalance={balance}&maxBalance={balance}", balance, balance).thenReturn();
+        final var summary = when().get("/reports/summary?minBalance={balance}&maxBalance={balance}", balance, balance).thenReturn();
+
+        // then
+        assertThat(accounts.statusCode()).isEqualTo(200);
+        assertThat(accounts.body().asString().lines()).singleElement().satisfies(line -> assertThatJson(line).isEqualTo("""
+                {"id": "%s", "balance": %d, "lockedBalance": 0, "inFlightWithdrawals": 0, "inFlightWithdrawalAmount": 0}"""
+                .formatted(accountId.value(), balance)));
+        assertThat(summary.statusCode()).isEqualTo(200);
+        assertThatJson(summary.body().asString()).inPath("matched").isEqualTo(1);
+        assertThatJson(summary.body().asString()).inPath("totals.balance").isEqualTo(balance);
+        assertThatJson(summary.body().asString()).inPath("balanceDistribution[13].accounts").isEqualTo(1);
+    }
+
+    @Test
+    void should_respond_with_bad_request_for_filter_which_is_not_a_number() {
+        // when
+        final var response = when().get("/reports/summary?minBalance=lots").thenReturn();
+
+        // then
+        assertThat(response.statusCode()).isEqualTo(400);
+    }
+}
@@ -0,0 +1,116 @@
+package com.neverless.spec;
+
+import com.neverless.App;
+import com.neverless.AppConfig;
+import com.neverless.ServerProfile;
+import com.neverless.domain.AccountId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Starts its own application per server profile against real Jetty, instead of shared application of FunctionalSpec
+ * which runs on the default (platform) profile.
+ */
+public class ServerProfileSpec {
+
+    @TempDir
+    Path directory;
+    private App app;
+
+    @AfterEach
+    void tearDown() {
+        if (app != null) {
+            app.stop();
+        }
+    }
+
+    @Test
+    void should_serve_http2_over_cleartext_with_h2c_profile() throws IOException, InterruptedException {
+        start(ServerProfile.H2C);
+
+        // when
+        final var response = send(HttpClient.Version.HTTP_2, get("/healthcheck"));
+
+        // then
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.version()).isEqualTo(HttpClient.Version.HTTP_2);
+        assertThat(response.body()).isEqualTo("OK");
+    }
+
+    @Test
+    void should_keep_serving_http1_on_same_port_with_h2c_profile() throws IOException, InterruptedException {
+        start(ServerProfile.H2C);
+
+        // when
+        final var response = send(HttpClient.Version.HTTP_1_1, get("/healthcheck"));
+
+        // then
+        assertThat(response.statusCode()).isEqualTo(200);
+        assertThat(response.version()).isEqualTo(HttpClient.Version.HTTP_1_1);
+    }
+
+    @Test
+    void should_serve_accounts_over_http2_with_h2c_profile() throws IOException, InterruptedException {
+        start(ServerProfile.H2C);
+        final var accountId = AccountId.random();
+
+        // when
+        final var created = send(HttpClient.Version.HTTP_2, post("/accounts", "{\"accountId\": \"%s\"}".formatted(accountId.value())));
+        final var fetched = send(HttpClient.Version.HTTP_2, get("/accounts/%s".formatted(accountId.value())));
+
+        // then
+        assertThat(created.statusCode()).isEqualTo(200);
+        assertThat(fetched.version()).isEqualTo(HttpClient.Version.HTTP_2);
+        assertThatJson(fetched.body()).isEqualTo("{\"id\": \"%s\", \"balance\": 0, \"lockedBalance\": 0}".formatted(accountId.value()));
+    }
+
+    @Test
+    void should_serve_accounts_over_http1_only_with_virtual_profile() throws IOException, InterruptedException {
+        start(ServerProfile.VIRTUAL);
+        final var accountId = AccountId.random();
+
+        // when
+        final var created = send(HttpClient.Version.HTTP_1_1, post("/accounts", "{\"accountId\": \"%s\"}".formatted(accountId.value())));
+        final var fetched = send(HttpClient.Version.HTTP_2, get("/accounts/%s".formatted(accountId.value())));
+
+        // then
+        assertThat(created.statusCode()).isEqualTo(200);
+        assertThat(fetched.version()).isEqualTo(HttpClient.Version.HTTP_1_1);
+        assertThatJson(fetched.body()).isEqualTo("{\"id\": \"%s\", \"balance\": 0, \"lockedBalance\": 0}".formatted(accountId.value()));
+    }
+
+    private void start(ServerProfile profile) throws IOException {
+        app = new App(AppConfig.fromSystemProperties().withDataDirectory(directory).withServerProfile(profile));
+        app.start(0);
+    }
+
+    private HttpRequest.Builder get(String path) {
+        return HttpRequest.newBuilder(uri(path)).GET();
+    }
+
+    private HttpRequest.Builder post(String path, String json) {
+        return HttpRequest.newBuilder(uri(path)).header("Content-Type", "application/json").POST(HttpRequest.BodyPublishers.ofString(json));
+    }
+
+    private URI uri(String path) {
+        return URI.create("http://localhost:%d%s".formatted(app.port(), path));
+    }
+
+    //    Client asking for HTTP/2 over plain http upgrades, and stays on HTTP/1.1 when server does not speak HTTP/2
+    private static HttpResponse<String> send(HttpClient.Version version, HttpRequest.Builder request) throws IOException, InterruptedException {
+        try (var client = HttpClient.newBuilder().version(version).build()) {
+            return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        }
+    }
+}
@@ -1,11 +1,20 @@
 package com.neverless.spec;
 
+import com.neverless.App;
+import com.neverless.AppConfig;
+import io.restassured.RestAssured;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
 
 public class StartupSpec extends FunctionalSpec {
+    @TempDir
+    Path directory;
+
     protected StartupSpec(ApplicationContext application) {
         super(application);
     }
@@ -19,4 +28,20 @@ public class StartupSpec extends FunctionalSpec {
         assertThat(response.statusCode()).isEqualTo(200);
         assertThat(response.body().asString()).isEqualTo("OK");
     }
+
+    @Test
+    void should_leave_warm_up_requests_out_of_request_metrics() {
+        //        Own application, shared one has served real requests to the endpoints warm up reads
+        final var app = new App(AppConfig.fromSystemProperties().withDataDirectory(directory).withWarmUpIterations(50));
+        app.start(0);
+        try {
+            // when
+            final var metrics = RestAssured.given().port(app.port()).when().get("http://localhost/metrics").thenReturn().body().asString();
+
+            // then
+            assertThat(metrics).doesNotContain("path=\"/accounts/{id}\"", "path=\"/accounts/{id}/stats\"", "path=\"/liabilities\"");
+        } finally {
+            app.stop();
+        }
+    }
 }
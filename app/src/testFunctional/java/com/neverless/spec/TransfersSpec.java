@@ -0,0 +1,92 @@
+package com.neverless.spec;
+
+import com.neverless.domain.AccountId;
+import com.neverless.resources.dtos.AddFundRequest;
+import com.neverless.resources.dtos.CreateAccountRequest;
+import com.neverless.resources.dtos.TransferRequest;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+public class TransfersSpec extends FunctionalSpec {
+
+    protected TransfersSpec(ApplicationContext context) {
+        super(context);
+    }
+
+    @Test
+    void should_move_funds_between_accounts() {
+        final var from = fundedAccount(500L);
+        final var to = fundedAccount(0L);
+
+        // when
+        final var response = when().body(new TransferRequest(to, 200L)).post("/accounts/{id}/transfers", from.value()).thenReturn();
+
+        // then
+        assertThat(response.statusCode()).isEqualTo(204);
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() -> {
+            assertThatJson(when().get("/accounts/{id}", from.value()).thenReturn().body().asString())
+                    .isEqualTo("{\"id\": \"%s\", \"balance\": 300, \"lockedBalance\": 0}".formatted(from.value()));
+            assertThatJson(when().get("/accounts/{id}", to.value()).thenReturn().body().asString())
+                    .isEqualTo("{\"id\": \"%s\", \"balance\": 200, \"lockedBalance\": 0}".formatted(to.value()));
+        });
+        assertThatJson(when().get("/accounts/{id}/transfers", from.value()).thenReturn().body().asString())
+                .isEqualTo("[{\"transferId\": \"${json-unit.any-string}\", \"direction\": \"OUTGOING\", \"counterparty\": \"%s\", \"status\": \"SUCCESS\", \"amount\": 200, \"message\": \"\"}]"
+                        .formatted(to.value()));
+        assertThatJson(when().get("/accounts/{id}/transfers", to.value()).thenReturn().body().asString())
+                .isEqualTo("[{\"transferId\": \"${json-unit.any-string}\", \"direction\": \"INCOMING\", \"counterparty\": \"%s\", \"status\": \"SUCCESS\", \"amount\": 200, \"message\": \"\"}]"
+                        .formatted(from.value()));
+    }
+
+    @Test
+    void should_record_rejected_transfer_when_funds_are_not_available() {
+        final var from = fundedAccount(50L);
+        final var to = fundedAccount(0L);
+
+        // when
+        when().body(new TransferRequest(to, 200L)).post("/accounts/{id}/transfers", from.value()).then().statusCode(204);
+
+        // then
+        await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                assertThatJson(when().get("/accounts/{id}/transfers", from.value()).thenReturn().body().asString())
+                        .inPath("[0].status").isEqualTo("ERROR"));
+        assertThatJson(when().get("/accounts/{id}", to.value()).thenReturn().body().asString()).inPath("balance").isEqualTo(0);
+    }
+
+    @Test
+    void should_respond_with_not_found_when_destination_does_not_exist() {
+        final var from = fundedAccount(500L);
+
+        // when
+        final var response = when().body(new TransferRequest(AccountId.random(), 200L)).post("/accounts/{id}/transfers", from.value()).thenReturn();
+
+        // then
+        assertThat(response.statusCode()).isEqualTo(404);
+    }
+
+    @Test
+    void should_respond_with_bad_request_when_transferring_to_same_account() {
+        final var from = fundedAccount(500L);
+
+        // when
+        final var response = when().body(new TransferRequest(from, 200L)).post("/accounts/{id}/transfers", from.value()).thenReturn();
+
+        // then
+        assertThat(response.statusCode()).isEqualTo(400);
+    }
+
+    private AccountId fundedAccount(long amount) {
+        final var accountId = AccountId.random();
+        when().body(new CreateAccountRequest(accountId)).post("/accounts").then().statusCode(200);
+        if (amount > 0) {
+            when().body(new AddFundRequest(amount)).put("/accounts/{id}/funds", accountId.value()).then().statusCode(204);
+            await().atMost(Duration.ofSeconds(5)).untilAsserted(() ->
+                    assertThatJson(when().get("/accounts/{id}", accountId.value()).thenReturn().body().asString()).inPath("balance").isEqualTo(amount));
+        }
+        return accountId;
+    }
+}
@@ -0,0 +1,59 @@
+package com.neverless.spec;
+
+import com.neverless.domain.AccountId;
+import com.neverless.resources.Accounts.AccountResponse;
+import com.neverless.resources.dtos.CreateAccountRequest;
+import com.neverless.resources.serialization.Serializers;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WireFormatSpec extends FunctionalSpec {
+
+    protected WireFormatSpec(ApplicationContext context) {
+        super(context);
+    }
+
+    @Test
+    void should_accept_and_respond_with_cbor_when_negotiated() throws Exception {
+        final var accountId = AccountId.random();
+        final var cbor = Serializers.cbor();
+
+        // when
+        final var created = given()
+                .contentType("application/cbor")
+                .header("Accept", "application/cbor")
+                .body(cbor.writeValueAsBytes(new CreateAccountRequest(accountId)))
+                .post("/accounts").thenReturn();
+        final var fetched = given().header("Accept", "application/cbor").get("/accounts/{id}", accountId.value()).thenReturn();
+
+        // then
+        assertThat(created.statusCode()).isEqualTo(200);
+        assertThat(fetched.contentType()).startsWith("application/cbor");
+        assertThat(cbor.readValue(fetched.asByteArray(), AccountResponse.class)).isEqualTo(new AccountResponse(accountId, 0L, 0L));
+    }
+
+    @Test
+    void should_reject_malformed_cbor_body_as_bad_request() {
+        // when
+        final var response = given()
+                .contentType("application/cbor")
+                .body(new byte[]{(byte) 0xbf, 0x61})
+                .post("/accounts").thenReturn();
+
+        // then
+        assertThat(response.statusCode()).isEqualTo(400);
+    }
+
+    @Test
+    void should_respond_with_json_by_default() {
+        final var accountId = AccountId.random();
+        when().body(new CreateAccountRequest(accountId)).post("/accounts").thenReturn();
+
+        // when
+        final var fetched = when().get("/accounts/{id}", accountId.value()).thenReturn();
+
+        // then
+        assertThat(fetched.contentType()).startsWith("application/json");
+    }
+}
@@ -0,0 +1,70 @@
+package com.neverless.spec;
+
+import com.neverless.domain.AccountId;
+import com.neverless.resources.dtos.AddFundRequest;
+import com.neverless.resources.dtos.CreateAccountRequest;
+import com.neverless.resources.dtos.WithdrawalRequest;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class WithdrawalEventsSpec extends FunctionalSpec {
+
+    protected WithdrawalEventsSpec(ApplicationContext context) {
+        super(context);
+    }
+
+    @Test
+    void should_push_withdrawal_status_transitions_of_account() throws Exception {
+        final var accountId = AccountId.random();
+        when().body(new CreateAccountRequest(accountId)).post("/accounts").thenReturn();
+        when().body(new AddFundRequest(1000L)).put("/accounts/{id}/funds", accountId.value()).thenReturn();
+
+        // given
+        final var request = HttpRequest.newBuilder(URI.create("http://localhost:%d/accounts/%s/withdrawals/events".formatted(application.port(), accountId.value())))
+//                Javalin only streams to clients asking for it, like EventSource does
+                .header("Accept", "text/event-stream")
+                .timeout(Duration.ofSeconds(15))
+                .build();
+        final var events = HttpClient.newHttpClient().sendAsync(request, HttpResponse.BodyHandlers.ofLines());
+        final var response = events.get(5, TimeUnit.SECONDS);
+        assertThat(response.statusCode()).isEqualTo(200);
+
+        // when
+        when().body(new WithdrawalRequest("address", 100L)).post("/accounts/{id}/withdrawals", accountId.value()).thenReturn();
+
+        // then
+        final var firstEvent = response.body()
+                .filter(line -> line.startsWith("data:"))
+                .findFirst()
+                .orElseThrow()
+                .substring("data:".length());
+        assertThatJson(firstEvent).whenIgnoringPaths("sequence", "withdrawalId").isEqualTo("""
+                {
+                    "sequence": 1,
+                    "accountId": "%s",
+                    "withdrawalId": "IgnoredFromAssertion",
+                    "status": "PENDING",
+                    "amount": 100,
+                    "message": ""
+                }
+                """.formatted(accountId.value()));
+    }
+
+    @Test
+    void should_respond_with_404_when_subscribing_to_unknown_account() {
+        // when
+        final var response = when().get("/accounts/{id}/withdrawals/events", AccountId.random().value()).thenReturn();
+
+        // then
+        assertThat(response.statusCode()).isEqualTo(404);
+    }
+}
@@ -0,0 +1,43 @@
+package com.neverless.spec;
+
+import com.neverless.domain.AccountId;
+import com.neverless.resources.dtos.AddFundRequest;
+import com.neverless.resources.dtos.CreateAccountRequest;
+import com.neverless.resources.dtos.WithdrawalRequest;
+import org.awaitility.Durations;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static java.time.temporal.ChronoUnit.SECONDS;
+import static net.javacrumbs.jsonunit.assertj.JsonAssertions.assertThatJson;
+import static org.awaitility.Awaitility.await;
+
+public class WithdrawalLatencySpec extends FunctionalSpec {
+
+    protected WithdrawalLatencySpec(ApplicationContext context) {
+        super(context);
+    }
+
+    @Test
+    void should_report_stage_latencies_once_withdrawal_unlocked_balance() {
+        final var accountId = AccountId.random();
+        when().body(new CreateAccountRequest(accountId)).post("/accounts").thenReturn();
+        when().body(new AddFundRequest(1000L)).put("/accounts/{id}/funds", accountId.value()).thenReturn();
+
+        // when
+        when().body(new WithdrawalRequest(UUID.randomUUID().toString(), 100L)).post("/accounts/{id}/withdrawals", accountId.value()).thenReturn();
+
+        // then
+        await().atMost(Duration.of(11, SECONDS))//Stub withdrawal service responds in max 10 seconds
+                .pollInterval(Durations.FIVE_HUNDRED_MILLISECONDS)
+                .untilAsserted(() -> {
+                    final var latency = when().get("/withdrawals/latency").body().asString();
+                    assertThatJson(latency).inPath("total.count").isNumber().isPositive();
+                    assertThatJson(latency).inPath("stages").isObject()
+                            .containsKeys("applied", "submitted", "processing", "final_state", "unlocked");
+                    assertThatJson(latency).inPath("stages.unlocked.count").isNumber().isPositive();
+                });
+    }
+}
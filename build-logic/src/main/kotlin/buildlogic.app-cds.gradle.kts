@@ -0,0 +1,56 @@
+/*
+ * Adds a 'cdsArchive' task creating an AppCDS (class data sharing) archive of the application: a training run starts
+ * the application, lets it warm up and stops it, the JVM dumps every class it loaded into build/cds/app.jsa. JVMs
+ * started with the archive map those classes in instead of loading, parsing and verifying them again.
+ *
+ * An archive is only valid for the JVM and classpath it was created with, a mismatch is not an error, the JVM just
+ * starts without it. -Pcds makes 'run' create and use the archive, and 'loadTest' (whose classpath differs) keep its
+ * own, created by its first run and used by the following ones.
+ *
+ *   ./gradlew :app:cdsArchive
+ *   ./gradlew :app:run -Pcds
+ *   ./gradlew :app:loadTest -Pcds                       run twice, first run only creates archive
+ */
+
+plugins {
+    java
+    application
+}
+
+val cds = providers.gradleProperty("cds").map { it != "false" }.orElse(false)
+val cdsDirectory = layout.buildDirectory.dir("cds")
+val appArchive = cdsDirectory.map { it.file("app.jsa") }
+
+val cdsArchive = tasks.register<JavaExec>("cdsArchive") {
+    group = "build"
+    description = "Creates class data sharing archive of the application from a training run"
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass = application.mainClass
+    systemProperty("neverless.exit-after-start", "true")
+    outputs.file(appArchive)
+    jvmArgumentProviders.add(CommandLineArgumentProvider {
+        listOf("-XX:ArchiveClassesAtExit=${appArchive.get().asFile.absolutePath}",
+                "-Dneverless.data-dir=${cdsDirectory.get().dir("data").asFile.absolutePath}")
+    })
+    doFirst {
+        cdsDirectory.get().asFile.mkdirs()
+    }
+}
+
+tasks.named<JavaExec>("run") {
+    if (cds.get()) {
+        dependsOn(cdsArchive)
+        jvmArgumentProviders.add(CommandLineArgumentProvider {
+            listOf("-XX:SharedArchiveFile=${appArchive.get().asFile.absolutePath}")
+        })
+    }
+}
+
+tasks.matching { it.name == "loadTest" }.configureEach {
+    if (cds.get()) {
+        (this as JavaExec).jvmArgumentProviders.add(CommandLineArgumentProvider {
+            cdsDirectory.get().asFile.mkdirs()
+            listOf("-XX:+AutoCreateSharedArchive", "-XX:SharedArchiveFile=${cdsDirectory.get().file("loadTest.jsa").asFile.absolutePath}")
+        })
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Adds a 'jmh' source set (src/jmh/java) next to main and a 'jmh' task running it.
+ *
+ * Benchmarks live in the same packages as code under test, so they can reach package private classes.
+ * JMH dependencies themselves are declared by the project, i.e. jmhImplementation(libs.jmh.core)
+ *
+ *   ./gradlew :app:jmh                                  all benchmarks, with gc/allocation profiler
+ *   ./gradlew :app:jmh -Pjmh.include=AccountBenchmark   only matching benchmarks
+ *   ./gradlew :app:jmh -Pjmh.args="-f 1 -wi 2 -i 3"     any other JMH arguments
+ */
+
+plugins {
+    java
+}
+
+val jmh: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[jmh.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[jmh.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
+tasks.register<JavaExec>("jmh") {
+    group = "benchmark"
+    description = "Runs JMH benchmarks of the jmh source set"
+    classpath = jmh.runtimeClasspath
+    mainClass = "org.openjdk.jmh.Main"
+
+    val include = providers.gradleProperty("jmh.include").orElse(".*")
+    val extraArgs = providers.gradleProperty("jmh.args").orElse("")
+    val results = layout.buildDirectory.file("reports/jmh/results.json")
+    outputs.file(results)
+    outputs.upToDateWhen { false }
+    argumentProviders.add(CommandLineArgumentProvider {
+        listOf(include.get(), "-prof", "gc", "-rf", "json", "-rff", results.get().asFile.absolutePath) +
+                extraArgs.get().split(" ").filter { it.isNotBlank() }
+    })
+    doFirst {
+        results.get().asFile.parentFile.mkdirs()
+    }
+}
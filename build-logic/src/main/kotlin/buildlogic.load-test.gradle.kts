@@ -0,0 +1,38 @@
+/*
+ * Adds a 'loadTest' source set (src/loadTest/java) and a 'loadTest' task running its main class against the
+ * application started in process. Not part of 'check', it runs for a fixed wall clock time.
+ *
+ *   ./gradlew :app:loadTest
+ *   ./gradlew :app:loadTest -Pload.args="rate=2000 duration=60 maxP99Millis=50"
+ *   ./gradlew :app:loadTest -Pload.jvmArgs="-Dlogback.configurationFile=logback-production.xml"
+ *   ./gradlew :app:loadTest -Pload.args="profiles=platform,virtual,h2c"
+ */
+
+plugins {
+    java
+}
+
+val loadTest: SourceSet by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output
+    runtimeClasspath += sourceSets.main.get().output
+}
+
+configurations[loadTest.implementationConfigurationName].extendsFrom(configurations.implementation.get())
+configurations[loadTest.runtimeOnlyConfigurationName].extendsFrom(configurations.runtimeOnly.get())
+
+tasks.register<JavaExec>("loadTest") {
+    group = "verification"
+    description = "Runs open loop load test against application started in process"
+    classpath = loadTest.runtimeClasspath
+    mainClass = "com.neverless.load.LoadTest"
+
+    val loadArgs = providers.gradleProperty("load.args").orElse("")
+    val loadJvmArgs = providers.gradleProperty("load.jvmArgs").orElse("")
+    outputs.upToDateWhen { false }
+    argumentProviders.add(CommandLineArgumentProvider {
+        loadArgs.get().split(" ").filter { it.isNotBlank() }
+    })
+    jvmArgumentProviders.add(CommandLineArgumentProvider {
+        loadJvmArgs.get().split(" ").filter { it.isNotBlank() }
+    })
+}